@@ -0,0 +1,152 @@
+/*
+ * IPBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.ip;
+
+import com.github.toolarium.network.ip.dto.CIDRInfo;
+import com.github.toolarium.network.ip.formatter.IPV6Formatter;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Micro benchmarks of the ip utilities, which are used e.g. in the log enrichment. The validation benchmarks run over
+ * a mix of valid and invalid input to avoid a trivially predictable branch.
+ *
+ * @author patrick
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IPBenchmark {
+    private static final String[] IPV4_INPUT = {"192.168.1.10", "10.0.0.255", "256.1.1.1", "172.16.254.3", "not-an-ip", "8.8.8.8", "1.2.3", "2001:db8::1"};
+    private static final String[] IPV6_INPUT = {"2001:db8::1", "fe80::1ff:fe23:4567:890a", "2001:0db8:85a3:0000:0000:8a2e:0370:7334", "::1",
+                                                "192.168.1.10", "2001:db8:::1", "ff02::2", "gggg::1"};
+    private static final String IPV4_CIDR = "192.168.0.0/16";
+    private static final String IPV6_CIDR = "2001:db8::/48";
+    private static final String IPV6_ADDRESS = "2001:0db8:0000:0000:0000:ff00:0042:8329";
+    private IPV6Formatter ipv6Formatter;
+
+
+    /**
+     * Setup
+     */
+    @Setup
+    public void setup() {
+        ipv6Formatter = new IPV6Formatter();
+    }
+
+
+    /**
+     * Validate IPv4 addresses
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void isIPv4Address(Blackhole blackhole) {
+        for (String input : IPV4_INPUT) {
+            blackhole.consume(IPUtil.getInstance().isIPv4Address(input));
+        }
+    }
+
+
+    /**
+     * Validate IPv6 addresses
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public void isIPv6Address(Blackhole blackhole) {
+        for (String input : IPV6_INPUT) {
+            blackhole.consume(IPUtil.getInstance().isIPv6Address(input));
+        }
+    }
+
+
+    /**
+     * Check if an IPv4 address is in a range
+     *
+     * @return true if it is in range
+     */
+    @Benchmark
+    public boolean isInRangeIPv4() {
+        return CIDRUtil.getInstance().isInRange(IPV4_CIDR, "192.168.42.17");
+    }
+
+
+    /**
+     * Check if an IPv6 address is in a range
+     *
+     * @return true if it is in range
+     */
+    @Benchmark
+    public boolean isInRangeIPv6() {
+        return CIDRUtil.getInstance().isInRange(IPV6_CIDR, "2001:db8:0:1::17");
+    }
+
+
+    /**
+     * Parse a CIDR expression
+     *
+     * @return the CIDR info
+     * @throws UnknownHostException In case of an invalid address
+     */
+    @Benchmark
+    public CIDRInfo parseIPv4() throws UnknownHostException {
+        return CIDRUtil.getInstance().parse(IPV4_CIDR);
+    }
+
+
+    /**
+     * Parse an IPv6 CIDR expression
+     *
+     * @return the CIDR info
+     * @throws UnknownHostException In case of an invalid address
+     */
+    @Benchmark
+    public CIDRInfo parseIPv6() throws UnknownHostException {
+        return CIDRUtil.getInstance().parse(IPV6_CIDR);
+    }
+
+
+    /**
+     * Create a CIDR info
+     *
+     * @return the CIDR info
+     * @throws UnknownHostException In case of an invalid address
+     */
+    @Benchmark
+    public CIDRInfo createCIDRInfo() throws UnknownHostException {
+        return new CIDRInfo("10.20.30.40", 24);
+    }
+
+
+    /**
+     * Format an IPv6 address
+     *
+     * @return the formatted address
+     */
+    @Benchmark
+    public String formatIPv6() {
+        return ipv6Formatter.format(IPV6_ADDRESS);
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * BenchmarkHttpClient.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.benchmark;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+
+/**
+ * Minimal blocking HTTP/1.1 client for benchmarks: the request is pre-encoded once and the response is parsed
+ * directly from a reused byte buffer, so the client adds as little overhead as possible to the measurement.
+ * With keep-alive the connection is reused; in case the server closed it, the request is sent again on a new
+ * connection and counted as reconnect.
+ *
+ * @author patrick
+ */
+public class BenchmarkHttpClient implements Closeable {
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int READ_TIMEOUT = 30000;
+    private final InetSocketAddress address;
+    private final boolean keepAlive;
+    private final byte[] request;
+    private final byte[] buffer;
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private long connects;
+    private long reconnects;
+
+
+    /**
+     * Constructor for BenchmarkHttpClient
+     *
+     * @param host the host
+     * @param port the port
+     * @param path the request path
+     * @param keepAlive true to reuse the connection
+     * @param bodySize the request body size; 0 sends a GET, otherwise a POST with the given number of bytes
+     */
+    public BenchmarkHttpClient(String host, int port, String path, boolean keepAlive, int bodySize) {
+        this.address = new InetSocketAddress(host, port);
+        this.keepAlive = keepAlive;
+        this.request = createRequest(host, port, path, keepAlive, bodySize);
+        this.buffer = new byte[Math.max(16 * 1024, bodySize + 1024)];
+        this.connects = 0;
+        this.reconnects = 0;
+    }
+
+
+    /**
+     * Execute the request and read the whole response
+     *
+     * @return the http status code
+     * @throws IOException In case of an I/O error
+     */
+    public int execute() throws IOException {
+        final boolean reused = socket != null;
+        if (!reused) {
+            connect();
+        }
+
+        int status;
+        try {
+            status = send();
+        } catch (IOException e) {
+            if (!reused) {
+                close();
+                throw e;
+            }
+
+            // the server closed the kept-alive connection: retry once on a new connection
+            close();
+            reconnects++;
+            connect();
+            status = send();
+        }
+
+        return status;
+    }
+
+
+    /**
+     * Get the number of opened connections
+     *
+     * @return the number of opened connections
+     */
+    public long getConnects() {
+        return connects;
+    }
+
+
+    /**
+     * Get the number of requests which had to be repeated because a kept-alive connection was closed by the server
+     *
+     * @return the number of reconnects
+     */
+    public long getReconnects() {
+        return reconnects;
+    }
+
+
+    /**
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // NOP
+            }
+        }
+
+        socket = null;
+        in = null;
+        out = null;
+    }
+
+
+    /**
+     * Open a new connection
+     *
+     * @throws IOException In case of an I/O error
+     */
+    private void connect() throws IOException {
+        socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(READ_TIMEOUT);
+        socket.connect(address, CONNECT_TIMEOUT);
+        in = socket.getInputStream();
+        out = socket.getOutputStream();
+        connects++;
+    }
+
+
+    /**
+     * Send the request and read the response
+     *
+     * @return the status code
+     * @throws IOException In case of an I/O error
+     */
+    private int send() throws IOException {
+        out.write(request);
+        out.flush();
+
+        // read until the end of the header section
+        int length = 0;
+        int headerEnd = -1;
+        while (headerEnd < 0) {
+            if (length == buffer.length) {
+                throw new IOException("Response header too large");
+            }
+
+            final int n = in.read(buffer, length, buffer.length - length);
+            if (n < 0) {
+                throw new IOException("Connection closed by server");
+            }
+
+            length += n;
+            headerEnd = findHeaderEnd(buffer, length);
+        }
+
+        final String header = new String(buffer, 0, headerEnd, StandardCharsets.ISO_8859_1);
+        final int status = parseStatus(header);
+        final long contentLength = parseContentLength(header);
+        final boolean close = !keepAlive || header.toLowerCase(Locale.US).contains("connection: close");
+
+        long remaining = -1;
+        if (contentLength >= 0) {
+            remaining = contentLength - (length - headerEnd);
+        }
+
+        while (remaining != 0) {
+            int n;
+            if (remaining > 0) {
+                n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            } else {
+                n = in.read(buffer, 0, buffer.length);
+            }
+
+            if (n < 0) {
+                if (remaining > 0) {
+                    throw new IOException("Unexpected end of response body");
+                }
+
+                // no content length: the body ends with the connection
+                close();
+                return status;
+            }
+
+            if (remaining > 0) {
+                remaining -= n;
+            }
+        }
+
+        if (close) {
+            close();
+        }
+
+        return status;
+    }
+
+
+    /**
+     * Find the end of the header section, LF only line endings are accepted as well
+     *
+     * @param data the data
+     * @param length the length
+     * @return the index after the header section or -1
+     */
+    private static int findHeaderEnd(byte[] data, int length) {
+        for (int i = 0; i < length - 1; i++) {
+            if (data[i] == '\n') {
+                if (data[i + 1] == '\n') {
+                    return i + 2;
+                }
+
+                if (data[i + 1] == '\r' && i + 2 < length && data[i + 2] == '\n') {
+                    return i + 3;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Parse the status code of the status line
+     *
+     * @param header the header section
+     * @return the status code
+     * @throws IOException In case of an invalid status line
+     */
+    private static int parseStatus(String header) throws IOException {
+        final int start = header.indexOf(' ');
+        if (start < 0 || start + 4 > header.length()) {
+            throw new IOException("Invalid status line: " + header);
+        }
+
+        try {
+            return Integer.parseInt(header.substring(start + 1, start + 4));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid status line: " + header);
+        }
+    }
+
+
+    /**
+     * Parse the content length
+     *
+     * @param header the header section
+     * @return the content length or -1
+     */
+    private static long parseContentLength(String header) {
+        final String lowerCaseHeader = header.toLowerCase(Locale.US);
+        int idx = lowerCaseHeader.indexOf("\ncontent-length:");
+        if (idx < 0) {
+            return -1;
+        }
+
+        idx += "\ncontent-length:".length();
+        int end = idx;
+        while (end < lowerCaseHeader.length() && lowerCaseHeader.charAt(end) != '\r' && lowerCaseHeader.charAt(end) != '\n') {
+            end++;
+        }
+
+        try {
+            return Long.parseLong(lowerCaseHeader.substring(idx, end).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+
+    /**
+     * Create the encoded request
+     *
+     * @param host the host
+     * @param port the port
+     * @param path the path
+     * @param keepAlive true to keep the connection alive
+     * @param bodySize the body size
+     * @return the encoded request
+     */
+    private static byte[] createRequest(String host, int port, String path, boolean keepAlive, int bodySize) {
+        final StringBuilder header = new StringBuilder();
+        if (bodySize > 0) {
+            header.append("POST ");
+        } else {
+            header.append("GET ");
+        }
+
+        header.append(path).append(" HTTP/1.1\r\n");
+        header.append("Host: ").append(host).append(':').append(port).append("\r\n");
+        header.append("User-Agent: toolarium-benchmark\r\n");
+        if (keepAlive) {
+            header.append("Connection: keep-alive\r\n");
+        } else {
+            header.append("Connection: close\r\n");
+        }
+
+        if (bodySize > 0) {
+            header.append("Content-Type: text/plain\r\n");
+            header.append("Content-Length: ").append(bodySize).append("\r\n");
+        }
+        header.append("\r\n");
+
+        final byte[] headerBytes = header.toString().getBytes(StandardCharsets.US_ASCII);
+        final byte[] result = Arrays.copyOf(headerBytes, headerBytes.length + Math.max(0, bodySize));
+        Arrays.fill(result, headerBytes.length, result.length, (byte) 'x');
+        return result;
+    }
+}
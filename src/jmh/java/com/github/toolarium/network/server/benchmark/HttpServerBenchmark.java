@@ -0,0 +1,134 @@
+/*
+ * HttpServerBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.benchmark;
+
+import com.github.toolarium.network.server.impl.HttpServerImpl;
+import com.github.toolarium.network.server.logger.impl.ConsoleHttpServerLogger;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * End to end JMH benchmark of the http server over loopback. The server is started once per trial; every benchmark
+ * thread uses its own connection. The number of concurrent connections is given by the JMH threads option
+ * (<code>-t</code>). The sample time mode reports the latency percentiles; since JMH runs a closed loop, use the
+ * {@link HttpServerLoadDriver} for coordinated omission corrected latencies.
+ *
+ * @author patrick
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@Threads(8)
+public class HttpServerBenchmark {
+
+    /**
+     * The server state
+     *
+     * @author patrick
+     */
+    @State(Scope.Benchmark)
+    public static class ServerState {
+        // CHECKSTYLE OFF: VisibilityModifier
+        @Param({"echo", "ping"})
+        public String service;
+
+        @Param({"false", "true"})
+        public boolean keepAlive;
+
+        @Param({"0", "1024", "65536"})
+        public int bodySize;
+        // CHECKSTYLE ON: VisibilityModifier
+
+        private HttpServerImpl server;
+        private int port;
+
+
+        /**
+         * Start the server
+         *
+         * @throws IOException In case of an I/O error
+         */
+        @Setup(Level.Trial)
+        public void start() throws IOException {
+            port = HttpServerLoadDriver.getFreePort();
+            server = new HttpServerImpl();
+            server.init(new ConsoleHttpServerLogger(), null);
+            server.start(HttpServerLoadDriver.createService(service), port);
+        }
+
+
+        /**
+         * Stop the server
+         *
+         * @throws IOException In case of an I/O error
+         */
+        @TearDown(Level.Trial)
+        public void stop() throws IOException {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * The client state, one connection per benchmark thread
+     *
+     * @author patrick
+     */
+    @State(Scope.Thread)
+    public static class ClientState {
+        private BenchmarkHttpClient client;
+
+
+        /**
+         * Create the client
+         *
+         * @param serverState the server state
+         */
+        @Setup(Level.Trial)
+        public void open(ServerState serverState) {
+            client = new BenchmarkHttpClient("localhost", serverState.port, "/benchmark", serverState.keepAlive, serverState.bodySize);
+        }
+
+
+        /**
+         * Close the client
+         */
+        @TearDown(Level.Trial)
+        public void close() {
+            client.close();
+        }
+    }
+
+
+    /**
+     * Send one request and read the response
+     *
+     * @param clientState the client state
+     * @return the status code
+     * @throws IOException In case of an I/O error
+     */
+    @Benchmark
+    public int request(ClientState clientState) throws IOException {
+        return clientState.client.execute();
+    }
+}
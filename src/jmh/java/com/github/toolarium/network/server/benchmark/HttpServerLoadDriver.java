@@ -0,0 +1,438 @@
+/*
+ * HttpServerLoadDriver.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.benchmark;
+
+import com.github.toolarium.network.server.IHttpServer;
+import com.github.toolarium.network.server.impl.HttpServerImpl;
+import com.github.toolarium.network.server.logger.impl.ConsoleHttpServerLogger;
+import com.github.toolarium.network.server.service.EchoService;
+import com.github.toolarium.network.server.service.IHttpService;
+import com.github.toolarium.network.server.service.PingService;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Standalone load driver for the http server. It starts the {@link HttpServerImpl} once (or uses an external server)
+ * and drives it over loopback with a number of concurrent connections.
+ *
+ * <p>In the default closed loop mode each connection sends the next request as soon as the previous response was
+ * received; the latency is corrected for coordinated omission with the mean service time of the warmup as expected
+ * interval. With <code>--rate</code> an open loop with a constant request rate is used and the latency is measured
+ * from the intended send time.</p>
+ *
+ * <pre>
+ * gradlew httpServerLoad -Pload.args="--service=echo --concurrency=16 --keepAlive=true --bodySize=1024 --duration=30"
+ * </pre>
+ *
+ * @author patrick
+ */
+public final class HttpServerLoadDriver {
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final String ECHO = "echo";
+    private String host = "localhost";
+    private int port = -1;
+    private String service = ECHO;
+    private int concurrency = 8;
+    private boolean keepAlive;
+    private int bodySize;
+    private int duration = 10;
+    private int warmup = 3;
+    private long rate;
+    private int workerPoolSize = 100;
+
+
+    /**
+     * Constructor for HttpServerLoadDriver
+     */
+    private HttpServerLoadDriver() {
+        // NOP
+    }
+
+
+    /**
+     * Main
+     *
+     * @param args the arguments
+     * @throws Exception In case of an error
+     */
+    public static void main(String[] args) throws Exception {
+        final HttpServerLoadDriver driver = new HttpServerLoadDriver();
+        if (!driver.parse(args)) {
+            logToConsole("Usage: HttpServerLoadDriver [--service=echo|ping] [--concurrency=8] [--keepAlive=false] [--bodySize=0] [--duration=10] [--warmup=3] "
+                    + "[--rate=<requests per second, open loop>] [--workerPoolSize=100] [--host=localhost --port=<external server>]");
+            return;
+        }
+
+        driver.run();
+    }
+
+
+    /**
+     * Run the load test
+     *
+     * @throws Exception In case of an error
+     */
+    private void run() throws Exception {
+        IHttpServer server = null;
+        if (port <= 0) {
+            port = getFreePort();
+            final HttpServerImpl httpServer = new HttpServerImpl();
+            httpServer.init(new ConsoleHttpServerLogger(), null); // no access log: it would dominate the measurement
+            httpServer.setWorkerPoolSize(workerPoolSize);
+            httpServer.start(createService(service), port);
+            server = httpServer;
+        }
+
+        try {
+            String path = "/";
+            if (ECHO.equals(service) && bodySize == 0) {
+                path = "/benchmark";
+            }
+
+            logToConsole(String.format(Locale.US, "Target http://%s:%d%s, service=%s, concurrency=%d, keepAlive=%s, bodySize=%d, mode=%s",
+                    host, port, path, service, concurrency, keepAlive, bodySize, getMode()));
+
+            final Result warmupResult = execute(path, warmup, 0);
+            long expectedInterval = 0;
+            if (rate <= 0 && warmupResult.serviceTime.getTotalCount() > 0) {
+                expectedInterval = (long) warmupResult.serviceTime.getMean();
+            }
+
+            final Result result = execute(path, duration, expectedInterval);
+            report(result);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+
+
+    /**
+     * Execute one phase
+     *
+     * @param path the path
+     * @param seconds the duration in seconds
+     * @param expectedInterval the expected interval for the coordinated omission correction in closed loop mode
+     * @return the result
+     * @throws InterruptedException In case the thread was interrupted
+     */
+    private Result execute(String path, int seconds, long expectedInterval) throws InterruptedException {
+        final Result result = new Result();
+        if (seconds <= 0) {
+            return result;
+        }
+
+        final long start = System.nanoTime();
+        final long end = start + seconds * NANOS_PER_SECOND;
+        long intervalPerConnection = 0;
+        if (rate > 0) {
+            intervalPerConnection = Math.max(1, concurrency * NANOS_PER_SECOND / rate);
+        }
+
+        final CountDownLatch latch = new CountDownLatch(concurrency);
+        final List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            // spread the open loop start times over one interval
+            final long firstSendTime = start + i * intervalPerConnection / concurrency;
+            final Worker worker = new Worker(new BenchmarkHttpClient(host, port, path, keepAlive, bodySize), firstSendTime, end, intervalPerConnection, expectedInterval, latch);
+            workers.add(worker);
+            final Thread thread = new Thread(worker, "load-driver-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        latch.await();
+        result.elapsed = System.nanoTime() - start;
+        for (Worker worker : workers) {
+            result.add(worker);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Report the result
+     *
+     * @param result the result
+     */
+    private void report(Result result) {
+        final double seconds = (double) result.elapsed / NANOS_PER_SECOND;
+        logToConsole(String.format(Locale.US, "Requests: %d in %.1fs, %.0f req/s, errors: %d, connects: %d, reconnects: %d",
+                result.requests, seconds, result.requests / seconds, result.errors.get(), result.connects, result.reconnects));
+        logToConsole(formatLatency("Service time", result.serviceTime));
+        logToConsole(formatLatency("Latency (CO corrected)", result.latency));
+    }
+
+
+    /**
+     * Format the latency percentiles
+     *
+     * @param name the name
+     * @param histogram the histogram
+     * @return the formatted latency
+     */
+    private static String formatLatency(String name, LatencyHistogram histogram) {
+        return String.format(Locale.US, "%-24s p50=%.3fms p99=%.3fms p99.9=%.3fms max=%.3fms (n=%d)", name,
+                toMillis(histogram.getValueAtPercentile(50)), toMillis(histogram.getValueAtPercentile(99)),
+                toMillis(histogram.getValueAtPercentile(99.9)), toMillis(histogram.getMax()), histogram.getTotalCount());
+    }
+
+
+    /**
+     * Convert nanoseconds to milliseconds
+     *
+     * @param nanos the nanoseconds
+     * @return the milliseconds
+     */
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+
+    /**
+     * Get the mode as string
+     *
+     * @return the mode
+     */
+    private String getMode() {
+        if (rate > 0) {
+            return "open loop " + rate + " req/s";
+        }
+
+        return "closed loop";
+    }
+
+
+    /**
+     * Parse the arguments
+     *
+     * @param args the arguments
+     * @return true if they are valid
+     */
+    private boolean parse(String[] args) {
+        try {
+            for (String arg : args) {
+                final int idx = arg.indexOf('=');
+                if (!arg.startsWith("--") || idx < 0) {
+                    return false;
+                }
+
+                final String name = arg.substring(2, idx);
+                final String value = arg.substring(idx + 1).trim();
+                switch (name) {
+                    case "host":
+                        host = value;
+                        break;
+                    case "port":
+                        port = Integer.parseInt(value);
+                        break;
+                    case "service":
+                        service = value.toLowerCase(Locale.US);
+                        break;
+                    case "concurrency":
+                        concurrency = Integer.parseInt(value);
+                        break;
+                    case "keepAlive":
+                        keepAlive = Boolean.parseBoolean(value);
+                        break;
+                    case "bodySize":
+                        bodySize = Integer.parseInt(value);
+                        break;
+                    case "duration":
+                        duration = Integer.parseInt(value);
+                        break;
+                    case "warmup":
+                        warmup = Integer.parseInt(value);
+                        break;
+                    case "rate":
+                        rate = Long.parseLong(value);
+                        break;
+                    case "workerPoolSize":
+                        workerPoolSize = Integer.parseInt(value);
+                        break;
+                    default:
+                        return false;
+                }
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        return concurrency > 0 && bodySize >= 0 && (ECHO.equals(service) || "ping".equals(service));
+    }
+
+
+    /**
+     * Create the service
+     *
+     * @param name the name
+     * @return the service
+     */
+    static IHttpService createService(String name) {
+        if ("ping".equalsIgnoreCase(name)) {
+            return new PingService();
+        }
+
+        return new EchoService();
+    }
+
+
+    /**
+     * Get a free local port
+     *
+     * @return the port
+     * @throws IOException In case of an I/O error
+     */
+    static int getFreePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+
+    /**
+     * Log to console
+     *
+     * @param msg the message
+     */
+    private static void logToConsole(String msg) {
+        System.out.println(msg); // CHECKSTYLE IGNORE THIS LINE
+    }
+
+
+    /**
+     * The result of a phase
+     */
+    private static class Result {
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private long requests;
+        private long connects;
+        private long reconnects;
+        private long elapsed;
+
+        /**
+         * Add the result of a worker
+         *
+         * @param worker the worker
+         */
+        void add(Worker worker) {
+            serviceTime.add(worker.serviceTime);
+            latency.add(worker.latency);
+            errors.addAndGet(worker.errors);
+            requests += worker.requests;
+            connects += worker.client.getConnects();
+            reconnects += worker.client.getReconnects();
+        }
+    }
+
+
+    /**
+     * Drives one connection
+     */
+    private static class Worker implements Runnable {
+        private final BenchmarkHttpClient client;
+        private final long firstSendTime;
+        private final long end;
+        private final long interval;
+        private final long expectedInterval;
+        private final CountDownLatch latch;
+        private final LatencyHistogram serviceTime = new LatencyHistogram();
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private long requests;
+        private long errors;
+
+        /**
+         * Constructor for Worker
+         *
+         * @param client the client
+         * @param firstSendTime the first send time
+         * @param end the end time
+         * @param interval the interval between two requests in open loop mode, otherwise 0
+         * @param expectedInterval the expected interval for the coordinated omission correction in closed loop mode
+         * @param latch the latch
+         */
+        Worker(BenchmarkHttpClient client, long firstSendTime, long end, long interval, long expectedInterval, CountDownLatch latch) {
+            this.client = client;
+            this.firstSendTime = firstSendTime;
+            this.end = end;
+            this.interval = interval;
+            this.expectedInterval = expectedInterval;
+            this.latch = latch;
+        }
+
+        /**
+         * @see java.lang.Runnable#run()
+         */
+        @Override
+        public void run() {
+            try {
+                long intendedSendTime = firstSendTime;
+                while (intendedSendTime < end) {
+                    if (interval > 0) {
+                        waitUntil(intendedSendTime);
+                    }
+
+                    final long sendTime = System.nanoTime();
+                    if (sendTime >= end) {
+                        break;
+                    }
+
+                    if (interval <= 0) {
+                        intendedSendTime = sendTime;
+                    }
+
+                    try {
+                        final int status = client.execute();
+                        if (status != 200) {
+                            errors++;
+                        }
+                    } catch (IOException e) {
+                        errors++;
+                        client.close();
+                    }
+
+                    final long now = System.nanoTime();
+                    requests++;
+                    serviceTime.recordValue(now - sendTime);
+                    if (interval > 0) {
+                        latency.recordValue(now - intendedSendTime);
+                        intendedSendTime += interval;
+                    } else {
+                        latency.recordValueWithExpectedInterval(now - sendTime, expectedInterval);
+                        intendedSendTime = now;
+                    }
+                }
+            } finally {
+                client.close();
+                latch.countDown();
+            }
+        }
+
+        /**
+         * Wait until the given time
+         *
+         * @param time the time in nanoseconds
+         */
+        private static void waitUntil(long time) {
+            long remaining = time - System.nanoTime();
+            while (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                remaining = time - System.nanoTime();
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * LatencyHistogram.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.benchmark;
+
+
+/**
+ * Simple log-linear latency histogram (in the spirit of HdrHistogram) with a relative error below 1%. Values are
+ * recorded in nanoseconds. The method {@link #recordValueWithExpectedInterval(long, long)} corrects the coordinated
+ * omission of a closed loop load generator: for a response which took longer than the expected interval between two
+ * requests, the requests which would have been sent in between are recorded with their (synthetic) waiting time.
+ * Instances are not thread safe; use one per thread and {@link #add(LatencyHistogram)} them.
+ *
+ * @author patrick
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    private final long[] counts;
+    private long totalCount;
+    private long max;
+    private double sum;
+
+
+    /**
+     * Constructor for LatencyHistogram
+     */
+    public LatencyHistogram() {
+        counts = new long[NUMBER_OF_BUCKETS];
+        totalCount = 0;
+        max = 0;
+        sum = 0;
+    }
+
+
+    /**
+     * Record a value
+     *
+     * @param value the value in nanoseconds
+     */
+    public void recordValue(long value) {
+        final long v = Math.max(0, value);
+        counts[indexOf(v)]++;
+        totalCount++;
+        sum += v;
+        if (v > max) {
+            max = v;
+        }
+    }
+
+
+    /**
+     * Record a value and correct the coordinated omission
+     *
+     * @param value the value in nanoseconds
+     * @param expectedInterval the expected interval between two requests in nanoseconds, 0 to disable the correction
+     */
+    public void recordValueWithExpectedInterval(long value, long expectedInterval) {
+        recordValue(value);
+        if (expectedInterval <= 0) {
+            return;
+        }
+
+        for (long missingValue = value - expectedInterval; missingValue >= expectedInterval; missingValue -= expectedInterval) {
+            recordValue(missingValue);
+        }
+    }
+
+
+    /**
+     * Add the values of another histogram
+     *
+     * @param other the other histogram
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+
+        totalCount += other.totalCount;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+
+    /**
+     * Get the number of recorded values
+     *
+     * @return the number of recorded values
+     */
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+
+    /**
+     * Get the max recorded value
+     *
+     * @return the max value in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+
+    /**
+     * Get the mean value
+     *
+     * @return the mean value in nanoseconds
+     */
+    public double getMean() {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        return sum / totalCount;
+    }
+
+
+    /**
+     * Get the value at a percentile
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the (highest equivalent) value in nanoseconds
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        final long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * totalCount));
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            count += counts[i];
+            if (count >= countAtPercentile) {
+                return Math.min(max, highestEquivalentValue(i));
+            }
+        }
+
+        return max;
+    }
+
+
+    /**
+     * Get the bucket index of a value
+     *
+     * @param value the value
+     * @return the index
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+
+    /**
+     * Get the highest value which has the same bucket index
+     *
+     * @param index the index
+     * @return the value
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = (index - SUB_BUCKET_HALF_COUNT) / SUB_BUCKET_HALF_COUNT;
+        final long subBucket = index - shift * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
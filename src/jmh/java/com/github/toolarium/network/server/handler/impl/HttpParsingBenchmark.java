@@ -0,0 +1,132 @@
+/*
+ * HttpParsingBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.handler.impl;
+
+import com.github.toolarium.network.server.dto.HttpHeaders;
+import com.github.toolarium.network.server.dto.HttpReponse;
+import com.github.toolarium.network.server.handler.impl.parser.HttpRequestParser;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * Micro benchmarks of the http request parsing and response serialization. The benchmark is in the package of the
+ * connection handler to access the protected serialization methods.
+ *
+ * @author patrick
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpParsingBenchmark {
+    private static final String REQUEST_LINE = "GET /api/v1/search?q=network+scanner&lang=en&page=2&filter=a%20b HTTP/1.1";
+    private static final String HEADERS = "Host: localhost:8080\r\n"
+            + "User-Agent: Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36\r\n"
+            + "Accept: text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8\r\n"
+            + "Accept-Encoding: gzip, deflate, br\r\n"
+            + "Accept-Language: en-US,en;q=0.9\r\n"
+            + "Cache-Control: no-cache\r\n"
+            + "Connection: keep-alive\r\n"
+            + "Cookie: session=4f9c2b7a1e; theme=dark\r\n"
+            + "X-Forwarded-For: 10.0.0.1, 192.168.1.10\r\n"
+            + "Content-Length: 0\r\n"
+            + "\r\n";
+    private HttpConnectionHandlerImpl connectionHandler;
+    private HttpReponse response;
+
+
+    /**
+     * Setup
+     */
+    @Setup
+    public void setup() {
+        connectionHandler = new HttpConnectionHandlerImpl();
+        response = new HttpReponse().setStatus(200);
+        response.addHeader(HttpHeaderUtil.CONTENT_TYPE, "application/json");
+        response.addHeader(HttpHeaderUtil.CONTENT_LENGTH, "1024");
+        response.addHeader(HttpHeaderUtil.CACHE_CONTROL, "no-store");
+        response.addHeader(HttpHeaderUtil.CONNECTION, "close");
+        response.addHeader("X-Request-Id", "0f8fad5b-d9cb-469f-a165-70867728950e");
+    }
+
+
+    /**
+     * Parse the request line including the lazy query parameters
+     *
+     * @param blackhole the blackhole
+     */
+    @Benchmark
+    public void parseRequestLine(Blackhole blackhole) {
+        final HttpRequestParser parser = new HttpRequestParser(REQUEST_LINE);
+        blackhole.consume(parser.getMethod());
+        blackhole.consume(parser.getPath());
+        blackhole.consume(parser.getVersion());
+        blackhole.consume(parser.getParameters().getFirst("q"));
+    }
+
+
+    /**
+     * Read the header section; includes the creation of the reader
+     *
+     * @return the headers
+     * @throws IOException In case of an I/O error
+     */
+    @Benchmark
+    public HttpHeaders readHeaders() throws IOException {
+        return HttpHeaderUtil.getInstance().readHeaders(new BufferedReader(new StringReader(HEADERS)));
+    }
+
+
+    /**
+     * Serialize the status line
+     *
+     * @return the status line
+     */
+    @Benchmark
+    public String getStatusLine() {
+        return connectionHandler.getStatusLine(response);
+    }
+
+
+    /**
+     * Serialize the response headers
+     *
+     * @return the headers
+     */
+    @Benchmark
+    public String getHeaders() {
+        return connectionHandler.getHeaders(response);
+    }
+
+
+    /**
+     * Encode the status line and the headers into the pooled buffer of the response writer
+     *
+     * @return the encoded head
+     */
+    @Benchmark
+    public ByteBuffer encodeHead() {
+        return HttpResponseWriter.getInstance().encodeHead(response);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * WhoisParseBenchmark.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.whois.impl;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * Micro benchmark of the whois response parsing. The benchmark is in the package of the {@link WhoisImpl} to access
+ * the package private parser.
+ *
+ * @author patrick
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WhoisParseBenchmark {
+    private static final String RESPONSE = "% IANA WHOIS server\n"
+            + "% for more information on IANA, visit http://www.iana.org\n"
+            + "% This query returned 1 object\n"
+            + "\n"
+            + "refer:        whois.verisign-grs.com\n"
+            + "\n"
+            + "domain:       COM\n"
+            + "\n"
+            + "organisation: VeriSign Global Registry Services\n"
+            + "address:      12061 Bluemont Way\n"
+            + "address:      Reston VA 20190\n"
+            + "address:      United States of America (the)\n"
+            + "\n"
+            + "contact:      administrative\n"
+            + "name:         Registry Customer Service\n"
+            + "organisation: VeriSign Global Registry Services\n"
+            + "phone:        +1 703 925-6999\n"
+            + "fax-no:       +1 703 948 3978\n"
+            + "e-mail:       info@verisign-grs.com\n"
+            + "\n"
+            + "nserver:      A.GTLD-SERVERS.NET 192.5.6.30 2001:503:a83e:0:0:0:2:30\n"
+            + "nserver:      B.GTLD-SERVERS.NET 192.33.14.30 2001:503:231d:0:0:0:2:30\n"
+            + "ds-rdata:     19718 13 2 8acbb0cd28f41250a80a491389424d341522d946b0da0c0291f2d3d771d7805a\n"
+            + "\n"
+            + "whois:        whois.verisign-grs.com\n"
+            + "\n"
+            + "status:       ACTIVE\n"
+            + "remarks:      Registration information: http://www.verisigninc.com\n"
+            + "\n"
+            + "created:      1985-01-01\n"
+            + "changed:      2023-12-07\n"
+            + "source:       IANA\n";
+
+
+    /**
+     * Parse a whois response
+     *
+     * @return the parsed fields
+     */
+    @Benchmark
+    public Map<String, String> parseFields() {
+        return WhoisImpl.parseFields(RESPONSE);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * IPortScanHandle.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Defines the handle of a running port scan: it reports the progress and controls the scan.
+ *
+ * @author patrick
+ */
+public interface IPortScanHandle {
+
+    /**
+     * Get the total number of probes (host × port) of the scan
+     *
+     * @return the total number of probes
+     */
+    long getTotal();
+
+
+    /**
+     * Get the number of completed probes
+     *
+     * @return the number of completed probes
+     */
+    long getCompleted();
+
+
+    /**
+     * Get the number of available ports found so far
+     *
+     * @return the number of available ports
+     */
+    long getAvailable();
+
+
+    /**
+     * Get the number of in-flight probes
+     *
+     * @return the number of in-flight probes
+     */
+    int getInFlight();
+
+
+    /**
+     * Get the probe rate of the scan
+     *
+     * @return the number of probes per second, 0 if the rate is unlimited
+     */
+    double getRate();
+
+
+    /**
+     * Set the probe rate of the scan. In case the pacer is shared by other scans, their rate is changed as well.
+     *
+     * @param probesPerSecond the number of probes per second, 0 for an unlimited rate
+     * @throws IllegalArgumentException In case of an invalid rate
+     */
+    void setRate(double probesPerSecond);
+
+
+    /**
+     * Pause the scan: no new probes are started, the in-flight probes are completed.
+     */
+    void pause();
+
+
+    /**
+     * Resume a paused scan
+     */
+    void resume();
+
+
+    /**
+     * Check if the scan is paused
+     *
+     * @return true if the scan is paused
+     */
+    boolean isPaused();
+
+
+    /**
+     * Cancel the scan: the in-flight probes are aborted without result.
+     */
+    void cancel();
+
+
+    /**
+     * Check if the scan is cancelled
+     *
+     * @return true if the scan is cancelled
+     */
+    boolean isCancelled();
+
+
+    /**
+     * Check if the scan is done, either completed or cancelled
+     *
+     * @return true if the scan is done
+     */
+    boolean isDone();
+
+
+    /**
+     * Wait until the scan is done
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    void await() throws InterruptedException;
+
+
+    /**
+     * Wait until the scan is done
+     *
+     * @param timeout the max time to wait
+     * @param unit the time unit of the timeout
+     * @return true if the scan is done, false if the timeout elapsed
+     * @throws InterruptedException In case of an interruption
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException;
+}
@@ -0,0 +1,31 @@
+/*
+ * IStreamingPortScanner.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner;
+
+import com.github.toolarium.network.scanner.listener.IPortScanListener;
+
+
+/**
+ * Defines a port scanner which streams the results: the scan runs in the background and every result is passed to
+ * the listener as soon as its probe is completed. The results are not collected, the memory is bounded by the number
+ * of in-flight probes and not by the size of the scanned space.
+ *
+ * @author patrick
+ */
+public interface IStreamingPortScanner extends IPortScanner {
+
+    /**
+     * Start a port scan
+     *
+     * @param scanAddress the scan address
+     * @param startPort the start port
+     * @param endPort the end port
+     * @param filterIsAvailable filter the output: true only available ports, false only not available ports, both: null
+     * @param portScanListener the listener which receives the results passing the filter, it's called by the scan thread
+     * @return the handle of the scan
+     */
+    IPortScanHandle start(String scanAddress, int startPort, int endPort, Boolean filterIsAvailable, IPortScanListener portScanListener);
+}
@@ -5,6 +5,21 @@
  */
 package com.github.toolarium.network.scanner;
 
+import com.github.toolarium.network.scanner.analyze.ServiceDetector;
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.impl.AbstractPortScanner;
+import com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl;
+import com.github.toolarium.network.scanner.impl.NonBlockingUdpPortScannerImpl;
+import com.github.toolarium.network.scanner.impl.PortScannerImpl;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import com.github.toolarium.network.scanner.result.PortScanResultStore;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
+import com.github.toolarium.network.scanner.target.ScanShard;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 
@@ -21,7 +36,16 @@ public class PortScannerClient {
     private int startPort;
     private int endPort;
     private int numberOfThreads;
+    private int window;
     private int timeout;
+    private int retries;
+    private int rate;
+    private boolean detectServices;
+    private boolean udp;
+    private String checkpointDirectory;
+    private String shard;
+    private String outputFile;
+    private String mergeFiles;
     //private VerboseLevel verboseLevel;
 
     
@@ -33,7 +57,16 @@ public class PortScannerClient {
         startPort = 1;
         endPort = IPortScanner.MAX_PORT;
         numberOfThreads = DEFAULT_NUMBER_OF_THREADS;
+        window = NonBlockingPortScannerImpl.DEFAULT_MAX_IN_FLIGHT;
         timeout = DEFAULT_TIMEOUT;
+        retries = AdaptiveTimeout.DEFAULT_MAX_RETRIES;
+        rate = 0;
+        detectServices = false;
+        udp = false;
+        checkpointDirectory = null;
+        shard = null;
+        outputFile = null;
+        mergeFiles = null;
     }
 
     
@@ -51,16 +84,30 @@ public class PortScannerClient {
                 return;
             }
             if (getArgumentValue(args[i], "-h", "--help") != null) {
-                logToConsole("Usage: portscanner [-hv] [-a=address] [-se=eport] [-sp=sport]");
-                logToConsole("                   [-t=numberOfThreads] [-to=timeout] [--verbose=verboseLevel]");
+                logToConsole("Usage: portscanner [-dhuv] [-a=address] [-c=directory] [-m=files] [-o=file] [-se=eport] [-sh=shard] [-sp=sport]");
+                logToConsole("                   [-t=numberOfThreads] [-to=timeout] [-r=retries] [-rt=rate] [-w=window] [--verbose=verboseLevel]");
                 logToConsole("Small port scanner.");
                 logToConsole("  -a, --addresss=address                 The address, by default 127.0.0.1.");
+                logToConsole("  -c, --checkpoint=directory             Keep the progress in the directory, an interrupted scan is resumed");
+                logToConsole("                                         by the next scan of the same address and ports.");
+                logToConsole("  -d, --detectServices                   Detect the service behind the open ports (banner, ssh, tls, http).");
                 logToConsole("  -h, --help                             Display this help message");
+                logToConsole("  -m, --merge=file,file                  Merge the written results of the nodes of a sharded scan and display");
+                logToConsole("                                         the open ports, no scan is done.");
+                logToConsole("  -o, --output=file                      Write the open ports to the file, they can be merged (see -m).");
+                logToConsole("  -r, --retries=retries                  The retries of a timed out connect, by default 1.");
+                logToConsole("  -rt, --rate=rate                       The max number of connects per second, by default unlimited.");
                 logToConsole("  -se, --endPort=eport                   The end port, by default 65535.");
+                logToConsole("  -sh, --shard=i/N                       Scan only the shard i (0 to N-1) of N, e.g. 0/4: the nodes which scan");
+                logToConsole("                                         the shards of the same address and ports probe every port once.");
                 logToConsole("  -sp, --startPort=sport                 The start port, by default 1.");
                 logToConsole("  -t, --numberOfThreads=numberOfThreads  The number of threads, by default 300.");
-                logToConsole("  -to, --timeout=timeout                 The timeout, by default 50.");
+                logToConsole("  -to, --timeout=timeout                 The initial timeout, by default 50. It's adapted to the measured");
+                logToConsole("                                         round trip time of every host.");
+                logToConsole("  -u, --udp                              Scan udp ports, a not answered port is open or filtered.");
                 logToConsole("  -v, --version                          Display version info");
+                logToConsole("  -w, --window=window                    The number of in-flight connects of the non-blocking scanner, by default 1024.");
+                logToConsole("                                         With 0 the ports are scanned by a thread pool (see -t).");
                 //logToConsole("  --verbose=verboseLevel                 Specify the verbose level: (NONE, INFO, ACCESS, ACCESS_CONSOLE, VERBOSE), by default INFO.");
                 return;
             }
@@ -80,6 +127,32 @@ public class PortScannerClient {
             if (getArgumentValue(args[i], "-to", "--timeout") != null) {
                 portScanner.setTimeout(getArgumentValue(args[i], "-t", "--timeout"));
             }
+            if (getArgumentValue(args[i], "-rt", "--rate") != null) {
+                portScanner.setRate(getArgumentValue(args[i], "-rt", "--rate"));
+            } else if (getArgumentValue(args[i], "-r", "--retries") != null) {
+                portScanner.setRetries(getArgumentValue(args[i], "-r", "--retries"));
+            }
+            if (getArgumentValue(args[i], "-c", "--checkpoint") != null) {
+                portScanner.setCheckpointDirectory(getArgumentValue(args[i], "-c", "--checkpoint"));
+            }
+            if (getArgumentValue(args[i], "-sh", "--shard") != null) {
+                portScanner.setShard(getArgumentValue(args[i], "-sh", "--shard"));
+            }
+            if (getArgumentValue(args[i], "-o", "--output") != null) {
+                portScanner.setOutputFile(getArgumentValue(args[i], "-o", "--output"));
+            }
+            if (getArgumentValue(args[i], "-m", "--merge") != null) {
+                portScanner.setMergeFiles(getArgumentValue(args[i], "-m", "--merge"));
+            }
+            if (getArgumentValue(args[i], "-d", "--detectServices") != null) {
+                portScanner.setDetectServices(true);
+            }
+            if (getArgumentValue(args[i], "-u", "--udp") != null) {
+                portScanner.setUdp(true);
+            }
+            if (getArgumentValue(args[i], "-w", "--window") != null) {
+                portScanner.setWindow(getArgumentValue(args[i], "-w", "--window"));
+            }
             if (getArgumentValue(args[i], null, "--verbose") != null) {
                 portScanner.setVerboseLevel(getArgumentValue(args[i], null, "--verbose"));
             }
@@ -94,20 +167,92 @@ public class PortScannerClient {
      */
     public void run() {
         try {
+            if (mergeFiles != null) {
+                merge();
+                return;
+            }
+
             logToConsole("Analyze open ports on " + scanAddress + "...");
-            Map<String, List<Integer>> openPortMap = PortScannerFactory.getInstance().scanOpenPorts(scanAddress, startPort, endPort, numberOfThreads, timeout);
-            if (openPortMap != null) {
-                for (String addr : openPortMap.keySet()) {
-                    logToConsole("Open ports on " + addr + ": " + openPortMap.get(addr));
-                }
+            final AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout(timeout, Math.min(timeout, AdaptiveTimeout.DEFAULT_MIN_TIMEOUT), Math.max(timeout, AdaptiveTimeout.DEFAULT_MAX_TIMEOUT), retries);
+            AbstractPortScanner portScanner;
+            if (udp) {
+                portScanner = new NonBlockingUdpPortScannerImpl(Math.max(1, window), adaptiveTimeout);
+            } else if (window > 0) {
+                portScanner = new NonBlockingPortScannerImpl(window, adaptiveTimeout);
             } else {
-                logToConsole("No open ports found on [" + scanAddress + "].");
+                portScanner = new PortScannerImpl(numberOfThreads, adaptiveTimeout);
+            }
+            if (shard != null) {
+                portScanner.setShard(ScanShard.parse(shard));
             }
+            if (checkpointDirectory != null && portScanner instanceof NonBlockingPortScannerImpl) {
+                ((NonBlockingPortScannerImpl) portScanner).setCheckpointDirectory(Paths.get(checkpointDirectory));
+            }
+            if (rate > 0) {
+                portScanner.setPacer(new TokenBucketPacer(rate));
+            }
+            if (detectServices) {
+                portScanner.setServiceDetector(new ServiceDetector());
+                final List<IPortScanResult> result = portScanner.scan(scanAddress, startPort, endPort, Boolean.TRUE);
+                for (IPortScanResult portScanResult : result) {
+                    logToConsole("Open port " + portScanResult.getHostAddress() + ":" + portScanResult.getPort() + " " + portScanResult.getProtocol()
+                                 + " " + portScanResult.getApplication() + " " + portScanResult.getServiceAttributes());
+                }
+                if (result.isEmpty()) {
+                    logToConsole("No open ports found on [" + scanAddress + "].");
+                }
+                return;
+            }
+
+            final PortScanResultStore portScanResultStore = PortScannerFactory.getInstance().scanResultStore(portScanner, scanAddress, startPort, endPort, Boolean.TRUE);
+            if (outputFile != null) {
+                try (OutputStream out = Files.newOutputStream(Paths.get(outputFile))) {
+                    portScanResultStore.write(out);
+                }
+            }
+
+            logOpenPorts(portScanResultStore);
         } catch (Throwable e) {
             logToConsole("Could not execute, error: " + e.getMessage());
         }
     }
 
+
+    /**
+     * Merge the written results of a sharded scan and log the open ports
+     *
+     * @throws IOException In case a file could not be read
+     */
+    private void merge() throws IOException {
+        final PortScanResultStore portScanResultStore = new PortScanResultStore();
+        for (String file : mergeFiles.split(",")) {
+            if (!file.trim().isEmpty()) {
+                try (InputStream in = Files.newInputStream(Paths.get(file.trim()))) {
+                    portScanResultStore.addAll(PortScanResultStore.read(in));
+                }
+            }
+        }
+
+        logOpenPorts(portScanResultStore);
+    }
+
+
+    /**
+     * Log the open ports
+     *
+     * @param portScanResultStore the port scan result store
+     */
+    private void logOpenPorts(PortScanResultStore portScanResultStore) {
+        final Map<String, List<Integer>> openPortMap = portScanResultStore.getPortMap(Boolean.TRUE);
+        for (Map.Entry<String, List<Integer>> e : openPortMap.entrySet()) {
+            logToConsole("Open ports on " + e.getKey() + ": " + e.getValue());
+        }
+
+        if (openPortMap.isEmpty()) {
+            logToConsole("No open ports found on [" + scanAddress + "].");
+        }
+    }
+
     
     
 
@@ -190,6 +335,16 @@ public class PortScannerClient {
     }
 
 
+    /**
+     * Set the number of in-flight connects of the non-blocking scanner
+     * 
+     * @param window the number of in-flight connects, 0 to use the thread pool scanner
+     */
+    private void setWindow(String window) {
+        this.window = parseNumber(window, this.window);
+    }
+
+
     /**
      * Set the timeout
      * 
@@ -200,6 +355,94 @@ public class PortScannerClient {
     }
 
     
+    /**
+     * Set the retries of a timed out connect
+     * 
+     * @param retries the retries
+     */
+    private void setRetries(String retries) {
+        this.retries = parseNumber(retries, this.retries);
+    }
+
+    
+    /**
+     * Set the max number of connects per second
+     * 
+     * @param rate the rate, 0 for unlimited
+     */
+    private void setRate(String rate) {
+        this.rate = parseNumber(rate, this.rate);
+    }
+
+    
+    /**
+     * Set if the services behind the open ports are detected
+     * 
+     * @param detectServices true to detect the services
+     */
+    private void setDetectServices(boolean detectServices) {
+        this.detectServices = detectServices;
+    }
+
+    
+    /**
+     * Set if udp ports are scanned
+     * 
+     * @param udp true to scan udp ports
+     */
+    private void setUdp(boolean udp) {
+        this.udp = udp;
+    }
+
+    
+    /**
+     * Set the directory of the scan checkpoint
+     * 
+     * @param checkpointDirectory the directory
+     */
+    private void setCheckpointDirectory(String checkpointDirectory) {
+        if (checkpointDirectory != null && !checkpointDirectory.trim().isEmpty()) {
+            this.checkpointDirectory = checkpointDirectory.trim();
+        }
+    }
+
+    
+    /**
+     * Set the shard of the scan
+     * 
+     * @param shard the shard, e.g. 0/4
+     */
+    private void setShard(String shard) {
+        if (shard != null && !shard.trim().isEmpty()) {
+            this.shard = shard.trim();
+        }
+    }
+
+    
+    /**
+     * Set the file of the written open ports
+     * 
+     * @param outputFile the file
+     */
+    private void setOutputFile(String outputFile) {
+        if (outputFile != null && !outputFile.trim().isEmpty()) {
+            this.outputFile = outputFile.trim();
+        }
+    }
+
+    
+    /**
+     * Set the files to merge
+     * 
+     * @param mergeFiles the comma separated files
+     */
+    private void setMergeFiles(String mergeFiles) {
+        if (mergeFiles != null && !mergeFiles.trim().isEmpty()) {
+            this.mergeFiles = mergeFiles.trim();
+        }
+    }
+
+    
     /**
      * Set the verbose level
      * 
@@ -5,10 +5,11 @@
  */
 package com.github.toolarium.network.scanner;
 
-import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl;
+import com.github.toolarium.network.scanner.impl.NonBlockingUdpPortScannerImpl;
 import com.github.toolarium.network.scanner.impl.PortScannerImpl;
-import java.util.ArrayList;
-import java.util.HashMap;
+import com.github.toolarium.network.scanner.result.PortScanResultStore;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
 import java.util.List;
 import java.util.Map;
 
@@ -72,6 +73,68 @@ public final class PortScannerFactory {
     }
 
 
+    /**
+     * Get port scanner instance
+     *
+     * @param numberOfThreads the number of threads to use for port scanning
+     * @param adaptiveTimeout the timeout of a port scan, adapted to the measured round trip time of the hosts
+     * @return the port scanner
+     */
+    public IPortScanner getPortScanner(int numberOfThreads, AdaptiveTimeout adaptiveTimeout) {
+        return new PortScannerImpl(numberOfThreads, adaptiveTimeout);
+    }
+
+
+    /**
+     * Get a non-blocking port scanner instance: the connects are done by non-blocking channels on one selector thread.
+     *
+     * @param maxInFlight the max number of in-flight connects
+     * @param timeout the timeout of a port scan
+     * @return the port scanner
+     */
+    public IPortScanner getNonBlockingPortScanner(int maxInFlight, int timeout) {
+        return new NonBlockingPortScannerImpl(maxInFlight, timeout);
+    }
+
+
+    /**
+     * Get a non-blocking port scanner instance: the connects are done by non-blocking channels on one selector thread.
+     *
+     * @param maxInFlight the max number of in-flight connects
+     * @param adaptiveTimeout the timeout of a port scan, adapted to the measured round trip time of the hosts
+     * @return the port scanner
+     */
+    public IPortScanner getNonBlockingPortScanner(int maxInFlight, AdaptiveTimeout adaptiveTimeout) {
+        return new NonBlockingPortScannerImpl(maxInFlight, adaptiveTimeout);
+    }
+
+
+    /**
+     * Get a streaming port scanner instance: the scan runs in the background and the results are passed to a listener
+     * as soon as they are available, the scan can be paused, resumed and cancelled by its {@link IPortScanHandle}.
+     *
+     * @param maxInFlight the max number of in-flight connects
+     * @param timeout the timeout of a port scan
+     * @return the streaming port scanner
+     */
+    public IStreamingPortScanner getStreamingPortScanner(int maxInFlight, int timeout) {
+        return new NonBlockingPortScannerImpl(maxInFlight, timeout);
+    }
+
+
+    /**
+     * Get a udp port scanner instance: the probes are sent by connected datagram channels on one selector, a not
+     * answered probe is reported as {@link com.github.toolarium.network.scanner.dto.PortState#OPEN_FILTERED}.
+     *
+     * @param maxInFlight the max number of in-flight probes
+     * @param timeout the initial timeout of a probe
+     * @return the udp port scanner
+     */
+    public IStreamingPortScanner getUdpPortScanner(int maxInFlight, int timeout) {
+        return new NonBlockingUdpPortScannerImpl(maxInFlight, timeout);
+    }
+
+
     /**
      * Scan open ports
      *
@@ -87,6 +150,20 @@ public final class PortScannerFactory {
     }
 
 
+    /**
+     * Scan open ports with the given port scanner
+     *
+     * @param portScanner the port scanner
+     * @param scanAddress the scan address or scan address range (CIDR notation)
+     * @param startPort the start port
+     * @param endPort the end port
+     * @return the result set where the key corresponds to the host and the value the port list
+     */
+    public Map<String, List<Integer>> scanOpenPorts(IPortScanner portScanner, String scanAddress, int startPort, int endPort) {
+        return scanPorts(portScanner, scanAddress, startPort, endPort, Boolean.TRUE);
+    }
+
+
     /**
      * Scan closed ports
      *
@@ -114,19 +191,60 @@ public final class PortScannerFactory {
      * @return the result set where the key corresponds to the host and the value the port list
      */
     private Map<String, List<Integer>> scanPorts(String scanAddress, int startPort, int endPort, int numberOfThreads, int timeout, Boolean filterIsAvailable) {
-        List<IPortScanResult> portScanResultList = getPortScanner(numberOfThreads, timeout).scan(scanAddress, startPort, endPort, filterIsAvailable);
-
-        Map<String, List<Integer>> hostPortMap = new HashMap<String, List<Integer>>();
-        for (IPortScanResult r : portScanResultList) {
-            List<Integer> openPorts = hostPortMap.get(r.getHostAddress());
-            if (openPorts == null) {
-                openPorts = new ArrayList<Integer>();
-                hostPortMap.put(r.getHostAddress(), openPorts);
+        return scanPorts(getPortScanner(numberOfThreads, timeout), scanAddress, startPort, endPort, filterIsAvailable);
+    }
+
+
+    /**
+     * Scan ports into a compact {@link PortScanResultStore}: the results are added to the bitmaps of the store while the
+     * scan runs, a streaming port scanner and the {@link PortScannerImpl} keep no result list.
+     *
+     * @param portScanner the port scanner
+     * @param scanAddress the scan address or scan address range (CIDR notation)
+     * @param startPort the start port
+     * @param endPort the end port
+     * @param filterIsAvailable filter the output: true only available ports, false only not available ports, both: null
+     * @return the result store
+     */
+    public PortScanResultStore scanResultStore(IPortScanner portScanner, String scanAddress, int startPort, int endPort, Boolean filterIsAvailable) {
+        final PortScanResultStore result = new PortScanResultStore();
+        if (portScanner instanceof IStreamingPortScanner) {
+            final IPortScanHandle handle = ((IStreamingPortScanner) portScanner).start(scanAddress, startPort, endPort, filterIsAvailable, result);
+            try {
+                handle.await();
+            } catch (InterruptedException e) {
+                handle.cancel();
+                Thread.currentThread().interrupt();
             }
 
-            openPorts.add(r.getPort());
+            return result;
+        }
+
+        if (portScanner instanceof PortScannerImpl) {
+            ((PortScannerImpl) portScanner).scanToListener(scanAddress, startPort, endPort, filterIsAvailable, result);
+            return result;
         }
 
-        return hostPortMap;
+        portScanner.scan(scanAddress, startPort, endPort, filterIsAvailable, r -> {
+            if (filterIsAvailable == null || filterIsAvailable.booleanValue() == r.isAvailable()) {
+                result.visitedPort(r);
+            }
+        });
+        return result;
+    }
+
+
+    /**
+     * Scan ports
+     *
+     * @param portScanner the port scanner
+     * @param scanAddress the scan address or scan address range (CIDR notation)
+     * @param startPort the start port
+     * @param endPort the end port
+     * @param filterIsAvailable filter the output: true only available ports, false only not available ports, both: null
+     * @return the result set where the key corresponds to the host and the value the ascending port list
+     */
+    private Map<String, List<Integer>> scanPorts(IPortScanner portScanner, String scanAddress, int startPort, int endPort, Boolean filterIsAvailable) {
+        return scanResultStore(portScanner, scanAddress, startPort, endPort, filterIsAvailable).getPortMap(filterIsAvailable);
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * IServiceAnalyzer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze;
+
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import java.io.IOException;
+
+
+/**
+ * Defines a service analyzer: it identifies the service behind an open port on the connected {@link ServiceChannel}.
+ * The analyzers of a {@link ServiceDetector} share the channel, an analyzer which doesn't identify the service and has
+ * written to the channel gets the next analyzer a new connection.
+ *
+ * @author patrick
+ */
+public interface IServiceAnalyzer {
+
+    /**
+     * Check if the analyzer should run before the others, e.g. the tls analyzer on port 443
+     *
+     * @param port the port
+     * @return true if the analyzer is preferred on this port
+     */
+    boolean isPreferred(int port);
+
+
+    /**
+     * Analyze the service on the connected channel
+     *
+     * @param channel the connected service channel, the banner is already read
+     * @param result the result where the protocol, application and service attributes are set
+     * @return true if the service is identified, the following analyzers are not called
+     * @throws IOException In case of an I/O error or timeout
+     */
+    boolean analyze(ServiceChannel channel, PortScanResult result) throws IOException;
+}
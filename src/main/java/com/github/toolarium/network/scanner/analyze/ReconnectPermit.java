@@ -0,0 +1,80 @@
+/*
+ * ReconnectPermit.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze;
+
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Admits the reconnects of the {@link ServiceDetector} to the budget of the port scan: a reconnect takes a token of the
+ * pacer of the scan like a probe, and it's counted as in-flight connect until it's connected, so the scanner can count
+ * it against its window of in-flight connects.
+ *
+ * @author patrick
+ */
+public class ReconnectPermit {
+    private final TokenBucketPacer pacer;
+    private final Runnable releaseListener;
+    private final AtomicInteger reconnecting;
+
+
+    /**
+     * Constructor for ReconnectPermit
+     *
+     * @param pacer the pacer of the scan or null if the reconnects are not paced
+     * @param releaseListener the listener which is called when a reconnect is connected or failed, or null
+     */
+    public ReconnectPermit(TokenBucketPacer pacer, Runnable releaseListener) {
+        this.pacer = pacer;
+        this.releaseListener = releaseListener;
+        this.reconnecting = new AtomicInteger();
+    }
+
+
+    /**
+     * Take a token of the pacer for one reconnect, wait until it's available
+     *
+     * @throws InterruptedException In case the thread is interrupted
+     */
+    public void acquire() throws InterruptedException {
+        if (pacer != null) {
+            pacer.acquire();
+        }
+
+        reconnecting.incrementAndGet();
+    }
+
+
+    /**
+     * Release the reconnect after it's connected or failed
+     */
+    public void release() {
+        reconnecting.decrementAndGet();
+        if (releaseListener != null) {
+            releaseListener.run();
+        }
+    }
+
+
+    /**
+     * Get the number of reconnects which are not yet connected
+     *
+     * @return the number of reconnects in flight
+     */
+    public int getReconnecting() {
+        return reconnecting.get();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ReconnectPermit [pacer=" + pacer + ", reconnecting=" + reconnecting.get() + "]";
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * ServiceChannel.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The connected channel of an open port which is shared by the {@link IServiceAnalyzer}. The channel is used in
+ * non-blocking mode with its own selector, every read and write respects the deadline of the current analyzer. The
+ * banner, the data a server sends without a request, is read once after the connect.
+ *
+ * @author patrick
+ */
+public class ServiceChannel implements Closeable {
+    /** The max length of a banner */
+    public static final int MAX_BANNER_LENGTH = 1024;
+    private static final int INPUT_BUFFER_SIZE = 4096;
+    private final String hostAddress;
+    private final int port;
+    private final Selector selector;
+    private final ByteBuffer input;
+    private SocketChannel channel;
+    private String banner;
+    private boolean used;
+    private long deadline;
+
+
+    /**
+     * Constructor for ServiceChannel
+     *
+     * @param channel the connected channel, it's closed by the service channel
+     * @param hostAddress the host address
+     * @param port the port
+     * @throws IOException In case of an I/O error
+     */
+    public ServiceChannel(SocketChannel channel, String hostAddress, int port) throws IOException {
+        this.hostAddress = hostAddress;
+        this.port = port;
+        this.channel = channel;
+        this.banner = null;
+        this.used = false;
+        this.deadline = System.nanoTime();
+        this.input = ByteBuffer.allocate(INPUT_BUFFER_SIZE);
+        this.input.flip();
+
+        try {
+            channel.configureBlocking(false);
+            this.selector = Selector.open();
+        } catch (IOException e) {
+            close(channel);
+            throw e;
+        }
+    }
+
+
+    /**
+     * Get the host address
+     *
+     * @return the host address
+     */
+    public String getHostAddress() {
+        return hostAddress;
+    }
+
+
+    /**
+     * Get the port
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+
+    /**
+     * Get the banner
+     *
+     * @return the first line the server has sent without a request or null
+     */
+    public String getBanner() {
+        return banner;
+    }
+
+
+    /**
+     * Check if the channel is used: data has been written to the server
+     *
+     * @return true if the channel is used
+     */
+    public boolean isUsed() {
+        return used;
+    }
+
+
+    /**
+     * Set the timeout of the following reads and writes
+     *
+     * @param timeout the timeout in milliseconds
+     */
+    public void setTimeout(int timeout) {
+        this.deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    }
+
+
+    /**
+     * Read the banner: the first line the server sends without a request
+     *
+     * @param timeout the time to wait for the banner in milliseconds
+     * @return the banner or null
+     * @throws IOException In case of an I/O error
+     */
+    public String readBanner(int timeout) throws IOException {
+        setTimeout(timeout);
+        final String text = readText("\n", MAX_BANNER_LENGTH).trim();
+        if (!text.isEmpty()) {
+            banner = text;
+        }
+
+        return banner;
+    }
+
+
+    /**
+     * Read text until the terminator, the end of the stream, the max length or the timeout
+     *
+     * @param terminator the terminator
+     * @param maxLength the max length
+     * @return the read text (ISO-8859-1), including the terminator; empty if nothing is read. Data after the terminator
+     *         is kept for the next read.
+     * @throws IOException In case of an I/O error
+     */
+    public String readText(String terminator, int maxLength) throws IOException {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final byte[] terminatorBytes = terminator.getBytes(StandardCharsets.ISO_8859_1);
+        int matched = 0;
+        while (result.size() < maxLength && matched < terminatorBytes.length) {
+            if (!input.hasRemaining()) {
+                input.clear();
+                final int n = readWithDeadline(input, false);
+                input.flip();
+                if (n <= 0) {
+                    break;
+                }
+            }
+
+            final byte b = input.get();
+            result.write(b);
+            if (b == terminatorBytes[matched]) {
+                matched++;
+            } else if (b == terminatorBytes[0]) {
+                matched = 1;
+            } else {
+                matched = 0;
+            }
+        }
+
+        return new String(result.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+
+    /**
+     * Read data
+     *
+     * @param buffer the buffer
+     * @return the number of bytes read or -1 at the end of the stream
+     * @throws IOException In case of an I/O error
+     * @throws SocketTimeoutException In case of a timeout
+     */
+    public int read(ByteBuffer buffer) throws IOException {
+        if (input.hasRemaining()) {
+            // the data which is already read ahead by readText
+            final int n = Math.min(input.remaining(), buffer.remaining());
+            final ByteBuffer slice = input.slice();
+            slice.limit(n);
+            buffer.put(slice);
+            input.position(input.position() + n);
+            return n;
+        }
+
+        return readWithDeadline(buffer, true);
+    }
+
+
+    /**
+     * Write all data
+     *
+     * @param buffer the buffer
+     * @throws IOException In case of an I/O error
+     * @throws SocketTimeoutException In case of a timeout
+     */
+    public void write(ByteBuffer buffer) throws IOException {
+        used = true;
+        while (buffer.hasRemaining()) {
+            if (channel.write(buffer) == 0 && !await(SelectionKey.OP_WRITE)) {
+                throw new SocketTimeoutException("Write timed out");
+            }
+        }
+    }
+
+
+    /**
+     * Write a text (ISO-8859-1)
+     *
+     * @param text the text
+     * @throws IOException In case of an I/O error
+     * @throws SocketTimeoutException In case of a timeout
+     */
+    public void write(String text) throws IOException {
+        write(ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1)));
+    }
+
+
+    /**
+     * Replace the used channel by a new connection to the same port
+     *
+     * @param timeout the connect timeout in milliseconds
+     * @throws IOException In case of an I/O error or timeout
+     */
+    public void reconnect(int timeout) throws IOException {
+        close(channel);
+        used = false;
+        input.clear();
+        input.flip();
+        channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        setTimeout(timeout);
+        if (!channel.connect(new InetSocketAddress(hostAddress, port))) {
+            while (!channel.finishConnect()) {
+                if (!await(SelectionKey.OP_CONNECT)) {
+                    throw new SocketTimeoutException("Connect timed out");
+                }
+            }
+        }
+    }
+
+
+    /**
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // NOP
+        }
+
+        close(channel);
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ServiceChannel [" + hostAddress + ":" + port + "]";
+    }
+
+
+    /**
+     * Read data until the deadline
+     *
+     * @param buffer the buffer
+     * @param timeoutIsError true to throw an exception in case of a timeout, otherwise 0 is returned
+     * @return the number of bytes read, -1 at the end of the stream
+     * @throws IOException In case of an I/O error
+     */
+    private int readWithDeadline(ByteBuffer buffer, boolean timeoutIsError) throws IOException {
+        int n = channel.read(buffer);
+        while (n == 0) {
+            if (!await(SelectionKey.OP_READ)) {
+                if (timeoutIsError) {
+                    throw new SocketTimeoutException("Read timed out");
+                }
+                return 0;
+            }
+
+            n = channel.read(buffer);
+        }
+
+        return n;
+    }
+
+
+    /**
+     * Wait until the channel is ready for the given operation or the deadline is reached
+     *
+     * @param operation the operation
+     * @return false in case of a timeout
+     * @throws IOException In case of an I/O error
+     */
+    private boolean await(int operation) throws IOException {
+        final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remaining <= 0) {
+            return false;
+        }
+
+        channel.register(selector, operation);
+        final int selected = selector.select(remaining);
+        selector.selectedKeys().clear();
+        return selected > 0 || deadline - System.nanoTime() > 0;
+    }
+
+
+    /**
+     * Close a channel by a reset, so no TIME_WAIT state remains
+     *
+     * @param socketChannel the channel
+     */
+    private static void close(SocketChannel socketChannel) {
+        if (socketChannel == null) {
+            return;
+        }
+
+        try {
+            if (socketChannel.isConnected()) {
+                socketChannel.setOption(StandardSocketOptions.SO_LINGER, 0);
+            }
+        } catch (IOException e) {
+            // NOP
+        }
+
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            // NOP
+        }
+    }
+}
@@ -0,0 +1,300 @@
+/*
+ * ServiceDetector.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze;
+
+import com.github.toolarium.network.scanner.analyze.impl.BannerServiceAnalyzerImpl;
+import com.github.toolarium.network.scanner.analyze.impl.HttpServiceAnalyzerImpl;
+import com.github.toolarium.network.scanner.analyze.impl.SshServiceAnalyzerImpl;
+import com.github.toolarium.network.scanner.analyze.impl.TlsServiceAnalyzerImpl;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.listener.IPortScanListener;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+
+/**
+ * Detects the service behind an open port on the connection of the port scan, so an open port is not connected again
+ * by a separate tool. The banner is read passively first, then the {@link IServiceAnalyzer} are called in order
+ * (preferred analyzers of the port first) until one identifies the service. An analyzer which has written to the
+ * channel without identifying the service gets the next analyzer a new connection; the new connections are admitted
+ * by the {@link ReconnectPermit} of the scan, so they respect its pacing and window. The detection of the non-blocking
+ * scanner runs on a bounded number of threads of the detector.
+ *
+ * @author patrick
+ */
+public class ServiceDetector {
+    /** The service attribute of the banner */
+    public static final String BANNER = "banner";
+    /** The default number of parallel detections */
+    public static final int DEFAULT_PARALLELISM = 32;
+    /** The default timeout of an analyzer in milliseconds */
+    public static final int DEFAULT_TIMEOUT = 2000;
+    /** The default time to wait for a banner in milliseconds */
+    public static final int DEFAULT_BANNER_TIMEOUT = 500;
+    private static final Logger LOG = Logger.getLogger(ServiceDetector.class.getName());
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private final int parallelism;
+    private final int timeout;
+    private final int bannerTimeout;
+    private final List<IServiceAnalyzer> serviceAnalyzerList;
+    private final ThreadPoolExecutor executor;
+
+
+    /**
+     * Constructor for ServiceDetector
+     */
+    public ServiceDetector() {
+        this(DEFAULT_PARALLELISM, DEFAULT_TIMEOUT);
+    }
+
+
+    /**
+     * Constructor for ServiceDetector with the ssh, banner, tls and http analyzer
+     *
+     * @param parallelism the max number of parallel detections
+     * @param timeout the timeout of an analyzer in milliseconds
+     */
+    public ServiceDetector(int parallelism, int timeout) {
+        this(parallelism, timeout, Math.min(timeout, DEFAULT_BANNER_TIMEOUT), createDefaultServiceAnalyzerList());
+    }
+
+
+    /**
+     * Constructor for ServiceDetector
+     *
+     * @param parallelism the max number of parallel detections
+     * @param timeout the timeout of an analyzer in milliseconds
+     * @param bannerTimeout the time to wait for a banner in milliseconds
+     * @param serviceAnalyzerList the service analyzers in the order they are called
+     */
+    public ServiceDetector(int parallelism, int timeout, int bannerTimeout, List<IServiceAnalyzer> serviceAnalyzerList) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism: " + parallelism);
+        }
+        if (timeout <= 0 || bannerTimeout < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout + " / " + bannerTimeout);
+        }
+        if (serviceAnalyzerList == null || serviceAnalyzerList.isEmpty()) {
+            throw new IllegalArgumentException("Invalid service analyzers!");
+        }
+
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+        this.bannerTimeout = bannerTimeout;
+        this.serviceAnalyzerList = Collections.unmodifiableList(new ArrayList<IServiceAnalyzer>(serviceAnalyzerList));
+
+        // the threads end when they are idle, so a detector needs no shutdown
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), r -> {
+            final Thread thread = new Thread(r, "service-detector-" + THREAD_COUNTER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+
+    /**
+     * Create the default service analyzers: ssh, banner, tls and http
+     *
+     * @return the default service analyzers
+     */
+    public static List<IServiceAnalyzer> createDefaultServiceAnalyzerList() {
+        return Arrays.asList(new SshServiceAnalyzerImpl(), new BannerServiceAnalyzerImpl(), new TlsServiceAnalyzerImpl(), new HttpServiceAnalyzerImpl());
+    }
+
+
+    /**
+     * Get the max number of parallel detections
+     *
+     * @return the max number of parallel detections
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+
+    /**
+     * Get the timeout of an analyzer
+     *
+     * @return the timeout in milliseconds
+     */
+    public int getTimeout() {
+        return timeout;
+    }
+
+
+    /**
+     * Get the time to wait for a banner
+     *
+     * @return the time to wait for a banner in milliseconds
+     */
+    public int getBannerTimeout() {
+        return bannerTimeout;
+    }
+
+
+    /**
+     * Get the service analyzers
+     *
+     * @return the service analyzers
+     */
+    public List<IServiceAnalyzer> getServiceAnalyzerList() {
+        return serviceAnalyzerList;
+    }
+
+
+    /**
+     * Detect the service on the calling thread, the reconnects are not paced
+     *
+     * @param channel the connected channel of the port, it's closed at the end
+     * @param result the result of the open port where the service is set
+     */
+    public void detect(SocketChannel channel, PortScanResult result) {
+        detect(channel, result, null);
+    }
+
+
+    /**
+     * Detect the service on the calling thread
+     *
+     * @param channel the connected channel of the port, it's closed at the end
+     * @param result the result of the open port where the service is set
+     * @param reconnectPermit the permit of the reconnects or null if they are not paced
+     */
+    public void detect(SocketChannel channel, PortScanResult result, ReconnectPermit reconnectPermit) {
+        ServiceChannel serviceChannel = null;
+        try {
+            serviceChannel = new ServiceChannel(channel, result.getHostAddress(), result.getPort());
+            final String banner = serviceChannel.readBanner(bannerTimeout);
+            if (banner != null) {
+                result.setServiceAttribute(BANNER, banner);
+            }
+
+            for (IServiceAnalyzer serviceAnalyzer : prepareServiceAnalyzerList(result.getPort())) {
+                if (serviceChannel.isUsed()) {
+                    reconnect(serviceChannel, reconnectPermit);
+                }
+
+                serviceChannel.setTimeout(timeout);
+                try {
+                    if (serviceAnalyzer.analyze(serviceChannel, result)) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    LOG.fine("Service analyzer " + serviceAnalyzer.getClass().getSimpleName() + " failed on " + serviceChannel + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.fine("Could not detect the service on " + result.getHostAddress() + ":" + result.getPort() + ": " + e.getMessage());
+        } finally {
+            if (serviceChannel != null) {
+                serviceChannel.close();
+            }
+        }
+    }
+
+
+    /**
+     * Detect the service on a thread of the detector, the reconnects are not paced
+     *
+     * @param channel the connected channel of the port, it's closed at the end
+     * @param result the result of the open port where the service is set
+     * @param listener the listener which is called with the result by the detector thread
+     */
+    public void submit(final SocketChannel channel, final PortScanResult result, final IPortScanListener listener) {
+        submit(channel, result, null, listener);
+    }
+
+
+    /**
+     * Detect the service on a thread of the detector
+     *
+     * @param channel the connected channel of the port, it's closed at the end
+     * @param result the result of the open port where the service is set
+     * @param reconnectPermit the permit of the reconnects or null if they are not paced
+     * @param listener the listener which is called with the result by the detector thread
+     */
+    public void submit(final SocketChannel channel, final PortScanResult result, final ReconnectPermit reconnectPermit, final IPortScanListener listener) {
+        executor.execute(() -> {
+            try {
+                detect(channel, result, reconnectPermit);
+            } finally {
+                listener.visitedPort(result);
+            }
+        });
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ServiceDetector [parallelism=" + parallelism + ", timeout=" + timeout + ", bannerTimeout=" + bannerTimeout + "]";
+    }
+
+
+    /**
+     * Replace the used channel by a new connection, which is admitted by the reconnect permit
+     *
+     * @param serviceChannel the service channel
+     * @param reconnectPermit the permit of the reconnects or null if they are not paced
+     * @throws IOException In case of an I/O error, timeout or interruption
+     */
+    protected void reconnect(ServiceChannel serviceChannel, ReconnectPermit reconnectPermit) throws IOException {
+        if (reconnectPermit == null) {
+            serviceChannel.reconnect(timeout);
+            return;
+        }
+
+        try {
+            reconnectPermit.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Reconnect interrupted");
+        }
+
+        try {
+            serviceChannel.reconnect(timeout);
+        } finally {
+            reconnectPermit.release();
+        }
+    }
+
+
+    /**
+     * Prepare the order of the service analyzers: the preferred analyzers of the port first
+     *
+     * @param port the port
+     * @return the ordered service analyzers
+     */
+    protected List<IServiceAnalyzer> prepareServiceAnalyzerList(int port) {
+        final List<IServiceAnalyzer> result = new ArrayList<IServiceAnalyzer>(serviceAnalyzerList.size());
+        for (IServiceAnalyzer serviceAnalyzer : serviceAnalyzerList) {
+            if (serviceAnalyzer.isPreferred(port)) {
+                result.add(serviceAnalyzer);
+            }
+        }
+
+        for (IServiceAnalyzer serviceAnalyzer : serviceAnalyzerList) {
+            if (!serviceAnalyzer.isPreferred(port)) {
+                result.add(serviceAnalyzer);
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * BannerServiceAnalyzerImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze.impl;
+
+import com.github.toolarium.network.scanner.analyze.IServiceAnalyzer;
+import com.github.toolarium.network.scanner.analyze.ServiceChannel;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+
+
+/**
+ * Implements a passive service analyzer: it identifies the service by the banner the server has sent after the connect,
+ * e.g. <code>220 mail.example.com ESMTP Postfix</code>. A server which talks first is not probed by active analyzers.
+ *
+ * @author patrick
+ */
+public class BannerServiceAnalyzerImpl implements IServiceAnalyzer {
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#isPreferred(int)
+     */
+    @Override
+    public boolean isPreferred(int port) {
+        return false;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#analyze(com.github.toolarium.network.scanner.analyze.ServiceChannel, com.github.toolarium.network.scanner.dto.PortScanResult)
+     */
+    @Override
+    public boolean analyze(ServiceChannel channel, PortScanResult result) {
+        final String banner = channel.getBanner();
+        if (banner == null) {
+            return false;
+        }
+
+        final String upperCaseBanner = banner.toUpperCase();
+        if (banner.startsWith("220")) {
+            if (upperCaseBanner.contains("SMTP")) {
+                result.setProtocol("smtp");
+            } else if (upperCaseBanner.contains("FTP")) {
+                result.setProtocol("ftp");
+            }
+            result.setApplication(banner.substring(3).trim());
+        } else if (banner.startsWith("+OK")) {
+            result.setProtocol("pop3");
+            result.setApplication(banner.substring(3).trim());
+        } else if (banner.startsWith("* OK")) {
+            result.setProtocol("imap");
+            result.setApplication(banner.substring(4).trim());
+        } else if (upperCaseBanner.contains("MYSQL") || upperCaseBanner.contains("MARIADB")) {
+            result.setProtocol("mysql");
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * HttpServiceAnalyzerImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze.impl;
+
+import com.github.toolarium.network.scanner.analyze.IServiceAnalyzer;
+import com.github.toolarium.network.scanner.analyze.ServiceChannel;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import java.io.IOException;
+
+
+/**
+ * Implements the http service analyzer: it sends a <code>HEAD /</code> request and reads the response head. The
+ * application is given by the <code>Server</code> header.
+ *
+ * @author patrick
+ */
+public class HttpServiceAnalyzerImpl implements IServiceAnalyzer {
+    /** The http status attribute, e.g. <code>200 OK</code> */
+    public static final String HTTP_STATUS = "http.status";
+    /** The http version attribute */
+    public static final String HTTP_VERSION = "http.version";
+    /** The http server attribute */
+    public static final String HTTP_SERVER = "http.server";
+    private static final int MAX_RESPONSE_HEAD_LENGTH = 8192;
+    private static final String HTTP_PREFIX = "HTTP/";
+    private static final String SERVER_HEADER = "server:";
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#isPreferred(int)
+     */
+    @Override
+    public boolean isPreferred(int port) {
+        return port == 80 || port == 8000 || port == 8008 || port == 8080 || port == 8888;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#analyze(com.github.toolarium.network.scanner.analyze.ServiceChannel, com.github.toolarium.network.scanner.dto.PortScanResult)
+     */
+    @Override
+    public boolean analyze(ServiceChannel channel, PortScanResult result) throws IOException {
+        if (channel.getBanner() != null) {
+            return false;
+        }
+
+        String host = channel.getHostAddress();
+        if (host.indexOf(':') >= 0) {
+            host = "[" + host + "]";
+        }
+
+        channel.write("HEAD / HTTP/1.0\r\nHost: " + host + "\r\nUser-Agent: toolarium-network\r\nConnection: close\r\n\r\n");
+        final String responseHead = channel.readText("\r\n\r\n", MAX_RESPONSE_HEAD_LENGTH);
+        if (!responseHead.startsWith(HTTP_PREFIX)) {
+            return false;
+        }
+
+        final String[] lines = responseHead.split("\r?\n");
+        final int statusStart = lines[0].indexOf(' ');
+        if (statusStart < 0) {
+            return false;
+        }
+
+        result.setProtocol("http");
+        result.setServiceAttribute(HTTP_VERSION, lines[0].substring(HTTP_PREFIX.length(), statusStart));
+        result.setServiceAttribute(HTTP_STATUS, lines[0].substring(statusStart + 1).trim());
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].regionMatches(true, 0, SERVER_HEADER, 0, SERVER_HEADER.length())) {
+                final String server = lines[i].substring(SERVER_HEADER.length()).trim();
+                result.setServiceAttribute(HTTP_SERVER, server);
+                result.setApplication(server);
+                break;
+            }
+        }
+
+        return true;
+    }
+}
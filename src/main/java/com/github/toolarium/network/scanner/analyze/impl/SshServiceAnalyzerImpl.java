@@ -0,0 +1,77 @@
+/*
+ * SshServiceAnalyzerImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze.impl;
+
+import com.github.toolarium.network.scanner.analyze.IServiceAnalyzer;
+import com.github.toolarium.network.scanner.analyze.ServiceChannel;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import java.io.IOException;
+
+
+/**
+ * Implements the ssh service analyzer: the server sends its identification string first
+ * (<code>SSH-protoversion-softwareversion comments</code>, RFC 4253), the analyzer answers with its own identification
+ * to complete the version exchange.
+ *
+ * @author patrick
+ */
+public class SshServiceAnalyzerImpl implements IServiceAnalyzer {
+    /** The ssh protocol version attribute */
+    public static final String SSH_VERSION = "ssh.version";
+    /** The ssh software attribute */
+    public static final String SSH_SOFTWARE = "ssh.software";
+    /** The ssh comments attribute */
+    public static final String SSH_COMMENTS = "ssh.comments";
+    private static final String SSH_PREFIX = "SSH-";
+    private static final String IDENTIFICATION = "SSH-2.0-toolarium\r\n";
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#isPreferred(int)
+     */
+    @Override
+    public boolean isPreferred(int port) {
+        return port == 22;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#analyze(com.github.toolarium.network.scanner.analyze.ServiceChannel, com.github.toolarium.network.scanner.dto.PortScanResult)
+     */
+    @Override
+    public boolean analyze(ServiceChannel channel, PortScanResult result) throws IOException {
+        final String banner = channel.getBanner();
+        if (banner == null || !banner.startsWith(SSH_PREFIX)) {
+            return false;
+        }
+
+        String software = banner.substring(SSH_PREFIX.length());
+        final int versionEnd = software.indexOf('-');
+        if (versionEnd < 0) {
+            return false;
+        }
+
+        result.setProtocol("ssh");
+        result.setServiceAttribute(SSH_VERSION, software.substring(0, versionEnd));
+        software = software.substring(versionEnd + 1);
+        final int commentsStart = software.indexOf(' ');
+        if (commentsStart > 0) {
+            result.setServiceAttribute(SSH_COMMENTS, software.substring(commentsStart + 1).trim());
+            software = software.substring(0, commentsStart);
+        }
+
+        result.setServiceAttribute(SSH_SOFTWARE, software);
+        result.setApplication(software);
+
+        try {
+            channel.write(IDENTIFICATION);
+        } catch (IOException e) {
+            // NOP, the service is already identified
+        }
+
+        return true;
+    }
+}
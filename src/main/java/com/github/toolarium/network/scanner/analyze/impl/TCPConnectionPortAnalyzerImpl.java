@@ -6,29 +6,79 @@
 package com.github.toolarium.network.scanner.analyze.impl;
 
 import com.github.toolarium.network.scanner.analyze.IPortAnalyzer;
+import com.github.toolarium.network.scanner.analyze.ReconnectPermit;
+import com.github.toolarium.network.scanner.analyze.ServiceDetector;
 import com.github.toolarium.network.scanner.dto.IPortScanResult;
 import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
 
 
 /**
- * Implements a tcp connection port analyzer.
+ * Implements a tcp connection port analyzer. The connect timeout is given by an {@link AdaptiveTimeout}: an answered
+ * connect is a round trip time sample of the host, a timed out connect is retried. Every connect takes a token of the
+ * optional {@link TokenBucketPacer}. The service of an open port is detected on the same connection by the optional
+ * {@link ServiceDetector}, its reconnects take a token of the pacer as well.
  *
  * @author patrick
  */
 public class TCPConnectionPortAnalyzerImpl implements IPortAnalyzer {
-    private int timeout;
+    private AdaptiveTimeout adaptiveTimeout;
+    private TokenBucketPacer pacer;
+    private ServiceDetector serviceDetector;
+    private ReconnectPermit reconnectPermit;
 
 
     /**
      * Constructor
      *
-     * @param timeout the timeout
+     * @param timeout the fixed timeout
      */
     public TCPConnectionPortAnalyzerImpl(int timeout) {
-        this.timeout = timeout;
+        this(AdaptiveTimeout.fixed(timeout));
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param adaptiveTimeout the adaptive timeout
+     */
+    public TCPConnectionPortAnalyzerImpl(AdaptiveTimeout adaptiveTimeout) {
+        this(adaptiveTimeout, null);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param adaptiveTimeout the adaptive timeout
+     * @param pacer the pacer of the connects or null
+     */
+    public TCPConnectionPortAnalyzerImpl(AdaptiveTimeout adaptiveTimeout, TokenBucketPacer pacer) {
+        this(adaptiveTimeout, pacer, null);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param adaptiveTimeout the adaptive timeout
+     * @param pacer the pacer of the connects or null
+     * @param serviceDetector the service detector of an open port or null
+     */
+    public TCPConnectionPortAnalyzerImpl(AdaptiveTimeout adaptiveTimeout, TokenBucketPacer pacer, ServiceDetector serviceDetector) {
+        this.adaptiveTimeout = adaptiveTimeout;
+        this.pacer = pacer;
+        this.serviceDetector = serviceDetector;
+        this.reconnectPermit = new ReconnectPermit(pacer, null);
     }
 
 
@@ -37,23 +87,91 @@ public class TCPConnectionPortAnalyzerImpl implements IPortAnalyzer {
      */
     @Override
     public IPortScanResult analyzePort(String scanAddress, int port) {
-        Socket socket = new Socket();
+        for (int attempt = 0; attempt <= adaptiveTimeout.getMaxRetries(); attempt++) {
+            if (pacer != null) {
+                try {
+                    pacer.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
 
-        try {
-            socket.connect(new InetSocketAddress(scanAddress, port), timeout);
-            return new PortScanResult(scanAddress, port, true);
-        } catch (Exception ex) {
-            // nop
-        } finally {
+            final long timeout = adaptiveTimeout.getTimeout(scanAddress, attempt);
+            final long start = System.nanoTime();
+            SocketChannel channel = null;
             try {
-                socket.close();
-            } catch (IOException e) {
-                // NOP
-            } finally {
-                // NOP
+                channel = connect(scanAddress, port, (int) Math.max(1L, TimeUnit.NANOSECONDS.toMillis(timeout)));
+            } catch (SocketTimeoutException e) {
+                continue;
+            } catch (IOException | RuntimeException e) {
+                // refused or unreachable
+            }
+
+            if (attempt == 0) {
+                // the round trip time of a retried connect is ambiguous
+                adaptiveTimeout.sample(scanAddress, System.nanoTime() - start);
             }
+
+            final PortScanResult result = new PortScanResult(scanAddress, port, channel != null);
+            if (channel != null && serviceDetector != null) {
+                serviceDetector.detect(channel, result, reconnectPermit);
+            } else {
+                close(channel);
+            }
+
+            return result;
         }
 
-        return new PortScanResult(scanAddress, port, false);
+        // not answered
+        return new PortScanResult(scanAddress, port, PortState.FILTERED);
+    }
+
+
+    /**
+     * Connect a port
+     *
+     * @param scanAddress the address
+     * @param port the port
+     * @param timeout the timeout in milliseconds
+     * @return the connected channel
+     * @throws SocketTimeoutException In case of a timeout
+     * @throws IOException In case the connect is refused
+     */
+    protected SocketChannel connect(String scanAddress, int port, int timeout) throws IOException {
+        final SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(new InetSocketAddress(scanAddress, port), timeout);
+            return channel;
+        } catch (IOException | RuntimeException e) {
+            close(channel);
+            throw e;
+        }
+    }
+
+
+    /**
+     * Close a channel. A connected channel is reset instead of closed gracefully, so no TIME_WAIT state remains.
+     *
+     * @param channel the channel or null
+     */
+    protected void close(SocketChannel channel) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            if (channel.isConnected()) {
+                channel.setOption(StandardSocketOptions.SO_LINGER, 0);
+            }
+        } catch (IOException e) {
+            // NOP
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // NOP
+        }
     }
 }
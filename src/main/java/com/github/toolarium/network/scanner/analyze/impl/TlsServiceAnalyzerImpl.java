@@ -0,0 +1,222 @@
+/*
+ * TlsServiceAnalyzerImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze.impl;
+
+import com.github.toolarium.network.scanner.analyze.IServiceAnalyzer;
+import com.github.toolarium.network.scanner.analyze.ServiceChannel;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.logging.Logger;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509TrustManager;
+
+
+/**
+ * Implements the tls service analyzer: it sends a ClientHello and completes the handshake by an {@link SSLEngine} on
+ * the service channel. The negotiated protocol and cipher suite and a summary of the server certificate are reported;
+ * the certificate is not validated.
+ *
+ * @author patrick
+ */
+public class TlsServiceAnalyzerImpl implements IServiceAnalyzer {
+    /** The negotiated tls protocol attribute, e.g. <code>TLSv1.3</code> */
+    public static final String TLS_PROTOCOL = "tls.protocol";
+    /** The negotiated cipher suite attribute */
+    public static final String TLS_CIPHER_SUITE = "tls.cipherSuite";
+    /** The certificate subject attribute */
+    public static final String TLS_SUBJECT = "tls.subject";
+    /** The certificate issuer attribute */
+    public static final String TLS_ISSUER = "tls.issuer";
+    /** The certificate expiry attribute (ISO-8601) */
+    public static final String TLS_NOT_AFTER = "tls.notAfter";
+    private static final Logger LOG = Logger.getLogger(TlsServiceAnalyzerImpl.class.getName());
+    private static final ByteBuffer EMPTY_BUFFER = ByteBuffer.allocate(0);
+    private final SSLContext sslContext;
+
+
+    /**
+     * Constructor for TlsServiceAnalyzerImpl
+     */
+    public TlsServiceAnalyzerImpl() {
+        this.sslContext = createTrustAllContext();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#isPreferred(int)
+     */
+    @Override
+    public boolean isPreferred(int port) {
+        return port == 443 || port == 465 || port == 636 || port == 853 || port == 990 || port == 993 || port == 995
+                || port == 5061 || port == 8443 || port == 9443;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#analyze(com.github.toolarium.network.scanner.analyze.ServiceChannel, com.github.toolarium.network.scanner.dto.PortScanResult)
+     */
+    @Override
+    public boolean analyze(ServiceChannel channel, PortScanResult result) throws IOException {
+        if (sslContext == null || channel.getBanner() != null) {
+            return false;
+        }
+
+        final SSLEngine engine = sslContext.createSSLEngine(channel.getHostAddress(), channel.getPort());
+        engine.setUseClientMode(true);
+
+        try {
+            if (!handshake(channel, engine)) {
+                return false;
+            }
+        } catch (SSLException e) {
+            // no tls, e.g. a plain text response
+            LOG.fine("No tls on " + channel + ": " + e.getMessage());
+            return false;
+        }
+
+        final SSLSession session = engine.getSession();
+        result.setProtocol("tls");
+        result.setServiceAttribute(TLS_PROTOCOL, session.getProtocol());
+        result.setServiceAttribute(TLS_CIPHER_SUITE, session.getCipherSuite());
+
+        try {
+            final Certificate[] certificates = session.getPeerCertificates();
+            if (certificates.length > 0 && certificates[0] instanceof X509Certificate) {
+                final X509Certificate certificate = (X509Certificate) certificates[0];
+                result.setServiceAttribute(TLS_SUBJECT, certificate.getSubjectX500Principal().getName());
+                result.setServiceAttribute(TLS_ISSUER, certificate.getIssuerX500Principal().getName());
+                result.setServiceAttribute(TLS_NOT_AFTER, certificate.getNotAfter().toInstant().toString());
+            }
+        } catch (SSLException e) {
+            // NOP, anonymous cipher suite
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Perform the tls handshake
+     *
+     * @param channel the service channel
+     * @param engine the ssl engine
+     * @return true if the handshake is finished, false if the server closed the connection
+     * @throws IOException In case of an I/O error, timeout or a tls error
+     */
+    protected boolean handshake(ServiceChannel channel, SSLEngine engine) throws IOException {
+        final SSLSession session = engine.getSession();
+        final ByteBuffer netOut = ByteBuffer.allocate(session.getPacketBufferSize());
+        ByteBuffer netIn = ByteBuffer.allocate(session.getPacketBufferSize());
+        ByteBuffer appIn = ByteBuffer.allocate(session.getApplicationBufferSize());
+
+        engine.beginHandshake();
+        HandshakeStatus status = engine.getHandshakeStatus();
+        while (status != HandshakeStatus.FINISHED && status != HandshakeStatus.NOT_HANDSHAKING) {
+            SSLEngineResult engineResult;
+            if (status == HandshakeStatus.NEED_WRAP) {
+                netOut.clear();
+                engineResult = engine.wrap(EMPTY_BUFFER, netOut);
+                netOut.flip();
+                channel.write(netOut);
+            } else if (status == HandshakeStatus.NEED_TASK) {
+                Runnable task = engine.getDelegatedTask();
+                while (task != null) {
+                    task.run();
+                    task = engine.getDelegatedTask();
+                }
+                status = engine.getHandshakeStatus();
+                continue;
+            } else {
+                netIn.flip();
+                engineResult = engine.unwrap(netIn, appIn);
+                netIn.compact();
+                if (engineResult.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+                    if (netIn.remaining() == 0) {
+                        netIn = enlarge(netIn, session.getPacketBufferSize());
+                    }
+                    if (channel.read(netIn) < 0) {
+                        return false;
+                    }
+                    continue;
+                }
+
+                if (engineResult.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+                    appIn = enlarge(appIn, session.getApplicationBufferSize());
+                }
+            }
+
+            if (engineResult.getStatus() == SSLEngineResult.Status.CLOSED) {
+                return false;
+            }
+
+            status = engineResult.getHandshakeStatus();
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Enlarge a buffer
+     *
+     * @param buffer the buffer in write mode
+     * @param size the additional size
+     * @return the enlarged buffer with the content of the buffer
+     */
+    private ByteBuffer enlarge(ByteBuffer buffer, int size) {
+        final ByteBuffer result = ByteBuffer.allocate(buffer.capacity() + size);
+        buffer.flip();
+        result.put(buffer);
+        return result;
+    }
+
+
+    /**
+     * Create a ssl context which trusts all certificates, the certificates are inspected and not validated
+     *
+     * @return the ssl context or null if tls is not available
+     */
+    private static SSLContext createTrustAllContext() {
+        TrustManager[] trustAll = new TrustManager[]{
+            new X509TrustManager() {
+                @Override
+                public X509Certificate[] getAcceptedIssuers() {
+                    return new X509Certificate[0];
+                }
+
+                @Override
+                public void checkClientTrusted(X509Certificate[] certs, String authType) {
+                    // trust all for inspection
+                }
+
+                @Override
+                public void checkServerTrusted(X509Certificate[] certs, String authType) {
+                    // trust all for inspection
+                }
+            }
+        };
+
+        try {
+            SSLContext ctx = SSLContext.getInstance("TLS");
+            ctx.init(null, trustAll, new SecureRandom());
+            return ctx;
+        } catch (GeneralSecurityException e) {
+            LOG.warning("Could not create the tls context: " + e.getMessage());
+            return null;
+        }
+    }
+}
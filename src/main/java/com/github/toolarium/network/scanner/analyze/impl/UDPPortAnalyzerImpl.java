@@ -0,0 +1,143 @@
+/*
+ * UDPPortAnalyzerImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze.impl;
+
+import com.github.toolarium.network.scanner.analyze.IPortAnalyzer;
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Implements a udp port analyzer. The probe is sent on a connected {@link DatagramChannel}, so an icmp port unreachable
+ * is reported by a {@link PortUnreachableException}: an answered probe is {@link PortState#OPEN}, a port unreachable
+ * {@link PortState#CLOSED} and a not answered probe {@link PortState#OPEN_FILTERED} after the retries. The payload of
+ * the probe is given by the {@link UdpProbeUtil}.
+ *
+ * @author patrick
+ */
+public class UDPPortAnalyzerImpl implements IPortAnalyzer {
+    private static final int RECEIVE_BUFFER_SIZE = 512;
+    private AdaptiveTimeout adaptiveTimeout;
+    private TokenBucketPacer pacer;
+
+
+    /**
+     * Constructor
+     *
+     * @param timeout the fixed timeout
+     */
+    public UDPPortAnalyzerImpl(int timeout) {
+        this(AdaptiveTimeout.fixed(timeout));
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param adaptiveTimeout the adaptive timeout
+     */
+    public UDPPortAnalyzerImpl(AdaptiveTimeout adaptiveTimeout) {
+        this(adaptiveTimeout, null);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param adaptiveTimeout the adaptive timeout
+     * @param pacer the pacer of the probes or null
+     */
+    public UDPPortAnalyzerImpl(AdaptiveTimeout adaptiveTimeout, TokenBucketPacer pacer) {
+        this.adaptiveTimeout = adaptiveTimeout;
+        this.pacer = pacer;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.analyze.IPortAnalyzer#analyzePort(java.lang.String, int)
+     */
+    @Override
+    public IPortScanResult analyzePort(String scanAddress, int port) {
+        for (int attempt = 0; attempt <= adaptiveTimeout.getMaxRetries(); attempt++) {
+            if (pacer != null) {
+                try {
+                    pacer.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            final long timeout = adaptiveTimeout.getTimeout(scanAddress, attempt);
+            final long start = System.nanoTime();
+            final PortState portState = probe(scanAddress, port, Math.max(1L, TimeUnit.NANOSECONDS.toMillis(timeout)));
+            if (portState != null) {
+                if (attempt == 0) {
+                    // the round trip time of a retried probe is ambiguous
+                    adaptiveTimeout.sample(scanAddress, System.nanoTime() - start);
+                }
+
+                final PortScanResult result = new PortScanResult(scanAddress, port, portState);
+                if (portState == PortState.OPEN) {
+                    result.setProtocol(UdpProbeUtil.getInstance().getProtocol(port));
+                }
+
+                return result;
+            }
+        }
+
+        return new PortScanResult(scanAddress, port, PortState.OPEN_FILTERED);
+    }
+
+
+    /**
+     * Send a probe and wait for the answer
+     *
+     * @param scanAddress the address
+     * @param port the port
+     * @param timeout the timeout in milliseconds
+     * @return the state of the port or null if the probe is not answered
+     */
+    protected PortState probe(String scanAddress, int port, long timeout) {
+        try (DatagramChannel channel = DatagramChannel.open(); Selector selector = Selector.open()) {
+            channel.configureBlocking(false);
+            channel.connect(new InetSocketAddress(scanAddress, port));
+            channel.write(ByteBuffer.wrap(UdpProbeUtil.getInstance().getPayload(port)));
+            channel.register(selector, SelectionKey.OP_READ);
+
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+            long remaining = timeout;
+            while (remaining > 0) {
+                if (selector.select(remaining) > 0) {
+                    selector.selectedKeys().clear();
+                    if (channel.receive(ByteBuffer.allocate(RECEIVE_BUFFER_SIZE)) != null) {
+                        return PortState.OPEN;
+                    }
+                }
+
+                remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            }
+
+            return null;
+        } catch (PortUnreachableException e) {
+            return PortState.CLOSED;
+        } catch (IOException | RuntimeException e) {
+            // e.g. host or network unreachable
+            return PortState.FILTERED;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * UdpProbeUtil.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze.impl;
+
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Provides the payloads of the udp probes. A udp service answers only a valid request of its protocol, so the well
+ * known ports get a protocol specific request: dns, ntp, snmp and syslog. Any other port gets a datagram of one zero
+ * byte, a datagram channel doesn't send an empty datagram.
+ *
+ * @author patrick
+ */
+public final class UdpProbeUtil {
+    /** The dns port */
+    public static final int DNS_PORT = 53;
+    /** The ntp port */
+    public static final int NTP_PORT = 123;
+    /** The snmp port */
+    public static final int SNMP_PORT = 161;
+    /** The syslog port */
+    public static final int SYSLOG_PORT = 514;
+    private static final byte[] DEFAULT_PAYLOAD = new byte[] {0x00};
+
+    // standard query of the TXT record version.bind in the class CHAOS
+    private static final byte[] DNS_PAYLOAD = new byte[] {
+        0x12, 0x34, 0x01, 0x00, 0x00, 0x01, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+        0x07, 'v', 'e', 'r', 's', 'i', 'o', 'n', 0x04, 'b', 'i', 'n', 'd', 0x00,
+        0x00, 0x10, 0x00, 0x03
+    };
+
+    // snmp v1 get-request of sysDescr.0 with the community public
+    private static final byte[] SNMP_PAYLOAD = new byte[] {
+        0x30, 0x26, 0x02, 0x01, 0x00, 0x04, 0x06, 'p', 'u', 'b', 'l', 'i', 'c',
+        (byte) 0xa0, 0x19, 0x02, 0x01, 0x01, 0x02, 0x01, 0x00, 0x02, 0x01, 0x00,
+        0x30, 0x0e, 0x30, 0x0c, 0x06, 0x08, 0x2b, 0x06, 0x01, 0x02, 0x01, 0x01, 0x01, 0x00, 0x05, 0x00
+    };
+
+    // ntp v4 client request: leap indicator unknown (3), version 4, mode client (3)
+    private static final byte[] NTP_PAYLOAD = createNtpPayload();
+
+    private static final byte[] SYSLOG_PAYLOAD = "<14>toolarium-network: udp probe".getBytes(StandardCharsets.US_ASCII);
+
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final UdpProbeUtil INSTANCE = new UdpProbeUtil();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private UdpProbeUtil() {
+        // NOP
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static UdpProbeUtil getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * Get the payload of the probe of a port
+     *
+     * @param port the port
+     * @return the payload, a copy
+     */
+    public byte[] getPayload(int port) {
+        switch (port) {
+            case DNS_PORT:
+                return DNS_PAYLOAD.clone();
+            case NTP_PORT:
+                return NTP_PAYLOAD.clone();
+            case SNMP_PORT:
+                return SNMP_PAYLOAD.clone();
+            case SYSLOG_PORT:
+                return SYSLOG_PAYLOAD.clone();
+            default:
+                return DEFAULT_PAYLOAD.clone();
+        }
+    }
+
+
+    /**
+     * Get the protocol of the probe of a port
+     *
+     * @param port the port
+     * @return the protocol or null if the probe has no protocol specific payload
+     */
+    public String getProtocol(int port) {
+        switch (port) {
+            case DNS_PORT:
+                return "dns";
+            case NTP_PORT:
+                return "ntp";
+            case SNMP_PORT:
+                return "snmp";
+            case SYSLOG_PORT:
+                return "syslog";
+            default:
+                return null;
+        }
+    }
+
+
+    /**
+     * Create the ntp request
+     *
+     * @return the ntp request
+     */
+    private static byte[] createNtpPayload() {
+        final byte[] payload = new byte[48];
+        payload[0] = (byte) 0xe3;
+        return payload;
+    }
+}
@@ -0,0 +1,680 @@
+/*
+ * ScanCheckpoint.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.checkpoint;
+
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.listener.IPortScanListener;
+import com.github.toolarium.network.scanner.target.ScanTargets;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Map;
+
+
+/**
+ * Implements the persistent progress of a port scan, so a scan can be resumed after a crash or a restart. The progress
+ * is a bitmap of the completed probes of the host × port index space in a memory-mapped file: a probe costs one bit
+ * and no system call, the pages are written back by the operating system. The results which are not closed are
+ * appended to a compact result log (index, state and detected service), they are replayed when the scan is resumed;
+ * the closed ports are replayed from the bitmap, they are the completed probes which are not logged.
+ * Both files are named by the SHA-256 hash of the scan specification (transport, targets and port range) and their
+ * header contains the hash, so a checkpoint can't be applied to a different scan. A result is appended to the log
+ * before its bit is set; the bits of the logged results are restored when a checkpoint is opened.
+ *
+ * <p>The methods are synchronized, but the files of a checkpoint must not be opened by two scans at the same time.
+ *
+ * @author patrick
+ */
+public final class ScanCheckpoint implements Closeable {
+    /** The file extension of the progress bitmap */
+    public static final String BITMAP_FILE_EXTENSION = ".bitmap";
+
+    /** The file extension of the result log */
+    public static final String LOG_FILE_EXTENSION = ".log";
+    private static final int BITMAP_MAGIC = 0x54534350; // TSCP
+    private static final int LOG_MAGIC = 0x5453434c; // TSCL
+    private static final int VERSION = 1;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_SIZE = 64;
+    private static final int LOG_HEADER_SIZE = 4 + 4 + HASH_LENGTH;
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final int MAX_RECORD_LENGTH = 1 << 20;
+    private final Path bitmapFile;
+    private final Path logFile;
+    private final byte[] hash;
+    private final long size;
+    private FileChannel bitmapChannel;
+    private FileChannel logChannel;
+    private MappedByteBuffer[] segments;
+    private long completed;
+
+
+    /**
+     * Constructor for ScanCheckpoint
+     *
+     * @param bitmapFile the bitmap file
+     * @param logFile the log file
+     * @param hash the hash of the scan specification
+     * @param size the size of the host × port index space
+     */
+    private ScanCheckpoint(Path bitmapFile, Path logFile, byte[] hash, long size) {
+        this.bitmapFile = bitmapFile;
+        this.logFile = logFile;
+        this.hash = hash;
+        this.size = size;
+        this.bitmapChannel = null;
+        this.logChannel = null;
+        this.segments = null;
+        this.completed = 0;
+    }
+
+
+    /**
+     * Open the checkpoint of a scan: an existing checkpoint of the same scan specification is resumed, otherwise an empty
+     * checkpoint is created. A result record which was only partially written (crash) is removed from the log.
+     *
+     * @param directory the directory of the checkpoint files
+     * @param specification the scan specification, see {@link #hash(String)}
+     * @param size the size of the host × port index space
+     * @return the checkpoint
+     * @throws IOException In case the files could not be read or written
+     * @throws IllegalArgumentException In case of invalid input or a checkpoint file of a different scan
+     */
+    public static ScanCheckpoint open(Path directory, String specification, long size) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Invalid checkpoint directory!");
+        }
+        if (specification == null || specification.isEmpty()) {
+            throw new IllegalArgumentException("Invalid scan specification!");
+        }
+        if (size <= 0) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+
+        Files.createDirectories(directory);
+        final String name = hash(specification);
+        final ScanCheckpoint checkpoint = new ScanCheckpoint(directory.resolve(name + BITMAP_FILE_EXTENSION),
+                                                             directory.resolve(name + LOG_FILE_EXTENSION),
+                                                             toBytes(name), size);
+        try {
+            checkpoint.openBitmap();
+            checkpoint.openLog();
+        } catch (IOException | RuntimeException e) {
+            checkpoint.close();
+            throw e;
+        }
+
+        return checkpoint;
+    }
+
+
+    /**
+     * Get the hash of a scan specification: the hex encoded SHA-256 hash, it's the name of the checkpoint files
+     *
+     * @param specification the scan specification
+     * @return the hash
+     */
+    public static String hash(String specification) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(specification.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder result = new StringBuilder(2 * digest.length);
+            for (byte b : digest) {
+                result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return result.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Missing SHA-256: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Get the bitmap file
+     *
+     * @return the bitmap file
+     */
+    public Path getBitmapFile() {
+        return bitmapFile;
+    }
+
+
+    /**
+     * Get the result log file
+     *
+     * @return the result log file
+     */
+    public Path getLogFile() {
+        return logFile;
+    }
+
+
+    /**
+     * Get the size of the host × port index space
+     *
+     * @return the size
+     */
+    public long getSize() {
+        return size;
+    }
+
+
+    /**
+     * Get the number of completed probes
+     *
+     * @return the number of completed probes
+     */
+    public synchronized long getCompleted() {
+        return completed;
+    }
+
+
+    /**
+     * Check if a probe is completed
+     *
+     * @param index the index of the probe in the host × port index space
+     * @return true if it is completed
+     */
+    public synchronized boolean isCompleted(long index) {
+        ensureOpen();
+        final long byteIndex = checkIndex(index) >>> 3;
+        return (segments[(int) (byteIndex >>> SEGMENT_SHIFT)].get((int) (byteIndex & (SEGMENT_SIZE - 1))) & (1 << (index & 7))) != 0;
+    }
+
+
+    /**
+     * Mark a probe as completed. A result which is not closed is appended to the result log first.
+     *
+     * @param index the index of the probe in the host × port index space
+     * @param portScanResult the result of the probe
+     * @throws IOException In case the result could not be written
+     */
+    public synchronized void completed(long index, IPortScanResult portScanResult) throws IOException {
+        if (isCompleted(index)) {
+            return;
+        }
+
+        if (portScanResult != null && portScanResult.getPortState() != PortState.CLOSED) {
+            final ByteBuffer record = ByteBuffer.wrap(prepareRecord(index, portScanResult));
+            while (record.hasRemaining()) {
+                logChannel.write(record);
+            }
+        }
+
+        setCompleted(index);
+    }
+
+
+    /**
+     * Replay the logged results to a listener, e.g. when a scan is resumed. The closed ports are not replayed.
+     *
+     * @param targets the scan targets
+     * @param startPort the start port of the scan
+     * @param portScanListener the listener
+     * @return the number of replayed results
+     * @throws IOException In case the log could not be read
+     */
+    public long replay(ScanTargets targets, int startPort, IPortScanListener portScanListener) throws IOException {
+        return replay(targets, startPort, false, portScanListener);
+    }
+
+
+    /**
+     * Replay the results of the completed probes to a listener, e.g. when a scan is resumed: the logged results and
+     * optionally the closed ports, which are the completed probes of the bitmap without a logged result.
+     *
+     * @param targets the scan targets
+     * @param startPort the start port of the scan
+     * @param replayClosed true to replay the closed ports
+     * @param portScanListener the listener
+     * @return the number of replayed results
+     * @throws IOException In case the log could not be read
+     */
+    public synchronized long replay(ScanTargets targets, int startPort, boolean replayClosed, IPortScanListener portScanListener) throws IOException {
+        ensureOpen();
+        if (targets == null || targets.size() * (size / targets.size()) != size) {
+            throw new IllegalArgumentException("Invalid scan targets!");
+        }
+
+        long replayed = 0;
+        long[] logged = new long[16];
+        int numberOfLogged = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile)))) {
+            in.skipBytes(LOG_HEADER_SIZE);
+            byte[] record = readRecord(in);
+            while (record != null) {
+                final DataInputStream recordInput = new DataInputStream(new ByteArrayInputStream(record));
+                final long index = recordInput.readLong();
+                final PortScanResult portScanResult = prepareResult(targets, startPort, index, PortState.values()[recordInput.readByte()]);
+                portScanResult.setProtocol(readString(recordInput));
+                portScanResult.setApplication(readString(recordInput));
+                final int numberOfAttributes = recordInput.readUnsignedShort();
+                for (int i = 0; i < numberOfAttributes; i++) {
+                    portScanResult.setServiceAttribute(recordInput.readUTF(), recordInput.readUTF());
+                }
+
+                if (replayClosed) {
+                    if (numberOfLogged == logged.length) {
+                        logged = Arrays.copyOf(logged, 2 * logged.length);
+                    }
+                    logged[numberOfLogged++] = index;
+                }
+
+                portScanListener.visitedPort(portScanResult);
+                replayed++;
+                record = readRecord(in);
+            }
+        }
+
+        if (replayClosed) {
+            Arrays.sort(logged, 0, numberOfLogged);
+            replayed += replayClosed(targets, startPort, logged, numberOfLogged, portScanListener);
+        }
+
+        return replayed;
+    }
+
+
+    /**
+     * Write the bitmap and the result log to the storage device
+     *
+     * @throws IOException In case of an I/O error
+     */
+    public synchronized void force() throws IOException {
+        ensureOpen();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+
+        logChannel.force(false);
+    }
+
+
+    /**
+     * Close the checkpoint, it can be opened again to resume the scan
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public synchronized void close() {
+        if (segments != null) {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+            segments = null;
+        }
+
+        bitmapChannel = close(bitmapChannel);
+        logChannel = close(logChannel);
+    }
+
+
+    /**
+     * Close the checkpoint and delete its files, e.g. when the scan is completed
+     *
+     * @throws IOException In case the files could not be deleted
+     */
+    public synchronized void delete() throws IOException {
+        segments = null;
+        bitmapChannel = close(bitmapChannel);
+        logChannel = close(logChannel);
+        Files.deleteIfExists(bitmapFile);
+        Files.deleteIfExists(logFile);
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "ScanCheckpoint [bitmapFile=" + bitmapFile + ", size=" + size + ", completed=" + completed + "]";
+    }
+
+
+    /**
+     * Open or create the bitmap file, map its segments and count the completed probes
+     *
+     * @throws IOException In case of an I/O error
+     */
+    private void openBitmap() throws IOException {
+        bitmapChannel = FileChannel.open(bitmapFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (bitmapChannel.size() == 0) {
+            header.putInt(BITMAP_MAGIC).putInt(VERSION).putLong(size).put(hash).clear();
+            while (header.hasRemaining()) {
+                bitmapChannel.write(header, header.position());
+            }
+        } else {
+            readFully(bitmapChannel, header);
+            if (header.getInt() != BITMAP_MAGIC || header.getInt() != VERSION || header.getLong() != size || !isHash(header)) {
+                throw new IllegalArgumentException("Invalid checkpoint [" + bitmapFile + "]: it belongs to a different scan!");
+            }
+        }
+
+        final long bitmapSize = (size + 7) >>> 3;
+        segments = new MappedByteBuffer[(int) ((bitmapSize + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT)];
+        for (int i = 0; i < segments.length; i++) {
+            final long offset = i * SEGMENT_SIZE;
+            segments[i] = bitmapChannel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + offset, Math.min(SEGMENT_SIZE, bitmapSize - offset));
+        }
+
+        completed = 0;
+        for (MappedByteBuffer segment : segments) {
+            int i = 0;
+            for (; i + Long.BYTES <= segment.capacity(); i += Long.BYTES) {
+                completed += Long.bitCount(segment.getLong(i));
+            }
+            for (; i < segment.capacity(); i++) {
+                completed += Integer.bitCount(segment.get(i) & 0xFF);
+            }
+        }
+    }
+
+
+    /**
+     * Open or create the result log: a partially written record is truncated and the bits of the logged results are set
+     *
+     * @throws IOException In case of an I/O error
+     */
+    private void openLog() throws IOException {
+        logChannel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(LOG_HEADER_SIZE);
+        if (logChannel.size() < LOG_HEADER_SIZE) {
+            header.putInt(LOG_MAGIC).putInt(VERSION).put(hash).flip();
+            logChannel.truncate(0);
+            while (header.hasRemaining()) {
+                logChannel.write(header, header.position());
+            }
+
+            logChannel.position(LOG_HEADER_SIZE);
+            return;
+        }
+
+        readFully(logChannel, header);
+        if (header.getInt() != LOG_MAGIC || header.getInt() != VERSION || !isHash(header)) {
+            throw new IllegalArgumentException("Invalid checkpoint [" + logFile + "]: it belongs to a different scan!");
+        }
+
+        long end = LOG_HEADER_SIZE;
+        logChannel.position(LOG_HEADER_SIZE);
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(logChannel)));
+        byte[] record = readRecord(in);
+        while (record != null) {
+            final long index = ByteBuffer.wrap(record).getLong();
+            if (index >= 0 && index < size && !isCompleted(index)) {
+                setCompleted(index);
+            }
+
+            end += Integer.BYTES + record.length;
+            record = readRecord(in);
+        }
+
+        logChannel.truncate(end);
+        logChannel.position(end);
+    }
+
+
+    /**
+     * Replay the closed ports: the completed probes of the bitmap without a logged result. The zero words of the bitmap
+     * are skipped.
+     *
+     * @param targets the scan targets
+     * @param startPort the start port of the scan
+     * @param logged the sorted indexes of the logged results
+     * @param numberOfLogged the number of logged results
+     * @param portScanListener the listener
+     * @return the number of replayed closed ports
+     */
+    private long replayClosed(ScanTargets targets, int startPort, long[] logged, int numberOfLogged, IPortScanListener portScanListener) {
+        long replayed = 0;
+        for (int s = 0; s < segments.length; s++) {
+            final MappedByteBuffer segment = segments[s];
+            int i = 0;
+            while (i < segment.capacity()) {
+                if (i + Long.BYTES <= segment.capacity() && segment.getLong(i) == 0) {
+                    i += Long.BYTES;
+                    continue;
+                }
+
+                final int bits = segment.get(i) & 0xFF;
+                for (int bit = 0; bit < 8; bit++) {
+                    final long index = ((s * SEGMENT_SIZE + i) << 3) + bit;
+                    if ((bits & (1 << bit)) != 0 && index < size && Arrays.binarySearch(logged, 0, numberOfLogged, index) < 0) {
+                        portScanListener.visitedPort(prepareResult(targets, startPort, index, PortState.CLOSED));
+                        replayed++;
+                    }
+                }
+                i++;
+            }
+        }
+
+        return replayed;
+    }
+
+
+    /**
+     * Prepare the result of a probe
+     *
+     * @param targets the scan targets
+     * @param startPort the start port of the scan
+     * @param index the index of the probe in the host × port index space
+     * @param portState the state of the port
+     * @return the result
+     */
+    private static PortScanResult prepareResult(ScanTargets targets, int startPort, long index, PortState portState) {
+        return new PortScanResult(targets.getHostAddress(index % targets.size()), (int) (startPort + index / targets.size()), portState);
+    }
+
+
+    /**
+     * Set the bit of a completed probe
+     *
+     * @param index the index of the probe
+     */
+    private void setCompleted(long index) {
+        final long byteIndex = index >>> 3;
+        final MappedByteBuffer segment = segments[(int) (byteIndex >>> SEGMENT_SHIFT)];
+        final int offset = (int) (byteIndex & (SEGMENT_SIZE - 1));
+        segment.put(offset, (byte) (segment.get(offset) | (1 << (index & 7))));
+        completed++;
+    }
+
+
+    /**
+     * Prepare the log record of a result: the length followed by index, state, protocol, application and the service
+     * attributes
+     *
+     * @param index the index of the probe
+     * @param portScanResult the result
+     * @return the record
+     * @throws IOException In case of an I/O error
+     */
+    private byte[] prepareRecord(long index, IPortScanResult portScanResult) throws IOException {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(64);
+        final DataOutputStream out = new DataOutputStream(buffer);
+        out.writeInt(0);
+        out.writeLong(index);
+        out.writeByte(portScanResult.getPortState().ordinal());
+        writeString(out, portScanResult.getProtocol());
+        writeString(out, portScanResult.getApplication());
+        final Map<String, String> serviceAttributes = portScanResult.getServiceAttributes();
+        out.writeShort(serviceAttributes.size());
+        for (Map.Entry<String, String> e : serviceAttributes.entrySet()) {
+            out.writeUTF(e.getKey());
+            out.writeUTF(e.getValue());
+        }
+
+        out.flush();
+        final byte[] record = buffer.toByteArray();
+        ByteBuffer.wrap(record).putInt(record.length - Integer.BYTES);
+        return record;
+    }
+
+
+    /**
+     * Read the next complete record of the log
+     *
+     * @param in the input
+     * @return the record or null at the end of the log or of a partially written record
+     * @throws IOException In case of an I/O error
+     */
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            final int length = in.readInt();
+            if (length < Long.BYTES + 1 || length > MAX_RECORD_LENGTH) {
+                return null;
+            }
+
+            final byte[] record = new byte[length];
+            in.readFully(record);
+            return record;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Write an optional string
+     *
+     * @param out the output
+     * @param value the value or null
+     * @throws IOException In case of an I/O error
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+
+    /**
+     * Read an optional string
+     *
+     * @param in the input
+     * @return the value or null
+     * @throws IOException In case of an I/O error
+     */
+    private static String readString(DataInputStream in) throws IOException {
+        if (in.readBoolean()) {
+            return in.readUTF();
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Read a buffer from the start of a file
+     *
+     * @param channel the channel
+     * @param buffer the buffer
+     * @throws IOException In case of an I/O error or a too short file
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                throw new EOFException("Invalid checkpoint: the header is incomplete!");
+            }
+        }
+
+        buffer.flip();
+    }
+
+
+    /**
+     * Check if the next bytes of the header are the hash of the scan specification
+     *
+     * @param header the header
+     * @return true if it is the hash
+     */
+    private boolean isHash(ByteBuffer header) {
+        final byte[] value = new byte[HASH_LENGTH];
+        header.get(value);
+        return Arrays.equals(value, hash);
+    }
+
+
+    /**
+     * Check the index of a probe
+     *
+     * @param index the index
+     * @return the index
+     */
+    private long checkIndex(long index) {
+        if (index < 0 || index >= size) {
+            throw new IllegalArgumentException("Invalid index: " + index);
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Ensure the checkpoint is open
+     */
+    private void ensureOpen() {
+        if (segments == null) {
+            throw new IllegalStateException("The checkpoint [" + bitmapFile + "] is closed!");
+        }
+    }
+
+
+    /**
+     * Decode a hex encoded hash
+     *
+     * @param hex the hex encoded hash
+     * @return the hash
+     */
+    private static byte[] toBytes(String hex) {
+        final byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Close a channel
+     *
+     * @param channel the channel or null
+     * @return null
+     */
+    private static FileChannel close(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // NOP
+            }
+        }
+
+        return null;
+    }
+}
@@ -5,6 +5,10 @@
  */
 package com.github.toolarium.network.scanner.dto;
 
+import java.util.Collections;
+import java.util.Map;
+
+
 /**
  * Defines the port scan result
  *
@@ -36,6 +40,16 @@ public interface IPortScanResult {
     boolean isAvailable();
 
 
+    /**
+     * Get the state of the port, e.g. a not answered udp probe is {@link PortState#OPEN_FILTERED}
+     *
+     * @return the state of the port
+     */
+    default PortState getPortState() {
+        return PortState.of(isAvailable());
+    }
+
+
     /**
      * Define if the port is active
      *
@@ -58,4 +72,15 @@ public interface IPortScanResult {
      * @return the application which is behind the port or null in case of unknown
      */
     String getApplication();
+
+
+    /**
+     * The details of the service behind the port found by the service detection, e.g. the banner, the http status or
+     * the tls protocol and certificate
+     *
+     * @return the service attributes, empty in case the service is not analyzed
+     */
+    default Map<String, String> getServiceAttributes() {
+        return Collections.emptyMap();
+    }
 }
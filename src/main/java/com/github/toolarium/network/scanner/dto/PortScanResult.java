@@ -6,6 +6,9 @@
 package com.github.toolarium.network.scanner.dto;
 
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 
 
@@ -19,9 +22,11 @@ public class PortScanResult implements IPortScanResult, Serializable {
     private final String hostAddress;
     private final int port;
     private final boolean isAvailable;
+    private final PortState portState;
     private boolean isActive;
     private String protocol;
     private String application;
+    private Map<String, String> serviceAttributes;
 
 
     /**
@@ -32,12 +37,26 @@ public class PortScanResult implements IPortScanResult, Serializable {
      * @param isAvailable is it available
      */
     public PortScanResult(final String hostAddress, final int port, final boolean isAvailable) {
+        this(hostAddress, port, PortState.of(isAvailable));
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param hostAddress the host address
+     * @param port the port
+     * @param portState the state of the port, only an open port is available
+     */
+    public PortScanResult(final String hostAddress, final int port, final PortState portState) {
         this.hostAddress = hostAddress;
         this.port = port;
-        this.isAvailable = isAvailable;
+        this.portState = portState;
+        this.isAvailable = portState == PortState.OPEN;
         this.isActive = isAvailable;
         this.protocol = null;
         this.application = null;
+        this.serviceAttributes = null;
     }
 
 
@@ -50,9 +69,14 @@ public class PortScanResult implements IPortScanResult, Serializable {
         this.hostAddress = portScanResult.getHostAddress();
         this.port = portScanResult.getPort();
         this.isAvailable = portScanResult.isAvailable();
+        this.portState = portScanResult.getPortState();
         this.isActive = portScanResult.isActive();
         this.protocol = portScanResult.getProtocol();
         this.application = portScanResult.getApplication();
+        this.serviceAttributes = null;
+        if (portScanResult.getServiceAttributes() != null && !portScanResult.getServiceAttributes().isEmpty()) {
+            this.serviceAttributes = new LinkedHashMap<String, String>(portScanResult.getServiceAttributes());
+        }
     }
 
 
@@ -83,6 +107,15 @@ public class PortScanResult implements IPortScanResult, Serializable {
     }
 
 
+    /**
+     * @see com.github.toolarium.network.scanner.dto.IPortScanResult#getPortState()
+     */
+    @Override
+    public PortState getPortState() {
+        return portState;
+    }
+
+
     /**
      * @see com.github.toolarium.network.scanner.dto.IPortScanResult#isActive()
      */
@@ -140,12 +173,47 @@ public class PortScanResult implements IPortScanResult, Serializable {
     }
 
 
+    /**
+     * @see com.github.toolarium.network.scanner.dto.IPortScanResult#getServiceAttributes()
+     */
+    @Override
+    public Map<String, String> getServiceAttributes() {
+        if (serviceAttributes == null) {
+            return Collections.emptyMap();
+        }
+
+        return Collections.unmodifiableMap(serviceAttributes);
+    }
+
+
+    /**
+     * Set a service attribute
+     *
+     * @param name the name
+     * @param value the value, null to remove the attribute
+     */
+    public void setServiceAttribute(String name, String value) {
+        if (value == null) {
+            if (serviceAttributes != null) {
+                serviceAttributes.remove(name);
+            }
+            return;
+        }
+
+        if (serviceAttributes == null) {
+            serviceAttributes = new LinkedHashMap<String, String>();
+        }
+
+        serviceAttributes.put(name, value);
+    }
+
+
     /**
      * @see java.lang.Object#hashCode()
      */
     @Override
     public int hashCode() {
-        return Objects.hash(application, hostAddress, isActive, isAvailable, port, protocol);
+        return Objects.hash(application, hostAddress, isActive, isAvailable, portState, port, protocol, getServiceAttributes());
     }
 
 
@@ -168,8 +236,8 @@ public class PortScanResult implements IPortScanResult, Serializable {
             
         PortScanResult other = (PortScanResult) obj;
         return Objects.equals(application, other.application) && Objects.equals(hostAddress, other.hostAddress)
-                && isActive == other.isActive && isAvailable == other.isAvailable && port == other.port
-                && Objects.equals(protocol, other.protocol);
+                && isActive == other.isActive && isAvailable == other.isAvailable && portState == other.portState && port == other.port
+                && Objects.equals(protocol, other.protocol) && Objects.equals(getServiceAttributes(), other.getServiceAttributes());
     }
 
 
@@ -178,7 +246,8 @@ public class PortScanResult implements IPortScanResult, Serializable {
      */
     @Override
     public String toString() {
-        return "PortScanResultImpl [hostAddress=" + hostAddress + ", port=" + port + ", isAvailable=" + isAvailable
-                + ", isActive=" + isActive + ", protocol=" + protocol + ", application=" + application + "]";
+        return "PortScanResultImpl [hostAddress=" + hostAddress + ", port=" + port + ", isAvailable=" + isAvailable + ", portState=" + portState
+                + ", isActive=" + isActive + ", protocol=" + protocol + ", application=" + application
+                + ", serviceAttributes=" + getServiceAttributes() + "]";
     }
 }
@@ -0,0 +1,40 @@
+/*
+ * PortState.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.dto;
+
+/**
+ * Defines the state of a scanned port
+ *
+ * @author patrick
+ */
+public enum PortState {
+    /** The port is open: a tcp connect is accepted or a udp probe is answered */
+    OPEN,
+
+    /** The port is closed: a tcp connect is refused or a udp probe is answered by an icmp port unreachable */
+    CLOSED,
+
+    /** The port is filtered: a tcp connect timed out or is answered by an icmp error */
+    FILTERED,
+
+    /** A udp probe is not answered: the port is open without answering the probe or the probe is filtered */
+    OPEN_FILTERED;
+
+
+    /**
+     * Get the state of an open or closed port
+     *
+     * @param isAvailable true if the port is available
+     * @return {@link #OPEN} or {@link #CLOSED}
+     */
+    public static PortState of(boolean isAvailable) {
+        if (isAvailable) {
+            return OPEN;
+        }
+
+        return CLOSED;
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * AbstractPortScanner.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.impl;
+
+import com.github.toolarium.network.scanner.IPortScanner;
+import com.github.toolarium.network.scanner.analyze.ServiceDetector;
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.listener.IPortScanListener;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import com.github.toolarium.network.scanner.target.IndexPermutation;
+import com.github.toolarium.network.scanner.target.ScanShard;
+import com.github.toolarium.network.scanner.target.ScanTargetUtil;
+import com.github.toolarium.network.scanner.target.ScanTargets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Logger;
+
+
+/**
+ * Implements the common input preparation of the {@link IPortScanner} implementations. The scan targets are kept in
+ * the compact {@link ScanTargets} and the probes are taken in the order of an {@link IndexPermutation} of the
+ * host × port index space, so a scan starts immediately and the load is spread over all hosts and ports. A scanner can
+ * be restricted to a {@link ScanShard} of the index space, so several nodes share a scan without coordination.
+ *
+ * @author patrick
+ */
+public abstract class AbstractPortScanner implements IPortScanner {
+    private static final Logger LOG = Logger.getLogger(AbstractPortScanner.class.getName());
+    private volatile Long seed;
+    private volatile TokenBucketPacer pacer;
+    private volatile ServiceDetector serviceDetector;
+    private volatile ScanShard shard;
+
+
+    /**
+     * Constructor for AbstractPortScanner
+     */
+    protected AbstractPortScanner() {
+        this.seed = null;
+        this.pacer = null;
+        this.serviceDetector = null;
+        this.shard = ScanShard.ALL;
+    }
+
+
+    /**
+     * Get the seed of the probe order
+     *
+     * @return the seed or null if every scan has a random seed
+     */
+    public Long getSeed() {
+        return seed;
+    }
+
+
+    /**
+     * Set the seed of the probe order: scans with the same seed and targets probe in the same order.
+     *
+     * @param seed the seed or null if every scan has a random seed
+     */
+    public void setSeed(Long seed) {
+        this.seed = seed;
+    }
+
+
+    /**
+     * Get the pacer of the probes
+     *
+     * @return the pacer or null if the rate is unlimited
+     */
+    public TokenBucketPacer getPacer() {
+        return pacer;
+    }
+
+
+    /**
+     * Set the pacer of the probes. A pacer can be shared by scanners, they share its budget of probes per second.
+     *
+     * @param pacer the pacer or null for an unlimited rate
+     */
+    public void setPacer(TokenBucketPacer pacer) {
+        this.pacer = pacer;
+    }
+
+
+    /**
+     * Get the service detector of the open ports
+     *
+     * @return the service detector or null if the services are not detected
+     */
+    public ServiceDetector getServiceDetector() {
+        return serviceDetector;
+    }
+
+
+    /**
+     * Set the service detector: the service behind an open port is detected on the connection of the scan and set on
+     * its result.
+     *
+     * @param serviceDetector the service detector or null if the services are not detected
+     */
+    public void setServiceDetector(ServiceDetector serviceDetector) {
+        this.serviceDetector = serviceDetector;
+    }
+
+
+    /**
+     * Get the shard of the host × port index space which is scanned
+     *
+     * @return the shard, {@link ScanShard#ALL} for the whole index space
+     */
+    public ScanShard getShard() {
+        return shard;
+    }
+
+
+    /**
+     * Set the shard of the host × port index space which is scanned: nodes which scan the same targets and ports with
+     * the shards <code>0/N</code> to <code>N-1/N</code> probe every port exactly once, their results can be merged, e.g.
+     * by a {@link com.github.toolarium.network.scanner.result.PortScanResultStore}.
+     *
+     * @param shard the shard or null for the whole index space
+     */
+    public void setShard(ScanShard shard) {
+        if (shard == null) {
+            this.shard = ScanShard.ALL;
+        } else {
+            this.shard = shard;
+        }
+    }
+
+
+    /**
+     * Check if a port scan result passes the filter
+     *
+     * @param filterIsAvailable filter the output: true only available ports, false only not available ports, both: null
+     * @param portScanResult the port scan result
+     * @return true if the result passes the filter
+     */
+    protected boolean isAccepted(Boolean filterIsAvailable, IPortScanResult portScanResult) {
+        if (portScanResult == null) {
+            return false;
+        }
+
+        if (filterIsAvailable == null) {
+            return true;
+        }
+
+        return filterIsAvailable.booleanValue() == portScanResult.isAvailable();
+    }
+
+
+    /**
+     * Prepare input int value
+     *
+     * @param inputValue the input value
+     * @param minValue the min value
+     * @param maxValue the max value
+     * @return the value
+     */
+    protected int prepareIntegerValue(int inputValue, int minValue, int maxValue) {
+        int result = minValue;
+        if (inputValue > 0 && inputValue > minValue) {
+            result = inputValue;
+        }
+
+        if (result > maxValue) {
+            result = maxValue;
+        }
+
+        return result;
+    }
+
+    /**
+     * Prepare the scan targets, see {@link ScanTargetUtil}
+     *
+     * @param scanAddress the scan address(es), address ranges, networks in CIDR notation or exclusions
+     * @return the scan targets or null in case of an invalid scan address
+     */
+    protected ScanTargets prepareScanTargets(String scanAddress) {
+        String inputHostAddresss = "127.0.0.1";
+        if (scanAddress == null || scanAddress.trim().isEmpty()) {
+            return ScanTargetUtil.getInstance().parse(inputHostAddresss);
+        }
+
+        try {
+            return ScanTargetUtil.getInstance().parse(scanAddress);
+        } catch (IllegalArgumentException e) {
+            LOG.fine(e.getMessage());
+            return null;
+        }
+    }
+
+
+    /**
+     * Prepare the probe order
+     *
+     * @param size the size of the index space, e.g. of a shard
+     * @return the permutation of the index space
+     */
+    protected IndexPermutation prepareIndexPermutation(long size) {
+        final Long currentSeed = seed;
+        if (currentSeed != null) {
+            return new IndexPermutation(size, currentSeed.longValue());
+        }
+
+        return new IndexPermutation(size, ThreadLocalRandom.current().nextLong());
+    }
+
+
+    /**
+     * Prepare the pacer of a scan
+     *
+     * @return the pacer of the scanner or an unlimited pacer, so the rate of the scan can be set later
+     */
+    protected TokenBucketPacer preparePacer() {
+        final TokenBucketPacer currentPacer = pacer;
+        if (currentPacer != null) {
+            return currentPacer;
+        }
+
+        return new TokenBucketPacer(TokenBucketPacer.UNLIMITED);
+    }
+
+
+    /**
+     * Prepare the port scan listener list
+     *
+     * @param portScannerListeners the port scan listener list
+     * @return the port scan listener list
+     */
+    protected List<IPortScanListener> preparePortScanListenerList(IPortScanListener... portScannerListeners) {
+        List<IPortScanListener> portScanListenerList = null;
+        if (portScannerListeners != null) {
+            portScanListenerList = Arrays.asList(portScannerListeners);
+        }
+        return portScanListenerList;
+    }
+}
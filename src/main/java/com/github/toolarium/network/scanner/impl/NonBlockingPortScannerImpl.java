@@ -0,0 +1,1037 @@
+/*
+ * NonBlockingPortScannerImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.impl;
+
+import com.github.toolarium.network.scanner.IPortScanHandle;
+import com.github.toolarium.network.scanner.IStreamingPortScanner;
+import com.github.toolarium.network.scanner.analyze.ReconnectPermit;
+import com.github.toolarium.network.scanner.analyze.ServiceDetector;
+import com.github.toolarium.network.scanner.checkpoint.ScanCheckpoint;
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.listener.IPortScanListener;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
+import com.github.toolarium.network.scanner.target.IndexPermutation;
+import com.github.toolarium.network.scanner.target.ScanShard;
+import com.github.toolarium.network.scanner.target.ScanTargets;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+
+/**
+ * Implements the {@link IStreamingPortScanner} with non-blocking socket channels on one selector, the same way as the
+ * {@link com.github.toolarium.network.ping.impl.TcpPingImpl}. The scan thread keeps a window of in-flight connects:
+ * a completed or timed out connect is replaced immediately by the next target. The targets are iterated lazily in the
+ * order of a permutation of the host × port index space, so the load is spread over all hosts. The timeout of a connect
+ * is derived from the measured round trip times of its host by the {@link AdaptiveTimeout}, a timed out connect is
+ * retried; the deadlines are tracked by a binary min-heap of the in-flight probes. The connects are paced by the
+ * {@link com.github.toolarium.network.scanner.rate.TokenBucketPacer} of the scan, the loop waits for the next token
+ * instead of starting a connect. The service of an open port is detected on its connection by the
+ * {@link ServiceDetector} of the scanner with bounded parallelism; the connection counts to the window until the
+ * detection is completed and the result is passed to the listeners by the scan thread, a reconnect of the detection is
+ * paced and counts to the window until it's connected. The memory of a streamed scan is
+ * bounded by the window, the synchronous {@link #scan(String, int, int, Boolean, IPortScanListener...)} runs the same loop on the
+ * calling thread and collects the result. The transport of a probe is given by the hooks {@link #openChannel(InetAddress)},
+ * {@link #initiateProbe(SelectableChannel, InetAddress, int)} and {@link #finishProbe(SelectableChannel)}, e.g. the
+ * {@link NonBlockingUdpPortScannerImpl} sends datagrams on the same loop. With a checkpoint directory the progress of a
+ * scan is kept in a {@link ScanCheckpoint}: a restarted scan of the same specification skips the completed probes and
+ * replays their logged results.
+ *
+ * @author patrick
+ */
+public class NonBlockingPortScannerImpl extends AbstractPortScanner implements IStreamingPortScanner {
+    /** The default number of in-flight connects */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 1024;
+    private static final Logger LOG = Logger.getLogger(NonBlockingPortScannerImpl.class.getName());
+    private final int maxInFlight;
+    private final AdaptiveTimeout adaptiveTimeout;
+    private volatile Path checkpointDirectory;
+
+
+    /**
+     * Constructor
+     */
+    public NonBlockingPortScannerImpl() {
+        this(DEFAULT_MAX_IN_FLIGHT, 200);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param maxInFlight the max number of in-flight connects, limited by the number of file descriptors of the process
+     * @param timeout the initial connect timeout in milliseconds, it's adapted to the measured round trip times
+     */
+    public NonBlockingPortScannerImpl(int maxInFlight, int timeout) {
+        this(maxInFlight, new AdaptiveTimeout(timeout));
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param maxInFlight the max number of in-flight connects, limited by the number of file descriptors of the process
+     * @param adaptiveTimeout the connect timeout
+     */
+    public NonBlockingPortScannerImpl(int maxInFlight, AdaptiveTimeout adaptiveTimeout) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("Invalid max in-flight connects: " + maxInFlight);
+        }
+        if (adaptiveTimeout == null) {
+            throw new IllegalArgumentException("Invalid timeout!");
+        }
+
+        this.maxInFlight = maxInFlight;
+        this.adaptiveTimeout = adaptiveTimeout;
+        this.checkpointDirectory = null;
+    }
+
+
+    /**
+     * Get the max number of in-flight connects
+     *
+     * @return the max number of in-flight connects
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+
+    /**
+     * Get the initial connect timeout
+     *
+     * @return the initial connect timeout in milliseconds
+     */
+    public int getTimeout() {
+        return adaptiveTimeout.getInitialTimeout();
+    }
+
+
+    /**
+     * Get the adaptive connect timeout
+     *
+     * @return the adaptive connect timeout
+     */
+    public AdaptiveTimeout getAdaptiveTimeout() {
+        return adaptiveTimeout;
+    }
+
+
+    /**
+     * Get the directory of the scan checkpoints
+     *
+     * @return the directory or null if the scans are not checkpointed
+     */
+    public Path getCheckpointDirectory() {
+        return checkpointDirectory;
+    }
+
+
+    /**
+     * Set the directory of the scan checkpoints: the progress of a scan is kept in a {@link ScanCheckpoint} of its
+     * specification, so a scan which is cancelled or crashed is resumed by the next scan of the same targets and ports.
+     * The checkpoint of a completed scan is deleted.
+     *
+     * @param checkpointDirectory the directory or null if the scans are not checkpointed
+     */
+    public void setCheckpointDirectory(Path checkpointDirectory) {
+        this.checkpointDirectory = checkpointDirectory;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanner#scan(java.lang.String, int, int, java.lang.Boolean, com.github.toolarium.network.scanner.listener.IPortScanListener[])
+     */
+    @Override
+    public List<IPortScanResult> scan(String scanAddress, int startPort, int endPort, Boolean filterIsAvailable, IPortScanListener... portScannerListeners) {
+        final List<IPortScanResult> result = new ArrayList<IPortScanResult>();
+        final ScanContext context = prepareScanContext(scanAddress, startPort, endPort, filterIsAvailable, preparePortScanListenerList(portScannerListeners), result::add);
+        if (context != null) {
+            run(context, new PortScanHandle(context.total, preparePacer()));
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IStreamingPortScanner#start(java.lang.String, int, int, java.lang.Boolean, com.github.toolarium.network.scanner.listener.IPortScanListener)
+     */
+    @Override
+    public IPortScanHandle start(String scanAddress, int startPort, int endPort, Boolean filterIsAvailable, IPortScanListener portScanListener) {
+        if (portScanListener == null) {
+            throw new IllegalArgumentException("Invalid port scan listener!");
+        }
+
+        final ScanContext context = prepareScanContext(scanAddress, startPort, endPort, filterIsAvailable, null, portScanListener);
+        if (context == null) {
+            final PortScanHandle handle = new PortScanHandle(0, preparePacer());
+            handle.done();
+            return handle;
+        }
+
+        final PortScanHandle handle = new PortScanHandle(context.total, preparePacer());
+        final Thread thread = new Thread(() -> run(context, handle), "port-scanner");
+        thread.start();
+        return handle;
+    }
+
+
+    /**
+     * Prepare the scan context
+     *
+     * @param scanAddress the scan address
+     * @param inputStartPort the start port
+     * @param inputEndPort the end port
+     * @param filterIsAvailable the filter
+     * @param portScanListenerList the listeners which receive all results or null
+     * @param resultListener the listener which receives the results passing the filter
+     * @return the scan context or null if there is nothing to scan
+     */
+    protected ScanContext prepareScanContext(String scanAddress, int inputStartPort, int inputEndPort, Boolean filterIsAvailable, List<IPortScanListener> portScanListenerList, IPortScanListener resultListener) {
+        // validate input
+        final int startPort = prepareIntegerValue(inputStartPort, MIN_PORT, inputStartPort);
+        final int endPort = prepareIntegerValue(inputEndPort, startPort, MAX_PORT);
+        final ScanTargets targets = prepareScanTargets(scanAddress);
+        if (targets == null || targets.isEmpty()) {
+            LOG.fine("Could not resolve address: " + scanAddress);
+            LOG.info("No ports to scan on [" + scanAddress + "].");
+            return null;
+        }
+
+        final ScanShard shard = getShard();
+        final long size = targets.size() * (endPort - startPort + 1);
+        final IndexPermutation permutation = prepareIndexPermutation(shard.getSize(size));
+        if (permutation.getSize() == 0) {
+            LOG.info("No ports to scan on [" + scanAddress + "] in shard " + shard + ".");
+            return null;
+        }
+
+        final ScanCheckpoint checkpoint = prepareCheckpoint(targets, startPort, endPort, shard, size);
+        LOG.info("Scan ports on " + targets.size() + " host(s) [" + scanAddress + "] from range " + startPort + " - " + endPort
+                 + " (in-flight: " + maxInFlight + ", timeout:" + adaptiveTimeout.getInitialTimeout()
+                 + ", retries:" + adaptiveTimeout.getMaxRetries() + ", seed:" + permutation.getSeed() + ", shard:" + shard + ")...");
+        return new ScanContext(targets, permutation, shard, startPort, filterIsAvailable, portScanListenerList, resultListener, getServiceDetector(), checkpoint);
+    }
+
+
+    /**
+     * Prepare the checkpoint of a scan
+     *
+     * @param targets the scan targets
+     * @param startPort the start port
+     * @param endPort the end port
+     * @param shard the shard of the scan
+     * @param size the size of the host × port index space
+     * @return the opened checkpoint or null if the scans are not checkpointed
+     * @throws IllegalStateException In case the checkpoint could not be opened
+     */
+    protected ScanCheckpoint prepareCheckpoint(ScanTargets targets, int startPort, int endPort, ScanShard shard, long size) {
+        final Path directory = checkpointDirectory;
+        if (directory == null) {
+            return null;
+        }
+
+        try {
+            final ScanCheckpoint checkpoint = ScanCheckpoint.open(directory, prepareScanSpecification(targets, startPort, endPort, shard), size);
+            if (checkpoint.getCompleted() > 0) {
+                LOG.info("Resume scan from checkpoint [" + checkpoint.getBitmapFile() + "]: " + checkpoint.getCompleted() + " of " + shard.getSize(size) + " probes are completed.");
+            }
+
+            return checkpoint;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open checkpoint in [" + directory + "]: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Prepare the specification of a scan, its hash identifies the checkpoint: the transport, the targets, the ports and
+     * the shard. The seed of the probe order is not part of it, the progress is kept in the host × port index space.
+     *
+     * @param targets the scan targets
+     * @param startPort the start port
+     * @param endPort the end port
+     * @param shard the shard of the scan
+     * @return the scan specification
+     */
+    protected String prepareScanSpecification(ScanTargets targets, int startPort, int endPort, ScanShard shard) {
+        final String specification = getClass().getName() + " " + targets.getDescription() + " " + startPort + "-" + endPort;
+        if (ScanShard.ALL.equals(shard)) {
+            return specification;
+        }
+
+        return specification + " " + shard;
+    }
+
+
+    /**
+     * Run a scan and release all resources at the end
+     *
+     * @param context the scan context
+     * @param handle the scan handle
+     */
+    protected void run(ScanContext context, PortScanHandle handle) {
+        Selector selector = null;
+        boolean isCompleted = false;
+        try {
+            resume(context, handle);
+            selector = Selector.open();
+            handle.setSelector(selector);
+
+            // the reconnects of the service detection are paced and counted in the window like the probes
+            context.reconnectPermit = new ReconnectPermit(handle.getPacer(), selector::wakeup);
+            scan(selector, context, handle);
+            isCompleted = !handle.isCancelled();
+        } catch (IOException e) {
+            LOG.warning("Port scan selector error: " + e.getMessage());
+        } catch (RuntimeException e) {
+            LOG.warning("Port scan aborted: " + e.getMessage());
+        } finally {
+            closeCheckpoint(context, isCompleted);
+            if (selector != null) {
+                handle.setSelector(null);
+                for (SelectionKey key : selector.keys()) {
+                    close(key.channel(), false);
+                }
+
+                try {
+                    selector.close();
+                } catch (IOException e) {
+                    // NOP
+                }
+            }
+
+            handle.done();
+        }
+
+        LOG.fine("Ended (" + handle + ").");
+    }
+
+
+    /**
+     * Resume a scan from its checkpoint: the results of the completed probes are passed to the listeners, the completed
+     * probes are skipped. The closed ports are only replayed in case they are reported.
+     *
+     * @param context the scan context
+     * @param handle the scan handle
+     * @throws IOException In case the checkpoint could not be read
+     */
+    protected void resume(ScanContext context, PortScanHandle handle) throws IOException {
+        if (context.checkpoint == null || context.checkpoint.getCompleted() == 0) {
+            return;
+        }
+
+        final boolean replayClosed = context.portScanListenerList != null || !Boolean.TRUE.equals(context.filterIsAvailable);
+        final long replayed = context.checkpoint.replay(context.targets, context.startPort, replayClosed, r -> complete(context, handle, r));
+        handle.skipped(context.checkpoint.getCompleted() - replayed);
+    }
+
+
+    /**
+     * Close the checkpoint of a scan, the checkpoint of a completed scan is deleted
+     *
+     * @param context the scan context
+     * @param isCompleted true if the scan is completed
+     */
+    protected void closeCheckpoint(ScanContext context, boolean isCompleted) {
+        if (context.checkpoint == null) {
+            return;
+        }
+
+        if (!isCompleted) {
+            context.checkpoint.close();
+            return;
+        }
+
+        try {
+            context.checkpoint.delete();
+        } catch (IOException e) {
+            LOG.warning("Could not delete checkpoint [" + context.checkpoint.getBitmapFile() + "]: " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * The select loop: fill the window of in-flight connects, process the completed connects and expire the timed out
+     * connects until all targets are scanned and their services are detected or the scan is cancelled. A paused scan completes the in-flight connects
+     * and then blocks until it is resumed or cancelled.
+     *
+     * @param selector the selector
+     * @param context the scan context
+     * @param handle the scan handle
+     * @throws IOException In case of a selector error
+     */
+    protected void scan(Selector selector, ScanContext context, PortScanHandle handle) throws IOException {
+        while (!handle.isCancelled() && (context.hasNext() || context.inFlight > 0 || context.analyzing > 0)) {
+            long pacingDelay = 0;
+            while (!handle.isPaused() && context.hasNext() && context.getInFlight() < maxInFlight) {
+                pacingDelay = handle.getPacer().tryAcquire();
+                if (pacingDelay > 0) {
+                    break;
+                }
+
+                final Probe probe = context.next();
+                if (!connect(selector, context, handle, probe)) {
+                    if (context.inFlight > 0) {
+                        // out of resources, e.g. file descriptors: retry when in-flight connects are completed
+                        context.retry(probe);
+                        break;
+                    }
+
+                    complete(context, handle, probe, PortState.CLOSED);
+                }
+            }
+
+            handle.setInFlight(context.getInFlight());
+            long waitNanos = -1;
+            if (context.inFlight > 0) {
+                waitNanos = Math.max(0L, context.peek().deadline - System.nanoTime());
+            }
+            if (pacingDelay > 0 && (waitNanos < 0 || pacingDelay < waitNanos)) {
+                waitNanos = pacingDelay;
+            }
+
+            if (waitNanos < 0) {
+                if ((handle.isPaused() || context.analyzing > 0) && !handle.isCancelled()) {
+                    // wait for resume, cancel or a completed detection, they wake up the selector
+                    selector.select();
+                }
+            } else {
+                select(selector, waitNanos);
+                processSelectedKeys(selector, context, handle);
+                expire(selector, context, handle, System.nanoTime());
+            }
+
+            completeDetected(context, handle);
+        }
+    }
+
+
+    /**
+     * Wait for completed connects. The selector has a resolution of a millisecond, a shorter time (e.g. the pacing of a
+     * high rate) is waited by parking the thread.
+     *
+     * @param selector the selector
+     * @param waitNanos the max time to wait in nanoseconds
+     * @throws IOException In case of a selector error
+     */
+    protected void select(Selector selector, long waitNanos) throws IOException {
+        final long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos);
+        if (waitMillis > 0) {
+            selector.select(waitMillis);
+            return;
+        }
+
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+
+        selector.selectNow();
+    }
+
+
+    /**
+     * Initiate a probe, the deadline is given by the timeout of the host and the attempt
+     *
+     * @param selector the selector
+     * @param context the scan context
+     * @param handle the scan handle
+     * @param probe the probe
+     * @return false in case no channel could be opened
+     */
+    protected boolean connect(Selector selector, ScanContext context, PortScanHandle handle, Probe probe) {
+        SelectableChannel channel = null;
+        try {
+            channel = openChannel(probe.address);
+        } catch (IOException e) {
+            LOG.fine("Could not open channel: " + e.getMessage());
+            return false;
+        }
+
+        try {
+            channel.configureBlocking(false);
+            probe.start = System.nanoTime();
+            probe.deadline = probe.start + adaptiveTimeout.getTimeout(probe.hostAddress, probe.attempt);
+            final int interestOps = initiateProbe(channel, probe.address, probe.port);
+            if (interestOps == 0) {
+                // immediate connection (localhost)
+                if (context.serviceDetector != null && channel instanceof SocketChannel) {
+                    detect(selector, context, (SocketChannel) channel, probe);
+                } else {
+                    close(channel, true);
+                    complete(context, handle, probe, PortState.OPEN);
+                }
+            } else {
+                probe.channel = channel;
+                channel.register(selector, interestOps, probe);
+                context.link(probe);
+            }
+        } catch (IOException e) {
+            probe.channel = null;
+            close(channel, false);
+            complete(context, handle, probe, PortState.CLOSED);
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Open the channel of a probe
+     *
+     * @param address the address
+     * @return the channel
+     * @throws IOException In case the channel could not be opened, e.g. no more file descriptors
+     */
+    protected SelectableChannel openChannel(InetAddress address) throws IOException {
+        return SocketChannel.open();
+    }
+
+
+    /**
+     * Initiate the probe on the non-blocking channel: the connect of a tcp port
+     *
+     * @param channel the channel
+     * @param address the address
+     * @param port the port
+     * @return the operation to wait for or 0 if the port is open immediately
+     * @throws IOException In case the port is closed or unreachable
+     */
+    protected int initiateProbe(SelectableChannel channel, InetAddress address, int port) throws IOException {
+        if (((SocketChannel) channel).connect(new InetSocketAddress(address, port))) {
+            return 0;
+        }
+
+        return SelectionKey.OP_CONNECT;
+    }
+
+
+    /**
+     * Finish the probe on a selected channel: the connect of a tcp port
+     *
+     * @param channel the channel
+     * @return the state of the port or null if the probe is not completed
+     */
+    protected PortState finishProbe(SelectableChannel channel) {
+        try {
+            if (((SocketChannel) channel).finishConnect()) {
+                return PortState.OPEN;
+            }
+
+            return null;
+        } catch (IOException e) {
+            // connection refused or unreachable
+            return PortState.CLOSED;
+        }
+    }
+
+
+    /**
+     * Get the state of a port of which the probe and its retries timed out
+     *
+     * @return the state of a timed out port
+     */
+    protected PortState getTimeoutPortState() {
+        return PortState.FILTERED;
+    }
+
+
+    /**
+     * Process the completed probes
+     *
+     * @param selector the selector
+     * @param context the scan context
+     * @param handle the scan handle
+     */
+    protected void processSelectedKeys(Selector selector, ScanContext context, PortScanHandle handle) {
+        final Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+        while (iter.hasNext()) {
+            final SelectionKey key = iter.next();
+            iter.remove();
+
+            final Probe probe = (Probe) key.attachment();
+            if (probe.done) {
+                continue;
+            }
+
+            final PortState portState = finishProbe(probe.channel);
+            if (portState == null) {
+                continue;
+            }
+
+            if (probe.attempt == 0) {
+                // the probe is answered, the round trip time of a retried probe is ambiguous
+                adaptiveTimeout.sample(probe.hostAddress, System.nanoTime() - probe.start);
+            }
+
+            if (portState == PortState.OPEN && context.serviceDetector != null && probe.channel instanceof SocketChannel) {
+                // the detector takes over the connection
+                key.cancel();
+                probe.done = true;
+                context.unlink(probe);
+                final SocketChannel channel = (SocketChannel) probe.channel;
+                probe.channel = null;
+                detect(selector, context, channel, probe);
+            } else {
+                finish(context, handle, probe, portState);
+            }
+        }
+    }
+
+
+    /**
+     * Detect the service of an open port on a thread of the service detector. The detected result is queued and the
+     * selector is woken up, so the result is completed by the scan thread.
+     *
+     * @param selector the selector
+     * @param context the scan context
+     * @param channel the connected channel
+     * @param probe the probe
+     */
+    protected void detect(final Selector selector, final ScanContext context, final SocketChannel channel, final Probe probe) {
+        context.analyzing++;
+        context.serviceDetector.submit(channel, preparePortScanResult(probe.hostAddress, probe.port, PortState.OPEN), context.reconnectPermit, r -> {
+            probe.result = r;
+            context.detected.add(probe);
+            selector.wakeup();
+        });
+    }
+
+
+    /**
+     * Complete the open ports of which the service detection is completed
+     *
+     * @param context the scan context
+     * @param handle the scan handle
+     */
+    protected void completeDetected(ScanContext context, PortScanHandle handle) {
+        Probe probe = context.detected.poll();
+        while (probe != null) {
+            context.analyzing--;
+            complete(context, handle, probe, probe.result);
+            probe = context.detected.poll();
+        }
+    }
+
+
+    /**
+     * Expire the timed out probes. A timed out probe is ambiguous (filtered or lost), it is queued for a retry with
+     * a backed off timeout until the max retries are reached.
+     *
+     * @param selector the selector
+     * @param context the scan context
+     * @param handle the scan handle
+     * @param now the current nano time
+     */
+    protected void expire(Selector selector, ScanContext context, PortScanHandle handle, long now) {
+        while (context.inFlight > 0 && context.peek().deadline - now <= 0) {
+            final Probe probe = context.peek();
+            if (probe.attempt < adaptiveTimeout.getMaxRetries() && !handle.isCancelled()) {
+                context.unlink(probe);
+                close(probe.channel, false);
+                probe.channel = null;
+                probe.attempt++;
+                context.retry(probe);
+            } else {
+                finish(context, handle, probe, getTimeoutPortState());
+            }
+        }
+    }
+
+
+    /**
+     * Finish an in-flight probe
+     *
+     * @param context the scan context
+     * @param handle the scan handle
+     * @param probe the probe
+     * @param portState the state of the port
+     */
+    protected void finish(ScanContext context, PortScanHandle handle, Probe probe, PortState portState) {
+        probe.done = true;
+        context.unlink(probe);
+        close(probe.channel, portState == PortState.OPEN);
+        probe.channel = null;
+        complete(context, handle, probe, portState);
+    }
+
+
+    /**
+     * Complete the scan of a port
+     *
+     * @param context the scan context
+     * @param handle the scan handle
+     * @param probe the probe
+     * @param portState the state of the port
+     */
+    protected void complete(ScanContext context, PortScanHandle handle, Probe probe, PortState portState) {
+        complete(context, handle, probe, preparePortScanResult(probe.hostAddress, probe.port, portState));
+    }
+
+
+    /**
+     * Complete the scan of a port and keep it in the checkpoint of the scan
+     *
+     * @param context the scan context
+     * @param handle the scan handle
+     * @param probe the probe
+     * @param portScanResult the result
+     */
+    protected void complete(ScanContext context, PortScanHandle handle, Probe probe, IPortScanResult portScanResult) {
+        if (context.checkpoint != null) {
+            try {
+                context.checkpoint.completed(probe.index, portScanResult);
+            } catch (IOException e) {
+                LOG.warning("Could not write checkpoint [" + context.checkpoint.getLogFile() + "]: " + e.getMessage());
+            }
+        }
+
+        complete(context, handle, portScanResult);
+    }
+
+
+    /**
+     * Complete the scan of a port
+     *
+     * @param context the scan context
+     * @param handle the scan handle
+     * @param portScanResult the result
+     */
+    protected void complete(ScanContext context, PortScanHandle handle, IPortScanResult portScanResult) {
+        handle.completed(portScanResult.isAvailable());
+        if (context.portScanListenerList != null) {
+            for (IPortScanListener listener : context.portScanListenerList) {
+                listener.visitedPort(portScanResult);
+            }
+        }
+
+        if (isAccepted(context.filterIsAvailable, portScanResult)) {
+            context.resultListener.visitedPort(portScanResult);
+        }
+    }
+
+
+    /**
+     * Prepare the result of a port
+     *
+     * @param hostAddress the host address
+     * @param port the port
+     * @param portState the state of the port
+     * @return the result
+     */
+    protected PortScanResult preparePortScanResult(String hostAddress, int port, PortState portState) {
+        return new PortScanResult(hostAddress, port, portState);
+    }
+
+
+    /**
+     * Close a channel. A connected tcp channel is reset instead of closed gracefully, so no TIME_WAIT state remains.
+     *
+     * @param channel the channel
+     * @param connected true if the channel is connected
+     */
+    protected void close(SelectableChannel channel, boolean connected) {
+        if (channel == null) {
+            return;
+        }
+
+        try {
+            if (connected && channel instanceof SocketChannel) {
+                ((SocketChannel) channel).setOption(StandardSocketOptions.SO_LINGER, 0);
+            }
+        } catch (IOException e) {
+            // NOP
+        }
+
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // NOP
+        }
+    }
+
+
+    /**
+     * The state of a scan: the lazy target iteration and the in-flight probes.
+     */
+    protected static class ScanContext {
+        private final ScanTargets targets;
+        private final IndexPermutation permutation;
+        private final ScanShard shard;
+        private final int startPort;
+        private final long total;
+        private final Boolean filterIsAvailable;
+        private final List<IPortScanListener> portScanListenerList;
+        private final IPortScanListener resultListener;
+        private final ServiceDetector serviceDetector;
+        private final ScanCheckpoint checkpoint;
+        private final Queue<Probe> detected;
+        private long nextIndex;
+        private final ArrayDeque<Probe> retryQueue;
+        private Probe[] heap;
+        private int inFlight;
+        private int analyzing;
+        private ReconnectPermit reconnectPermit;
+
+        /**
+         * Constructor for ScanContext
+         *
+         * @param targets the scan targets
+         * @param permutation the permutation of the indexes of the shard
+         * @param shard the shard of the host × port index space
+         * @param startPort the start port
+         * @param filterIsAvailable the filter
+         * @param portScanListenerList the port scan listener list or null
+         * @param resultListener the listener which receives the results passing the filter
+         * @param serviceDetector the service detector of the open ports or null
+         * @param checkpoint the checkpoint of the scan or null
+         */
+        ScanContext(ScanTargets targets, IndexPermutation permutation, ScanShard shard, int startPort, Boolean filterIsAvailable, List<IPortScanListener> portScanListenerList,
+                    IPortScanListener resultListener, ServiceDetector serviceDetector, ScanCheckpoint checkpoint) {
+            this.targets = targets;
+            this.permutation = permutation;
+            this.shard = shard;
+            this.startPort = startPort;
+            this.total = permutation.getSize();
+            this.filterIsAvailable = filterIsAvailable;
+            this.portScanListenerList = portScanListenerList;
+            this.resultListener = resultListener;
+            this.serviceDetector = serviceDetector;
+            this.checkpoint = checkpoint;
+            this.detected = new ConcurrentLinkedQueue<Probe>();
+            this.nextIndex = 0;
+            this.retryQueue = new ArrayDeque<Probe>();
+            this.heap = new Probe[16];
+            this.inFlight = 0;
+            this.analyzing = 0;
+            this.reconnectPermit = null;
+            skipCompleted();
+        }
+
+        /**
+         * Get the number of connections in the window: the in-flight connects, the detections and their reconnects
+         *
+         * @return the number of connections in the window
+         */
+        int getInFlight() {
+            if (reconnectPermit == null) {
+                return inFlight + analyzing;
+            }
+
+            return inFlight + analyzing + reconnectPermit.getReconnecting();
+        }
+
+        /**
+         * Check if there are more targets to scan
+         *
+         * @return true if there are more targets
+         */
+        boolean hasNext() {
+            return !retryQueue.isEmpty() || nextIndex < total;
+        }
+
+        /**
+         * Get the next target: a queued retry or the next index of the shard in the order of the permutation, the hosts
+         * are interleaved in the index space
+         *
+         * @return the next probe
+         */
+        Probe next() {
+            if (!retryQueue.isEmpty()) {
+                return retryQueue.pollFirst();
+            }
+
+            final long index = shard.getIndex(permutation.get(nextIndex));
+            final long hostIndex = index % targets.size();
+            final int port = (int) (startPort + index / targets.size());
+            nextIndex++;
+            skipCompleted();
+            return new Probe(index, targets.getHostAddress(hostIndex), targets.getAddress(hostIndex), port);
+        }
+
+        /**
+         * Skip the indexes of which the probes are completed in the checkpoint
+         */
+        private void skipCompleted() {
+            if (checkpoint == null) {
+                return;
+            }
+
+            while (nextIndex < total && checkpoint.isCompleted(shard.getIndex(permutation.get(nextIndex)))) {
+                nextIndex++;
+            }
+        }
+
+        /**
+         * Retry a probe
+         *
+         * @param probe the probe
+         */
+        void retry(Probe probe) {
+            retryQueue.addLast(probe);
+        }
+
+        /**
+         * Get the in-flight probe with the earliest deadline
+         *
+         * @return the probe or null
+         */
+        Probe peek() {
+            return heap[0];
+        }
+
+        /**
+         * Add an in-flight probe
+         *
+         * @param probe the probe
+         */
+        void link(Probe probe) {
+            if (inFlight == heap.length) {
+                heap = Arrays.copyOf(heap, heap.length * 2);
+            }
+
+            heap[inFlight] = probe;
+            probe.heapIndex = inFlight;
+            inFlight++;
+            siftUp(probe.heapIndex);
+        }
+
+        /**
+         * Remove a completed probe
+         *
+         * @param probe the probe
+         */
+        void unlink(Probe probe) {
+            final int index = probe.heapIndex;
+            inFlight--;
+            final Probe last = heap[inFlight];
+            heap[inFlight] = null;
+            probe.heapIndex = -1;
+            if (index < inFlight) {
+                heap[index] = last;
+                last.heapIndex = index;
+                siftUp(siftDown(index));
+            }
+        }
+
+        /**
+         * Move a probe up to its position in the heap
+         *
+         * @param index the index of the probe
+         */
+        private void siftUp(int index) {
+            int i = index;
+            while (i > 0) {
+                final int parent = (i - 1) >>> 1;
+                if (heap[i].deadline - heap[parent].deadline >= 0) {
+                    break;
+                }
+
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        /**
+         * Move a probe down to its position in the heap
+         *
+         * @param index the index of the probe
+         * @return the new index of the probe
+         */
+        private int siftDown(int index) {
+            int i = index;
+            int child = 2 * i + 1;
+            while (child < inFlight) {
+                if (child + 1 < inFlight && heap[child + 1].deadline - heap[child].deadline < 0) {
+                    child++;
+                }
+
+                if (heap[i].deadline - heap[child].deadline <= 0) {
+                    break;
+                }
+
+                swap(i, child);
+                i = child;
+                child = 2 * i + 1;
+            }
+
+            return i;
+        }
+
+        /**
+         * Swap two probes of the heap
+         *
+         * @param i the index of the first probe
+         * @param j the index of the second probe
+         */
+        private void swap(int i, int j) {
+            final Probe probe = heap[i];
+            heap[i] = heap[j];
+            heap[j] = probe;
+            heap[i].heapIndex = i;
+            heap[j].heapIndex = j;
+        }
+    }
+
+
+    /**
+     * An in-flight connect, an element of the deadline heap.
+     */
+    protected static class Probe {
+        private final long index;
+        private final String hostAddress;
+        private final InetAddress address;
+        private final int port;
+        private SelectableChannel channel;
+        private long start;
+        private long deadline;
+        private int attempt;
+        private int heapIndex;
+        private boolean done;
+        private IPortScanResult result;
+
+        /**
+         * Constructor for Probe
+         *
+         * @param index the index in the host × port index space
+         * @param hostAddress the host address
+         * @param address the resolved address
+         * @param port the port
+         */
+        Probe(long index, String hostAddress, InetAddress address, int port) {
+            this.index = index;
+            this.hostAddress = hostAddress;
+            this.address = address;
+            this.port = port;
+            this.channel = null;
+            this.start = 0;
+            this.deadline = 0;
+            this.attempt = 0;
+            this.heapIndex = -1;
+            this.done = false;
+            this.result = null;
+        }
+    }
+}
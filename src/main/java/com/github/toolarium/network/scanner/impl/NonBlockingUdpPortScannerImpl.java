@@ -0,0 +1,134 @@
+/*
+ * NonBlockingUdpPortScannerImpl.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.impl;
+
+import com.github.toolarium.network.scanner.analyze.impl.UdpProbeUtil;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+
+
+/**
+ * Implements a udp port scanner: the probes are connected {@link DatagramChannel} which are multiplexed on the selector
+ * of the {@link NonBlockingPortScannerImpl}, with the same window, pacing, adaptive timeout and retries. An answered
+ * probe is {@link PortState#OPEN}, an icmp port unreachable ({@link PortUnreachableException}) {@link PortState#CLOSED}
+ * and a not answered probe {@link PortState#OPEN_FILTERED}. The payloads of the well known ports are given by the
+ * {@link UdpProbeUtil}. Most hosts rate limit their icmp port unreachable messages, a scan of many closed ports of a
+ * host should be paced. The service detector is not used.
+ *
+ * @author patrick
+ */
+public class NonBlockingUdpPortScannerImpl extends NonBlockingPortScannerImpl {
+    private static final int RECEIVE_BUFFER_SIZE = 512;
+
+
+    /**
+     * Constructor
+     */
+    public NonBlockingUdpPortScannerImpl() {
+        this(DEFAULT_MAX_IN_FLIGHT, 1000);
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param maxInFlight the max number of in-flight probes, limited by the number of file descriptors of the process
+     * @param timeout the initial timeout in milliseconds, it's adapted to the measured round trip times
+     */
+    public NonBlockingUdpPortScannerImpl(int maxInFlight, int timeout) {
+        this(maxInFlight, new AdaptiveTimeout(timeout));
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param maxInFlight the max number of in-flight probes, limited by the number of file descriptors of the process
+     * @param adaptiveTimeout the timeout
+     */
+    public NonBlockingUdpPortScannerImpl(int maxInFlight, AdaptiveTimeout adaptiveTimeout) {
+        super(maxInFlight, adaptiveTimeout);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl#openChannel(java.net.InetAddress)
+     */
+    @Override
+    protected SelectableChannel openChannel(InetAddress address) throws IOException {
+        return DatagramChannel.open();
+    }
+
+
+    /**
+     * Connect the channel and send the payload of the port.
+     *
+     * @see com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl#initiateProbe(java.nio.channels.SelectableChannel, java.net.InetAddress, int)
+     */
+    @Override
+    protected int initiateProbe(SelectableChannel channel, InetAddress address, int port) throws IOException {
+        final DatagramChannel datagramChannel = (DatagramChannel) channel;
+        datagramChannel.connect(new InetSocketAddress(address, port));
+        datagramChannel.write(ByteBuffer.wrap(UdpProbeUtil.getInstance().getPayload(port)));
+        return SelectionKey.OP_READ;
+    }
+
+
+    /**
+     * Receive the answer or the port unreachable.
+     *
+     * @see com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl#finishProbe(java.nio.channels.SelectableChannel)
+     */
+    @Override
+    protected PortState finishProbe(SelectableChannel channel) {
+        try {
+            if (((DatagramChannel) channel).receive(ByteBuffer.allocate(RECEIVE_BUFFER_SIZE)) != null) {
+                return PortState.OPEN;
+            }
+
+            return null;
+        } catch (PortUnreachableException e) {
+            return PortState.CLOSED;
+        } catch (IOException e) {
+            // e.g. host or network unreachable
+            return PortState.FILTERED;
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl#getTimeoutPortState()
+     */
+    @Override
+    protected PortState getTimeoutPortState() {
+        return PortState.OPEN_FILTERED;
+    }
+
+
+    /**
+     * The protocol of an open port is given by its payload.
+     *
+     * @see com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl#preparePortScanResult(java.lang.String, int, com.github.toolarium.network.scanner.dto.PortState)
+     */
+    @Override
+    protected PortScanResult preparePortScanResult(String hostAddress, int port, PortState portState) {
+        final PortScanResult result = super.preparePortScanResult(hostAddress, port, portState);
+        if (portState == PortState.OPEN) {
+            result.setProtocol(UdpProbeUtil.getInstance().getProtocol(port));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * PortScanHandle.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.impl;
+
+import com.github.toolarium.network.scanner.IPortScanHandle;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import java.nio.channels.Selector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Implements the {@link IPortScanHandle}. The progress is updated by the scan thread only, the control methods can be
+ * called by any thread: they wake up the selector of the scan thread.
+ *
+ * @author patrick
+ */
+public class PortScanHandle implements IPortScanHandle {
+    private final long total;
+    private final TokenBucketPacer pacer;
+    private final AtomicLong completed;
+    private final AtomicLong available;
+    private final CountDownLatch done;
+    private volatile Selector selector;
+    private volatile int inFlight;
+    private volatile boolean paused;
+    private volatile boolean cancelled;
+
+
+    /**
+     * Constructor for PortScanHandle
+     *
+     * @param total the total number of probes
+     * @param pacer the pacer of the probes
+     */
+    public PortScanHandle(long total, TokenBucketPacer pacer) {
+        this.total = total;
+        this.pacer = pacer;
+        this.completed = new AtomicLong();
+        this.available = new AtomicLong();
+        this.done = new CountDownLatch(1);
+        this.selector = null;
+        this.inFlight = 0;
+        this.paused = false;
+        this.cancelled = false;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#getTotal()
+     */
+    @Override
+    public long getTotal() {
+        return total;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#getCompleted()
+     */
+    @Override
+    public long getCompleted() {
+        return completed.get();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#getAvailable()
+     */
+    @Override
+    public long getAvailable() {
+        return available.get();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#getInFlight()
+     */
+    @Override
+    public int getInFlight() {
+        return inFlight;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#getRate()
+     */
+    @Override
+    public double getRate() {
+        return pacer.getRate();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#setRate(double)
+     */
+    @Override
+    public void setRate(double probesPerSecond) {
+        pacer.setRate(probesPerSecond);
+        wakeup();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#pause()
+     */
+    @Override
+    public void pause() {
+        paused = true;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#resume()
+     */
+    @Override
+    public void resume() {
+        paused = false;
+        wakeup();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#isPaused()
+     */
+    @Override
+    public boolean isPaused() {
+        return paused;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#cancel()
+     */
+    @Override
+    public void cancel() {
+        cancelled = true;
+        wakeup();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#isCancelled()
+     */
+    @Override
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#isDone()
+     */
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#await()
+     */
+    @Override
+    public void await() throws InterruptedException {
+        done.await();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.scanner.IPortScanHandle#await(long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+
+    /**
+     * Get the pacer of the probes
+     *
+     * @return the pacer
+     */
+    TokenBucketPacer getPacer() {
+        return pacer;
+    }
+
+
+    /**
+     * Set the selector of the scan thread
+     *
+     * @param selector the selector
+     */
+    void setSelector(Selector selector) {
+        this.selector = selector;
+    }
+
+
+    /**
+     * Set the number of in-flight probes
+     *
+     * @param inFlight the number of in-flight probes
+     */
+    void setInFlight(int inFlight) {
+        this.inFlight = inFlight;
+    }
+
+
+    /**
+     * A probe is completed
+     *
+     * @param isAvailable true if the port is available
+     */
+    void completed(boolean isAvailable) {
+        completed.incrementAndGet();
+        if (isAvailable) {
+            available.incrementAndGet();
+        }
+    }
+
+
+    /**
+     * Probes are completed by a previous run of the scan, e.g. the closed ports of a resumed checkpoint
+     *
+     * @param count the number of completed probes
+     */
+    void skipped(long count) {
+        completed.addAndGet(count);
+    }
+
+
+    /**
+     * The scan is done
+     */
+    void done() {
+        inFlight = 0;
+        done.countDown();
+    }
+
+
+    /**
+     * Wake up the selector of the scan thread
+     */
+    private void wakeup() {
+        final Selector currentSelector = selector;
+        if (currentSelector != null) {
+            currentSelector.wakeup();
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "PortScanHandle [total=" + total + ", completed=" + completed + ", available=" + available + ", inFlight=" + inFlight + ", rate=" + pacer.getRate()
+               + ", paused=" + paused + ", cancelled=" + cancelled + ", done=" + isDone() + "]";
+    }
+}
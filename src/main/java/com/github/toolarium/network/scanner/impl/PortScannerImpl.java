@@ -6,19 +6,22 @@
 package com.github.toolarium.network.scanner.impl;
 
 
-import com.github.toolarium.network.ip.CIDRUtil;
-import com.github.toolarium.network.ip.IPUtil;
 import com.github.toolarium.network.scanner.IPortScanner;
 import com.github.toolarium.network.scanner.analyze.IPortAnalyzer;
+import com.github.toolarium.network.scanner.analyze.ServiceDetector;
 import com.github.toolarium.network.scanner.analyze.impl.TCPConnectionPortAnalyzerImpl;
 import com.github.toolarium.network.scanner.dto.IPortScanResult;
 import com.github.toolarium.network.scanner.listener.IPortScanListener;
-import java.net.UnknownHostException;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
+import com.github.toolarium.network.scanner.target.IndexPermutation;
+import com.github.toolarium.network.scanner.target.ScanShard;
+import com.github.toolarium.network.scanner.target.ScanTargets;
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -26,14 +29,20 @@ import java.util.logging.Logger;
 
 
 /**
- * Implements the {@link IPortScanner}.
+ * Implements the {@link IPortScanner} with a thread pool. The targets are submitted lazily in the order of a
+ * permutation of the host × port index space; the number of submitted and not yet collected scans is bounded. The
+ * connects of all threads are paced by the pacer of the scanner. The service of an open port is detected by the scan
+ * thread on its connection, so the number of parallel detections is bounded by the number of threads. A sharded scanner
+ * permutes and scans only the indexes of its shard. The results can be passed to a listener instead of being collected,
+ * see {@link #scanToListener(String, int, int, Boolean, IPortScanListener)}.
  *
  * @author patrick
  */
-public class PortScannerImpl implements IPortScanner {
+public class PortScannerImpl extends AbstractPortScanner {
     private static final Logger LOG = Logger.getLogger(PortScannerImpl.class.getName());
+    private static final int PENDING_PER_THREAD = 4;
     private int numberOfThreads;
-    private int timeout;
+    private AdaptiveTimeout adaptiveTimeout;
 
 
     /**
@@ -48,11 +57,22 @@ public class PortScannerImpl implements IPortScanner {
      * Constructor
      *
      * @param numberOfThreads the number of threads
-     * @param timeout the scan timeout
+     * @param timeout the initial scan timeout, it's adapted to the measured round trip times
      */
     public PortScannerImpl(int numberOfThreads, int timeout) {
+        this(numberOfThreads, new AdaptiveTimeout(timeout));
+    }
+
+
+    /**
+     * Constructor
+     *
+     * @param numberOfThreads the number of threads
+     * @param adaptiveTimeout the scan timeout
+     */
+    public PortScannerImpl(int numberOfThreads, AdaptiveTimeout adaptiveTimeout) {
         this.numberOfThreads = numberOfThreads;
-        this.timeout = timeout;
+        this.adaptiveTimeout = adaptiveTimeout;
     }
 
 
@@ -61,62 +81,116 @@ public class PortScannerImpl implements IPortScanner {
      */
     @Override
     public List<IPortScanResult> scan(String scanAddress, int inputStartPort, int inputEndPort, Boolean filterIsAvailable, IPortScanListener... portScannerListeners) {
+        final List<IPortScanResult> result = new ArrayList<IPortScanResult>();
+        scan(scanAddress, inputStartPort, inputEndPort, filterIsAvailable, preparePortScanListenerList(portScannerListeners), result::add);
+        return result;
+    }
+
+
+    /**
+     * Scan ports without collecting the results: the results which pass the filter are passed to the listener on the
+     * calling thread as soon as they are available, so the memory is bounded by the pending scans.
+     *
+     * @param scanAddress the scan address or scan address range (CIDR notation)
+     * @param inputStartPort the start port
+     * @param inputEndPort the end port
+     * @param filterIsAvailable filter the output: true only available ports, false only not available ports, both: null
+     * @param resultListener the listener which receives the results passing the filter
+     * @throws IllegalArgumentException In case of an invalid listener
+     */
+    public void scanToListener(String scanAddress, int inputStartPort, int inputEndPort, Boolean filterIsAvailable, IPortScanListener resultListener) {
+        if (resultListener == null) {
+            throw new IllegalArgumentException("Invalid port scan listener!");
+        }
+
+        scan(scanAddress, inputStartPort, inputEndPort, filterIsAvailable, null, resultListener);
+    }
+
+
+    /**
+     * Scan ports
+     *
+     * @param scanAddress the scan address or scan address range (CIDR notation)
+     * @param inputStartPort the start port
+     * @param inputEndPort the end port
+     * @param filterIsAvailable filter the output: true only available ports, false only not available ports, both: null
+     * @param portScanListenerList the listeners which receive all results or null
+     * @param resultListener the listener which receives the results passing the filter
+     */
+    protected void scan(String scanAddress, int inputStartPort, int inputEndPort, Boolean filterIsAvailable, List<IPortScanListener> portScanListenerList, IPortScanListener resultListener) {
         // validate input
         final int startPort = prepareIntegerValue(inputStartPort, MIN_PORT, inputStartPort);
         final int endPort = prepareIntegerValue(inputEndPort, startPort, MAX_PORT);
-        final List<String> hostList = prepareScanAddressList(scanAddress);
-
-        final List<IPortScanResult> result = new ArrayList<IPortScanResult>();
-        if (hostList == null || hostList.isEmpty()) {
+        final ScanTargets targets = prepareScanTargets(scanAddress);
+        if (targets == null || targets.isEmpty()) {
             LOG.fine("Could not resolve address: " + scanAddress);
             LOG.info("No ports to scan on [" + scanAddress + "].");
-            return result;
+            return;
         }
 
+        final ScanShard shard = getShard();
+        final IndexPermutation permutation = prepareIndexPermutation(shard.getSize(targets.size() * (endPort - startPort + 1)));
+        LOG.info("Scan ports on " + targets.size() + " host(s) [" + scanAddress + "] from range " + startPort + " - " + endPort
+                 + " (threads: " + numberOfThreads + ", timeout:" + adaptiveTimeout.getInitialTimeout()
+                 + ", retries:" + adaptiveTimeout.getMaxRetries() + ", seed:" + permutation.getSeed() + ", shard:" + shard + ")...");
+
         // prepare scan threads
-        final List<IPortScanListener> portScanListenerList = preparePortScanListenerList(portScannerListeners);
+        final TokenBucketPacer pacer = getPacer();
+        final ServiceDetector serviceDetector = getServiceDetector();
         final ExecutorService es = Executors.newFixedThreadPool(numberOfThreads);
-        final List<Future<IPortScanResult>> futures = new ArrayList<Future<IPortScanResult>>();
-        for (String hostAddress : hostList) {
-            LOG.info("Scan ports on [" + hostAddress + "] from range " + startPort + " - " + endPort + " (threads: " + numberOfThreads + ", timeout:" + timeout + ")...");
-            for (int port = startPort; port <= endPort; port++) {
-                futures.add(prepareNetworkAddressScanThread(es, hostAddress, port, timeout, portScanListenerList));
-            }
-            
-            Collections.shuffle(futures); 
-        }
-
-        es.shutdown();
+        final CompletionService<IPortScanResult> cs = new ExecutorCompletionService<IPortScanResult>(es);
+        final int maxPending = numberOfThreads * PENDING_PER_THREAD;
+        long nextIndex = 0;
+        int pending = 0;
+        try {
+            while (nextIndex < permutation.getSize() || pending > 0) {
+                while (nextIndex < permutation.getSize() && pending < maxPending) {
+                    final long index = shard.getIndex(permutation.get(nextIndex));
+                    final long hostIndex = index % targets.size();
+                    final int port = (int) (startPort + index / targets.size());
+                    prepareNetworkAddressScanThread(cs, targets.getHostAddress(hostIndex), port, adaptiveTimeout, pacer, serviceDetector, portScanListenerList);
+                    nextIndex++;
+                    pending++;
+                }
 
-        LOG.fine("Wait until ended...");
-        for (final Future<IPortScanResult> f : futures) {
-            prepareResultSet(filterIsAvailable, result, f);
+                prepareResult(filterIsAvailable, resultListener, cs.take());
+                pending--;
+            }
+        } catch (InterruptedException e) {
+            LOG.fine("Interrupted.");
+            es.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            es.shutdown();
         }
 
         LOG.fine("Ended.");
-        return result;
     }
 
 
     /**
      * Prepare the network address scan thread
      *
-     * @param es the executer service
+     * @param cs the completion service
      * @param scanAddress the scan address
      * @param port the port
-     * @param t the timeout
+     * @param t the adaptive timeout
+     * @param pacer the pacer of the connects or null
+     * @param serviceDetector the service detector of an open port or null
      * @param portScannerListenerList the port scanner listener list
      * @return the result
      */
-    protected Future<IPortScanResult> prepareNetworkAddressScanThread(final ExecutorService es,
+    protected Future<IPortScanResult> prepareNetworkAddressScanThread(final CompletionService<IPortScanResult> cs,
                                                                       final String scanAddress,
                                                                       final int port,
-                                                                      final int t,
+                                                                      final AdaptiveTimeout t,
+                                                                      final TokenBucketPacer pacer,
+                                                                      final ServiceDetector serviceDetector,
                                                                       final List<IPortScanListener> portScannerListenerList) {
-        return es.submit(new Callable<IPortScanResult>() {
+        return cs.submit(new Callable<IPortScanResult>() {
             @Override
             public IPortScanResult call() {
-                IPortAnalyzer networkAddressScanner = new TCPConnectionPortAnalyzerImpl(t);
+                IPortAnalyzer networkAddressScanner = new TCPConnectionPortAnalyzerImpl(t, pacer, serviceDetector);
                 IPortScanResult portScanResult = networkAddressScanner.analyzePort(scanAddress, port);
 
                 if (portScannerListenerList != null) {
@@ -140,95 +214,29 @@ public class PortScannerImpl implements IPortScanner {
      */
     protected void prepareResultSet(Boolean filterIsAvailable, final List<IPortScanResult> result,
             final Future<IPortScanResult> futurePortScanResult) {
-        if (futurePortScanResult == null) {
-            return;
-        }
-
-        try {
-            final IPortScanResult r = futurePortScanResult.get();
-            if (r != null) {
-                if (filterIsAvailable == null) {
-                    result.add(r);
-                } else if (filterIsAvailable.booleanValue() && r.isAvailable()) {
-                    result.add(r);
-                } else if (!filterIsAvailable.booleanValue() && !r.isAvailable()) {
-                    result.add(r);
-                }
-            }
-        } catch (Exception e) {
-            // LOG.debug("Could not Error occurred: " + e.getMessage(), e);
-        }
+        prepareResult(filterIsAvailable, result::add, futurePortScanResult);
     }
 
 
     /**
-     * Prepare input int value
-     *
-     * @param inputValue the input value
-     * @param minValue the min value
-     * @param maxValue the max value
-     * @return the value
-     */
-    protected int prepareIntegerValue(int inputValue, int minValue, int maxValue) {
-        int result = minValue;
-        if (inputValue > 0 && inputValue > minValue) {
-            result = inputValue;
-        }
-
-        if (result > maxValue) {
-            result = maxValue;
-        }
-
-        return result;
-    }
-
-    /**
-     * Prepare the scan addresses
+     * Pass the result to the listener in case it passes the filter
      *
-     * @param scanAddress the scan addresse(s)
-     * @return the scan host address list
+     * @param filterIsAvailable true if the filter is available
+     * @param resultListener the listener which receives the results passing the filter
+     * @param futurePortScanResult the input port scan result
      */
-    protected List<String> prepareScanAddressList(String scanAddress) {
-        String inputHostAddresss = "127.0.0.1";
-        if (scanAddress == null || scanAddress.trim().isEmpty()) {
-            return Arrays.asList(inputHostAddresss);
-        } else if (CIDRUtil.getInstance().isValidRange(scanAddress.trim())) {
-            try {
-                return CIDRUtil.getInstance().getAllAddresses(scanAddress.trim());
-            } catch (UnknownHostException e) {
-                // NOP
-            }
-        }
-
-        String[] scanAddressSplit = scanAddress.trim().split(" ");
-        if (scanAddress.indexOf(',') > 0) {
-            scanAddressSplit = scanAddress.split(",");
-        } else if (scanAddress.indexOf(' ') > 0) {
-            scanAddressSplit = scanAddress.split(" ");
+    protected void prepareResult(Boolean filterIsAvailable, final IPortScanListener resultListener, final Future<IPortScanResult> futurePortScanResult) {
+        if (futurePortScanResult == null) {
+            return;
         }
 
-        List<String> addressList = new ArrayList<String>();
-        for (int i = 0; i < scanAddressSplit.length; i++) {
-            String addr = scanAddressSplit[i].trim();
-            if (IPUtil.getInstance().isValidAddress(addr)) {
-                addressList.add(addr);
+        try {
+            final IPortScanResult r = futurePortScanResult.get();
+            if (isAccepted(filterIsAvailable, r)) {
+                resultListener.visitedPort(r);
             }
+        } catch (Exception e) {
+            // LOG.debug("Could not Error occurred: " + e.getMessage(), e);
         }
-
-        return addressList;
-    }
-
-    /**
-     * Prepare the port scan listener list
-     *
-     * @param portScannerListeners the port scan listener list
-     * @return the port scan listener list
-     */
-    protected List<IPortScanListener> preparePortScanListenerList(IPortScanListener... portScannerListeners) {
-        List<IPortScanListener> portScanListenerList = null;
-        if (portScannerListeners != null) {
-            portScanListenerList = Arrays.asList(portScannerListeners);
-        }
-        return portScanListenerList;
     }
 }
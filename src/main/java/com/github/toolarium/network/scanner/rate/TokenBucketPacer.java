@@ -0,0 +1,192 @@
+/*
+ * TokenBucketPacer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.rate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Implements a thread safe token bucket which paces the probes of port scans. The bucket is a single {@link AtomicLong}
+ * which holds the theoretical arrival time of the next probe (GCRA), the same way as the
+ * {@link com.github.toolarium.network.server.ratelimit.TokenBucketRateLimiter}: it's updated lock-free with one compare
+ * and set. One pacer can be shared by any number of scan threads and selector loops, they share its budget. The rate
+ * can be changed at runtime, a rate of {@link #UNLIMITED} disables the pacing.
+ *
+ * @author patrick
+ */
+public class TokenBucketPacer {
+    /** The rate which disables the pacing */
+    public static final double UNLIMITED = 0;
+
+    /** The default burst in seconds of the rate */
+    private static final double DEFAULT_BURST_SECONDS = 0.01;
+    private final AtomicLong theoreticalArrivalTime;
+    private volatile Settings settings;
+
+
+    /**
+     * Constructor for TokenBucketPacer with a burst of 10ms of the rate
+     *
+     * @param probesPerSecond the number of probes per second or {@link #UNLIMITED}
+     */
+    public TokenBucketPacer(double probesPerSecond) {
+        this(probesPerSecond, Math.max(1, (int) (probesPerSecond * DEFAULT_BURST_SECONDS)));
+    }
+
+
+    /**
+     * Constructor for TokenBucketPacer
+     *
+     * @param probesPerSecond the number of probes per second or {@link #UNLIMITED}
+     * @param burst the max number of probes which can be sent at once (the bucket size)
+     * @throws IllegalArgumentException In case of an invalid rate or burst
+     */
+    public TokenBucketPacer(double probesPerSecond, int burst) {
+        this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+        this.settings = new Settings(probesPerSecond, burst);
+    }
+
+
+    /**
+     * Get the rate
+     *
+     * @return the number of probes per second or {@link #UNLIMITED}
+     */
+    public double getRate() {
+        return settings.rate;
+    }
+
+
+    /**
+     * Set the rate, the burst is kept
+     *
+     * @param probesPerSecond the number of probes per second or {@link #UNLIMITED}
+     * @throws IllegalArgumentException In case of an invalid rate
+     */
+    public void setRate(double probesPerSecond) {
+        setRate(probesPerSecond, settings.burst);
+    }
+
+
+    /**
+     * Set the rate and burst
+     *
+     * @param probesPerSecond the number of probes per second or {@link #UNLIMITED}
+     * @param burst the max number of probes which can be sent at once (the bucket size)
+     * @throws IllegalArgumentException In case of an invalid rate or burst
+     */
+    public void setRate(double probesPerSecond, int burst) {
+        this.settings = new Settings(probesPerSecond, burst);
+    }
+
+
+    /**
+     * Get the burst
+     *
+     * @return the max number of probes which can be sent at once
+     */
+    public int getBurst() {
+        return settings.burst;
+    }
+
+
+    /**
+     * Try to take a token for one probe
+     *
+     * @return 0 if the probe is permitted, otherwise the time in nanoseconds until the next token is available
+     */
+    public long tryAcquire() {
+        final Settings current = settings;
+        if (current.emissionInterval == 0) {
+            return 0;
+        }
+
+        final long now = System.nanoTime();
+        while (true) {
+            final long arrivalTime = theoreticalArrivalTime.get();
+            long next = arrivalTime;
+            if (next - now < 0) {
+                next = now;
+            }
+            next += current.emissionInterval;
+
+            final long delay = next - now - current.burstInterval;
+            if (delay > 0) {
+                return delay;
+            }
+
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, next)) {
+                return 0;
+            }
+        }
+    }
+
+
+    /**
+     * Take a token for one probe, wait until it's available
+     *
+     * @throws InterruptedException In case the thread is interrupted
+     */
+    public void acquire() throws InterruptedException {
+        long delay = tryAcquire();
+        while (delay > 0) {
+            LockSupport.parkNanos(this, delay);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+
+            delay = tryAcquire();
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final Settings current = settings;
+        return "TokenBucketPacer [rate=" + current.rate + ", burst=" + current.burst + "]";
+    }
+
+
+    /**
+     * The immutable rate settings, they are replaced as a whole.
+     */
+    private static final class Settings {
+        private final double rate;
+        private final int burst;
+        private final long emissionInterval;
+        private final long burstInterval;
+
+        /**
+         * Constructor for Settings
+         *
+         * @param rate the number of probes per second or {@link #UNLIMITED}
+         * @param burst the burst
+         */
+        Settings(double rate, int burst) {
+            if (rate < 0 || Double.isNaN(rate) || Double.isInfinite(rate)) {
+                throw new IllegalArgumentException("Invalid rate: " + rate);
+            }
+
+            if (burst < 1) {
+                throw new IllegalArgumentException("Invalid burst: " + burst);
+            }
+
+            this.rate = rate;
+            this.burst = burst;
+            if (rate == UNLIMITED) {
+                this.emissionInterval = 0;
+            } else {
+                this.emissionInterval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+            }
+            this.burstInterval = emissionInterval * burst;
+        }
+    }
+}
@@ -0,0 +1,880 @@
+/*
+ * PortScanResultStore.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.result;
+
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.listener.IPortScanListener;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Implements a compact store of port scan results: the open and the closed (not available) ports of a host are kept in
+ * two bitmaps of all 65536 ports (8 KB each, allocated on the first port of the state). The hosts are kept in an open
+ * addressing hash table with primitive keys: an IPv4 address is its own key, other hosts (IPv6, host names) get an id
+ * above the IPv4 address space. As {@link IPortScanListener} the store can collect the results of a scan without a
+ * result object per port. The set operations work word by word on the bitmaps: {@link #union(PortScanResultStore)}
+ * merges scans (e.g. of shards), {@link #intersection(PortScanResultStore)} keeps the ports open in both and
+ * {@link #difference(PortScanResultStore)} compares two scans; {@link #getOpenPortsOfAnyHost()} and
+ * {@link #getOpenPortsOfAllHosts()} combine the hosts of a store. A store is written and read in a compact binary
+ * format by {@link #write(OutputStream)} and {@link #read(InputStream)}, e.g. to merge the results of the nodes of a
+ * sharded scan.
+ *
+ * <p>The methods are synchronized, a set operation reads the other store without its lock: the other store must not
+ * be updated at the same time.
+ *
+ * @author patrick
+ */
+public class PortScanResultStore implements IPortScanListener {
+    /** The number of ports of a bitmap */
+    public static final int NUMBER_OF_PORTS = 65536;
+    private static final int WORDS = NUMBER_OF_PORTS / Long.SIZE;
+    private static final long NAMED_HOST_KEY_OFFSET = 1L << 32;
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAGIC = 0x54505253; // TPRS
+    private static final int VERSION = 1;
+    private final Map<String, Long> namedHostKeys;
+    private long[] tableKeys;
+    private int[] tableValues;
+    private long[] hostKeys;
+    private String[] hostAddresses;
+    private long[][] openPorts;
+    private long[][] closedPorts;
+    private int size;
+
+
+    /**
+     * Constructor for PortScanResultStore
+     */
+    public PortScanResultStore() {
+        this.namedHostKeys = new HashMap<String, Long>();
+        this.tableKeys = new long[2 * DEFAULT_CAPACITY];
+        this.tableValues = new int[2 * DEFAULT_CAPACITY];
+        this.hostKeys = new long[DEFAULT_CAPACITY];
+        this.hostAddresses = new String[DEFAULT_CAPACITY];
+        this.openPorts = new long[DEFAULT_CAPACITY][];
+        this.closedPorts = new long[DEFAULT_CAPACITY][];
+        this.size = 0;
+    }
+
+
+    /**
+     * Constructor for PortScanResultStore
+     *
+     * @param portScanResultStore the store to copy
+     */
+    public PortScanResultStore(PortScanResultStore portScanResultStore) {
+        this();
+        if (portScanResultStore != null) {
+            addAll(portScanResultStore);
+        }
+    }
+
+
+    /**
+     * Add the result of a visited port.
+     *
+     * @see com.github.toolarium.network.scanner.listener.IPortScanListener#visitedPort(com.github.toolarium.network.scanner.dto.IPortScanResult)
+     */
+    @Override
+    public void visitedPort(IPortScanResult portScanResult) {
+        if (portScanResult != null) {
+            add(portScanResult.getHostAddress(), portScanResult.getPort(), portScanResult.isAvailable());
+        }
+    }
+
+
+    /**
+     * Add the state of a port, it replaces a previous state of the port
+     *
+     * @param hostAddress the host address
+     * @param port the port
+     * @param isOpen true if the port is open (available)
+     */
+    public synchronized void add(String hostAddress, int port, boolean isOpen) {
+        if (hostAddress == null) {
+            throw new IllegalArgumentException("Invalid host address!");
+        }
+        if (port < 0 || port >= NUMBER_OF_PORTS) {
+            throw new IllegalArgumentException("Invalid port: " + port);
+        }
+
+        final int idx = getOrCreateHost(hostAddress);
+        final int word = port >>> 6;
+        final long bit = 1L << port;
+        if (isOpen) {
+            if (openPorts[idx] == null) {
+                openPorts[idx] = new long[WORDS];
+            }
+
+            openPorts[idx][word] |= bit;
+            if (closedPorts[idx] != null) {
+                closedPorts[idx][word] &= ~bit;
+            }
+        } else {
+            if (closedPorts[idx] == null) {
+                closedPorts[idx] = new long[WORDS];
+            }
+
+            closedPorts[idx][word] |= bit;
+            if (openPorts[idx] != null) {
+                openPorts[idx][word] &= ~bit;
+            }
+        }
+    }
+
+
+    /**
+     * Add all results of an other store: an open port of one of the stores is open
+     *
+     * @param other the other store
+     */
+    public synchronized void addAll(PortScanResultStore other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Invalid port scan result store!");
+        }
+
+        for (int i = 0; i < other.size; i++) {
+            final long[] otherOpen = other.openPorts[i];
+            final long[] otherClosed = other.closedPorts[i];
+            final int idx = getOrCreateHost(other.hostAddresses[i]);
+            if (otherOpen != null) {
+                if (openPorts[idx] == null) {
+                    openPorts[idx] = new long[WORDS];
+                }
+
+                or(openPorts[idx], otherOpen);
+            }
+
+            if (otherClosed != null) {
+                if (closedPorts[idx] == null) {
+                    closedPorts[idx] = new long[WORDS];
+                }
+
+                or(closedPorts[idx], otherClosed);
+            }
+
+            if (openPorts[idx] != null && closedPorts[idx] != null) {
+                andNot(closedPorts[idx], openPorts[idx]);
+            }
+        }
+    }
+
+
+    /**
+     * Check if a port is open
+     *
+     * @param hostAddress the host address
+     * @param port the port
+     * @return true if the port is open
+     */
+    public synchronized boolean isOpen(String hostAddress, int port) {
+        return isSet(openPorts, hostAddress, port);
+    }
+
+
+    /**
+     * Check if a port is closed (not available)
+     *
+     * @param hostAddress the host address
+     * @param port the port
+     * @return true if the port is closed
+     */
+    public synchronized boolean isClosed(String hostAddress, int port) {
+        return isSet(closedPorts, hostAddress, port);
+    }
+
+
+    /**
+     * Get the number of hosts
+     *
+     * @return the number of hosts
+     */
+    public synchronized int getNumberOfHosts() {
+        return size;
+    }
+
+
+    /**
+     * Get the number of open ports of all hosts
+     *
+     * @return the number of open ports
+     */
+    public synchronized long getNumberOfOpenPorts() {
+        long result = 0;
+        for (int i = 0; i < size; i++) {
+            result += cardinality(openPorts[i]);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Get the host addresses: the IPv4 addresses in ascending order followed by the other hosts in the order they are
+     * added
+     *
+     * @return the host addresses
+     */
+    public synchronized List<String> getHostAddresses() {
+        final List<String> result = new ArrayList<String>(size);
+        for (int idx : prepareSortedHostIndexes()) {
+            result.add(hostAddresses[idx]);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Get the open ports of a host
+     *
+     * @param hostAddress the host address
+     * @return the open ports in ascending order
+     */
+    public synchronized int[] getOpenPorts(String hostAddress) {
+        return toPorts(get(openPorts, hostAddress));
+    }
+
+
+    /**
+     * Get the closed (not available) ports of a host
+     *
+     * @param hostAddress the host address
+     * @return the closed ports in ascending order
+     */
+    public synchronized int[] getClosedPorts(String hostAddress) {
+        return toPorts(get(closedPorts, hostAddress));
+    }
+
+
+    /**
+     * Get the ports which are open on at least one host (union across the hosts)
+     *
+     * @return the ports in ascending order
+     */
+    public synchronized int[] getOpenPortsOfAnyHost() {
+        final long[] result = new long[WORDS];
+        for (int i = 0; i < size; i++) {
+            if (openPorts[i] != null) {
+                or(result, openPorts[i]);
+            }
+        }
+
+        return toPorts(result);
+    }
+
+
+    /**
+     * Get the ports which are open on all hosts (intersection across the hosts)
+     *
+     * @return the ports in ascending order
+     */
+    public synchronized int[] getOpenPortsOfAllHosts() {
+        if (size == 0) {
+            return new int[0];
+        }
+
+        final long[] result = new long[WORDS];
+        Arrays.fill(result, -1L);
+        for (int i = 0; i < size; i++) {
+            if (openPorts[i] == null) {
+                return new int[0];
+            }
+
+            and(result, openPorts[i]);
+        }
+
+        return toPorts(result);
+    }
+
+
+    /**
+     * Get the union with an other store, e.g. to merge the results of scans: a port which is open in one of the stores
+     * is open, a port which is closed in one and not open in the other store is closed
+     *
+     * @param other the other store
+     * @return the new store
+     */
+    public synchronized PortScanResultStore union(PortScanResultStore other) {
+        final PortScanResultStore result = new PortScanResultStore(this);
+        result.addAll(other);
+        return result;
+    }
+
+
+    /**
+     * Get the intersection with an other store: the ports which are open in both stores and the ports which are closed
+     * in both stores. A host without a common port is not part of the result.
+     *
+     * @param other the other store
+     * @return the new store
+     */
+    public synchronized PortScanResultStore intersection(PortScanResultStore other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Invalid port scan result store!");
+        }
+
+        final PortScanResultStore result = new PortScanResultStore();
+        for (int i = 0; i < size; i++) {
+            final int otherIdx = other.indexOf(hostAddresses[i]);
+            if (otherIdx >= 0) {
+                final long[] open = combine(openPorts[i], other.openPorts[otherIdx], false);
+                final long[] closed = combine(closedPorts[i], other.closedPorts[otherIdx], false);
+                result.put(hostAddresses[i], open, closed);
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Get the difference to an other store: the ports which are open in this store but not in the other store, e.g.
+     * <code>current.difference(previous)</code> are the newly opened and <code>previous.difference(current)</code> the
+     * no longer open ports of two scans. A host without such a port is not part of the result.
+     *
+     * @param other the other store
+     * @return the new store with the open ports of the difference
+     */
+    public synchronized PortScanResultStore difference(PortScanResultStore other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Invalid port scan result store!");
+        }
+
+        final PortScanResultStore result = new PortScanResultStore();
+        for (int i = 0; i < size; i++) {
+            final int otherIdx = other.indexOf(hostAddresses[i]);
+            long[] open = null;
+            if (openPorts[i] != null) {
+                open = openPorts[i].clone();
+                if (otherIdx >= 0 && other.openPorts[otherIdx] != null) {
+                    andNot(open, other.openPorts[otherIdx]);
+                }
+            }
+
+            result.put(hostAddresses[i], open, null);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Get the ports of the hosts as map
+     *
+     * @param filterIsAvailable true only the open ports, false only the closed ports, null both
+     * @return the map where the key corresponds to the host and the value the ascending port list, the hosts are in the
+     *         order of {@link #getHostAddresses()}; a host without port is not part of the map
+     */
+    public synchronized Map<String, List<Integer>> getPortMap(Boolean filterIsAvailable) {
+        final Map<String, List<Integer>> result = new LinkedHashMap<String, List<Integer>>();
+        for (int idx : prepareSortedHostIndexes()) {
+            long[] ports;
+            if (filterIsAvailable == null) {
+                ports = combine(openPorts[idx], closedPorts[idx], true);
+            } else if (filterIsAvailable.booleanValue()) {
+                ports = openPorts[idx];
+            } else {
+                ports = closedPorts[idx];
+            }
+
+            final int[] portArray = toPorts(ports);
+            if (portArray.length > 0) {
+                final List<Integer> portList = new ArrayList<Integer>(portArray.length);
+                for (int port : portArray) {
+                    portList.add(port);
+                }
+
+                result.put(hostAddresses[idx], portList);
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Write the store in a compact binary format: the host addresses and the words of their bitmaps which are not empty.
+     * The stream is not closed.
+     *
+     * @param outputStream the output stream
+     * @throws IOException In case of an I/O error
+     */
+    public synchronized void write(OutputStream outputStream) throws IOException {
+        final DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(size);
+        for (int idx : prepareSortedHostIndexes()) {
+            out.writeUTF(hostAddresses[idx]);
+            writeBitmap(out, openPorts[idx]);
+            writeBitmap(out, closedPorts[idx]);
+        }
+
+        out.flush();
+    }
+
+
+    /**
+     * Read a store which is written by {@link #write(OutputStream)}. The stream is not closed.
+     *
+     * @param inputStream the input stream
+     * @return the store
+     * @throws IOException In case of an I/O error or an invalid format
+     */
+    public static PortScanResultStore read(InputStream inputStream) throws IOException {
+        final DataInputStream in = new DataInputStream(inputStream);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Invalid port scan result store format!");
+        }
+
+        final int numberOfHosts = in.readInt();
+        if (numberOfHosts < 0) {
+            throw new IOException("Invalid number of hosts: " + numberOfHosts);
+        }
+
+        final PortScanResultStore result = new PortScanResultStore();
+        for (int i = 0; i < numberOfHosts; i++) {
+            final String hostAddress = in.readUTF();
+            final long[] open = readBitmap(in);
+            final long[] closed = readBitmap(in);
+            result.put(hostAddress, open, closed);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public synchronized String toString() {
+        return "PortScanResultStore [hosts=" + size + ", openPorts=" + getNumberOfOpenPorts() + "]";
+    }
+
+
+    /**
+     * Put the bitmaps of a host, a host without port is ignored
+     *
+     * @param hostAddress the host address
+     * @param open the open ports or null
+     * @param closed the closed ports or null
+     */
+    private void put(String hostAddress, long[] open, long[] closed) {
+        long[] openBitmap = open;
+        if (cardinality(openBitmap) == 0) {
+            openBitmap = null;
+        }
+
+        long[] closedBitmap = closed;
+        if (cardinality(closedBitmap) == 0) {
+            closedBitmap = null;
+        }
+
+        if (openBitmap != null || closedBitmap != null) {
+            final int idx = getOrCreateHost(hostAddress);
+            openPorts[idx] = openBitmap;
+            closedPorts[idx] = closedBitmap;
+        }
+    }
+
+
+    /**
+     * Check if the bit of a port is set
+     *
+     * @param bitmaps the bitmaps of the hosts
+     * @param hostAddress the host address
+     * @param port the port
+     * @return true if it is set
+     */
+    private boolean isSet(long[][] bitmaps, String hostAddress, int port) {
+        final long[] bitmap = get(bitmaps, hostAddress);
+        if (bitmap == null || port < 0 || port >= NUMBER_OF_PORTS) {
+            return false;
+        }
+
+        return (bitmap[port >>> 6] & (1L << port)) != 0;
+    }
+
+
+    /**
+     * Get the bitmap of a host
+     *
+     * @param bitmaps the bitmaps of the hosts
+     * @param hostAddress the host address
+     * @return the bitmap or null
+     */
+    private long[] get(long[][] bitmaps, String hostAddress) {
+        final int idx = indexOf(hostAddress);
+        if (idx < 0) {
+            return null;
+        }
+
+        return bitmaps[idx];
+    }
+
+
+    /**
+     * Get the index of a host
+     *
+     * @param hostAddress the host address
+     * @return the index or -1
+     */
+    private int indexOf(String hostAddress) {
+        if (hostAddress == null) {
+            return -1;
+        }
+
+        long key = parseIPv4Address(hostAddress);
+        if (key < 0) {
+            final Long namedHostKey = namedHostKeys.get(hostAddress);
+            if (namedHostKey == null) {
+                return -1;
+            }
+
+            key = namedHostKey.longValue();
+        }
+
+        int slot = hash(key);
+        while (tableValues[slot] != 0) {
+            if (tableKeys[slot] == key) {
+                return tableValues[slot] - 1;
+            }
+
+            slot = (slot + 1) & (tableKeys.length - 1);
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Get the index of a host, a new host is added
+     *
+     * @param hostAddress the host address
+     * @return the index
+     */
+    private int getOrCreateHost(String hostAddress) {
+        final int idx = indexOf(hostAddress);
+        if (idx >= 0) {
+            return idx;
+        }
+
+        long key = parseIPv4Address(hostAddress);
+        if (key < 0) {
+            key = NAMED_HOST_KEY_OFFSET + namedHostKeys.size();
+            namedHostKeys.put(hostAddress, key);
+        }
+
+        if (size == hostKeys.length) {
+            final int capacity = 2 * size;
+            hostKeys = Arrays.copyOf(hostKeys, capacity);
+            hostAddresses = Arrays.copyOf(hostAddresses, capacity);
+            openPorts = Arrays.copyOf(openPorts, capacity);
+            closedPorts = Arrays.copyOf(closedPorts, capacity);
+        }
+
+        hostKeys[size] = key;
+        hostAddresses[size] = hostAddress;
+        size++;
+        if (2 * size > tableKeys.length) {
+            rehash(2 * tableKeys.length);
+        } else {
+            insert(key, size);
+        }
+
+        return size - 1;
+    }
+
+
+    /**
+     * Rebuild the hash table with a new capacity
+     *
+     * @param capacity the capacity, a power of two
+     */
+    private void rehash(int capacity) {
+        tableKeys = new long[capacity];
+        tableValues = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            insert(hostKeys[i], i + 1);
+        }
+    }
+
+
+    /**
+     * Insert a key into the hash table
+     *
+     * @param key the key
+     * @param value the index of the host + 1
+     */
+    private void insert(long key, int value) {
+        int slot = hash(key);
+        while (tableValues[slot] != 0) {
+            slot = (slot + 1) & (tableKeys.length - 1);
+        }
+
+        tableKeys[slot] = key;
+        tableValues[slot] = value;
+    }
+
+
+    /**
+     * Get the slot of a key
+     *
+     * @param key the key
+     * @return the slot
+     */
+    private int hash(long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (tableKeys.length - 1);
+    }
+
+
+    /**
+     * Get the host indexes in the order of their keys
+     *
+     * @return the sorted host indexes
+     */
+    private int[] prepareSortedHostIndexes() {
+        final long[] sortKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            // the key is below 2^33, the index below 2^30
+            sortKeys[i] = (hostKeys[i] << 30) | i;
+        }
+
+        Arrays.sort(sortKeys);
+        final int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = (int) (sortKeys[i] & ((1 << 30) - 1));
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Parse an IPv4 address in dotted decimal notation without allocation
+     *
+     * @param hostAddress the host address
+     * @return the address or -1 if it is no IPv4 address
+     */
+    static long parseIPv4Address(String hostAddress) {
+        final int length = hostAddress.length();
+        long result = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = hostAddress.charAt(i);
+            if (c == '.') {
+                if (octet < 0 || dots == 3) {
+                    return -1;
+                }
+
+                result = (result << 8) | octet;
+                octet = -1;
+                dots++;
+            } else if (c >= '0' && c <= '9') {
+                if (octet < 0) {
+                    octet = 0;
+                }
+
+                octet = 10 * octet + (c - '0');
+                if (octet > 255) {
+                    return -1;
+                }
+            } else {
+                return -1;
+            }
+        }
+
+        if (octet < 0 || dots != 3) {
+            return -1;
+        }
+
+        return (result << 8) | octet;
+    }
+
+
+    /**
+     * Write the words of a bitmap which are not empty
+     *
+     * @param out the output
+     * @param bitmap the bitmap or null
+     * @throws IOException In case of an I/O error
+     */
+    private static void writeBitmap(DataOutputStream out, long[] bitmap) throws IOException {
+        int words = 0;
+        if (bitmap != null) {
+            for (int i = 0; i < WORDS; i++) {
+                if (bitmap[i] != 0) {
+                    words++;
+                }
+            }
+        }
+
+        out.writeShort(words);
+        for (int i = 0; words > 0 && i < WORDS; i++) {
+            if (bitmap[i] != 0) {
+                out.writeShort(i);
+                out.writeLong(bitmap[i]);
+            }
+        }
+    }
+
+
+    /**
+     * Read a bitmap which is written by {@link #writeBitmap(DataOutputStream, long[])}
+     *
+     * @param in the input
+     * @return the bitmap or null if it is empty
+     * @throws IOException In case of an I/O error or an invalid format
+     */
+    private static long[] readBitmap(DataInputStream in) throws IOException {
+        final int words = in.readUnsignedShort();
+        if (words == 0) {
+            return null;
+        }
+        if (words > WORDS) {
+            throw new IOException("Invalid number of bitmap words: " + words);
+        }
+
+        final long[] result = new long[WORDS];
+        for (int i = 0; i < words; i++) {
+            final int word = in.readUnsignedShort();
+            if (word >= WORDS) {
+                throw new IOException("Invalid bitmap word: " + word);
+            }
+
+            result[word] = in.readLong();
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Combine two bitmaps
+     *
+     * @param a the first bitmap or null
+     * @param b the second bitmap or null
+     * @param isUnion true for the union, false for the intersection
+     * @return the combined bitmap or null if it is empty
+     */
+    private static long[] combine(long[] a, long[] b, boolean isUnion) {
+        if (isUnion) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+
+            final long[] result = a.clone();
+            or(result, b);
+            return result;
+        }
+
+        if (a == null || b == null) {
+            return null;
+        }
+
+        final long[] result = a.clone();
+        and(result, b);
+        return result;
+    }
+
+
+    /**
+     * Set the bits of an other bitmap
+     *
+     * @param target the target bitmap
+     * @param other the other bitmap
+     */
+    private static void or(long[] target, long[] other) {
+        for (int i = 0; i < WORDS; i++) {
+            target[i] |= other[i];
+        }
+    }
+
+
+    /**
+     * Keep the bits which are set in an other bitmap
+     *
+     * @param target the target bitmap
+     * @param other the other bitmap
+     */
+    private static void and(long[] target, long[] other) {
+        for (int i = 0; i < WORDS; i++) {
+            target[i] &= other[i];
+        }
+    }
+
+
+    /**
+     * Clear the bits which are set in an other bitmap
+     *
+     * @param target the target bitmap
+     * @param other the other bitmap
+     */
+    private static void andNot(long[] target, long[] other) {
+        for (int i = 0; i < WORDS; i++) {
+            target[i] &= ~other[i];
+        }
+    }
+
+
+    /**
+     * Count the set bits of a bitmap
+     *
+     * @param bitmap the bitmap or null
+     * @return the number of set bits
+     */
+    private static int cardinality(long[] bitmap) {
+        if (bitmap == null) {
+            return 0;
+        }
+
+        int result = 0;
+        for (int i = 0; i < WORDS; i++) {
+            result += Long.bitCount(bitmap[i]);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Get the ports of a bitmap
+     *
+     * @param bitmap the bitmap or null
+     * @return the ports in ascending order
+     */
+    private static int[] toPorts(long[] bitmap) {
+        final int[] result = new int[cardinality(bitmap)];
+        int n = 0;
+        for (int i = 0; n < result.length; i++) {
+            long word = bitmap[i];
+            while (word != 0) {
+                result[n] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                n++;
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * AdaptiveTimeout.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.rtt;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Implements the probe timeout of the port scanners based on the measured connect round trip times. Every answered
+ * connect, either accepted or refused, is a sample of its host: the timeout of a host is its {@link RttEstimator}
+ * timeout, bounded by the min and max timeout. A host without samples gets the timeout of all hosts, before the first
+ * sample the initial timeout is used. Only a timed out probe is ambiguous (filtered or lost), it is retried up to
+ * the max retries with the doubled timeout; retried probes are not sampled (Karn's algorithm).
+ * The estimators of the least recently probed hosts are evicted, the memory is bounded. The class is thread safe and
+ * the learned round trip times are kept across the scans.
+ *
+ * @author patrick
+ */
+public class AdaptiveTimeout {
+    /** The default min timeout in milliseconds */
+    public static final int DEFAULT_MIN_TIMEOUT = 10;
+
+    /** The default max timeout in milliseconds */
+    public static final int DEFAULT_MAX_TIMEOUT = 2000;
+
+    /** The default number of retries of a timed out probe */
+    public static final int DEFAULT_MAX_RETRIES = 1;
+
+    /** The max number of hosts with an own estimator */
+    public static final int MAX_HOSTS = 4096;
+
+    private final long initialTimeout;
+    private final long minTimeout;
+    private final long maxTimeout;
+    private final int maxRetries;
+    private final RttEstimator globalEstimator;
+    private final Map<String, RttEstimator> hostEstimators;
+
+
+    /**
+     * Constructor for AdaptiveTimeout with the default bounds and retries
+     *
+     * @param initialTimeout the timeout before the first sample in milliseconds
+     */
+    public AdaptiveTimeout(int initialTimeout) {
+        this(initialTimeout, Math.min(initialTimeout, DEFAULT_MIN_TIMEOUT), Math.max(initialTimeout, DEFAULT_MAX_TIMEOUT), DEFAULT_MAX_RETRIES);
+    }
+
+
+    /**
+     * Constructor for AdaptiveTimeout
+     *
+     * @param initialTimeout the timeout before the first sample in milliseconds
+     * @param minTimeout the min timeout in milliseconds
+     * @param maxTimeout the max timeout in milliseconds
+     * @param maxRetries the max number of retries of a timed out probe
+     */
+    public AdaptiveTimeout(int initialTimeout, int minTimeout, int maxTimeout, int maxRetries) {
+        if (minTimeout <= 0) {
+            throw new IllegalArgumentException("Invalid min timeout: " + minTimeout);
+        }
+        if (maxTimeout < minTimeout) {
+            throw new IllegalArgumentException("Invalid max timeout: " + maxTimeout);
+        }
+        if (initialTimeout < minTimeout || initialTimeout > maxTimeout) {
+            throw new IllegalArgumentException("Invalid initial timeout: " + initialTimeout);
+        }
+        if (maxRetries < 0) {
+            throw new IllegalArgumentException("Invalid max retries: " + maxRetries);
+        }
+
+        this.initialTimeout = TimeUnit.MILLISECONDS.toNanos(initialTimeout);
+        this.minTimeout = TimeUnit.MILLISECONDS.toNanos(minTimeout);
+        this.maxTimeout = TimeUnit.MILLISECONDS.toNanos(maxTimeout);
+        this.maxRetries = maxRetries;
+        this.globalEstimator = new RttEstimator();
+        this.hostEstimators = new LinkedHashMap<String, RttEstimator>(16, 0.75f, true) {
+            private static final long serialVersionUID = -2950441926453880931L;
+
+            /**
+             * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+             */
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RttEstimator> eldest) {
+                return size() > MAX_HOSTS;
+            }
+        };
+    }
+
+
+    /**
+     * Create a fixed timeout: the timeout is not adapted and a timed out probe is not retried
+     *
+     * @param timeout the timeout in milliseconds
+     * @return the fixed timeout
+     */
+    public static AdaptiveTimeout fixed(int timeout) {
+        return new AdaptiveTimeout(timeout, timeout, timeout, 0);
+    }
+
+
+    /**
+     * Get the initial timeout
+     *
+     * @return the initial timeout in milliseconds
+     */
+    public int getInitialTimeout() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(initialTimeout);
+    }
+
+
+    /**
+     * Get the max number of retries of a timed out probe
+     *
+     * @return the max number of retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+
+    /**
+     * Get the timeout of a probe
+     *
+     * @param hostAddress the host address
+     * @param attempt the attempt, 0 for the first probe
+     * @return the timeout in nanoseconds
+     */
+    public long getTimeout(String hostAddress, int attempt) {
+        long timeout = initialTimeout;
+        synchronized (hostEstimators) {
+            final RttEstimator hostEstimator = hostEstimators.get(hostAddress);
+            if (hostEstimator != null && hostEstimator.hasSamples()) {
+                timeout = hostEstimator.getTimeout();
+            } else if (globalEstimator.hasSamples()) {
+                timeout = globalEstimator.getTimeout();
+            }
+        }
+
+        timeout = Math.min(Math.max(timeout, minTimeout), maxTimeout);
+        for (int i = 0; i < attempt && timeout < maxTimeout; i++) {
+            timeout = Math.min(timeout * 2, maxTimeout);
+        }
+
+        return timeout;
+    }
+
+
+    /**
+     * Add a connect round trip time sample of an answered probe
+     *
+     * @param hostAddress the host address
+     * @param rtt the round trip time in nanoseconds
+     */
+    public void sample(String hostAddress, long rtt) {
+        synchronized (hostEstimators) {
+            RttEstimator hostEstimator = hostEstimators.get(hostAddress);
+            if (hostEstimator == null) {
+                hostEstimator = new RttEstimator();
+                hostEstimators.put(hostAddress, hostEstimator);
+            }
+
+            hostEstimator.sample(rtt);
+            globalEstimator.sample(rtt);
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        synchronized (hostEstimators) {
+            return "AdaptiveTimeout [initial=" + initialTimeout + "ns, min=" + minTimeout + "ns, max=" + maxTimeout + "ns, maxRetries=" + maxRetries
+                   + ", hosts=" + hostEstimators.size() + ", global=" + globalEstimator + "]";
+        }
+    }
+}
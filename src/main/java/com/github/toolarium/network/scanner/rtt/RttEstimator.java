@@ -0,0 +1,112 @@
+/*
+ * RttEstimator.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.rtt;
+
+
+/**
+ * Implements the round trip time estimation of TCP (RFC 6298): the smoothed round trip time and its variance are
+ * updated by every sample, the retransmission timeout is <code>SRTT + 4 * RTTVAR</code>. The estimator is not thread
+ * safe.
+ *
+ * @author patrick
+ */
+public class RttEstimator {
+    private long smoothedRtt;
+    private long rttVariance;
+    private long numberOfSamples;
+
+
+    /**
+     * Constructor for RttEstimator
+     */
+    public RttEstimator() {
+        this.smoothedRtt = 0;
+        this.rttVariance = 0;
+        this.numberOfSamples = 0;
+    }
+
+
+    /**
+     * Add a round trip time sample
+     *
+     * @param rtt the measured round trip time in nanoseconds
+     */
+    public void sample(long rtt) {
+        if (rtt < 0) {
+            return;
+        }
+
+        if (numberOfSamples == 0) {
+            smoothedRtt = rtt;
+            rttVariance = rtt / 2;
+        } else {
+            // RTTVAR = 3/4 RTTVAR + 1/4 |SRTT - R|, SRTT = 7/8 SRTT + 1/8 R
+            rttVariance += (Math.abs(smoothedRtt - rtt) - rttVariance) / 4;
+            smoothedRtt += (rtt - smoothedRtt) / 8;
+        }
+
+        numberOfSamples++;
+    }
+
+
+    /**
+     * Check if there is at least one sample
+     *
+     * @return true if there is a sample
+     */
+    public boolean hasSamples() {
+        return numberOfSamples > 0;
+    }
+
+
+    /**
+     * Get the number of samples
+     *
+     * @return the number of samples
+     */
+    public long getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+
+    /**
+     * Get the smoothed round trip time
+     *
+     * @return the smoothed round trip time in nanoseconds
+     */
+    public long getSmoothedRtt() {
+        return smoothedRtt;
+    }
+
+
+    /**
+     * Get the round trip time variance
+     *
+     * @return the round trip time variance in nanoseconds
+     */
+    public long getRttVariance() {
+        return rttVariance;
+    }
+
+
+    /**
+     * Get the retransmission timeout
+     *
+     * @return the retransmission timeout in nanoseconds
+     */
+    public long getTimeout() {
+        return smoothedRtt + 4 * rttVariance;
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "RttEstimator [srtt=" + smoothedRtt + "ns, rttvar=" + rttVariance + "ns, samples=" + numberOfSamples + "]";
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * IndexPermutation.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.target;
+
+
+/**
+ * Implements a seeded pseudo random permutation of the index space <code>[0, size)</code> with constant memory. The
+ * index is encrypted by a balanced Feistel network over the smallest even number of bits covering the size; values
+ * outside of the index space are encrypted again (cycle walking) until they are in range. Since the covered space is
+ * less than four times the size, a lookup needs less than four rounds on average. The permutation is random access: the
+ * n-th element is computed without iterating the previous ones.
+ *
+ * @author patrick
+ */
+public final class IndexPermutation {
+    private static final int ROUNDS = 4;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private final long size;
+    private final long seed;
+    private final int halfBits;
+    private final long halfMask;
+    private final long[] keys;
+
+
+    /**
+     * Constructor for IndexPermutation
+     *
+     * @param size the size of the index space
+     * @param seed the seed, the same seed results in the same permutation
+     */
+    public IndexPermutation(long size, long seed) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+
+        this.size = size;
+        this.seed = seed;
+
+        final int bits = 64 - Long.numberOfLeadingZeros(Math.max(1L, size - 1));
+        this.halfBits = (bits + 1) / 2;
+        this.halfMask = (1L << halfBits) - 1;
+        this.keys = new long[ROUNDS];
+
+        long state = seed;
+        for (int i = 0; i < ROUNDS; i++) {
+            state += GOLDEN_GAMMA;
+            keys[i] = mix(state);
+        }
+    }
+
+
+    /**
+     * Get the size of the index space
+     *
+     * @return the size
+     */
+    public long getSize() {
+        return size;
+    }
+
+
+    /**
+     * Get the seed
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+
+    /**
+     * Get the element at the given position of the permutation
+     *
+     * @param index the position, <code>0 &lt;= index &lt; size</code>
+     * @return the permuted index
+     */
+    public long get(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index + " (size: " + size + ")");
+        }
+
+        long value = encrypt(index);
+        while (value >= size) {
+            value = encrypt(value);
+        }
+
+        return value;
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "IndexPermutation [size=" + size + ", seed=" + seed + "]";
+    }
+
+
+    /**
+     * Encrypt a value of the covered space by the Feistel network
+     *
+     * @param value the value
+     * @return the encrypted value
+     */
+    private long encrypt(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (int i = 0; i < ROUNDS; i++) {
+            final long next = left ^ (mix(right ^ keys[i]) & halfMask);
+            left = right;
+            right = next;
+        }
+
+        return (left << halfBits) | right;
+    }
+
+
+    /**
+     * The round function: the finalizer of the SplitMix64 generator
+     *
+     * @param value the value
+     * @return the mixed value
+     */
+    private static long mix(long value) {
+        long z = value;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * ScanShard.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.target;
+
+
+/**
+ * Defines a shard of the host × port index space: the shard <code>i</code> of <code>N</code> contains the indexes
+ * <code>i, i + N, i + 2N, ...</code>. The shards are disjoint and cover the whole index space, so several nodes can
+ * scan the same targets and ports without coordination, each one its own shard. The assignment doesn't depend on the
+ * seed of the probe order: a node permutes the indexes of its shard (see {@link #getSize(long)} and
+ * {@link #getIndex(long)}) with any seed. Since the hosts are interleaved in the index space, every shard probes all
+ * hosts.
+ *
+ * @author patrick
+ */
+public final class ScanShard {
+    /** The shard which contains the whole index space */
+    public static final ScanShard ALL = new ScanShard(0, 1);
+    private final int index;
+    private final int count;
+
+
+    /**
+     * Constructor for ScanShard
+     *
+     * @param index the index of the shard, from 0 to count - 1
+     * @param count the number of shards
+     */
+    public ScanShard(int index, int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Invalid number of shards: " + count);
+        }
+        if (index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard index: " + index + " (shards: " + count + ")");
+        }
+
+        this.index = index;
+        this.count = count;
+    }
+
+
+    /**
+     * Parse a shard in the notation <code>i/N</code>, e.g. <code>0/4</code>
+     *
+     * @param shard the shard
+     * @return the parsed shard
+     * @throws IllegalArgumentException In case of an invalid shard
+     */
+    public static ScanShard parse(String shard) {
+        if (shard == null) {
+            throw new IllegalArgumentException("Invalid shard: null");
+        }
+
+        final int separator = shard.indexOf('/');
+        if (separator <= 0) {
+            throw new IllegalArgumentException("Invalid shard: [" + shard + "]");
+        }
+
+        try {
+            return new ScanShard(Integer.parseInt(shard.substring(0, separator).trim()), Integer.parseInt(shard.substring(separator + 1).trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid shard: [" + shard + "]");
+        }
+    }
+
+
+    /**
+     * Get the index of the shard
+     *
+     * @return the index, from 0 to count - 1
+     */
+    public int getShardIndex() {
+        return index;
+    }
+
+
+    /**
+     * Get the number of shards
+     *
+     * @return the number of shards
+     */
+    public int getShardCount() {
+        return count;
+    }
+
+
+    /**
+     * Get the number of indexes of the shard
+     *
+     * @param size the size of the whole index space
+     * @return the number of indexes of the shard
+     */
+    public long getSize(long size) {
+        if (size <= index) {
+            return 0;
+        }
+
+        return (size - index + count - 1) / count;
+    }
+
+
+    /**
+     * Get the index in the whole index space
+     *
+     * @param shardIndex the index in the shard, from 0 to {@link #getSize(long)} - 1
+     * @return the index in the whole index space
+     */
+    public long getIndex(long shardIndex) {
+        return shardIndex * count + index;
+    }
+
+
+    /**
+     * Check if an index of the whole index space belongs to the shard
+     *
+     * @param spaceIndex the index in the whole index space
+     * @return true if it belongs to the shard
+     */
+    public boolean contains(long spaceIndex) {
+        return spaceIndex >= 0 && spaceIndex % count == index;
+    }
+
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return 31 * index + count;
+    }
+
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final ScanShard other = (ScanShard) obj;
+        return index == other.index && count == other.count;
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return index + "/" + count;
+    }
+}
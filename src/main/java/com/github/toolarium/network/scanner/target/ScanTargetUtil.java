@@ -0,0 +1,305 @@
+/*
+ * ScanTargetUtil.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.target;
+
+import com.github.toolarium.network.ip.CIDRUtil;
+import com.github.toolarium.network.ip.IPUtil;
+import com.github.toolarium.network.ip.dto.CIDRInfo;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * Parses the description of scan targets into the compact {@link ScanTargets}. The description is a list of entries
+ * separated by comma or white space, an entry is one of:
+ * <ul>
+ * <li>an IPv4 or IPv6 address, e.g. <code>10.0.0.1</code></li>
+ * <li>a network in CIDR notation, e.g. <code>10.0.0.0/16</code></li>
+ * <li>an address range, e.g. <code>10.0.0.1-10.0.3.254</code> or <code>10.0.0.1-20</code> for the last octet</li>
+ * <li>a host name, it is resolved once</li>
+ * <li>an exclusion of one of the above, prefixed by <code>!</code>, e.g. <code>!10.0.1.0/24</code></li>
+ * </ul>
+ * Overlapping entries are merged, every host is scanned once.
+ *
+ * @author patrick
+ */
+public final class ScanTargetUtil {
+    /** The max number of hosts of scan targets */
+    public static final long MAX_HOSTS = 1L << 40;
+    private static final Comparator<BigInteger[]> RANGE_COMPARATOR = (a, b) -> a[0].compareTo(b[0]);
+
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final ScanTargetUtil INSTANCE = new ScanTargetUtil();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private ScanTargetUtil() {
+        // NOP
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static ScanTargetUtil getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * Parse the description of scan targets
+     *
+     * @param description the description
+     * @return the scan targets
+     * @throws IllegalArgumentException In case of an invalid entry
+     */
+    public ScanTargets parse(String description) {
+        if (description == null || description.isBlank()) {
+            return ScanTargets.empty();
+        }
+
+        final List<BigInteger[]> ipv4Includes = new ArrayList<BigInteger[]>();
+        final List<BigInteger[]> ipv4Excludes = new ArrayList<BigInteger[]>();
+        final List<BigInteger[]> ipv6Includes = new ArrayList<BigInteger[]>();
+        final List<BigInteger[]> ipv6Excludes = new ArrayList<BigInteger[]>();
+        final List<String> namedHosts = new ArrayList<String>();
+        final List<InetAddress> namedAddresses = new ArrayList<InetAddress>();
+
+        for (String entry : description.trim().split("[,\\s]+")) {
+            boolean exclude = false;
+            String value = entry;
+            if (value.startsWith("!")) {
+                exclude = true;
+                value = value.substring(1);
+            }
+
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("Invalid scan target: [" + entry + "]");
+            }
+
+            final BigInteger[] range = parseRange(value);
+            if (range != null) {
+                if (range[2].intValue() == 4) {
+                    addRange(exclude, range, ipv4Includes, ipv4Excludes);
+                } else {
+                    addRange(exclude, range, ipv6Includes, ipv6Excludes);
+                }
+            } else {
+                final InetAddress address = IPUtil.getInstance().parse(value);
+                if (address == null) {
+                    throw new IllegalArgumentException("Invalid scan target: [" + entry + "]");
+                }
+
+                final BigInteger addressValue = new BigInteger(1, address.getAddress());
+                final BigInteger[] addressRange = new BigInteger[] {addressValue, addressValue};
+                if (!exclude) {
+                    namedHosts.add(value);
+                    namedAddresses.add(address);
+                } else if (address.getAddress().length == 4) {
+                    ipv4Excludes.add(addressRange);
+                } else {
+                    ipv6Excludes.add(addressRange);
+                }
+            }
+        }
+
+        // the named hosts are kept with their name, excluded addresses are removed
+        final List<BigInteger[]> ipv4ExcludeList = merge(ipv4Excludes);
+        final List<BigInteger[]> ipv6ExcludeList = merge(ipv6Excludes);
+        for (int i = namedHosts.size() - 1; i >= 0; i--) {
+            final byte[] address = namedAddresses.get(i).getAddress();
+            List<BigInteger[]> excludeList = ipv6ExcludeList;
+            if (address.length == 4) {
+                excludeList = ipv4ExcludeList;
+            }
+
+            if (contains(excludeList, new BigInteger(1, address))) {
+                namedHosts.remove(i);
+                namedAddresses.remove(i);
+            }
+        }
+
+        return ScanTargets.create(subtract(merge(ipv4Includes), ipv4ExcludeList), subtract(merge(ipv6Includes), ipv6ExcludeList), namedHosts, namedAddresses);
+    }
+
+
+    /**
+     * Parse an address, an address range or a network in CIDR notation
+     *
+     * @param value the value
+     * @return the start address, end address (inclusive) and address length; null if it is no address literal
+     * @throws IllegalArgumentException In case of an invalid range
+     */
+    private BigInteger[] parseRange(String value) {
+        if (CIDRUtil.getInstance().isValidRange(value)) {
+            try {
+                final CIDRInfo cidrInfo = CIDRUtil.getInstance().parse(value);
+                return new BigInteger[] {cidrInfo.getStartIp(), cidrInfo.getEndIp(), BigInteger.valueOf(cidrInfo.getTargetSize())};
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid scan target: [" + value + "]");
+            }
+        }
+
+        final int separator = value.indexOf('-');
+        if (separator > 0) {
+            final String start = value.substring(0, separator).trim();
+            String end = value.substring(separator + 1).trim();
+            if (!isAddressLiteral(start)) {
+                // it could be a host name
+                return null;
+            }
+
+            if (IPUtil.getInstance().isIPv4Address(start) && end.matches("[0-9]{1,3}")) {
+                end = start.substring(0, start.lastIndexOf('.') + 1) + end;
+            }
+
+            final BigInteger[] startRange = parseRange(start);
+            final BigInteger[] endRange = parseRange(end);
+            if (endRange == null || !startRange[2].equals(endRange[2]) || startRange[0].compareTo(endRange[0]) > 0) {
+                throw new IllegalArgumentException("Invalid scan target range: [" + value + "]");
+            }
+
+            return new BigInteger[] {startRange[0], endRange[0], startRange[2]};
+        }
+
+        if (!isAddressLiteral(value)) {
+            return null;
+        }
+
+        final InetAddress address = IPUtil.getInstance().parse(value);
+        if (address == null) {
+            throw new IllegalArgumentException("Invalid scan target: [" + value + "]");
+        }
+
+        final BigInteger addressValue = new BigInteger(1, address.getAddress());
+        return new BigInteger[] {addressValue, addressValue, BigInteger.valueOf(address.getAddress().length)};
+    }
+
+
+    /**
+     * Check if the value is an IPv4 or IPv6 address literal
+     *
+     * @param value the value
+     * @return true if it is an address literal
+     */
+    private boolean isAddressLiteral(String value) {
+        return IPUtil.getInstance().isIPv4Address(value) || IPUtil.getInstance().isIPv6Address(value);
+    }
+
+
+    /**
+     * Add a range
+     *
+     * @param exclude true if the range is excluded
+     * @param range the range
+     * @param includes the included ranges
+     * @param excludes the excluded ranges
+     */
+    private void addRange(boolean exclude, BigInteger[] range, List<BigInteger[]> includes, List<BigInteger[]> excludes) {
+        final BigInteger[] value = new BigInteger[] {range[0], range[1]};
+        if (exclude) {
+            excludes.add(value);
+        } else {
+            includes.add(value);
+        }
+    }
+
+
+    /**
+     * Sort and merge overlapping or adjacent ranges
+     *
+     * @param ranges the ranges
+     * @return the sorted and disjoint ranges
+     */
+    private List<BigInteger[]> merge(List<BigInteger[]> ranges) {
+        ranges.sort(RANGE_COMPARATOR);
+
+        final List<BigInteger[]> result = new ArrayList<BigInteger[]>();
+        BigInteger[] current = null;
+        for (BigInteger[] range : ranges) {
+            if (current != null && range[0].compareTo(current[1].add(BigInteger.ONE)) <= 0) {
+                current[1] = current[1].max(range[1]);
+            } else {
+                current = new BigInteger[] {range[0], range[1]};
+                result.add(current);
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Subtract the excluded ranges
+     *
+     * @param includes the sorted and disjoint included ranges
+     * @param excludes the sorted and disjoint excluded ranges
+     * @return the sorted and disjoint ranges
+     */
+    private List<BigInteger[]> subtract(List<BigInteger[]> includes, List<BigInteger[]> excludes) {
+        final List<BigInteger[]> result = new ArrayList<BigInteger[]>();
+        int e = 0;
+        for (BigInteger[] include : includes) {
+            BigInteger start = include[0];
+            while (e < excludes.size() && excludes.get(e)[1].compareTo(start) < 0) {
+                e++;
+            }
+
+            int i = e;
+            while (start != null && i < excludes.size() && excludes.get(i)[0].compareTo(include[1]) <= 0) {
+                final BigInteger[] exclude = excludes.get(i);
+                if (exclude[0].compareTo(start) > 0) {
+                    result.add(new BigInteger[] {start, exclude[0].subtract(BigInteger.ONE)});
+                }
+
+                start = null;
+                if (exclude[1].compareTo(include[1]) < 0) {
+                    start = exclude[1].add(BigInteger.ONE);
+                }
+                i++;
+            }
+
+            if (start != null) {
+                result.add(new BigInteger[] {start, include[1]});
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Check if a value is in one of the ranges
+     *
+     * @param ranges the sorted and disjoint ranges
+     * @param value the value
+     * @return true if the value is in a range
+     */
+    private boolean contains(List<BigInteger[]> ranges, BigInteger value) {
+        for (BigInteger[] range : ranges) {
+            if (range[0].compareTo(value) <= 0 && range[1].compareTo(value) >= 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * ScanTargets.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.target;
+
+import com.github.toolarium.network.ip.formatter.IPV6Formatter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Implements a compact and immutable set of scan target hosts. The targets are kept as sorted and disjoint address
+ * ranges and named hosts, the addresses are computed by their index on demand: a large network like a /8 takes a few
+ * bytes and no address is created before it is scanned. The index order is the IPv4 ranges, the IPv6 ranges and the
+ * named hosts, each in ascending order.
+ *
+ * @author patrick
+ */
+public final class ScanTargets {
+    private static final ScanTargets EMPTY = new ScanTargets(new long[0], new long[0], new BigInteger[0], new String[0], new InetAddress[0], 0);
+    private final long[] offsets;
+    private final long[] ipv4Starts;
+    private final BigInteger[] ipv6Starts;
+    private final String[] names;
+    private final InetAddress[] addresses;
+    private final long size;
+
+
+    /**
+     * Constructor for ScanTargets
+     *
+     * @param offsets the index of the first host of every segment
+     * @param ipv4Starts the start address of the IPv4 segments
+     * @param ipv6Starts the start address of the IPv6 segments, null for other segments
+     * @param names the name of the named host segments, null for other segments
+     * @param addresses the address of the named host segments, null for other segments
+     * @param size the total number of hosts
+     */
+    private ScanTargets(long[] offsets, long[] ipv4Starts, BigInteger[] ipv6Starts, String[] names, InetAddress[] addresses, long size) {
+        this.offsets = offsets;
+        this.ipv4Starts = ipv4Starts;
+        this.ipv6Starts = ipv6Starts;
+        this.names = names;
+        this.addresses = addresses;
+        this.size = size;
+    }
+
+
+    /**
+     * Get the empty scan targets
+     *
+     * @return the empty scan targets
+     */
+    public static ScanTargets empty() {
+        return EMPTY;
+    }
+
+
+    /**
+     * Create the scan targets
+     *
+     * @param ipv4Ranges the sorted and disjoint IPv4 ranges, every range is an array of the start and end address (inclusive)
+     * @param ipv6Ranges the sorted and disjoint IPv6 ranges, every range is an array of the start and end address (inclusive)
+     * @param namedHosts the names of the named hosts
+     * @param namedAddresses the resolved addresses of the named hosts
+     * @return the scan targets
+     */
+    static ScanTargets create(List<BigInteger[]> ipv4Ranges, List<BigInteger[]> ipv6Ranges, List<String> namedHosts, List<InetAddress> namedAddresses) {
+        final int numberOfSegments = ipv4Ranges.size() + ipv6Ranges.size() + namedHosts.size();
+        final long[] offsets = new long[numberOfSegments];
+        final long[] ipv4Starts = new long[numberOfSegments];
+        final BigInteger[] ipv6Starts = new BigInteger[numberOfSegments];
+        final String[] names = new String[numberOfSegments];
+        final InetAddress[] addresses = new InetAddress[numberOfSegments];
+
+        BigInteger total = BigInteger.ZERO;
+        int i = 0;
+        for (BigInteger[] range : ipv4Ranges) {
+            offsets[i] = total.longValue();
+            ipv4Starts[i] = range[0].longValue();
+            total = total.add(range[1].subtract(range[0]).add(BigInteger.ONE));
+            i++;
+        }
+
+        for (BigInteger[] range : ipv6Ranges) {
+            offsets[i] = total.longValue();
+            ipv6Starts[i] = range[0];
+            total = total.add(range[1].subtract(range[0]).add(BigInteger.ONE));
+            checkSize(total);
+            i++;
+        }
+
+        for (int n = 0; n < namedHosts.size(); n++) {
+            offsets[i] = total.longValue();
+            names[i] = namedHosts.get(n);
+            addresses[i] = namedAddresses.get(n);
+            total = total.add(BigInteger.ONE);
+            i++;
+        }
+
+        checkSize(total);
+        return new ScanTargets(offsets, ipv4Starts, ipv6Starts, names, addresses, total.longValue());
+    }
+
+
+    /**
+     * Get the number of hosts
+     *
+     * @return the number of hosts
+     */
+    public long size() {
+        return size;
+    }
+
+
+    /**
+     * Check if there is no host
+     *
+     * @return true if there is no host
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    /**
+     * Get the host address of a host, the name of a named host
+     *
+     * @param index the index of the host
+     * @return the host address
+     */
+    public String getHostAddress(long index) {
+        final int segment = getSegment(index);
+        if (names[segment] != null) {
+            return names[segment];
+        }
+
+        if (ipv6Starts[segment] != null) {
+            return new IPV6Formatter().format(getAddress(index).getHostAddress());
+        }
+
+        final long address = ipv4Starts[segment] + (index - offsets[segment]);
+        return ((address >>> 24) & 0xFF) + "." + ((address >>> 16) & 0xFF) + "." + ((address >>> 8) & 0xFF) + "." + (address & 0xFF);
+    }
+
+
+    /**
+     * Get the address of a host, no name resolution is done
+     *
+     * @param index the index of the host
+     * @return the address
+     */
+    public InetAddress getAddress(long index) {
+        final int segment = getSegment(index);
+        if (names[segment] != null) {
+            return addresses[segment];
+        }
+
+        final byte[] address;
+        if (ipv6Starts[segment] != null) {
+            address = toBytes(ipv6Starts[segment].add(BigInteger.valueOf(index - offsets[segment])), 16);
+        } else {
+            final long value = ipv4Starts[segment] + (index - offsets[segment]);
+            address = new byte[] {(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+
+        try {
+            return InetAddress.getByAddress(address);
+        } catch (UnknownHostException e) {
+            // can not happen, the length of the address is valid
+            throw new IllegalStateException("Invalid address: " + Arrays.toString(address));
+        }
+    }
+
+
+    /**
+     * Get the canonical description: the ranges and named hosts in index order, separated by comma. Scan targets with
+     * the same hosts in the same order have the same description.
+     *
+     * @return the canonical description
+     */
+    public String getDescription() {
+        final StringBuilder description = new StringBuilder();
+        for (int i = 0; i < offsets.length; i++) {
+            if (i > 0) {
+                description.append(',');
+            }
+
+            final long last = getSegmentEnd(i) - 1;
+            description.append(getHostAddress(offsets[i]));
+            if (last > offsets[i]) {
+                description.append('-').append(getHostAddress(last));
+            }
+        }
+
+        return description.toString();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ScanTargets [size=" + size + ", segments=" + offsets.length + "]";
+    }
+
+
+    /**
+     * Find the segment of a host index by binary search
+     *
+     * @param index the host index
+     * @return the segment
+     */
+    private int getSegment(long index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Invalid index: " + index + " (size: " + size + ")");
+        }
+
+        int low = 0;
+        int high = offsets.length - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        return low;
+    }
+
+
+    /**
+     * Get the end index (exclusive) of a segment
+     *
+     * @param segment the segment
+     * @return the end index
+     */
+    private long getSegmentEnd(int segment) {
+        if (segment + 1 < offsets.length) {
+            return offsets[segment + 1];
+        }
+
+        return size;
+    }
+
+
+    /**
+     * Check the total number of hosts
+     *
+     * @param total the total number of hosts
+     */
+    private static void checkSize(BigInteger total) {
+        if (total.compareTo(BigInteger.valueOf(ScanTargetUtil.MAX_HOSTS)) > 0) {
+            throw new IllegalArgumentException("Invalid scan targets, too many hosts: " + total);
+        }
+    }
+
+
+    /**
+     * Convert an address value to its bytes
+     *
+     * @param value the value
+     * @param length the length of the address
+     * @return the bytes
+     */
+    private static byte[] toBytes(BigInteger value, int length) {
+        final byte[] bytes = value.toByteArray();
+        final byte[] result = new byte[length];
+        final int n = Math.min(bytes.length, length);
+        System.arraycopy(bytes, bytes.length - n, result, length - n, n);
+        return result;
+    }
+}
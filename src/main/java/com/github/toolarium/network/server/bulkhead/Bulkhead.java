@@ -0,0 +1,226 @@
+/*
+ * Bulkhead.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.bulkhead;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Implements the {@link IBulkhead} by a fixed size {@link ThreadPoolExecutor} with a bounded queue. The executor is
+ * created on {@link #start()}, so a bulkhead can be started again after it was stopped.
+ *
+ * @author patrick
+ */
+public class Bulkhead implements IBulkhead {
+    private final String name;
+    private final int poolSize;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+    private final AtomicLong rejectedCount;
+    private volatile ThreadPoolExecutor executor;
+
+
+    /**
+     * Constructor for Bulkhead
+     *
+     * @param name the name, used as prefix of the worker thread names
+     * @param poolSize the number of worker threads
+     * @param queueCapacity the number of requests which can wait for a worker, 0 to queue no request
+     * @param rejectionPolicy the rejection policy
+     */
+    public Bulkhead(String name, int poolSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Invalid name!");
+        }
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Invalid pool size: " + poolSize);
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("Invalid queue capacity: " + queueCapacity);
+        }
+        if (rejectionPolicy == null) {
+            throw new IllegalArgumentException("Invalid rejection policy!");
+        }
+
+        this.name = name;
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+        this.rejectedCount = new AtomicLong();
+        this.executor = null;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#getName()
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * Get the number of worker threads
+     *
+     * @return the pool size
+     */
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+
+    /**
+     * Get the queue capacity
+     *
+     * @return the queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#getRejectionPolicy()
+     */
+    @Override
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#start()
+     */
+    @Override
+    public synchronized void start() {
+        if (executor != null && !executor.isShutdown()) {
+            return;
+        }
+
+        final BlockingQueue<Runnable> queue;
+        if (queueCapacity == 0) {
+            queue = new SynchronousQueue<>();
+        } else {
+            queue = new LinkedBlockingQueue<>(queueCapacity);
+        }
+
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS, queue, new WorkerThreadFactory(name), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#stop()
+     */
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#execute(java.lang.Runnable)
+     */
+    @Override
+    public boolean execute(Runnable task) {
+        final ThreadPoolExecutor currentExecutor = executor;
+        if (currentExecutor == null) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+
+        try {
+            currentExecutor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejectedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#getActiveCount()
+     */
+    @Override
+    public int getActiveCount() {
+        final ThreadPoolExecutor currentExecutor = executor;
+        if (currentExecutor == null) {
+            return 0;
+        }
+
+        return currentExecutor.getActiveCount();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#getQueueSize()
+     */
+    @Override
+    public int getQueueSize() {
+        final ThreadPoolExecutor currentExecutor = executor;
+        if (currentExecutor == null) {
+            return 0;
+        }
+
+        return currentExecutor.getQueue().size();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkhead#getRejectedCount()
+     */
+    @Override
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "Bulkhead [name=" + name + ", poolSize=" + poolSize + ", queueCapacity=" + queueCapacity + ", rejectionPolicy=" + rejectionPolicy + "]";
+    }
+
+
+    /**
+     * Creates the named worker threads of a bulkhead.
+     */
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter;
+
+        /**
+         * Constructor for WorkerThreadFactory
+         *
+         * @param name the name of the bulkhead
+         */
+        WorkerThreadFactory(String name) {
+            this.prefix = "http-bulkhead-" + name + "-";
+            this.counter = new AtomicInteger();
+        }
+
+        /**
+         * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+         */
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(runnable, prefix + counter.incrementAndGet());
+        }
+    }
+}
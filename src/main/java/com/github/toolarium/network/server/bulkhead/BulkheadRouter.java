@@ -0,0 +1,160 @@
+/*
+ * BulkheadRouter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.bulkhead;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * Implements the {@link IBulkheadRouter} by path prefixes: the longest matching prefix wins. A prefix matches only on a
+ * path segment boundary, e.g. <code>/api</code> matches <code>/api/users</code> but not <code>/apiv2</code>. A bulkhead can be
+ * assigned to several prefixes, e.g. all routes of a service which share the same downstream dependency.
+ *
+ * @author patrick
+ */
+public class BulkheadRouter implements IBulkheadRouter {
+    private final List<Route> routes;
+
+
+    /**
+     * Constructor for BulkheadRouter
+     */
+    public BulkheadRouter() {
+        this.routes = new ArrayList<>();
+    }
+
+
+    /**
+     * Assign the requests with the given path prefix to a bulkhead
+     *
+     * @param pathPrefix the path prefix, e.g. <code>/reports</code>
+     * @param bulkhead the bulkhead
+     * @return the bulkhead router
+     */
+    public BulkheadRouter addRoute(String pathPrefix, IBulkhead bulkhead) {
+        if (pathPrefix == null || pathPrefix.isEmpty()) {
+            throw new IllegalArgumentException("Invalid path prefix!");
+        }
+        if (bulkhead == null) {
+            throw new IllegalArgumentException("Invalid bulkhead!");
+        }
+
+        routes.add(new Route(pathPrefix, bulkhead));
+        return this;
+    }
+
+
+    /**
+     * Get the distinct bulkheads of all routes
+     *
+     * @return the bulkheads
+     */
+    public List<IBulkhead> getBulkheads() {
+        final Set<IBulkhead> bulkheads = Collections.newSetFromMap(new IdentityHashMap<IBulkhead, Boolean>());
+        final List<IBulkhead> result = new ArrayList<>();
+        for (Route route : routes) {
+            if (bulkheads.add(route.bulkhead)) {
+                result.add(route.bulkhead);
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkheadRouter#start()
+     */
+    @Override
+    public void start() {
+        for (IBulkhead bulkhead : getBulkheads()) {
+            bulkhead.start();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkheadRouter#stop()
+     */
+    @Override
+    public void stop() {
+        for (IBulkhead bulkhead : getBulkheads()) {
+            bulkhead.stop();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.bulkhead.IBulkheadRouter#select(com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public IBulkhead select(IHttpRequest request) {
+        final String path = request.getPath();
+        if (path == null) {
+            return null;
+        }
+
+        Route result = null;
+        for (Route route : routes) {
+            if (matches(path, route.pathPrefix) && (result == null || route.pathPrefix.length() > result.pathPrefix.length())) {
+                result = route;
+            }
+        }
+
+        if (result == null) {
+            return null;
+        }
+
+        return result.bulkhead;
+    }
+
+
+    /**
+     * Check if the path starts with the prefix on a path segment boundary
+     *
+     * @param path the path
+     * @param pathPrefix the path prefix
+     * @return true if the prefix matches
+     */
+    private static boolean matches(String path, String pathPrefix) {
+        if (!path.startsWith(pathPrefix)) {
+            return false;
+        }
+
+        if (path.length() == pathPrefix.length() || pathPrefix.endsWith("/")) {
+            return true;
+        }
+
+        final char next = path.charAt(pathPrefix.length());
+        return next == '/' || next == '?';
+    }
+
+
+    /**
+     * Assigns a path prefix to a bulkhead.
+     */
+    private static class Route {
+        private final String pathPrefix;
+        private final IBulkhead bulkhead;
+
+        /**
+         * Constructor for Route
+         *
+         * @param pathPrefix the path prefix
+         * @param bulkhead the bulkhead
+         */
+        Route(String pathPrefix, IBulkhead bulkhead) {
+            this.pathPrefix = pathPrefix;
+            this.bulkhead = bulkhead;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * IBulkhead.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.bulkhead;
+
+
+/**
+ * Defines a bulkhead: an isolated worker pool with its own queue and rejection policy. A slow dependency of the routes
+ * of a bulkhead exhausts only its own pool and doesn't affect the other routes.
+ *
+ * @author patrick
+ */
+public interface IBulkhead {
+
+    /**
+     * Get the name of the bulkhead
+     *
+     * @return the name
+     */
+    String getName();
+
+
+    /**
+     * Get the rejection policy
+     *
+     * @return the rejection policy
+     */
+    RejectionPolicy getRejectionPolicy();
+
+
+    /**
+     * Start the worker pool
+     */
+    void start();
+
+
+    /**
+     * Stop the worker pool: the queued tasks are processed, then the worker threads terminate.
+     */
+    void stop();
+
+
+    /**
+     * Execute the processing of a request
+     *
+     * @param task the task
+     * @return true if it's executed or queued, false if the pool and the queue are exhausted or the bulkhead is stopped
+     */
+    boolean execute(Runnable task);
+
+
+    /**
+     * Get the number of workers which process a request
+     *
+     * @return the number of active workers
+     */
+    int getActiveCount();
+
+
+    /**
+     * Get the number of queued requests
+     *
+     * @return the queue size
+     */
+    int getQueueSize();
+
+
+    /**
+     * Get the number of rejected requests since the bulkhead was created
+     *
+     * @return the number of rejected requests
+     */
+    long getRejectedCount();
+}
@@ -0,0 +1,38 @@
+/*
+ * IBulkheadRouter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.bulkhead;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+
+
+/**
+ * Defines the assignment of the requests to the bulkheads. The shared workers of the server read the request headers,
+ * the processing of a request which is assigned to a bulkhead continues in the worker pool of the bulkhead.
+ *
+ * @author patrick
+ */
+public interface IBulkheadRouter {
+
+    /**
+     * Start the worker pools of all bulkheads
+     */
+    void start();
+
+
+    /**
+     * Stop the worker pools of all bulkheads
+     */
+    void stop();
+
+
+    /**
+     * Select the bulkhead of a request
+     *
+     * @param request the request without body
+     * @return the bulkhead or null to process the request by the shared workers
+     */
+    IBulkhead select(IHttpRequest request);
+}
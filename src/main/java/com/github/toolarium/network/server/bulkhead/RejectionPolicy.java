@@ -0,0 +1,23 @@
+/*
+ * RejectionPolicy.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.bulkhead;
+
+
+/**
+ * Defines how a request is handled in case the pool and the queue of its bulkhead are exhausted.
+ *
+ * @author patrick
+ */
+public enum RejectionPolicy {
+    /** The request is answered with <code>503 Service Unavailable</code> */
+    REJECT,
+
+    /** The connection is closed without a response */
+    CLOSE,
+
+    /** The request is processed by the shared worker which read the request headers; use it for cheap routes only */
+    CALLER_RUNS
+}
@@ -0,0 +1,27 @@
+/*
+ * IRequestTimeoutPolicy.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.deadline;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+
+
+/**
+ * Defines the processing timeout of a request. The deadline starts after the request body is read (the body is
+ * limited by the socket read timeout) and covers the http service and writing the response. The body of a proxied
+ * request is streamed to the upstream and therefore covered by the deadline.
+ *
+ * @author patrick
+ */
+public interface IRequestTimeoutPolicy {
+
+    /**
+     * Get the processing timeout of a request
+     *
+     * @param request the request without body
+     * @return the timeout in milliseconds, 0 for no deadline
+     */
+    long getTimeout(IHttpRequest request);
+}
@@ -0,0 +1,99 @@
+/*
+ * RequestDeadlineTimer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.deadline;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Shared timer of the request deadlines. One daemon thread serves the deadlines of all servers; a cancelled deadline
+ * is removed from the queue immediately, so the queue only holds the requests in process. The blocking part of an
+ * expired deadline, e.g. writing the <code>504 Gateway Timeout</code> to a slow client, runs on a separate pool of
+ * daemon threads, so the timer thread is never blocked.
+ *
+ * @author patrick
+ */
+public final class RequestDeadlineTimer {
+    private static final long KEEP_ALIVE_TIME = 60L;
+    private final ScheduledThreadPoolExecutor executor;
+    private final ThreadPoolExecutor expirationExecutor;
+
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final RequestDeadlineTimer INSTANCE = new RequestDeadlineTimer();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private RequestDeadlineTimer() {
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            final Thread thread = new Thread(runnable, "http-deadline-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+
+        expirationExecutor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, KEEP_ALIVE_TIME, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), runnable -> {
+            final Thread thread = new Thread(runnable, "http-deadline-expiration");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static RequestDeadlineTimer getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * Schedule the expiration of a deadline. The task runs on the timer thread and must not block.
+     *
+     * @param task the task to run when the deadline expires
+     * @param timeout the timeout in milliseconds
+     * @return the future to cancel the deadline
+     */
+    public ScheduledFuture<?> schedule(Runnable task, long timeout) {
+        return executor.schedule(task, timeout, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Execute the blocking part of an expired deadline, e.g. writing the response, outside of the timer thread. The
+     * task should be bounded, e.g. by closing the connection after a timeout.
+     *
+     * @param task the task
+     */
+    public void execute(Runnable task) {
+        expirationExecutor.execute(task);
+    }
+
+
+    /**
+     * Get the number of scheduled deadlines
+     *
+     * @return the number of scheduled deadlines
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+}
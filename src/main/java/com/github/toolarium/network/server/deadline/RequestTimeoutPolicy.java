@@ -0,0 +1,125 @@
+/*
+ * RequestTimeoutPolicy.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.deadline;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Implements the {@link IRequestTimeoutPolicy} with a default timeout and timeouts per path prefix: the longest
+ * matching prefix wins. A prefix matches only on a path segment boundary, e.g. <code>/reports</code> matches
+ * <code>/reports/2024</code> but not <code>/reports-archive</code>.
+ *
+ * @author patrick
+ */
+public class RequestTimeoutPolicy implements IRequestTimeoutPolicy {
+    private final long defaultTimeout;
+    private final List<String> pathPrefixes;
+    private final List<Long> timeouts;
+
+
+    /**
+     * Constructor for RequestTimeoutPolicy
+     *
+     * @param defaultTimeout the default timeout in milliseconds, 0 for no deadline
+     */
+    public RequestTimeoutPolicy(long defaultTimeout) {
+        this.defaultTimeout = verifyTimeout(defaultTimeout);
+        this.pathPrefixes = new ArrayList<>();
+        this.timeouts = new ArrayList<>();
+    }
+
+
+    /**
+     * Set the timeout of the requests with the given path prefix
+     *
+     * @param pathPrefix the path prefix, e.g. <code>/reports</code>
+     * @param timeout the timeout in milliseconds, 0 for no deadline
+     * @return the request timeout policy
+     */
+    public RequestTimeoutPolicy addRoute(String pathPrefix, long timeout) {
+        if (pathPrefix == null || pathPrefix.isEmpty()) {
+            throw new IllegalArgumentException("Invalid path prefix!");
+        }
+
+        pathPrefixes.add(pathPrefix);
+        timeouts.add(verifyTimeout(timeout));
+        return this;
+    }
+
+
+    /**
+     * Get the default timeout
+     *
+     * @return the default timeout in milliseconds, 0 for no deadline
+     */
+    public long getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.deadline.IRequestTimeoutPolicy#getTimeout(com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public long getTimeout(IHttpRequest request) {
+        final String path = request.getPath();
+        if (path == null) {
+            return defaultTimeout;
+        }
+
+        int match = -1;
+        for (int i = 0; i < pathPrefixes.size(); i++) {
+            if (matches(path, pathPrefixes.get(i)) && (match < 0 || pathPrefixes.get(i).length() > pathPrefixes.get(match).length())) {
+                match = i;
+            }
+        }
+
+        if (match < 0) {
+            return defaultTimeout;
+        }
+
+        return timeouts.get(match);
+    }
+
+
+    /**
+     * Check if the path starts with the prefix on a path segment boundary
+     *
+     * @param path the path
+     * @param pathPrefix the path prefix
+     * @return true if the prefix matches
+     */
+    private static boolean matches(String path, String pathPrefix) {
+        if (!path.startsWith(pathPrefix)) {
+            return false;
+        }
+
+        if (path.length() == pathPrefix.length() || pathPrefix.endsWith("/")) {
+            return true;
+        }
+
+        final char next = path.charAt(pathPrefix.length());
+        return next == '/' || next == '?';
+    }
+
+
+    /**
+     * Verify a timeout
+     *
+     * @param timeout the timeout
+     * @return the timeout
+     */
+    private static long verifyTimeout(long timeout) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+
+        return timeout;
+    }
+}
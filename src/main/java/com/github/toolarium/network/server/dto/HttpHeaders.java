@@ -0,0 +1,485 @@
+/*
+ * HttpHeaders.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Implements a case insensitive and multi-valued http header container. The lookup is ASCII case insensitive without
+ * any allocation; header names which are known by the {@link HttpHeaderUtil} are shared constants, which are found by
+ * identity first. The {@link Map} view exposes one entry per header name with its first value.
+ *
+ * @author patrick
+ */
+public class HttpHeaders extends AbstractMap<String, String> implements Serializable {
+    private static final long serialVersionUID = -6279465839284126518L;
+    private static final int DEFAULT_CAPACITY = 16;
+    private String[] names;
+    private String[] values;
+    private int size;
+
+
+    /**
+     * Constructor for HttpHeaders
+     */
+    public HttpHeaders() {
+        names = new String[DEFAULT_CAPACITY];
+        values = new String[DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+
+    /**
+     * Constructor for HttpHeaders
+     *
+     * @param headers the headers to copy
+     */
+    public HttpHeaders(Map<String, String> headers) {
+        this();
+        if (headers instanceof HttpHeaders) {
+            HttpHeaders other = (HttpHeaders) headers;
+            ensureCapacity(other.size);
+            System.arraycopy(other.names, 0, names, 0, other.size);
+            System.arraycopy(other.values, 0, values, 0, other.size);
+            size = other.size;
+        } else if (headers != null) {
+            for (Map.Entry<String, String> e : headers.entrySet()) {
+                add(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+
+    /**
+     * Add a header value. An existing value of the same header name is kept, the new value is appended.
+     *
+     * @param name the header name
+     * @param value the header value
+     * @return the http headers
+     */
+    public HttpHeaders add(String name, String value) {
+        if (name == null) {
+            return this;
+        }
+
+        ensureCapacity(size + 1);
+        names[size] = HttpHeaderUtil.getInstance().toHeaderName(name);
+        values[size] = value;
+        size++;
+        return this;
+    }
+
+
+    /**
+     * Get the first value of the header
+     *
+     * @param name the header name
+     * @return the first value or null
+     */
+    public String getFirst(String name) {
+        final int idx = indexOf(name, 0);
+        if (idx < 0) {
+            return null;
+        }
+
+        return values[idx];
+    }
+
+
+    /**
+     * Get all values of the header in the received order
+     *
+     * @param name the header name
+     * @return the values, empty list if the header don't exist
+     */
+    public List<String> getAll(String name) {
+        int idx = indexOf(name, 0);
+        if (idx < 0) {
+            return Collections.emptyList();
+        }
+
+        final int next = indexOf(name, idx + 1);
+        if (next < 0) {
+            return Collections.singletonList(values[idx]);
+        }
+
+        final List<String> result = new ArrayList<>();
+        result.add(values[idx]);
+        idx = next;
+        while (idx >= 0) {
+            result.add(values[idx]);
+            idx = indexOf(name, idx + 1);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Check if the header exists
+     *
+     * @param name the header name
+     * @return true if the header exists
+     */
+    public boolean contains(String name) {
+        return indexOf(name, 0) >= 0;
+    }
+
+
+    /**
+     * Get the number of header lines, including repeated headers.
+     *
+     * @return the number of header lines
+     */
+    public int getNumberOfValues() {
+        return size;
+    }
+
+
+    /**
+     * Get the parsed content length. Repeated headers must have the identical value.
+     *
+     * @return the content length or -1 if there is no content length header
+     * @throws NumberFormatException In case of an invalid or ambiguous content length
+     */
+    public long getContentLength() {
+        return getLongValue(HttpHeaderUtil.CONTENT_LENGTH);
+    }
+
+
+    /**
+     * Get the parsed non-negative numeric value of a header. Repeated headers must have the identical value.
+     *
+     * @param name the header name
+     * @return the value or -1 if the header don't exist
+     * @throws NumberFormatException In case of an invalid or ambiguous value
+     */
+    public long getLongValue(String name) {
+        int idx = indexOf(name, 0);
+        if (idx < 0) {
+            return -1;
+        }
+
+        final long result = parseLong(values[idx]);
+        idx = indexOf(name, idx + 1);
+        while (idx >= 0) {
+            if (parseLong(values[idx]) != result) {
+                throw new NumberFormatException("Ambiguous header " + name + ": " + getAll(name));
+            }
+            idx = indexOf(name, idx + 1);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#get(java.lang.Object)
+     */
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        return getFirst((String) key);
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#containsKey(java.lang.Object)
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+
+        return contains((String) key);
+    }
+
+
+    /**
+     * Replaces all values of the header by the given value.
+     *
+     * @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public String put(String key, String value) {
+        final String previous = remove(key);
+        add(key, value);
+        return previous;
+    }
+
+
+    /**
+     * Removes all values of the header.
+     *
+     * @see java.util.AbstractMap#remove(java.lang.Object)
+     */
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        final String name = (String) key;
+        String previous = null;
+        int writeIdx = 0;
+        for (int i = 0; i < size; i++) {
+            if (HttpHeaderUtil.getInstance().equalsIgnoreCase(names[i], name)) {
+                if (previous == null) {
+                    previous = values[i];
+                }
+            } else {
+                names[writeIdx] = names[i];
+                values[writeIdx] = values[i];
+                writeIdx++;
+            }
+        }
+
+        Arrays.fill(names, writeIdx, size, null);
+        Arrays.fill(values, writeIdx, size, null);
+        size = writeIdx;
+        return previous;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#clear()
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#isEmpty()
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    /**
+     * The number of distinct header names.
+     *
+     * @see java.util.AbstractMap#size()
+     */
+    @Override
+    public int size() {
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            if (isFirstOccurrence(i)) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#entrySet()
+     */
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            /**
+             * @see java.util.AbstractCollection#iterator()
+             */
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new EntryIterator();
+            }
+
+            /**
+             * @see java.util.AbstractCollection#size()
+             */
+            @Override
+            public int size() {
+                return HttpHeaders.this.size();
+            }
+        };
+    }
+
+
+    /**
+     * Find the index of a header name
+     *
+     * @param name the name
+     * @param fromIndex the start index
+     * @return the index or -1
+     */
+    private int indexOf(String name, int fromIndex) {
+        if (name == null) {
+            return -1;
+        }
+
+        // fast path: well known header names are shared constants
+        for (int i = fromIndex; i < size; i++) {
+            if (names[i] == name) {
+                return i;
+            }
+        }
+
+        for (int i = fromIndex; i < size; i++) {
+            if (HttpHeaderUtil.getInstance().equalsIgnoreCase(names[i], name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Check if the name at the given index occurs the first time
+     *
+     * @param idx the index
+     * @return true if it is the first occurrence
+     */
+    private boolean isFirstOccurrence(int idx) {
+        for (int i = 0; i < idx; i++) {
+            if (HttpHeaderUtil.getInstance().equalsIgnoreCase(names[i], names[idx])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Ensure the capacity of the internal arrays
+     *
+     * @param capacity the min capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > names.length) {
+            final int newCapacity = Math.max(capacity, names.length * 2);
+            names = Arrays.copyOf(names, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+
+
+    /**
+     * Parse a non-negative decimal number without allocation, surrounding white spaces are ignored.
+     *
+     * @param value the value
+     * @return the parsed value
+     * @throws NumberFormatException In case of an invalid value
+     */
+    private static long parseLong(String value) {
+        if (value == null) {
+            throw new NumberFormatException("Invalid number: null");
+        }
+
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (start == end) {
+            throw new NumberFormatException("Invalid number: [" + value + "]");
+        }
+
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            final int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Invalid number: [" + value + "]");
+            }
+
+            if (result > (Long.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("Number too large: [" + value + "]");
+            }
+            result = result * 10 + digit;
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Iterates the first value of every distinct header name.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int next = advance(0);
+        private int last = -1;
+
+        /**
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        /**
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            next = advance(next + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(names[last], values[last]);
+        }
+
+        /**
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+
+            HttpHeaders.this.remove(names[last]);
+            next = advance(last);
+            last = -1;
+        }
+
+        /**
+         * Advance to the next first occurrence
+         *
+         * @param from the start index
+         * @return the index
+         */
+        private int advance(int from) {
+            int idx = from;
+            while (idx < size && !isFirstOccurrence(idx)) {
+                idx++;
+            }
+            return idx;
+        }
+    }
+}
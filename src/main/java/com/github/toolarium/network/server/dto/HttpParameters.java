@@ -0,0 +1,507 @@
+/*
+ * HttpParameters.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+import com.github.toolarium.network.server.util.PercentDecoderUtil;
+import java.io.Serializable;
+import java.nio.CharBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * Implements the multi-valued query parameters of a http request. The raw query is parsed the first time a parameter
+ * is accessed and the values are percent decoded on demand. The {@link Map} view exposes one entry per parameter name
+ * with its first value.
+ *
+ * @author patrick
+ */
+public class HttpParameters extends AbstractMap<String, String> implements Serializable {
+    private static final long serialVersionUID = 3805262751834961427L;
+    private static final int DEFAULT_CAPACITY = 8;
+    private final String query;
+    private boolean parsed;
+    private String[] names;
+    private String[] values;
+    private int[] valueRanges;
+    private int size;
+
+
+    /**
+     * Constructor for HttpParameters
+     */
+    public HttpParameters() {
+        this((String) null);
+    }
+
+
+    /**
+     * Constructor for HttpParameters
+     *
+     * @param query the raw (percent encoded) query without the leading '?', e.g. <code>a=1&amp;b=2</code>
+     */
+    public HttpParameters(String query) {
+        this.query = query;
+        this.parsed = false;
+        this.size = 0;
+    }
+
+
+    /**
+     * Constructor for HttpParameters
+     *
+     * @param parameters the parameters to copy
+     */
+    public HttpParameters(Map<String, String> parameters) {
+        this((String) null);
+        if (parameters != null) {
+            for (Map.Entry<String, String> e : parameters.entrySet()) {
+                add(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+
+    /**
+     * Get the raw query
+     *
+     * @return the raw query or null
+     */
+    public String getQuery() {
+        return query;
+    }
+
+
+    /**
+     * Add a parameter value. An existing value of the same parameter name is kept, the new value is appended.
+     *
+     * @param name the parameter name
+     * @param value the decoded parameter value
+     * @return the http parameters
+     */
+    public HttpParameters add(String name, String value) {
+        if (name == null) {
+            return this;
+        }
+
+        parse();
+        ensureCapacity(size + 1);
+        names[size] = name;
+        values[size] = value;
+        valueRanges[2 * size] = -1;
+        valueRanges[2 * size + 1] = -1;
+        size++;
+        return this;
+    }
+
+
+    /**
+     * Get the first decoded value of the parameter
+     *
+     * @param name the parameter name
+     * @return the first value or null
+     */
+    public String getFirst(String name) {
+        final int idx = indexOf(name, 0);
+        if (idx < 0) {
+            return null;
+        }
+
+        return getValue(idx);
+    }
+
+
+    /**
+     * Get all decoded values of the parameter in the order of the query
+     *
+     * @param name the parameter name
+     * @return the values, empty list if the parameter don't exist
+     */
+    public List<String> getAll(String name) {
+        int idx = indexOf(name, 0);
+        if (idx < 0) {
+            return Collections.emptyList();
+        }
+
+        final int next = indexOf(name, idx + 1);
+        if (next < 0) {
+            return Collections.singletonList(getValue(idx));
+        }
+
+        final List<String> result = new ArrayList<>();
+        result.add(getValue(idx));
+        idx = next;
+        while (idx >= 0) {
+            result.add(getValue(idx));
+            idx = indexOf(name, idx + 1);
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Get the first value of the parameter as character sequence. In case the value contains no escape sequence
+     * it is a read-only view on the raw query and no character data is copied. Use e.g.
+     * {@link String#contentEquals(CharSequence)} to compare.
+     *
+     * @param name the parameter name
+     * @return the first value or null
+     */
+    public CharSequence getFirstAsCharSequence(String name) {
+        final int idx = indexOf(name, 0);
+        if (idx < 0) {
+            return null;
+        }
+
+        if (values[idx] != null || valueRanges[2 * idx] < 0) {
+            return values[idx];
+        }
+
+        final int start = valueRanges[2 * idx];
+        final int end = valueRanges[2 * idx + 1];
+        if (PercentDecoderUtil.getInstance().needsDecoding(query, start, end, true)) {
+            return getValue(idx);
+        }
+
+        return CharBuffer.wrap(query, start, end);
+    }
+
+
+    /**
+     * Check if the parameter exists
+     *
+     * @param name the parameter name
+     * @return true if the parameter exists
+     */
+    public boolean contains(String name) {
+        return indexOf(name, 0) >= 0;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#get(java.lang.Object)
+     */
+    @Override
+    public String get(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        return getFirst((String) key);
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#containsKey(java.lang.Object)
+     */
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof String)) {
+            return false;
+        }
+
+        return contains((String) key);
+    }
+
+
+    /**
+     * Replaces all values of the parameter by the given value.
+     *
+     * @see java.util.AbstractMap#put(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public String put(String key, String value) {
+        final String previous = remove(key);
+        add(key, value);
+        return previous;
+    }
+
+
+    /**
+     * Removes all values of the parameter.
+     *
+     * @see java.util.AbstractMap#remove(java.lang.Object)
+     */
+    @Override
+    public String remove(Object key) {
+        if (!(key instanceof String)) {
+            return null;
+        }
+
+        parse();
+        String previous = null;
+        boolean found = false;
+        int writeIdx = 0;
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(key)) {
+                if (!found) {
+                    previous = getValue(i);
+                    found = true;
+                }
+            } else {
+                names[writeIdx] = names[i];
+                values[writeIdx] = values[i];
+                valueRanges[2 * writeIdx] = valueRanges[2 * i];
+                valueRanges[2 * writeIdx + 1] = valueRanges[2 * i + 1];
+                writeIdx++;
+            }
+        }
+
+        Arrays.fill(names, writeIdx, size, null);
+        Arrays.fill(values, writeIdx, size, null);
+        size = writeIdx;
+        return previous;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#clear()
+     */
+    @Override
+    public void clear() {
+        parse();
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#isEmpty()
+     */
+    @Override
+    public boolean isEmpty() {
+        parse();
+        return size == 0;
+    }
+
+
+    /**
+     * The number of distinct parameter names.
+     *
+     * @see java.util.AbstractMap#size()
+     */
+    @Override
+    public int size() {
+        parse();
+        int result = 0;
+        for (int i = 0; i < size; i++) {
+            if (isFirstOccurrence(i)) {
+                result++;
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @see java.util.AbstractMap#entrySet()
+     */
+    @Override
+    public Set<Map.Entry<String, String>> entrySet() {
+        return new AbstractSet<Map.Entry<String, String>>() {
+            /**
+             * @see java.util.AbstractCollection#iterator()
+             */
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                parse();
+                return new EntryIterator();
+            }
+
+            /**
+             * @see java.util.AbstractCollection#size()
+             */
+            @Override
+            public int size() {
+                return HttpParameters.this.size();
+            }
+        };
+    }
+
+
+    /**
+     * Parse the raw query in case it is not already done. Only the names are decoded, the value boundaries are kept.
+     */
+    private void parse() {
+        if (parsed) {
+            return;
+        }
+
+        parsed = true;
+        names = new String[DEFAULT_CAPACITY];
+        values = new String[DEFAULT_CAPACITY];
+        valueRanges = new int[2 * DEFAULT_CAPACITY];
+        if (query == null) {
+            return;
+        }
+
+        final int length = query.length();
+        int start = 0;
+        while (start < length) {
+            int end = query.indexOf('&', start);
+            if (end < 0) {
+                end = length;
+            }
+
+            if (end > start) {
+                int separator = query.indexOf('=', start);
+                if (separator < 0 || separator > end) {
+                    separator = end;
+                }
+
+                ensureCapacity(size + 1);
+                names[size] = PercentDecoderUtil.getInstance().decode(query, start, separator, true);
+                values[size] = null;
+                valueRanges[2 * size] = Math.min(separator + 1, end);
+                valueRanges[2 * size + 1] = end;
+                size++;
+            }
+
+            start = end + 1;
+        }
+    }
+
+
+    /**
+     * Get the decoded value of the given index
+     *
+     * @param idx the index
+     * @return the decoded value
+     */
+    private String getValue(int idx) {
+        if (values[idx] == null && valueRanges[2 * idx] >= 0) {
+            values[idx] = PercentDecoderUtil.getInstance().decode(query, valueRanges[2 * idx], valueRanges[2 * idx + 1], true);
+        }
+
+        return values[idx];
+    }
+
+
+    /**
+     * Find the index of a parameter name
+     *
+     * @param name the name
+     * @param fromIndex the start index
+     * @return the index or -1
+     */
+    private int indexOf(String name, int fromIndex) {
+        if (name == null) {
+            return -1;
+        }
+
+        parse();
+        for (int i = fromIndex; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Check if the name at the given index occurs the first time
+     *
+     * @param idx the index
+     * @return true if it is the first occurrence
+     */
+    private boolean isFirstOccurrence(int idx) {
+        for (int i = 0; i < idx; i++) {
+            if (Objects.equals(names[i], names[idx])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Ensure the capacity of the internal arrays
+     *
+     * @param capacity the min capacity
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > names.length) {
+            final int newCapacity = Math.max(capacity, names.length * 2);
+            names = Arrays.copyOf(names, newCapacity);
+            values = Arrays.copyOf(values, newCapacity);
+            valueRanges = Arrays.copyOf(valueRanges, 2 * newCapacity);
+        }
+    }
+
+
+    /**
+     * Iterates the first value of every distinct parameter name.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<String, String>> {
+        private int next = advance(0);
+        private int last = -1;
+
+        /**
+         * @see java.util.Iterator#hasNext()
+         */
+        @Override
+        public boolean hasNext() {
+            return next < size;
+        }
+
+        /**
+         * @see java.util.Iterator#next()
+         */
+        @Override
+        public Map.Entry<String, String> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            next = advance(next + 1);
+            return new AbstractMap.SimpleImmutableEntry<>(names[last], getValue(last));
+        }
+
+        /**
+         * @see java.util.Iterator#remove()
+         */
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+
+            HttpParameters.this.remove(names[last]);
+            next = advance(last);
+            last = -1;
+        }
+
+        /**
+         * Advance to the next first occurrence
+         *
+         * @param from the start index
+         * @return the index
+         */
+        private int advance(int from) {
+            int idx = from;
+            while (idx < size && !isFirstOccurrence(idx)) {
+                idx++;
+            }
+            return idx;
+        }
+    }
+}
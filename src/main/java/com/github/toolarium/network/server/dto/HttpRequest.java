@@ -5,8 +5,12 @@
  */
 package com.github.toolarium.network.server.dto;
 
+import com.github.toolarium.network.server.trace.ITraceContext;
+import com.github.toolarium.network.server.trace.TraceContextUtil;
 import java.io.Serializable;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -22,10 +26,13 @@ public class HttpRequest implements IHttpRequest, Serializable {
     private String version;
     private String path;
     private String method;
-    private Map<String, String> headers;
-    private Map<String, String> parameters;
+    private HttpHeaders headers;
+    private HttpParameters parameters;
     private String baseLocation;
     private String body;
+    private List<IMultipartPart> parts;
+    private HttpRequestTiming timing;
+    private ITraceContext traceContext;
 
     
     /**
@@ -34,6 +41,10 @@ public class HttpRequest implements IHttpRequest, Serializable {
      */
     public HttpRequest() {
         requestTimestamp = new Date();
+        headers = new HttpHeaders();
+        parameters = new HttpParameters();
+        parts = Collections.emptyList();
+        timing = new HttpRequestTiming();
     }
 
     
@@ -58,6 +69,52 @@ public class HttpRequest implements IHttpRequest, Serializable {
     }
 
     
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequest#getTiming()
+     */
+    @Override
+    public HttpRequestTiming getTiming() {
+        return timing;
+    }
+
+
+    /**
+     * Sets the request timing
+     *
+     * @param timing the request timing
+     * @return the http request
+     */
+    public HttpRequest setTiming(HttpRequestTiming timing) {
+        this.timing = timing;
+        return this;
+    }
+
+    
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequest#getTraceContext()
+     */
+    @Override
+    public ITraceContext getTraceContext() {
+        if (traceContext == null) {
+            traceContext = TraceContextUtil.getInstance().parse(this);
+        }
+
+        return traceContext;
+    }
+
+
+    /**
+     * Sets the trace context
+     *
+     * @param traceContext the trace context or null to parse it from the headers on demand
+     * @return the http request
+     */
+    public HttpRequest setTraceContext(ITraceContext traceContext) {
+        this.traceContext = traceContext;
+        return this;
+    }
+
+    
     /**
      * @see com.github.toolarium.network.server.dto.IHttpRequest#getVersion()
      */
@@ -126,7 +183,16 @@ public class HttpRequest implements IHttpRequest, Serializable {
      */
     @Override
     public String getHeader(String headerName) {
-        return headers.get(headerName);
+        return headers.getFirst(headerName);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequest#getHeaderValues(java.lang.String)
+     */
+    @Override
+    public List<String> getHeaderValues(String headerName) {
+        return headers.getAll(headerName);
     }
 
 
@@ -135,7 +201,7 @@ public class HttpRequest implements IHttpRequest, Serializable {
      */
     @Override
     public  boolean containsHeader(String headerName) {
-        return headers.containsKey(headerName);
+        return headers.contains(headerName);
     }
 
     
@@ -143,7 +209,7 @@ public class HttpRequest implements IHttpRequest, Serializable {
      * @see com.github.toolarium.network.server.dto.IHttpRequest#getHeader(java.lang.String)
      */
     @Override
-    public Map<String, String> getHeaders() {
+    public HttpHeaders getHeaders() {
         return headers;
     }
 
@@ -155,7 +221,11 @@ public class HttpRequest implements IHttpRequest, Serializable {
      * @return the http request
      */
     public HttpRequest setHeaders(Map<String, String> headers) {
-        this.headers = headers;
+        if (headers == null || headers instanceof HttpHeaders) {
+            this.headers = (HttpHeaders) headers;
+        } else {
+            this.headers = new HttpHeaders(headers);
+        }
         return this;
     }
 
@@ -165,7 +235,25 @@ public class HttpRequest implements IHttpRequest, Serializable {
      */
     @Override
     public String getParameter(String parameterName) {
-        return parameters.get(parameterName);
+        return parameters.getFirst(parameterName);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequest#getParameterValues(java.lang.String)
+     */
+    @Override
+    public List<String> getParameterValues(String parameterName) {
+        return parameters.getAll(parameterName);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequest#getParameterAsCharSequence(java.lang.String)
+     */
+    @Override
+    public CharSequence getParameterAsCharSequence(String parameterName) {
+        return parameters.getFirstAsCharSequence(parameterName);
     }
 
 
@@ -174,7 +262,7 @@ public class HttpRequest implements IHttpRequest, Serializable {
      */
     @Override
     public boolean containsParameter(String parameterName) {
-        return parameters.containsKey(parameterName);
+        return parameters.contains(parameterName);
     }
 
 
@@ -182,7 +270,7 @@ public class HttpRequest implements IHttpRequest, Serializable {
      * @see com.github.toolarium.network.server.dto.IHttpRequest#getParameters()
      */
     @Override
-    public Map<String, String> getParameters() {
+    public HttpParameters getParameters() {
         return parameters;
     }
 
@@ -194,7 +282,11 @@ public class HttpRequest implements IHttpRequest, Serializable {
      * @return the http request
      */
     public HttpRequest setParameters(Map<String, String> parameters) {
-        this.parameters = parameters;
+        if (parameters == null || parameters instanceof HttpParameters) {
+            this.parameters = (HttpParameters) parameters;
+        } else {
+            this.parameters = new HttpParameters(parameters);
+        }
         return this;
     }
 
@@ -241,6 +333,31 @@ public class HttpRequest implements IHttpRequest, Serializable {
     }
 
 
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequest#getParts()
+     */
+    @Override
+    public List<IMultipartPart> getParts() {
+        return parts;
+    }
+
+
+    /**
+     * Sets the parts of a multipart body
+     *
+     * @param parts the parts
+     * @return the http request
+     */
+    public HttpRequest setParts(List<IMultipartPart> parts) {
+        if (parts == null) {
+            this.parts = Collections.emptyList();
+        } else {
+            this.parts = parts;
+        }
+        return this;
+    }
+
+
     /**
      * @see java.lang.Object#hashCode()
      */
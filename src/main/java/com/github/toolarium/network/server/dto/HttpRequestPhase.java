@@ -0,0 +1,38 @@
+/*
+ * HttpRequestPhase.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+
+/**
+ * Defines the phases of a http request, each is measured between two time stamps of the {@link IHttpRequestTiming}.
+ *
+ * @author patrick
+ */
+public enum HttpRequestPhase {
+    /** From the accept of the connection until a worker thread started to handle it. */
+    QUEUE_WAIT,
+
+    /** From the start of the worker thread until the request line and the headers are read and parsed. */
+    READ_HEADERS,
+
+    /**
+     * From the end of the headers until a worker of the priority class or of the bulkhead started to process the
+     * request, only measured if the request is dispatched by a request scheduler or a bulkhead.
+     */
+    DISPATCH_WAIT,
+
+    /** From the end of the headers (or the dispatch) until the request body is read. */
+    READ_BODY,
+
+    /** From the end of the request body until the http service returned the response. */
+    SERVICE,
+
+    /** From the return of the http service until the last byte of the response is written. */
+    WRITE,
+
+    /** From the accept of the connection until the last byte of the response is written. */
+    TOTAL
+}
@@ -0,0 +1,265 @@
+/*
+ * HttpRequestTiming.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+
+/**
+ * Implements the {@link IHttpRequestTiming}. The time stamps are set by the connection handler thread which also
+ * notifies the access logger, so there is no synchronization.
+ *
+ * @author patrick
+ */
+public class HttpRequestTiming implements IHttpRequestTiming, Serializable {
+    private static final long serialVersionUID = -2409186723440154711L;
+    private long acceptTimestamp;
+    private long dequeueTimestamp;
+    private long headersCompleteTimestamp;
+    private long dispatchTimestamp;
+    private long bodyCompleteTimestamp;
+    private long serviceReturnTimestamp;
+    private long lastByteWrittenTimestamp;
+
+
+    /**
+     * Constructor for HttpRequestTiming
+     */
+    public HttpRequestTiming() {
+        this(0, 0);
+    }
+
+
+    /**
+     * Constructor for HttpRequestTiming
+     *
+     * @param acceptTimestamp the time stamp when the connection was accepted or 0
+     * @param dequeueTimestamp the time stamp when a worker thread started to handle the connection or 0
+     */
+    public HttpRequestTiming(long acceptTimestamp, long dequeueTimestamp) {
+        this.acceptTimestamp = acceptTimestamp;
+        this.dequeueTimestamp = dequeueTimestamp;
+        this.headersCompleteTimestamp = 0;
+        this.dispatchTimestamp = 0;
+        this.bodyCompleteTimestamp = 0;
+        this.serviceReturnTimestamp = 0;
+        this.lastByteWrittenTimestamp = 0;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getAcceptTimestamp()
+     */
+    @Override
+    public long getAcceptTimestamp() {
+        return acceptTimestamp;
+    }
+
+
+    /**
+     * Sets the time stamp when the connection was accepted
+     *
+     * @param acceptTimestamp the time stamp in nanoseconds
+     * @return the http request timing
+     */
+    public HttpRequestTiming setAcceptTimestamp(long acceptTimestamp) {
+        this.acceptTimestamp = acceptTimestamp;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getDequeueTimestamp()
+     */
+    @Override
+    public long getDequeueTimestamp() {
+        return dequeueTimestamp;
+    }
+
+
+    /**
+     * Sets the time stamp when a worker thread started to handle the connection
+     *
+     * @param dequeueTimestamp the time stamp in nanoseconds
+     * @return the http request timing
+     */
+    public HttpRequestTiming setDequeueTimestamp(long dequeueTimestamp) {
+        this.dequeueTimestamp = dequeueTimestamp;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getHeadersCompleteTimestamp()
+     */
+    @Override
+    public long getHeadersCompleteTimestamp() {
+        return headersCompleteTimestamp;
+    }
+
+
+    /**
+     * Sets the time stamp when the request line and the headers were read and parsed
+     *
+     * @param headersCompleteTimestamp the time stamp in nanoseconds
+     * @return the http request timing
+     */
+    public HttpRequestTiming setHeadersCompleteTimestamp(long headersCompleteTimestamp) {
+        this.headersCompleteTimestamp = headersCompleteTimestamp;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getDispatchTimestamp()
+     */
+    @Override
+    public long getDispatchTimestamp() {
+        return dispatchTimestamp;
+    }
+
+
+    /**
+     * Sets the time stamp when a worker of the priority class or of the bulkhead started to process the request
+     *
+     * @param dispatchTimestamp the time stamp in nanoseconds
+     * @return the http request timing
+     */
+    public HttpRequestTiming setDispatchTimestamp(long dispatchTimestamp) {
+        this.dispatchTimestamp = dispatchTimestamp;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getBodyCompleteTimestamp()
+     */
+    @Override
+    public long getBodyCompleteTimestamp() {
+        return bodyCompleteTimestamp;
+    }
+
+
+    /**
+     * Sets the time stamp when the request body was read
+     *
+     * @param bodyCompleteTimestamp the time stamp in nanoseconds
+     * @return the http request timing
+     */
+    public HttpRequestTiming setBodyCompleteTimestamp(long bodyCompleteTimestamp) {
+        this.bodyCompleteTimestamp = bodyCompleteTimestamp;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getServiceReturnTimestamp()
+     */
+    @Override
+    public long getServiceReturnTimestamp() {
+        return serviceReturnTimestamp;
+    }
+
+
+    /**
+     * Sets the time stamp when the http service returned the response
+     *
+     * @param serviceReturnTimestamp the time stamp in nanoseconds
+     * @return the http request timing
+     */
+    public HttpRequestTiming setServiceReturnTimestamp(long serviceReturnTimestamp) {
+        this.serviceReturnTimestamp = serviceReturnTimestamp;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getLastByteWrittenTimestamp()
+     */
+    @Override
+    public long getLastByteWrittenTimestamp() {
+        return lastByteWrittenTimestamp;
+    }
+
+
+    /**
+     * Sets the time stamp when the last byte of the response was written
+     *
+     * @param lastByteWrittenTimestamp the time stamp in nanoseconds
+     * @return the http request timing
+     */
+    public HttpRequestTiming setLastByteWrittenTimestamp(long lastByteWrittenTimestamp) {
+        this.lastByteWrittenTimestamp = lastByteWrittenTimestamp;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpRequestTiming#getDuration(com.github.toolarium.network.server.dto.HttpRequestPhase)
+     */
+    @Override
+    public long getDuration(HttpRequestPhase phase) {
+        if (phase == null) {
+            return -1;
+        }
+
+        switch (phase) {
+            case QUEUE_WAIT:
+                return duration(acceptTimestamp, dequeueTimestamp);
+            case READ_HEADERS:
+                return duration(dequeueTimestamp, headersCompleteTimestamp);
+            case DISPATCH_WAIT:
+                return duration(headersCompleteTimestamp, dispatchTimestamp);
+            case READ_BODY:
+                if (dispatchTimestamp != 0) {
+                    return duration(dispatchTimestamp, bodyCompleteTimestamp);
+                }
+                return duration(headersCompleteTimestamp, bodyCompleteTimestamp);
+            case SERVICE:
+                return duration(bodyCompleteTimestamp, serviceReturnTimestamp);
+            case WRITE:
+                return duration(serviceReturnTimestamp, lastByteWrittenTimestamp);
+            case TOTAL:
+                return duration(acceptTimestamp, lastByteWrittenTimestamp);
+            default:
+                return -1;
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder("HttpRequestTiming [");
+        for (HttpRequestPhase phase : HttpRequestPhase.values()) {
+            if (phase.ordinal() > 0) {
+                result.append(", ");
+            }
+            result.append(phase.name().toLowerCase(Locale.ROOT)).append('=').append(getDuration(phase));
+        }
+
+        return result.append(']').toString();
+    }
+
+
+    /**
+     * Get the duration between two time stamps
+     *
+     * @param start the start time stamp or 0
+     * @param end the end time stamp or 0
+     * @return the duration in nanoseconds or -1 if one of the time stamps is not set
+     */
+    private static long duration(long start, long end) {
+        if (start == 0 || end == 0) {
+            return -1;
+        }
+
+        return Math.max(0, end - start);
+    }
+}
@@ -5,6 +5,12 @@
  */
 package com.github.toolarium.network.server.dto;
 
+import com.github.toolarium.network.server.bulkhead.IBulkheadRouter;
+import com.github.toolarium.network.server.deadline.IRequestTimeoutPolicy;
+import com.github.toolarium.network.server.ratelimit.IRateLimiter;
+import com.github.toolarium.network.server.scheduler.IRequestScheduler;
+import com.github.toolarium.network.server.trace.ITracer;
+import com.github.toolarium.network.server.trace.NoopTracer;
 import java.io.Serializable;
 import java.net.URI;
 import java.util.Objects;
@@ -20,6 +26,12 @@ public class HttpServerInformation implements IHttpServerInformation, Serializab
     private static final long serialVersionUID = -9210837272048199788L;
     private SSLContext sslContext;
     private int port;
+    private String unixDomainSocketPath;
+    private transient IRateLimiter rateLimiter;
+    private transient ITracer tracer;
+    private transient IRequestScheduler requestScheduler;
+    private transient IBulkheadRouter bulkheadRouter;
+    private transient IRequestTimeoutPolicy requestTimeoutPolicy;
     private String localIpAddress;
     private String hostname;
 
@@ -66,6 +78,136 @@ public class HttpServerInformation implements IHttpServerInformation, Serializab
     }
 
 
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpServerInformation#getUnixDomainSocketPath()
+     */
+    @Override
+    public String getUnixDomainSocketPath() {
+        return unixDomainSocketPath;
+    }
+
+
+    /**
+     * Set the unix domain socket path
+     *
+     * @param unixDomainSocketPath the unix domain socket path
+     * @return the http server information
+     */
+    public HttpServerInformation setUnixDomainSocketPath(String unixDomainSocketPath) {
+        this.unixDomainSocketPath = unixDomainSocketPath;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpServerInformation#getRateLimiter()
+     */
+    @Override
+    public IRateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+
+    /**
+     * Set the rate limiter
+     *
+     * @param rateLimiter the rate limiter or null
+     * @return the http server information
+     */
+    public HttpServerInformation setRateLimiter(IRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpServerInformation#getRequestScheduler()
+     */
+    @Override
+    public IRequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+
+    /**
+     * Set the request scheduler
+     *
+     * @param requestScheduler the request scheduler or null
+     * @return the http server information
+     */
+    public HttpServerInformation setRequestScheduler(IRequestScheduler requestScheduler) {
+        this.requestScheduler = requestScheduler;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpServerInformation#getBulkheadRouter()
+     */
+    @Override
+    public IBulkheadRouter getBulkheadRouter() {
+        return bulkheadRouter;
+    }
+
+
+    /**
+     * Set the bulkhead router
+     *
+     * @param bulkheadRouter the bulkhead router or null
+     * @return the http server information
+     */
+    public HttpServerInformation setBulkheadRouter(IBulkheadRouter bulkheadRouter) {
+        this.bulkheadRouter = bulkheadRouter;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpServerInformation#getRequestTimeoutPolicy()
+     */
+    @Override
+    public IRequestTimeoutPolicy getRequestTimeoutPolicy() {
+        return requestTimeoutPolicy;
+    }
+
+
+    /**
+     * Set the request timeout policy
+     *
+     * @param requestTimeoutPolicy the request timeout policy or null
+     * @return the http server information
+     */
+    public HttpServerInformation setRequestTimeoutPolicy(IRequestTimeoutPolicy requestTimeoutPolicy) {
+        this.requestTimeoutPolicy = requestTimeoutPolicy;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IHttpServerInformation#getTracer()
+     */
+    @Override
+    public ITracer getTracer() {
+        if (tracer == null) {
+            return NoopTracer.getInstance();
+        }
+
+        return tracer;
+    }
+
+
+    /**
+     * Set the tracer
+     *
+     * @param tracer the tracer or null to disable the tracing
+     * @return the http server information
+     */
+    public HttpServerInformation setTracer(ITracer tracer) {
+        this.tracer = tracer;
+        return this;
+    }
+
+
     /**
      * @see com.github.toolarium.network.server.dto.IHttpServerInformation#getProtocol()
      */
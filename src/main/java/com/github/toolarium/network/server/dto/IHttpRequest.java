@@ -5,7 +5,9 @@
  */
 package com.github.toolarium.network.server.dto;
 
+import com.github.toolarium.network.server.trace.ITraceContext;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -23,6 +25,23 @@ public interface IHttpRequest {
     Date getRequestTimestamp();
     
     
+    /**
+     * Get the phase time stamps of the request
+     *
+     * @return the request timing, not null
+     */
+    IHttpRequestTiming getTiming();
+
+
+    /**
+     * Get the W3C trace context of the request. It's parsed from the <code>traceparent</code> and
+     * <code>tracestate</code> headers on first access, a new trace is started in case they are missing or invalid.
+     *
+     * @return the trace context, not null
+     */
+    ITraceContext getTraceContext();
+
+    
     /**
      * Get the version
      *
@@ -48,7 +67,7 @@ public interface IHttpRequest {
     
     
     /**
-     * Get header
+     * Get header, the header name is case insensitive. In case of repeated headers the first value is returned.
      *
      * @param headerName the header name
      * @return the header value
@@ -57,7 +76,16 @@ public interface IHttpRequest {
 
     
     /**
-     * Check if the header name exist
+     * Get all values of a repeated header, the header name is case insensitive.
+     *
+     * @param headerName the header name
+     * @return the header values in the received order, empty if the header don't exist
+     */
+    List<String> getHeaderValues(String headerName);
+
+    
+    /**
+     * Check if the header name exist, the header name is case insensitive.
      *
      * @param headerName the header name
      * @return true if exists
@@ -74,7 +102,7 @@ public interface IHttpRequest {
 
     
     /**
-     * Get the parameter
+     * Get the percent decoded parameter. In case of repeated parameters the first value is returned.
      *
      * @param paramName the parameter name
      * @return the parameter name
@@ -82,6 +110,25 @@ public interface IHttpRequest {
     String getParameter(String paramName);
 
     
+    /**
+     * Get all percent decoded values of a repeated parameter.
+     *
+     * @param paramName the parameter name
+     * @return the parameter values in the order of the query, empty if the parameter don't exist
+     */
+    List<String> getParameterValues(String paramName);
+
+    
+    /**
+     * Get the parameter as character sequence. In case the value needs no decoding no character data is copied,
+     * which is sufficient to compare the value, e.g. by {@link String#contentEquals(CharSequence)}.
+     *
+     * @param paramName the parameter name
+     * @return the parameter value or null
+     */
+    CharSequence getParameterAsCharSequence(String paramName);
+
+    
     /**
      * Check if the parameter exists
      *
@@ -113,4 +160,13 @@ public interface IHttpRequest {
      * @return the body of the request
      */
     String getBody();
+
+
+    /**
+     * Get the parts of a <code>multipart/form-data</code> body. The parts are streamed to the connection handler's
+     * multipart consumer instead of the body.
+     *
+     * @return the parts, empty list if the request has no multipart body
+     */
+    List<IMultipartPart> getParts();
 }
@@ -0,0 +1,82 @@
+/*
+ * IHttpRequestTiming.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+
+/**
+ * Defines the phase time stamps of a http request. All time stamps are taken from {@link System#nanoTime()} and are
+ * only comparable with each other; a time stamp of 0 means the phase was not reached (or not measured).
+ *
+ * @author patrick
+ */
+public interface IHttpRequestTiming {
+
+    /**
+     * Get the time stamp when the connection was accepted
+     *
+     * @return the time stamp in nanoseconds or 0
+     */
+    long getAcceptTimestamp();
+
+
+    /**
+     * Get the time stamp when a worker thread started to handle the connection
+     *
+     * @return the time stamp in nanoseconds or 0
+     */
+    long getDequeueTimestamp();
+
+
+    /**
+     * Get the time stamp when the request line and the headers were read and parsed
+     *
+     * @return the time stamp in nanoseconds or 0
+     */
+    long getHeadersCompleteTimestamp();
+
+
+    /**
+     * Get the time stamp when a worker of the priority class or of the bulkhead started to process the request
+     *
+     * @return the time stamp in nanoseconds or 0 if the request was not dispatched
+     */
+    default long getDispatchTimestamp() {
+        return 0;
+    }
+
+
+    /**
+     * Get the time stamp when the request body was read
+     *
+     * @return the time stamp in nanoseconds or 0
+     */
+    long getBodyCompleteTimestamp();
+
+
+    /**
+     * Get the time stamp when the http service returned the response
+     *
+     * @return the time stamp in nanoseconds or 0
+     */
+    long getServiceReturnTimestamp();
+
+
+    /**
+     * Get the time stamp when the last byte of the response was written
+     *
+     * @return the time stamp in nanoseconds or 0
+     */
+    long getLastByteWrittenTimestamp();
+
+
+    /**
+     * Get the duration of a phase
+     *
+     * @param phase the phase
+     * @return the duration in nanoseconds or -1 in case the phase was not completely measured
+     */
+    long getDuration(HttpRequestPhase phase);
+}
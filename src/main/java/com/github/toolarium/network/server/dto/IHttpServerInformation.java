@@ -5,6 +5,11 @@
  */
 package com.github.toolarium.network.server.dto;
 
+import com.github.toolarium.network.server.bulkhead.IBulkheadRouter;
+import com.github.toolarium.network.server.deadline.IRequestTimeoutPolicy;
+import com.github.toolarium.network.server.ratelimit.IRateLimiter;
+import com.github.toolarium.network.server.scheduler.IRequestScheduler;
+import com.github.toolarium.network.server.trace.ITracer;
 import java.net.URI;
 import javax.net.ssl.SSLContext;
 
@@ -30,7 +35,55 @@ public interface IHttpServerInformation {
      * @return the ssl context or null
      */
     SSLContext getSSLContext();
-    
+
+
+    /**
+     * Get the path of the unix domain socket the server listens on
+     *
+     * @return the unix domain socket path or null if the server don't listen on a unix domain socket
+     */
+    String getUnixDomainSocketPath();
+
+
+    /**
+     * Get the rate limiter of the server
+     *
+     * @return the rate limiter or null if the requests are not limited
+     */
+    IRateLimiter getRateLimiter();
+
+
+    /**
+     * Get the request scheduler of the server
+     *
+     * @return the request scheduler or null if the requests are processed in FIFO order
+     */
+    IRequestScheduler getRequestScheduler();
+
+
+    /**
+     * Get the bulkhead router of the server
+     *
+     * @return the bulkhead router or null if all requests are processed by the shared workers
+     */
+    IBulkheadRouter getBulkheadRouter();
+
+
+    /**
+     * Get the request timeout policy of the server
+     *
+     * @return the request timeout policy or null if the processing of the requests has no deadline
+     */
+    IRequestTimeoutPolicy getRequestTimeoutPolicy();
+
+
+    /**
+     * Get the tracer of the server
+     *
+     * @return the tracer, the disabled {@link com.github.toolarium.network.server.trace.NoopTracer} by default
+     */
+    ITracer getTracer();
+
     
     /**
      * Get the protocol
@@ -0,0 +1,85 @@
+/*
+ * IMultipartPart.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Map;
+
+
+/**
+ * Defines a part of a <code>multipart/form-data</code> request body (RFC 7578).
+ *
+ * @author patrick
+ */
+public interface IMultipartPart {
+
+    /**
+     * Get the form field name of the content disposition
+     *
+     * @return the name or null
+     */
+    String getName();
+
+
+    /**
+     * Get the file name of the content disposition
+     *
+     * @return the file name or null if the part is no file
+     */
+    String getFilename();
+
+
+    /**
+     * Get the content type of the part
+     *
+     * @return the content type or null
+     */
+    String getContentType();
+
+
+    /**
+     * Get the headers of the part, the lookup is case insensitive
+     *
+     * @return the headers
+     */
+    Map<String, String> getHeaders();
+
+
+    /**
+     * Get the size of the content in bytes
+     *
+     * @return the size
+     */
+    long getSize();
+
+
+    /**
+     * Get the file which contains the content
+     *
+     * @return the file or null if the content is kept in memory
+     */
+    Path getFile();
+
+
+    /**
+     * Get the content as UTF-8 string. Intended for small form fields, the content of a file part is read into memory.
+     *
+     * @return the content as string or null if the content was not stored
+     * @throws IOException In case of an I/O error
+     */
+    String getValue() throws IOException;
+
+
+    /**
+     * Open the content
+     *
+     * @return the content as input stream
+     * @throws IOException In case of an I/O error or if the content was not stored
+     */
+    InputStream getInputStream() throws IOException;
+}
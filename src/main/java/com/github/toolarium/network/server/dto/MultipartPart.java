@@ -0,0 +1,210 @@
+/*
+ * MultipartPart.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+
+/**
+ * Implements the {@link IMultipartPart}.
+ *
+ * @author patrick
+ */
+public class MultipartPart implements IMultipartPart, Serializable {
+    private static final long serialVersionUID = 4690131528706213905L;
+    private HttpHeaders headers;
+    private String name;
+    private String filename;
+    private long size;
+    private String file;
+    private byte[] content;
+
+
+    /**
+     * Constructor for MultipartPart
+     */
+    public MultipartPart() {
+        headers = new HttpHeaders();
+        name = null;
+        filename = null;
+        size = 0;
+        file = null;
+        content = null;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getName()
+     */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * Set the form field name
+     *
+     * @param name the name
+     * @return the multipart part
+     */
+    public MultipartPart setName(String name) {
+        this.name = name;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getFilename()
+     */
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+
+    /**
+     * Set the file name
+     *
+     * @param filename the file name
+     * @return the multipart part
+     */
+    public MultipartPart setFilename(String filename) {
+        this.filename = filename;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getContentType()
+     */
+    @Override
+    public String getContentType() {
+        return headers.getFirst(HttpHeaderUtil.CONTENT_TYPE);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getHeaders()
+     */
+    @Override
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getSize()
+     */
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+
+    /**
+     * Set the size
+     *
+     * @param size the size
+     * @return the multipart part
+     */
+    public MultipartPart setSize(long size) {
+        this.size = size;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getFile()
+     */
+    @Override
+    public Path getFile() {
+        if (file == null) {
+            return null;
+        }
+
+        return Paths.get(file);
+    }
+
+
+    /**
+     * Set the file which contains the content
+     *
+     * @param file the file
+     * @return the multipart part
+     */
+    public MultipartPart setFile(Path file) {
+        if (file == null) {
+            this.file = null;
+        } else {
+            this.file = file.toString();
+        }
+        return this;
+    }
+
+
+    /**
+     * Set the content which is kept in memory
+     *
+     * @param content the content
+     * @return the multipart part
+     */
+    public MultipartPart setContent(byte[] content) {
+        this.content = content;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getValue()
+     */
+    @Override
+    public String getValue() throws IOException {
+        if (content != null) {
+            return new String(content, StandardCharsets.UTF_8);
+        }
+
+        if (file != null) {
+            return new String(Files.readAllBytes(getFile()), StandardCharsets.UTF_8);
+        }
+
+        return null;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.dto.IMultipartPart#getInputStream()
+     */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+
+        if (file != null) {
+            return Files.newInputStream(getFile());
+        }
+
+        throw new IOException("The content of the part [" + name + "] was not stored!");
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "MultipartPart [name=" + name + ", filename=" + filename + ", contentType=" + getContentType() + ", size=" + size + ", file=" + file + "]";
+    }
+}
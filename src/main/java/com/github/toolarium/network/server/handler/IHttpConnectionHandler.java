@@ -33,5 +33,15 @@ public interface IHttpConnectionHandler extends Runnable {
               IHttpServerInformation httpServerInformation,
               IHttpServerLogger httpServerLogger,
               IHttpAccessLogger httpAccessLogger);
-    
+
+
+    /**
+     * Set the time stamp when the connection was accepted, it's the start of the request timing. A connection handler
+     * which don't record the request timing can ignore it.
+     *
+     * @param acceptTimestamp the time stamp of {@link System#nanoTime()}
+     */
+    default void setAcceptTimestamp(long acceptTimestamp) {
+        // NOP
+    }
 }
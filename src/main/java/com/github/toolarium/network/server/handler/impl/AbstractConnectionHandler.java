@@ -14,6 +14,9 @@ import com.github.toolarium.network.server.handler.impl.parser.HttpRequestParser
 import com.github.toolarium.network.server.util.HttpStatusUtil;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.util.Map;
 
 
@@ -27,8 +30,35 @@ public abstract class AbstractConnectionHandler implements IHttpConnectionHandle
      * Default maximum request body size: 10 MB.
      */
     static final int DEFAULT_MAX_BODY_SIZE = 10 * 1024 * 1024;
+
+    /**
+     * Default maximum multipart request body size: 1 GB.
+     */
+    static final long DEFAULT_MAX_MULTIPART_SIZE = 1024L * 1024 * 1024;
     private static final String CRLF = System.lineSeparator();
     private int maxBodySize = DEFAULT_MAX_BODY_SIZE;
+    private long maxMultipartSize = DEFAULT_MAX_MULTIPART_SIZE;
+    private Path multipartDirectory;
+    private long acceptTimestamp;
+
+
+    /**
+     * @see com.github.toolarium.network.server.handler.IHttpConnectionHandler#setAcceptTimestamp(long)
+     */
+    @Override
+    public void setAcceptTimestamp(long acceptTimestamp) {
+        this.acceptTimestamp = acceptTimestamp;
+    }
+
+
+    /**
+     * Get the time stamp when the connection was accepted
+     *
+     * @return the time stamp of {@link System#nanoTime()} or 0 if it's unknown
+     */
+    public long getAcceptTimestamp() {
+        return acceptTimestamp;
+    }
 
 
     /**
@@ -50,6 +80,47 @@ public abstract class AbstractConnectionHandler implements IHttpConnectionHandle
         return maxBodySize;
     }
 
+
+    /**
+     * Set the maximum allowed size of a <code>multipart/form-data</code> request body in bytes. The parts are streamed
+     * and not kept in memory, so the limit can be much higher than the max body size.
+     *
+     * @param maxMultipartSize the max multipart body size in bytes
+     */
+    public void setMaxMultipartSize(long maxMultipartSize) {
+        this.maxMultipartSize = maxMultipartSize;
+    }
+
+
+    /**
+     * Get the maximum allowed size of a <code>multipart/form-data</code> request body in bytes.
+     *
+     * @return the max multipart body size in bytes
+     */
+    public long getMaxMultipartSize() {
+        return maxMultipartSize;
+    }
+
+
+    /**
+     * Set the directory of the temporary files of the multipart parts.
+     *
+     * @param multipartDirectory the directory or null for the default temporary directory
+     */
+    public void setMultipartDirectory(Path multipartDirectory) {
+        this.multipartDirectory = multipartDirectory;
+    }
+
+
+    /**
+     * Get the directory of the temporary files of the multipart parts.
+     *
+     * @return the directory or null for the default temporary directory
+     */
+    public Path getMultipartDirectory() {
+        return multipartDirectory;
+    }
+
     
     /**
      * Read the first line
@@ -103,6 +174,47 @@ public abstract class AbstractConnectionHandler implements IHttpConnectionHandle
     }
 
     
+    /**
+     * Read in the body as bytes and decode it with the body charset, see {@link #getBodyCharset()}
+     *
+     * @param input the input stream
+     * @param contentLength the content length in bytes
+     * @return the body
+     * @throws IOException In case of an I/O error
+     */
+    protected String readInBody(InputStream input, int contentLength) throws IOException {
+        if (input == null || contentLength <= 0) {
+            return "";
+        }
+
+        if (contentLength > maxBodySize) {
+            throw new IOException("Request body too large: " + contentLength + " exceeds limit of " + maxBodySize + " bytes");
+        }
+
+        final byte[] body = new byte[contentLength];
+        int length = 0;
+        while (length < contentLength) {
+            final int n = input.read(body, length, contentLength - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+
+        return new String(body, 0, length, getBodyCharset());
+    }
+
+
+    /**
+     * Get the charset which maps the bytes of the request body and of the response body to a string
+     *
+     * @return the default charset
+     */
+    protected Charset getBodyCharset() {
+        return Charset.defaultCharset();
+    }
+
+    
     /**
      * create a http response
      * @param request the reuqest
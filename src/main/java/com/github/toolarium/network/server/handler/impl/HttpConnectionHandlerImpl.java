@@ -7,20 +7,41 @@ package com.github.toolarium.network.server.handler.impl;
 
 import com.github.toolarium.common.formatter.TimeDifferenceFormatter;
 import com.github.toolarium.common.util.StringUtil;
+import com.github.toolarium.network.server.bulkhead.IBulkhead;
+import com.github.toolarium.network.server.bulkhead.IBulkheadRouter;
+import com.github.toolarium.network.server.bulkhead.RejectionPolicy;
+import com.github.toolarium.network.server.deadline.IRequestTimeoutPolicy;
+import com.github.toolarium.network.server.deadline.RequestDeadlineTimer;
+import com.github.toolarium.network.server.dto.HttpReponse;
 import com.github.toolarium.network.server.dto.HttpRequest;
+import com.github.toolarium.network.server.dto.HttpRequestTiming;
 import com.github.toolarium.network.server.dto.IHttpRequest;
 import com.github.toolarium.network.server.dto.IHttpResponse;
 import com.github.toolarium.network.server.dto.IHttpServerInformation;
 import com.github.toolarium.network.server.logger.IHttpAccessLogger;
 import com.github.toolarium.network.server.logger.IHttpServerLogger;
+import com.github.toolarium.network.server.multipart.IMultipartConsumer;
+import com.github.toolarium.network.server.multipart.MultipartParser;
+import com.github.toolarium.network.server.multipart.TempFileMultipartConsumer;
+import com.github.toolarium.network.server.ratelimit.IRateLimiter;
+import com.github.toolarium.network.server.scheduler.IRequestScheduler;
+import com.github.toolarium.network.server.scheduler.RequestPriority;
 import com.github.toolarium.network.server.service.IHttpService;
+import com.github.toolarium.network.server.trace.ITracer;
+import com.github.toolarium.network.server.trace.NoopTracer;
 import com.github.toolarium.network.server.util.HttpHeaderUtil;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,12 +54,44 @@ import org.slf4j.LoggerFactory;
  */
 public class HttpConnectionHandlerImpl extends AbstractConnectionHandler {
     private static final Logger LOG = LoggerFactory.getLogger(HttpConnectionHandlerImpl.class);
+    private static final String HTTP_1_0 = "HTTP/1.0";
+    private static final String CONTINUE_EXPECTATION = "100-continue";
+    private static final String CRLF = System.lineSeparator();
+    private static final byte[] TOO_MANY_REQUESTS_RESPONSE = ("HTTP/1.1 429 TOO MANY REQUESTS" + CRLF
+                                                              + HttpHeaderUtil.CONTENT_LENGTH + ": 0" + CRLF
+                                                              + "Retry-After: 1" + CRLF
+                                                              + HttpHeaderUtil.CONNECTION + ": close" + CRLF
+                                                              + CRLF).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] SERVICE_UNAVAILABLE_RESPONSE = ("HTTP/1.1 503 SERVICE UNAVAILABLE" + CRLF
+                                                                + HttpHeaderUtil.CONTENT_LENGTH + ": 0" + CRLF
+                                                                + "Retry-After: 1" + CRLF
+                                                                + HttpHeaderUtil.CONNECTION + ": close" + CRLF
+                                                                + CRLF).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GATEWAY_TIMEOUT_RESPONSE = ("HTTP/1.1 504 GATEWAY TIMEOUT" + CRLF
+                                                            + HttpHeaderUtil.CONTENT_LENGTH + ": 0" + CRLF
+                                                            + HttpHeaderUtil.CONNECTION + ": close" + CRLF
+                                                            + CRLF).getBytes(StandardCharsets.US_ASCII);
+    private static final long GATEWAY_TIMEOUT_WRITE_TIMEOUT = 1000L;
     private static AtomicLong counter = new AtomicLong();
     private Socket clientSocket;
     private IHttpService httpService;
     private IHttpServerInformation httpServerInformation;
     private IHttpServerLogger httpServerLogger;
     private IHttpAccessLogger httpAccessLogger;
+    private InputStream bodyInputStream;
+    private IMultipartConsumer multipartConsumer;
+    private long dequeueTimestamp;
+    private long startTimestamp;
+    private String logId = "";
+    private String logHeader = "";
+    private BufferedReader reader;
+    private BufferedWriter writer;
+    private HttpRequest request;
+    private final AtomicBoolean responseCommitted = new AtomicBoolean();
+    private final Object deadlineLock = new Object();
+    private volatile boolean deadlineExpired;
+    private Thread processingThread;
+    private ScheduledFuture<?> deadline;
 
 
     /**
@@ -59,70 +112,352 @@ public class HttpConnectionHandlerImpl extends AbstractConnectionHandler {
      * @see java.lang.Runnable#run()
      */
     public void run() {
+        if (request != null) {
+            // the processing of a request which was classified by the request scheduler or assigned to a bulkhead
+            request.getTiming().setDispatchTimestamp(System.nanoTime());
+            handleRequest(false);
+            return;
+        }
+
+        dequeueTimestamp = System.nanoTime();
         long id = counter.incrementAndGet();
         if (clientSocket == null || httpService == null) {
             return;
         }
 
-        BufferedReader reader = null;
-        BufferedWriter writer = null;
-
-        final long startTimestamp = System.currentTimeMillis();
-        String logId = "";
-        String logHeader = "";
+        startTimestamp = System.currentTimeMillis();
         if (LOG.isDebugEnabled()) {
             logId = Long.toString(id);
             logHeader = " > #" + logId + " http ";
         }
-        
+
+        handleRequest(true);
+    }
+
+
+    /**
+     * Handle the request. With a bulkhead router or a request scheduler the intake reads the request headers and
+     * queues the processing in the worker pool of the bulkhead or in the queue of the priority class, this handler is
+     * then run again by the bulkhead or the scheduler. A request which is assigned to a bulkhead bypasses the scheduler.
+     *
+     * @param intake true to read the request headers, false to continue with a classified request
+     */
+    protected void handleRequest(boolean intake) {
+        IHttpResponse response = null;
+        Throwable error = null;
+        boolean scheduled = false;
+        final ITracer tracer = getTracer();
+
         try {
-            if (LOG.isDebugEnabled()) {
-                LOG.debug("Handling server request #" + logId + ":");
+            if (intake) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("Handling server request #" + logId + ":");
+                }
+                final LineBoundedReader lineBoundedReader = new LineBoundedReader(clientSocket.getInputStream(), Charset.defaultCharset());
+                reader = new BufferedReader(lineBoundedReader);
+                bodyInputStream = lineBoundedReader.getInputStream();
+                writer = new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream()));
+                request = readHttpRequestHeader(logHeader, reader);
+                if (tracer.isEnabled()) {
+                    startSpan(tracer, request);
+                }
+
+                if (!tryAcquire(logHeader, request)) {
+                    response = writeRejectResponse(request, 429, TOO_MANY_REQUESTS_RESPONSE);
+                    return;
+                }
+
+                final IBulkhead bulkhead = selectBulkhead(request);
+                final IRequestScheduler requestScheduler = getRequestScheduler();
+                if (bulkhead != null) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(StringUtil.getInstance().width(logHeader + "bulkhead", 34, ' ', false) + logOutputWrapper(bulkhead.getName()));
+                    }
+
+                    scheduled = bulkhead.execute(this);
+                    if (scheduled || bulkhead.getRejectionPolicy() != RejectionPolicy.CALLER_RUNS) {
+                        if (!scheduled && bulkhead.getRejectionPolicy() == RejectionPolicy.REJECT) {
+                            response = writeRejectResponse(request, 503, SERVICE_UNAVAILABLE_RESPONSE);
+                        }
+                        return;
+                    }
+                } else if (requestScheduler != null) {
+                    final RequestPriority priority = requestScheduler.classify(request);
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug(StringUtil.getInstance().width(logHeader + "priority", 34, ' ', false) + logOutputWrapper("" + priority));
+                    }
+
+                    scheduled = requestScheduler.execute(this, priority);
+                    if (!scheduled) {
+                        response = writeRejectResponse(request, 503, SERVICE_UNAVAILABLE_RESPONSE);
+                    }
+                    return;
+                }
             }
-            reader = new BufferedReader(new InputStreamReader(clientSocket.getInputStream()));
-            IHttpRequest request = readHttpRequest(logHeader, reader);
-            if (httpAccessLogger != null) {
-                httpAccessLogger.requestReceived(httpServerInformation, request);
+
+            response = checkContentLength(logHeader, request);
+            if (response == null) {
+                response = processExpectation(logHeader, writer, request);
             }
-            
-            IHttpResponse response = httpService.processRequest(httpServerLogger, request); 
-            if (response != null) {
-                writer = new BufferedWriter(new OutputStreamWriter(clientSocket.getOutputStream()));
+
+            if (response == null) {
+                response = processHttpRequest(logHeader, reader, writer, request);
+            } else {
+                if (httpAccessLogger != null) {
+                    httpAccessLogger.requestReceived(httpServerInformation, request);
+                }
+
                 writeHttpResponse(logHeader, writer, response);
             }
-            
+
+            if (response != null && request.getTiming().getLastByteWrittenTimestamp() == 0) {
+                request.getTiming().setLastByteWrittenTimestamp(System.nanoTime());
+            }
+
             if (httpAccessLogger != null) {
                 httpAccessLogger.responseSent(httpServerInformation, request, response);
             }
         } catch (IOException e) {
+            error = e;
             if (LOG.isDebugEnabled()) {
                 LOG.debug("I/O error handling request #" + logId + ": " + e.getMessage(), e);
             }
+        } catch (RuntimeException e) {
+            error = e;
+            throw e;
         } finally {
-            if (writer != null) {
-                try {
-                    writer.close();
-                } catch (IOException e) {
-                    // NOP
-                }
+            if (!scheduled) {
+                close(tracer, response, error);
             }
-            if (clientSocket != null) {
-                try {
-                    clientSocket.close();
-                } catch (IOException e) {
-                    // NOP
-                }
+        }
+    }
+
+
+    /**
+     * End the span of the request and close the connection
+     *
+     * @param tracer the tracer
+     * @param response the response or null
+     * @param error the error or null
+     */
+    private void close(ITracer tracer, IHttpResponse response, Throwable error) {
+        if (request != null && tracer.isEnabled()) {
+            endSpan(tracer, request, response, error);
+        }
+        if (multipartConsumer != null) {
+            try {
+                multipartConsumer.close();
+            } catch (IOException e) {
+                // NOP
             }
+            multipartConsumer = null;
         }
-        
+
+        // the connection of an expired request is closed after the gateway timeout response is written
+        boolean expired;
+        synchronized (deadlineLock) {
+            expired = deadlineExpired;
+        }
+
+        if (writer != null && !expired) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // NOP
+            }
+        }
+        if (clientSocket != null && !expired) {
+            closeClientSocket();
+        }
+
         if (LOG.isDebugEnabled()) {
             String duration = new TimeDifferenceFormatter(false, false).formatAsString(System.currentTimeMillis() - startTimestamp);
             LOG.debug(StringUtil.getInstance().width(logHeader + "process duration", 34, ' ', false) + logOutputWrapper(duration)); 
         }
     }
 
-    
+
+    /**
+     * Process the request within the deadline of the request timeout policy, the deadline starts after the request
+     * body is read. In case the deadline expires, the timer answers the request with <code>504 Gateway Timeout</code>,
+     * interrupts the processing thread and closes the connection; the result of the http service is discarded.
+     *
+     * @param logHeader the log header
+     * @param writer the writer
+     * @param request the request
+     * @return the response for the access logger
+     * @throws IOException In case of an I/O error
+     */
+    protected IHttpResponse processHttpRequestWithDeadline(String logHeader, BufferedWriter writer, HttpRequest request) throws IOException {
+        final IRequestTimeoutPolicy requestTimeoutPolicy = getRequestTimeoutPolicy();
+        long timeout = 0;
+        if (requestTimeoutPolicy != null) {
+            timeout = requestTimeoutPolicy.getTimeout(request);
+        }
+
+        if (timeout <= 0) {
+            return invokeHttpService(logHeader, writer, request);
+        }
+
+        IHttpResponse response = null;
+        synchronized (deadlineLock) {
+            processingThread = Thread.currentThread();
+            deadline = RequestDeadlineTimer.getInstance().schedule(this::expireDeadline, timeout);
+        }
+
+        try {
+            response = invokeHttpService(logHeader, writer, request);
+        } catch (IOException | RuntimeException e) {
+            if (!deadlineExpired) {
+                throw e;
+            }
+
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Processing of request #" + logId + " aborted after deadline: " + e.getMessage());
+            }
+        } finally {
+            synchronized (deadlineLock) {
+                deadline.cancel(false);
+                processingThread = null;
+
+                // clear a pending interrupt of the deadline before the worker is reused
+                Thread.interrupted();
+            }
+        }
+
+        if (deadlineExpired) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(StringUtil.getInstance().width(logHeader + "deadline expired", 34, ' ', false) + logOutputWrapper(timeout + "ms"));
+            }
+            return createRejectResponse(request, 504).addHeader(HttpHeaderUtil.CONNECTION, "close");
+        }
+
+        return response;
+    }
+
+
+    /**
+     * Expire the deadline of the request, it's called by the deadline timer and must not block. In case the response
+     * is not already committed, the pre-encoded <code>504 Gateway Timeout</code> is written outside of the timer thread.
+     * After the write the processing thread is interrupted and the connection is closed, which aborts a blocking read or
+     * write of the processing thread; a slow client which doesn't take the response is closed after the write timeout.
+     */
+    protected void expireDeadline() {
+        synchronized (deadlineLock) {
+            if (!responseCommitted.compareAndSet(false, true)) {
+                return;
+            }
+
+            deadlineExpired = true;
+        }
+
+        final ScheduledFuture<?> writeTimeout = RequestDeadlineTimer.getInstance().schedule(this::closeClientSocket, GATEWAY_TIMEOUT_WRITE_TIMEOUT);
+        RequestDeadlineTimer.getInstance().execute(() -> writeGatewayTimeout(writeTimeout));
+    }
+
+
+    /**
+     * Write the pre-encoded <code>504 Gateway Timeout</code> of an expired request, then interrupt the processing thread
+     * and close the connection. The processing thread is interrupted only after the write: an interrupted thread which
+     * does I/O on the client channel closes the channel.
+     *
+     * @param writeTimeout the write timeout which closes the connection of a slow client
+     */
+    private void writeGatewayTimeout(ScheduledFuture<?> writeTimeout) {
+        try {
+            clientSocket.getOutputStream().write(GATEWAY_TIMEOUT_RESPONSE);
+            clientSocket.getOutputStream().flush();
+            request.getTiming().setLastByteWrittenTimestamp(System.nanoTime());
+        } catch (IOException e) {
+            // NOP
+        } finally {
+            writeTimeout.cancel(false);
+            synchronized (deadlineLock) {
+                if (processingThread != null) {
+                    processingThread.interrupt();
+                }
+            }
+
+            closeClientSocket();
+        }
+    }
+
+
+    /**
+     * Close the client socket
+     */
+    private void closeClientSocket() {
+        try {
+            clientSocket.close();
+        } catch (IOException e) {
+            // NOP
+        }
+    }
+
+
+    /**
+     * Commit the response before the first byte of the final response is written: the response is then no longer
+     * replaced by a <code>504 Gateway Timeout</code> in case the deadline expires.
+     *
+     * @return true if the response can be written, false if the deadline is already expired
+     */
+    protected boolean commitResponse() {
+        return responseCommitted.compareAndSet(false, true);
+    }
+
+
+    /**
+     * Check if the deadline of the request is expired
+     *
+     * @return true if the request was answered with <code>504 Gateway Timeout</code>
+     */
+    protected boolean isDeadlineExpired() {
+        return deadlineExpired;
+    }
+
     
+    /**
+     * Process the http request after the request headers are read: read the body, call the http service and write the
+     * response within the deadline, see {@link #processHttpRequestWithDeadline(String, BufferedWriter, HttpRequest)}.
+     *
+     * @param logHeader the log header
+     * @param reader the reader
+     * @param writer the writer
+     * @param request the request without body
+     * @return the response for the access logger
+     * @throws IOException In case of an I/O error
+     */
+    protected IHttpResponse processHttpRequest(String logHeader, BufferedReader reader, BufferedWriter writer, HttpRequest request) throws IOException {
+        readHttpRequestBody(logHeader, reader, request);
+        request.getTiming().setBodyCompleteTimestamp(System.nanoTime());
+        if (httpAccessLogger != null) {
+            httpAccessLogger.requestReceived(httpServerInformation, request);
+        }
+
+        return processHttpRequestWithDeadline(logHeader, writer, request);
+    }
+
+
+    /**
+     * Call the http service and write the response, in case the deadline of the request is not expired.
+     *
+     * @param logHeader the log header
+     * @param writer the writer
+     * @param request the request
+     * @return the response for the access logger
+     * @throws IOException In case of an I/O error
+     */
+    protected IHttpResponse invokeHttpService(String logHeader, BufferedWriter writer, HttpRequest request) throws IOException {
+        final IHttpResponse response = httpService.processRequest(httpServerLogger, request);
+        request.getTiming().setServiceReturnTimestamp(System.nanoTime());
+        if (response != null && commitResponse()) {
+            writeHttpResponse(logHeader, writer, response);
+        }
+
+        return response;
+    }
+
+
     /**
      * Read the http request
      *
@@ -132,7 +467,23 @@ public class HttpConnectionHandlerImpl extends AbstractConnectionHandler {
      * @throws IOException In case of an I/O error
      */
     protected IHttpRequest readHttpRequest(String logHeader, BufferedReader reader) throws IOException {
-        HttpRequest request = new HttpRequest();
+        HttpRequest request = readHttpRequestHeader(logHeader, reader);
+        readHttpRequestBody(logHeader, reader, request);
+        request.getTiming().setBodyCompleteTimestamp(System.nanoTime());
+        return request;
+    }
+
+
+    /**
+     * Read the request line and the headers of the http request
+     *
+     * @param logHeader the log header
+     * @param reader the reader
+     * @return the http request without body
+     * @throws IOException In case of an I/O error
+     */
+    protected HttpRequest readHttpRequestHeader(String logHeader, BufferedReader reader) throws IOException {
+        HttpRequest request = createHttpRequest();
         String firstLine = readInFirstLine(reader, request);
         
         if (LOG.isDebugEnabled()) {
@@ -146,21 +497,237 @@ public class HttpConnectionHandlerImpl extends AbstractConnectionHandler {
             LOG.debug(StringUtil.getInstance().width(logHeader + "request headers", 34, ' ', false) + logOutputWrapper("" + request.getHeaders()));
         }
 
-        if (request.containsHeader(HttpHeaderUtil.CONTENT_LENGTH)) {
-            int length;
-            try {
-                length = Integer.parseInt(request.getHeader(HttpHeaderUtil.CONTENT_LENGTH).trim());
-            } catch (NumberFormatException e) {
-                throw new IOException("Invalid Content-Length header: " + request.getHeader(HttpHeaderUtil.CONTENT_LENGTH));
+        request.getTiming().setHeadersCompleteTimestamp(System.nanoTime());
+        return request;
+    }
+
+
+    /**
+     * Create the http request with the time stamps of the accepted connection: the wall clock request time stamp is
+     * derived from the accept time stamp, so it includes the queue wait.
+     *
+     * @return the http request
+     */
+    protected HttpRequest createHttpRequest() {
+        long startTimestamp = dequeueTimestamp;
+        if (startTimestamp == 0) {
+            startTimestamp = System.nanoTime();
+        }
+
+        long acceptTimestamp = getAcceptTimestamp();
+        if (acceptTimestamp == 0 || acceptTimestamp > startTimestamp) {
+            acceptTimestamp = startTimestamp;
+        }
+
+        final long age = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - acceptTimestamp);
+        return new HttpRequest().setTiming(new HttpRequestTiming(acceptTimestamp, startTimestamp))
+                                .setRequestTimestamp(new Date(System.currentTimeMillis() - age));
+    }
+
+
+    /**
+     * Check the rate limit of the server for the request
+     *
+     * @param logHeader the log header
+     * @param request the request without body
+     * @return true if the request is permitted, false if it is limited
+     */
+    protected boolean tryAcquire(String logHeader, IHttpRequest request) {
+        final IRateLimiter rateLimiter;
+        if (httpServerInformation != null) {
+            rateLimiter = httpServerInformation.getRateLimiter();
+        } else {
+            rateLimiter = null;
+        }
+
+        if (rateLimiter == null || rateLimiter.tryAcquire(clientSocket, request)) {
+            return true;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(StringUtil.getInstance().width(logHeader + "rate limit", 34, ' ', false) + logOutputWrapper("" + clientSocket.getInetAddress()));
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Write a pre-encoded response to reject a request, e.g. <code>429 Too Many Requests</code> in case of a rate
+     * limit or <code>503 Service Unavailable</code> in case the queue of the priority class is full. The http service
+     * is not called.
+     *
+     * @param request the request without body
+     * @param status the status of the pre-encoded response
+     * @param encodedResponse the pre-encoded response
+     * @return the written response in case there is an access logger or a tracer to notify, otherwise null
+     * @throws IOException In case of an I/O error
+     */
+    protected IHttpResponse writeRejectResponse(HttpRequest request, int status, byte[] encodedResponse) throws IOException {
+        clientSocket.getOutputStream().write(encodedResponse);
+        clientSocket.getOutputStream().flush();
+        request.getTiming().setLastByteWrittenTimestamp(System.nanoTime());
+
+        if (httpAccessLogger == null && !getTracer().isEnabled()) {
+            return null;
+        }
+
+        final HttpReponse response = createRejectResponse(request, status).addHeader(HttpHeaderUtil.CONNECTION, "close");
+        if (httpAccessLogger != null) {
+            httpAccessLogger.requestReceived(httpServerInformation, request);
+            httpAccessLogger.responseSent(httpServerInformation, request, response);
+        }
+
+        return response;
+    }
+
+
+    /**
+     * Start the span of the request: the trace context is parsed from the request headers and the tracer is notified.
+     * An exception of the tracer don't affect the request.
+     *
+     * @param tracer the tracer
+     * @param request the request without body
+     */
+    protected void startSpan(ITracer tracer, HttpRequest request) {
+        try {
+            request.getTraceContext();
+            tracer.spanStart(httpServerInformation, request);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not start span: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * End the span of the request. An exception of the tracer don't affect the request.
+     *
+     * @param tracer the tracer
+     * @param request the request
+     * @param response the response or null
+     * @param error the error or null
+     */
+    protected void endSpan(ITracer tracer, HttpRequest request, IHttpResponse response, Throwable error) {
+        try {
+            tracer.spanEnd(httpServerInformation, request, response, error);
+        } catch (RuntimeException e) {
+            LOG.warn("Could not end span: " + e.getMessage(), e);
+        }
+    }
+
+
+    /**
+     * Check the content length of the request before the body is read: an invalid content length is rejected with 400
+     * and a content length above the max body size with 413, the body is then not read.
+     *
+     * @param logHeader the log header
+     * @param request the request without body
+     * @return null to continue with the request, otherwise the final response
+     */
+    protected IHttpResponse checkContentLength(String logHeader, HttpRequest request) {
+        int status;
+        try {
+            if (getContentLength(request) <= getBodySizeLimit(request)) {
+                return null;
             }
 
-            if (length < 0) {
-                throw new IOException("Negative Content-Length: " + length);
+            status = 413;
+        } catch (IOException e) {
+            status = 400;
+        }
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(StringUtil.getInstance().width(logHeader + "content length", 34, ' ', false) + logOutputWrapper(request.getHeaderValues(HttpHeaderUtil.CONTENT_LENGTH) + " -> " + status));
+        }
+
+        // the body was not read: the connection can't be reused
+        return createRejectResponse(request, status).addHeader(HttpHeaderUtil.CONNECTION, "close");
+    }
+
+
+    /**
+     * Handle the <code>Expect</code> header of a HTTP/1.1 request before the body is read: an unknown expectation is
+     * rejected with 417, a content length above the max body size is already rejected with 413 (see
+     * {@link #checkContentLength(String, HttpRequest)}). Otherwise the
+     * {@link IHttpService#checkExpectation(IHttpServerLogger, IHttpRequest)} can reject the request, or the interim
+     * response <code>100 Continue</code> is sent and the client continues with the body.
+     *
+     * @param logHeader the log header
+     * @param writer the writer
+     * @param request the request without body
+     * @return null to continue with the request body, otherwise the final response
+     * @throws IOException In case of an I/O error
+     */
+    protected IHttpResponse processExpectation(String logHeader, BufferedWriter writer, HttpRequest request) throws IOException {
+        final String expect = request.getHeader(HttpHeaderUtil.EXPECT);
+
+        // a HTTP/1.0 client don't understand the interim response: the expectation is ignored (RFC 9110, 10.1.1)
+        if (expect == null || HTTP_1_0.equalsIgnoreCase(request.getVersion())) {
+            return null;
+        }
+
+        IHttpResponse response = null;
+        if (!CONTINUE_EXPECTATION.equalsIgnoreCase(expect.trim())) {
+            response = createRejectResponse(request, 417);
+        } else {
+            response = httpService.checkExpectation(httpServerLogger, request);
+        }
+
+        if (response != null) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug(StringUtil.getInstance().width(logHeader + "expectation", 34, ' ', false) + logOutputWrapper(expect + " -> " + response.getStatus()));
             }
+
+            // the body was not read: the connection can't be reused
+            if (response instanceof HttpReponse) {
+                ((HttpReponse) response).addHeader(HttpHeaderUtil.CONNECTION, "close");
+            }
+            return response;
+        }
+
+        final String statusLine = getStatusLine(new HttpReponse().setVersion(request.getVersion()).setStatus(100));
+        writer.write(statusLine);
+        writer.write(System.lineSeparator());
+        writer.flush();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(StringUtil.getInstance().width(logHeader + "expectation", 34, ' ', false) + logOutputWrapper(statusLine.replace(System.lineSeparator(), "")));
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Read the body of the http request
+     *
+     * @param logHeader the log header
+     * @param reader the reader
+     * @param request the request
+     * @throws IOException In case of an I/O error
+     */
+    protected void readHttpRequestBody(String logHeader, BufferedReader reader, HttpRequest request) throws IOException {
+        final long length = getContentLength(request);
+        final String boundary = MultipartParser.getBoundary(request.getHeader(HttpHeaderUtil.CONTENT_TYPE));
+        if (boundary != null && bodyInputStream != null) {
+            readMultipartBody(logHeader, request, boundary, length);
+            return;
+        }
+
+        if (length >= 0) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(StringUtil.getInstance().width(logHeader + "read length", 34, ' ', false) + logOutputWrapper("" + length));
             }
-            String body = readInBody(reader, length);
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Request body too large: " + length + " exceeds limit of " + Integer.MAX_VALUE + " bytes");
+            }
+
+            final int contentLength = (int) length;
+            String body;
+            if (bodyInputStream != null) {
+                body = readInBody(bodyInputStream, contentLength);
+            } else {
+                body = readInBody(reader, contentLength);
+            }
             request.setBody(body);
             if (LOG.isDebugEnabled()) {
                 LOG.debug(StringUtil.getInstance().width(logHeader + "request body", 34, ' ', false) + logOutputWrapper(body));
@@ -184,49 +751,255 @@ public class HttpConnectionHandlerImpl extends AbstractConnectionHandler {
                 request.setBody(content.toString());
             }
         }
-        
-        return request;
     }
 
 
     /**
-     * Write the response
+     * Stream the parts of a multipart body to the multipart consumer
      *
      * @param logHeader the log header
-     * @param writer the writer
+     * @param request the request
+     * @param boundary the boundary
+     * @param length the content length or -1
+     * @throws IOException In case of an I/O error or an invalid multipart body
+     */
+    protected void readMultipartBody(String logHeader, HttpRequest request, String boundary, long length) throws IOException {
+        final MultipartParser parser;
+        try {
+            parser = new MultipartParser(boundary).setMaxSize(getMaxMultipartSize());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage());
+        }
+
+        multipartConsumer = createMultipartConsumer(request);
+        final int numberOfParts = parser.parse(bodyInputStream, length, multipartConsumer);
+        request.setParts(multipartConsumer.getParts());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(StringUtil.getInstance().width(logHeader + "request parts", 34, ' ', false) + logOutputWrapper(numberOfParts + ": " + request.getParts()));
+        }
+    }
+
+
+    /**
+     * Create the consumer of the multipart parts. The consumer is closed after the response was sent.
+     *
+     * @param request the request
+     * @return the multipart consumer
+     */
+    protected IMultipartConsumer createMultipartConsumer(IHttpRequest request) {
+        return new TempFileMultipartConsumer(getMultipartDirectory());
+    }
+
+
+    /**
+     * Get the max size of the request body
+     *
+     * @param request the request
+     * @return the max size in bytes
+     */
+    protected long getBodySizeLimit(HttpRequest request) {
+        if (MultipartParser.getBoundary(request.getHeader(HttpHeaderUtil.CONTENT_TYPE)) != null) {
+            return getMaxMultipartSize();
+        }
+
+        return getMaxBodySize();
+    }
+
+
+    /**
+     * Get the content length of the request
+     *
+     * @param request the request
+     * @return the content length or -1
+     * @throws IOException In case of an invalid content length
+     */
+    protected long getContentLength(HttpRequest request) throws IOException {
+        try {
+            return request.getHeaders().getContentLength();
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Content-Length header: " + request.getHeaderValues(HttpHeaderUtil.CONTENT_LENGTH));
+        }
+    }
+
+
+    /**
+     * Create the final response to reject a request before its body is read
+     *
+     * @param request the request
+     * @param status the status
+     * @return the response
+     */
+    protected HttpReponse createRejectResponse(IHttpRequest request, int status) {
+        return new HttpReponse().setVersion(request.getVersion())
+                                .setStatus(status)
+                                .addHeader(HttpHeaderUtil.CONTENT_LENGTH, "0")
+                                .setBody("");
+    }
+
+
+    /**
+     * Write the response: the status line and the headers are encoded into a pooled buffer and written together with
+     * the body, by one gathering write where the socket supports it.
+     *
+     * @param logHeader the log header
+     * @param writer the writer, it's flushed before the response is written to the socket
      * @param response the response
      * @throws IOException In case of an I/O error
      */
     protected void writeHttpResponse(String logHeader, BufferedWriter writer, IHttpResponse response) throws IOException {
-        final String statusLine = getStatusLine(response);
-        if (statusLine != null && statusLine.length() > 0) {
-            writer.write(statusLine);                    
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(StringUtil.getInstance().width(logHeader + "response", 34, ' ', false) + logOutputWrapper(statusLine.replace(System.lineSeparator(), ""))); 
-            }
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(StringUtil.getInstance().width(logHeader + "response", 34, ' ', false) + logOutputWrapper(getStatusLine(response).replace(System.lineSeparator(), "")));
+            LOG.debug(StringUtil.getInstance().width(logHeader + "response headers", 34, ' ', false) + logOutputWrapper(getHeaders(response)));
         }
 
-        final String headers = getHeaders(response);
-        if (headers != null && headers.length() > 0) {
-            writer.write(headers);                    
-            
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(StringUtil.getInstance().width(logHeader + "response headers", 34, ' ', false) + logOutputWrapper(headers)); 
-            }
+        final String body = getBodyAsByteArray(response);
+        if (LOG.isDebugEnabled() && body != null && body.length() > 0) {
+            LOG.debug(StringUtil.getInstance().width(logHeader + "response body", 34, ' ', false) + logOutputWrapper(body));
         }
 
-        writer.write(System.lineSeparator());                    
-
-        final String body = getBodyAsByteArray(response);
-        if (body != null && body.length() > 0) {
-            writer.write(body);
-            if (LOG.isDebugEnabled()) {
-                LOG.debug(StringUtil.getInstance().width(logHeader + "response body", 34, ' ', false) + logOutputWrapper(body)); 
+        if (clientSocket == null) {
+            writer.write(getStatusLine(response));
+            writer.write(getHeaders(response));
+            writer.write(System.lineSeparator());
+            if (body != null) {
+                writer.write(body);
             }
+            return;
         }
+
+        writer.flush();
+        byte[] bodyBytes = null;
+        if (body != null) {
+            bodyBytes = body.getBytes(getBodyCharset());
+        }
+
+        final HttpResponseWriter responseWriter = HttpResponseWriter.getInstance();
+        responseWriter.write(clientSocket, responseWriter.encodeHead(response), bodyBytes);
     }
 
     
+    /**
+     * Get the client socket
+     *
+     * @return the client socket
+     */
+    protected Socket getClientSocket() {
+        return clientSocket;
+    }
+
+
+    /**
+     * Get the raw input stream of the request body, which starts after the request headers.
+     *
+     * @return the input stream of the request body
+     */
+    protected InputStream getBodyInputStream() {
+        return bodyInputStream;
+    }
+
+
+    /**
+     * Get the http service
+     *
+     * @return the http service
+     */
+    protected IHttpService getHttpService() {
+        return httpService;
+    }
+
+
+    /**
+     * Get the http server information
+     *
+     * @return the http server information
+     */
+    protected IHttpServerInformation getHttpServerInformation() {
+        return httpServerInformation;
+    }
+
+
+    /**
+     * Get the http server logger
+     *
+     * @return the http server logger
+     */
+    protected IHttpServerLogger getHttpServerLogger() {
+        return httpServerLogger;
+    }
+
+
+    /**
+     * Get the request scheduler of the server
+     *
+     * @return the request scheduler or null if the requests are processed in FIFO order
+     */
+    protected IRequestScheduler getRequestScheduler() {
+        if (httpServerInformation == null) {
+            return null;
+        }
+
+        return httpServerInformation.getRequestScheduler();
+    }
+
+
+    /**
+     * Select the bulkhead of the request
+     *
+     * @param request the request without body
+     * @return the bulkhead or null to process the request by the current worker
+     */
+    protected IBulkhead selectBulkhead(IHttpRequest request) {
+        if (httpServerInformation == null) {
+            return null;
+        }
+
+        final IBulkheadRouter bulkheadRouter = httpServerInformation.getBulkheadRouter();
+        if (bulkheadRouter == null) {
+            return null;
+        }
+
+        return bulkheadRouter.select(request);
+    }
+
+
+    /**
+     * Get the request timeout policy of the server
+     *
+     * @return the request timeout policy or null
+     */
+    protected IRequestTimeoutPolicy getRequestTimeoutPolicy() {
+        if (httpServerInformation == null) {
+            return null;
+        }
+
+        return httpServerInformation.getRequestTimeoutPolicy();
+    }
+
+
+    /**
+     * Get the tracer of the server
+     *
+     * @return the tracer, not null
+     */
+    protected ITracer getTracer() {
+        if (httpServerInformation == null) {
+            return NoopTracer.getInstance();
+        }
+
+        return httpServerInformation.getTracer();
+    }
+
+
+    /**
+     * Get the http access logger
+     *
+     * @return the http access logger or null
+     */
+    protected IHttpAccessLogger getHttpAccessLogger() {
+        return httpAccessLogger;
+    }
+
+
     /**
      * Log output wrapper
      *
@@ -0,0 +1,216 @@
+/*
+ * HttpResponseWriter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.handler.impl;
+
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.util.HttpStatusUtil;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+
+/**
+ * Writes a http response to a socket. The status line and the headers are encoded into a pooled byte buffer of the
+ * current thread; the head and the body are written by one gathering write if the socket has a blocking channel,
+ * otherwise by one write of the output stream.
+ *
+ * @author patrick
+ */
+final class HttpResponseWriter {
+    private static final byte[] LINE_END = System.lineSeparator().getBytes(StandardCharsets.ISO_8859_1);
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+    private static final int MAX_POOLED_BUFFER_SIZE = 65536;
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocate(DEFAULT_BUFFER_SIZE));
+
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final HttpResponseWriter INSTANCE = new HttpResponseWriter();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private HttpResponseWriter() {
+        // NOP
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    static HttpResponseWriter getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * Encode the status line, the headers and the empty line of the response into the pooled buffer of the current
+     * thread. The buffer is valid until the next call of the same thread.
+     *
+     * @param response the response
+     * @return the buffer, ready to read
+     */
+    ByteBuffer encodeHead(IHttpResponse response) {
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+
+        buffer = put(buffer, response.getVersion());
+        buffer = put(buffer, " ");
+        buffer = put(buffer, Integer.toString(response.getStatus()));
+        buffer = put(buffer, " ");
+        buffer = put(buffer, HttpStatusUtil.getInstance().getStatusText(response.getStatus()));
+        buffer = putLineEnd(buffer);
+
+        final Map<String, String> headers = response.getHeaders();
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                buffer = put(buffer, header.getKey());
+                buffer = put(buffer, ": ");
+                buffer = put(buffer, header.getValue());
+                buffer = putLineEnd(buffer);
+            }
+        }
+
+        buffer = putLineEnd(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+
+    /**
+     * Write the head and the body. The body is not copied, except a small body for a socket without channel, which is
+     * appended to the pooled head buffer to avoid a second small write (delayed by Nagle's algorithm).
+     *
+     * @param socket the socket
+     * @param head the encoded head
+     * @param body the body or null
+     * @throws IOException In case of an I/O error
+     */
+    void write(Socket socket, ByteBuffer head, byte[] body) throws IOException {
+        ByteBuffer bodyBuffer = null;
+        if (body != null && body.length > 0) {
+            bodyBuffer = ByteBuffer.wrap(body);
+        }
+
+        final SocketChannel channel = socket.getChannel();
+        if (channel != null && channel.isBlocking()) {
+            if (bodyBuffer == null) {
+                while (head.hasRemaining()) {
+                    channel.write(head);
+                }
+            } else {
+                final ByteBuffer[] buffers = {head, bodyBuffer};
+                while (bodyBuffer.hasRemaining()) {
+                    channel.write(buffers);
+                }
+            }
+            return;
+        }
+
+        final OutputStream out = socket.getOutputStream();
+        ByteBuffer buffer = head;
+        if (bodyBuffer != null && head.remaining() + body.length <= MAX_POOLED_BUFFER_SIZE) {
+            buffer = ensureCapacity(compact(head), body.length);
+            buffer.put(body);
+            buffer.flip();
+            bodyBuffer = null;
+        }
+
+        out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        buffer.position(buffer.limit());
+        if (bodyBuffer != null) {
+            out.write(body);
+        }
+        out.flush();
+    }
+
+
+    /**
+     * Put a string as ISO-8859-1
+     *
+     * @param buffer the buffer
+     * @param value the value or null
+     * @return the buffer, a new buffer in case it had to grow
+     */
+    private ByteBuffer put(ByteBuffer buffer, String value) {
+        if (value == null) {
+            return buffer;
+        }
+
+        final int length = value.length();
+        final ByteBuffer result = ensureCapacity(buffer, length);
+        for (int i = 0; i < length; i++) {
+            final char c = value.charAt(i);
+            if (c < 256) {
+                result.put((byte) c);
+            } else {
+                result.put((byte) '?');
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Put the line end
+     *
+     * @param buffer the buffer
+     * @return the buffer, a new buffer in case it had to grow
+     */
+    private ByteBuffer putLineEnd(ByteBuffer buffer) {
+        final ByteBuffer result = ensureCapacity(buffer, LINE_END.length);
+        result.put(LINE_END);
+        return result;
+    }
+
+
+    /**
+     * Prepare a buffer which is ready to read for appending
+     *
+     * @param buffer the buffer
+     * @return the buffer, ready to put
+     */
+    private ByteBuffer compact(ByteBuffer buffer) {
+        buffer.compact();
+        return buffer;
+    }
+
+
+    /**
+     * Ensure the remaining capacity of the buffer. A grown buffer up to the max pooled size replaces the pooled buffer.
+     *
+     * @param buffer the buffer, ready to put
+     * @param length the required number of bytes
+     * @return the buffer or a new buffer with the same content
+     */
+    private ByteBuffer ensureCapacity(ByteBuffer buffer, int length) {
+        if (buffer.remaining() >= length) {
+            return buffer;
+        }
+
+        final ByteBuffer result = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+        buffer.flip();
+        result.put(buffer);
+        if (result.capacity() <= MAX_POOLED_BUFFER_SIZE) {
+            BUFFER.set(result);
+        }
+
+        return result;
+    }
+}
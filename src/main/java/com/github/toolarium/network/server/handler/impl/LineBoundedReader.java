@@ -0,0 +1,214 @@
+/*
+ * LineBoundedReader.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.handler.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+
+/**
+ * Decodes an input stream like an {@link java.io.InputStreamReader}, but one read call never decodes beyond the end of
+ * the current line. A {@link java.io.BufferedReader} on top of it holds no characters of the next line after a
+ * <code>readLine()</code>, so after the request head the not yet decoded bytes are still available as raw
+ * {@link InputStream}, see {@link #getInputStream()}.
+ *
+ * @author patrick
+ */
+final class LineBoundedReader extends Reader {
+    private static final int BUFFER_SIZE = 8192;
+    private final InputStream input;
+    private final CharsetDecoder decoder;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+
+    /**
+     * Constructor for LineBoundedReader
+     *
+     * @param input the input stream
+     * @param charset the charset
+     */
+    LineBoundedReader(InputStream input, Charset charset) {
+        this.input = input;
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.buffer = new byte[BUFFER_SIZE];
+        this.position = 0;
+        this.limit = 0;
+        this.endOfInput = false;
+    }
+
+
+    /**
+     * @see java.io.Reader#read(char[], int, int)
+     */
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        while (true) {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+
+            // decode at most up to the end of the line
+            int end = position;
+            while (end < limit) {
+                if (buffer[end++] == '\n') {
+                    break;
+                }
+            }
+
+            final ByteBuffer in = ByteBuffer.wrap(buffer, position, end - position);
+            final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+            final CoderResult result = decoder.decode(in, out, endOfInput && end == limit);
+            position = in.position();
+            final int n = out.position() - off;
+            if (n > 0) {
+                return n;
+            }
+
+            if (result.isOverflow()) {
+                // a surrogate pair don't fit into a single character
+                throw new IOException("Could not decode into a buffer of size " + len);
+            }
+
+            if (endOfInput) {
+                // incomplete sequence at the end of the input
+                position = limit;
+                return -1;
+            }
+
+            // incomplete multi byte sequence: read more data
+            compact();
+            fill();
+        }
+    }
+
+
+    /**
+     * @see java.io.Reader#ready()
+     */
+    @Override
+    public boolean ready() throws IOException {
+        return position < limit || input.available() > 0;
+    }
+
+
+    /**
+     * @see java.io.Reader#close()
+     */
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+
+    /**
+     * Get the not yet decoded bytes as input stream, followed by the remaining input
+     *
+     * @return the input stream
+     */
+    InputStream getInputStream() {
+        return new InputStream() {
+            /**
+             * @see java.io.InputStream#read()
+             */
+            @Override
+            public int read() throws IOException {
+                if (position < limit) {
+                    return buffer[position++] & 0xFF;
+                }
+
+                return input.read();
+            }
+
+            /**
+             * @see java.io.InputStream#read(byte[], int, int)
+             */
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0) {
+                    return 0;
+                }
+
+                if (position < limit) {
+                    final int n = Math.min(len, limit - position);
+                    System.arraycopy(buffer, position, b, off, n);
+                    position += n;
+                    return n;
+                }
+
+                return input.read(b, off, len);
+            }
+
+            /**
+             * @see java.io.InputStream#available()
+             */
+            @Override
+            public int available() throws IOException {
+                return (limit - position) + input.available();
+            }
+
+            /**
+             * @see java.io.InputStream#close()
+             */
+            @Override
+            public void close() throws IOException {
+                input.close();
+            }
+        };
+    }
+
+
+    /**
+     * Fill the buffer
+     *
+     * @return true if data is available
+     * @throws IOException In case of an I/O error
+     */
+    private boolean fill() throws IOException {
+        if (position == limit) {
+            position = 0;
+            limit = 0;
+        }
+
+        if (endOfInput || limit == buffer.length) {
+            return position < limit;
+        }
+
+        final int n = input.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            endOfInput = true;
+        } else {
+            limit += n;
+        }
+
+        return position < limit;
+    }
+
+
+    /**
+     * Move the remaining bytes to the beginning of the buffer
+     */
+    private void compact() {
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, limit - position);
+            limit -= position;
+            position = 0;
+        }
+    }
+}
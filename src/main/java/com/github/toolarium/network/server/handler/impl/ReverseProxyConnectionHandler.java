@@ -0,0 +1,183 @@
+/*
+ * ReverseProxyConnectionHandler.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.handler.impl;
+
+import com.github.toolarium.common.util.StringUtil;
+import com.github.toolarium.network.server.dto.HttpRequest;
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.service.ReverseProxyService;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.Charset;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Implements the connection handler of the {@link ReverseProxyService}: the request body is not read, it's streamed
+ * together with the response directly between the client and the upstream.
+ *
+ * @author patrick
+ */
+public class ReverseProxyConnectionHandler extends HttpConnectionHandlerImpl {
+    private static final Logger LOG = LoggerFactory.getLogger(ReverseProxyConnectionHandler.class);
+    private static final int BUFFER_SIZE = 8192;
+
+
+    /**
+     * @see com.github.toolarium.network.server.handler.impl.HttpConnectionHandlerImpl#processHttpRequest(java.lang.String, java.io.BufferedReader, java.io.BufferedWriter,
+     *      com.github.toolarium.network.server.dto.HttpRequest)
+     */
+    @Override
+    protected IHttpResponse processHttpRequest(String logHeader, BufferedReader reader, BufferedWriter writer, HttpRequest request) throws IOException {
+        if (!isStreaming()) {
+            return super.processHttpRequest(logHeader, reader, writer, request);
+        }
+
+        if (getHttpAccessLogger() != null) {
+            getHttpAccessLogger().requestReceived(getHttpServerInformation(), request);
+        }
+
+        // the request body is not read, it's streamed within the deadline
+        return processHttpRequestWithDeadline(logHeader, writer, request);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.handler.impl.HttpConnectionHandlerImpl#invokeHttpService(java.lang.String, java.io.BufferedWriter,
+     *      com.github.toolarium.network.server.dto.HttpRequest)
+     */
+    @Override
+    protected IHttpResponse invokeHttpService(String logHeader, BufferedWriter writer, HttpRequest request) throws IOException {
+        if (!isStreaming()) {
+            return super.invokeHttpService(logHeader, writer, request);
+        }
+
+        String protocol = null;
+        if (getHttpServerInformation() != null) {
+            protocol = getHttpServerInformation().getProtocol();
+        }
+
+        // the upstream continues the trace as child of the server span
+        if (getTracer().isEnabled()) {
+            request.getHeaders().put(HttpHeaderUtil.TRACEPARENT, request.getTraceContext().toTraceparent());
+        }
+
+        writer.flush();
+        final OutputStream client = new BufferedOutputStream(new CommittingOutputStream(getClientSocket().getOutputStream()), BUFFER_SIZE);
+        final IHttpResponse response = ((ReverseProxyService) getHttpService()).forward(request, getBodyInputStream(), getClientAddress(), protocol, client);
+        client.flush();
+
+        // the request body and the response are streamed while forwarding, it is measured as service phase
+        request.getTiming().setServiceReturnTimestamp(System.nanoTime());
+
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(StringUtil.getInstance().width(logHeader + "proxy response", 34, ' ', false) + logOutputWrapper("" + response.getStatus()));
+        }
+
+        return response;
+    }
+
+
+    /**
+     * The request body and the response body of a request which is forwarded by
+     * {@link ReverseProxyService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger, com.github.toolarium.network.server.dto.IHttpRequest)}
+     * are mapped losslessly, see {@link ReverseProxyService#BODY_CHARSET}.
+     *
+     * @see com.github.toolarium.network.server.handler.impl.AbstractConnectionHandler#getBodyCharset()
+     */
+    @Override
+    protected Charset getBodyCharset() {
+        if (getHttpService() instanceof ReverseProxyService) {
+            return ReverseProxyService.BODY_CHARSET;
+        }
+
+        return super.getBodyCharset();
+    }
+
+
+    /**
+     * Check if the request and the response are streamed between the client and the upstream
+     *
+     * @return true if the http service is a reverse proxy service
+     */
+    protected boolean isStreaming() {
+        return getHttpService() instanceof ReverseProxyService && getBodyInputStream() != null;
+    }
+
+
+    /**
+     * Get the ip address of the client
+     *
+     * @return the ip address or null
+     */
+    protected String getClientAddress() {
+        final InetAddress address = getClientSocket().getInetAddress();
+        if (address == null) {
+            return null;
+        }
+
+        return address.getHostAddress();
+    }
+
+
+    /**
+     * Commits the response before the first byte is written to the client, see {@link #commitResponse()}.
+     */
+    private class CommittingOutputStream extends FilterOutputStream {
+        private boolean committed;
+
+        /**
+         * Constructor for CommittingOutputStream
+         *
+         * @param out the output stream of the client
+         */
+        CommittingOutputStream(OutputStream out) {
+            super(out);
+            this.committed = false;
+        }
+
+        /**
+         * @see java.io.FilterOutputStream#write(int)
+         */
+        @Override
+        public void write(int b) throws IOException {
+            commit();
+            out.write(b);
+        }
+
+        /**
+         * @see java.io.FilterOutputStream#write(byte[], int, int)
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            commit();
+            out.write(b, off, len);
+        }
+
+        /**
+         * Commit the response
+         *
+         * @throws IOException In case the deadline of the request is expired
+         */
+        private void commit() throws IOException {
+            if (committed) {
+                return;
+            }
+
+            if (!commitResponse()) {
+                throw new IOException("The deadline of the request is expired!");
+            }
+            committed = true;
+        }
+    }
+}
@@ -5,10 +5,7 @@
  */
 package com.github.toolarium.network.server.handler.impl.parser;
 
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import com.github.toolarium.network.server.dto.HttpParameters;
 
 
 /**
@@ -17,27 +14,6 @@ import java.util.Map;
  * @author patrick
  */
 public class HttpRequestParser {
-    private static Map<String, String> decoderPairs = new HashMap<>();
-    
-    static {
-        decoderPairs.put("%20", " ");
-        decoderPairs.put("%3C", "<");
-        decoderPairs.put("%2C", ",");
-        decoderPairs.put("%3E", ">");
-        decoderPairs.put("%3D", "=");
-        decoderPairs.put("%3B", ";");
-        decoderPairs.put("%2B", "+");
-        decoderPairs.put("%26", "&");
-        decoderPairs.put("%40", "@");
-        decoderPairs.put("%23", "#");
-        decoderPairs.put("%24", "\\$");
-        decoderPairs.put("%5B", "[");
-        decoderPairs.put("%5D", "]");
-        decoderPairs.put("%3A", ":");
-        decoderPairs.put("%22", "\"");
-        decoderPairs.put("%3F", "\\?");
-    }
-    
     private String[] request;
 
 
@@ -75,7 +51,13 @@ public class HttpRequestParser {
             return "";
         }
         
-        return request[1].trim().split("\\?")[0];
+        final String pathWithParameters = request[1].trim();
+        final int idx = pathWithParameters.indexOf('?');
+        if (idx < 0) {
+            return pathWithParameters;
+        }
+        
+        return pathWithParameters.substring(0, idx);
     }
 
     
@@ -94,36 +76,31 @@ public class HttpRequestParser {
 
     
     /**
-     * Get parameters
+     * Get the raw (percent encoded) query without the leading '?'
      *
-     * @return the parameters
+     * @return the query or null if there is no query
      */
-    public Map<String, String> getParameters() {
+    public String getQuery() {
         if (request.length <= 1) {
-            return Collections.emptyMap();
+            return null;
         }
 
-        Map<String, String> parameters = new LinkedHashMap<>();
-        String pathWithParameters = request[1].trim();
-        if (pathWithParameters != null && !pathWithParameters.isBlank()) {
-            String[] splitPathFromParams = pathWithParameters.split("\\?");
-            if (splitPathFromParams.length > 1) {
-                String[] allParams = splitPathFromParams[1].split("&");
-                for (String singleParam: allParams) {
-                    String[] paramValuePair = singleParam.split("=");
-                    String value = "";
-                    if (paramValuePair.length > 1) {
-                        value = paramValuePair[1];
-                        for (Map.Entry<String, String> entry : decoderPairs.entrySet()) {
-                            value = value.replaceAll(entry.getKey(), entry.getValue());
-                        }
-                    }
-                    
-                    parameters.put(paramValuePair[0], value);
-                }
-            }
+        final String pathWithParameters = request[1].trim();
+        final int idx = pathWithParameters.indexOf('?');
+        if (idx < 0) {
+            return null;
         }
-        
-        return parameters;
+
+        return pathWithParameters.substring(idx + 1);
+    }
+
+    
+    /**
+     * Get parameters. The query is parsed and decoded the first time a parameter is accessed.
+     *
+     * @return the parameters
+     */
+    public HttpParameters getParameters() {
+        return new HttpParameters(getQuery());
     }
 }
@@ -6,6 +6,8 @@
 package com.github.toolarium.network.server.impl;
 
 import com.github.toolarium.network.server.IHttpServer;
+import com.github.toolarium.network.server.bulkhead.IBulkheadRouter;
+import com.github.toolarium.network.server.deadline.IRequestTimeoutPolicy;
 import com.github.toolarium.network.server.dto.HttpServerInformation;
 import com.github.toolarium.network.server.dto.IHttpServerInformation;
 import com.github.toolarium.network.server.handler.IHttpConnectionHandler;
@@ -13,12 +15,18 @@ import com.github.toolarium.network.server.logger.IHttpAccessLogger;
 import com.github.toolarium.network.server.logger.IHttpServerLogger;
 import com.github.toolarium.network.server.logger.impl.ConsoleHttpAccessLogger;
 import com.github.toolarium.network.server.logger.impl.ConsoleHttpServerLogger;
+import com.github.toolarium.network.server.ratelimit.IRateLimiter;
+import com.github.toolarium.network.server.scheduler.IRequestScheduler;
 import com.github.toolarium.network.server.service.IHttpService;
+import com.github.toolarium.network.server.trace.ITracer;
+import com.github.toolarium.network.server.util.UnixDomainSocketUtil;
 import com.github.toolarium.network.util.NetworkUtil;
 import com.github.toolarium.security.ssl.util.SSLUtil;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -47,6 +55,8 @@ public class HttpServerImpl implements IHttpServer {
     static final int DEFAULT_WORKER_POOL_SIZE = 100;
     private static final Logger LOG = LoggerFactory.getLogger(HttpServerImpl.class);
     private ServerSocket serverSocket;
+    private ServerSocketChannel unixDomainServerSocketChannel;
+    private String unixDomainSocketPath;
     private ExecutorService mainExecutor;
     private ExecutorService executor;
     private volatile boolean run;
@@ -63,6 +73,8 @@ public class HttpServerImpl implements IHttpServer {
      */
     public HttpServerImpl() {
         this.serverSocket = null;
+        this.unixDomainServerSocketChannel = null;
+        this.unixDomainSocketPath = null;
         this.mainExecutor = null;
         this.executor = null;
         this.run = false;
@@ -111,6 +123,77 @@ public class HttpServerImpl implements IHttpServer {
     }
 
 
+    /**
+     * Set the path of a unix domain socket the server listens on next to the tcp port. Starting the server with a
+     * negative port only the unix domain socket is bound. The unix domain sockets require Java 16 or later, see
+     * {@link UnixDomainSocketUtil#isSupported()}. Must be called before {@link #start}.
+     *
+     * @param unixDomainSocketPath the path of the socket file or null
+     */
+    public void setUnixDomainSocketPath(String unixDomainSocketPath) {
+        this.unixDomainSocketPath = unixDomainSocketPath;
+    }
+
+
+    /**
+     * Set the rate limiter of the server, e.g. a {@link com.github.toolarium.network.server.ratelimit.TokenBucketRateLimiter}.
+     * A limited request is answered with <code>429 Too Many Requests</code> without calling the http service.
+     *
+     * @param rateLimiter the rate limiter or null to disable the rate limiting
+     */
+    public void setRateLimiter(IRateLimiter rateLimiter) {
+        httpServerInformation.setRateLimiter(rateLimiter);
+    }
+
+
+    /**
+     * Set the request scheduler of the server, e.g. a
+     * {@link com.github.toolarium.network.server.scheduler.PriorityRequestScheduler}. It replaces the FIFO worker pool:
+     * the requests are processed by their priority class. Must be called before {@link #start}.
+     *
+     * @param requestScheduler the request scheduler or null to process the requests in FIFO order
+     */
+    public void setRequestScheduler(IRequestScheduler requestScheduler) {
+        httpServerInformation.setRequestScheduler(requestScheduler);
+    }
+
+
+    /**
+     * Set the bulkhead router of the server, e.g. a {@link com.github.toolarium.network.server.bulkhead.BulkheadRouter}.
+     * The shared workers read the request headers, the processing of a request which is assigned to a bulkhead continues
+     * in the isolated worker pool of the bulkhead. Must be called before {@link #start}.
+     *
+     * @param bulkheadRouter the bulkhead router or null to process all requests by the shared workers
+     */
+    public void setBulkheadRouter(IBulkheadRouter bulkheadRouter) {
+        httpServerInformation.setBulkheadRouter(bulkheadRouter);
+    }
+
+
+    /**
+     * Set the request timeout policy of the server, e.g. a
+     * {@link com.github.toolarium.network.server.deadline.RequestTimeoutPolicy}. In case the processing of a request
+     * exceeds its deadline, the request is answered with <code>504 Gateway Timeout</code>, the processing thread is
+     * interrupted and the connection is closed.
+     *
+     * @param requestTimeoutPolicy the request timeout policy or null for no deadline
+     */
+    public void setRequestTimeoutPolicy(IRequestTimeoutPolicy requestTimeoutPolicy) {
+        httpServerInformation.setRequestTimeoutPolicy(requestTimeoutPolicy);
+    }
+
+
+    /**
+     * Set the tracer of the server: it's notified about the start and the end of the span of each request, the trace
+     * context is available by {@link com.github.toolarium.network.server.dto.IHttpRequest#getTraceContext()}.
+     *
+     * @param tracer the tracer or null to disable the tracing
+     */
+    public void setTracer(ITracer tracer) {
+        httpServerInformation.setTracer(tracer);
+    }
+
+
     /**
      * @see com.github.toolarium.network.server.IHttpServer#start(com.github.toolarium.network.server.service.IHttpService, int)
      */
@@ -130,26 +213,72 @@ public class HttpServerImpl implements IHttpServer {
             return;
         }
 
+        if (port < 0 && unixDomainSocketPath == null) {
+            throw new IOException("Invalid port " + port + ": a port or a unix domain socket path is required!");
+        }
+
         httpServerInformation.setPort(port);
         httpServerInformation.setSSLContext(sslContext);
+        httpServerInformation.setUnixDomainSocketPath(unixDomainSocketPath);
 
-        this.mainExecutor = Executors.newFixedThreadPool(1);
-        this.executor = new ThreadPoolExecutor(
-                workerPoolSize, workerPoolSize,
-                60L, TimeUnit.SECONDS,
-                new LinkedBlockingQueue<>(workerPoolSize * 2),
-                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.mainExecutor = Executors.newFixedThreadPool(2);
+        if (httpServerInformation.getRequestScheduler() != null) {
+            this.executor = null;
+            httpServerInformation.getRequestScheduler().start(workerPoolSize);
+        } else {
+            this.executor = new ThreadPoolExecutor(
+                    workerPoolSize, workerPoolSize,
+                    60L, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(workerPoolSize * 2),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
 
-        if (sslContext != null) {
+        if (httpServerInformation.getBulkheadRouter() != null) {
+            httpServerInformation.getBulkheadRouter().start();
+        }
+
+        if (port < 0) {
+            serverSocket = null;
+        } else if (sslContext != null) {
             SSLServerSocketFactory ssf = sslContext.getServerSocketFactory();
             SSLServerSocket s = (SSLServerSocket) ssf.createServerSocket(httpServerInformation.getPort());
             serverSocket = s;
         } else {
-            serverSocket = new ServerSocket(httpServerInformation.getPort());
+            // the socket of a channel allows gathering writes of the response
+            final ServerSocket s = ServerSocketChannel.open().socket();
+            try {
+                s.setReuseAddress(true);
+                s.bind(new InetSocketAddress(httpServerInformation.getPort()));
+            } catch (IOException e) {
+                s.close();
+                throw e;
+            }
+            serverSocket = s;
+        }
+
+        if (unixDomainSocketPath != null) {
+            // the unix domain socket is local only, it's always plain http
+            try {
+                unixDomainServerSocketChannel = UnixDomainSocketUtil.getInstance().openServerSocketChannel(unixDomainSocketPath);
+            } catch (IOException | RuntimeException e) {
+                if (serverSocket != null) {
+                    serverSocket.close();
+                    serverSocket = null;
+                }
+                mainExecutor.shutdown();
+                shutdownWorkers();
+                throw e;
+            }
         }
 
         if (httpServerLogger != null) {
-            httpServerLogger.logInfo("Start " + httpServerInformation.getProtocol() + " server on port " + httpServerInformation.getPort());
+            if (serverSocket != null) {
+                httpServerLogger.logInfo("Start " + httpServerInformation.getProtocol() + " server on port " + httpServerInformation.getPort());
+            }
+
+            if (unixDomainServerSocketChannel != null) {
+                httpServerLogger.logInfo("Start http server on unix domain socket " + unixDomainSocketPath);
+            }
         }
 
         httpService = inputHttpService;
@@ -159,37 +288,107 @@ public class HttpServerImpl implements IHttpServer {
             httpAccessLogger.start();
         }
 
-        mainExecutor.execute(new Runnable() {
-            /**
-             * @see java.lang.Runnable#run()
-             */
-            @Override
-            public void run() {
-                while (run) {
-                    try {
-                        final Socket socket = serverSocket.accept();
-                        socket.setSoTimeout(socketTimeout);
-
-                        if (socket instanceof SSLSocket && LOG.isDebugEnabled()) {
-                            SSLSocket c = (SSLSocket)socket;
-                            SSLUtil.getInstance().processSocketInfo(LOG::debug, c);
-                        }
+        if (serverSocket != null) {
+            mainExecutor.execute(new Runnable() {
+                /**
+                 * @see java.lang.Runnable#run()
+                 */
+                @Override
+                public void run() {
+                    while (run) {
+                        try {
+                            final Socket socket = serverSocket.accept();
+                            final long acceptTimestamp = System.nanoTime();
+                            socket.setSoTimeout(socketTimeout);
+
+                            if (socket instanceof SSLSocket && LOG.isDebugEnabled()) {
+                                SSLSocket c = (SSLSocket)socket;
+                                SSLUtil.getInstance().processSocketInfo(LOG::debug, c);
+                            }
 
-                        if (socket != null) {
-                            final IHttpConnectionHandler connectionHandler = httpService.getHttpConnectionHandler();
-                            connectionHandler.init(socket, httpService, httpServerInformation, httpServerLogger, httpAccessLogger);
-                            executor.execute(connectionHandler);
+                            handleConnection(socket, acceptTimestamp);
+                        } catch (Exception e) {
+                            if (serverSocket != null && !serverSocket.isClosed()) {
+                                if (httpServerLogger != null) {
+                                    httpServerLogger.logWarn("Exception occured: " + e.getMessage(), e);
+                                }
+                            }
                         }
-                    } catch (Exception e) {
-                        if (serverSocket != null && !serverSocket.isClosed()) {
-                            if (httpServerLogger != null) {
-                                httpServerLogger.logWarn("Exception occured: " + e.getMessage(), e);
+                    }
+                }
+            });
+        }
+
+        if (unixDomainServerSocketChannel != null) {
+            mainExecutor.execute(new Runnable() {
+                /**
+                 * @see java.lang.Runnable#run()
+                 */
+                @Override
+                public void run() {
+                    final ServerSocketChannel channel = unixDomainServerSocketChannel;
+                    while (run) {
+                        try {
+                            final Socket socket = new UnixDomainSocket(channel.accept());
+                            final long acceptTimestamp = System.nanoTime();
+                            socket.setSoTimeout(socketTimeout);
+                            handleConnection(socket, acceptTimestamp);
+                        } catch (Exception e) {
+                            if (channel.isOpen()) {
+                                if (httpServerLogger != null) {
+                                    httpServerLogger.logWarn("Exception occured: " + e.getMessage(), e);
+                                }
                             }
                         }
                     }
                 }
+            });
+        }
+    }
+    
+
+    /**
+     * Hand over an accepted connection to a connection handler
+     *
+     * @param socket the accepted socket
+     * @param acceptTimestamp the time stamp of {@link System#nanoTime()} when the socket was accepted
+     */
+    private void handleConnection(Socket socket, long acceptTimestamp) {
+        if (socket != null) {
+            final IHttpConnectionHandler connectionHandler = httpService.getHttpConnectionHandler();
+            connectionHandler.init(socket, httpService, httpServerInformation, httpServerLogger, httpAccessLogger);
+            connectionHandler.setAcceptTimestamp(acceptTimestamp);
+
+            final IRequestScheduler requestScheduler = httpServerInformation.getRequestScheduler();
+            if (requestScheduler == null) {
+                executor.execute(connectionHandler);
+            } else if (!requestScheduler.execute(connectionHandler)) {
+                // the intake is full: shed the connection without blocking the acceptor
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // NOP
+                }
             }
-        });
+        }
+    }
+
+
+    /**
+     * Shutdown the worker threads and the worker pools of the bulkheads
+     */
+    private void shutdownWorkers() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+
+        if (httpServerInformation.getRequestScheduler() != null) {
+            httpServerInformation.getRequestScheduler().stop();
+        }
+
+        if (httpServerInformation.getBulkheadRouter() != null) {
+            httpServerInformation.getBulkheadRouter().stop();
+        }
     }
     
 
@@ -199,14 +398,20 @@ public class HttpServerImpl implements IHttpServer {
     @Override
     public void stop() throws IOException {
         if (httpServerLogger != null) {
-            httpServerLogger.logInfo("Stop http server on port " + httpServerInformation.getPort());
+            if (serverSocket != null) {
+                httpServerLogger.logInfo("Stop http server on port " + httpServerInformation.getPort());
+            }
+
+            if (unixDomainServerSocketChannel != null) {
+                httpServerLogger.logInfo("Stop http server on unix domain socket " + httpServerInformation.getUnixDomainSocketPath());
+            }
         }
         
         if (httpService != null) {
             httpService.stop(httpServerLogger, httpServerInformation.getPort());
             run = false;
             mainExecutor.shutdown();
-            executor.shutdown();
+            shutdownWorkers();
             
             try {
                 serverSocket.close();
@@ -214,6 +419,16 @@ public class HttpServerImpl implements IHttpServer {
                 // NOP
             }
             serverSocket = null;
+
+            if (unixDomainServerSocketChannel != null) {
+                try {
+                    unixDomainServerSocketChannel.close();
+                } catch (Exception e) {
+                    // NOP
+                }
+                unixDomainServerSocketChannel = null;
+                UnixDomainSocketUtil.getInstance().delete(httpServerInformation.getUnixDomainSocketPath());
+            }
             
             if (httpAccessLogger != null) {
                 httpAccessLogger.stop();
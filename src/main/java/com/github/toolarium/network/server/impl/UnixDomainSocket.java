@@ -0,0 +1,296 @@
+/*
+ * UnixDomainSocket.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+
+/**
+ * Adapts an accepted unix domain socket channel to a {@link Socket}, so the connection handlers can process it like a
+ * tcp connection. The channel is used in non-blocking mode with a selector to support the socket read timeout. Like
+ * in a {@link SocketChannel}, reads and writes are serialized by separate locks (and wait on separate selectors): a
+ * read which blocks on the socket don't block a write, e.g. an interim or an error response.
+ *
+ * @author patrick
+ */
+final class UnixDomainSocket extends Socket {
+    private final SocketChannel channel;
+    private final Selector readSelector;
+    private final SelectionKey readSelectionKey;
+    private final Selector writeSelector;
+    private final SelectionKey writeSelectionKey;
+    private final InputStream inputStream;
+    private final OutputStream outputStream;
+    private final Object readLock = new Object();
+    private final Object writeLock = new Object();
+    private volatile int soTimeout;
+    private volatile boolean closed;
+
+
+    /**
+     * Constructor for UnixDomainSocket
+     *
+     * @param channel the accepted channel
+     * @throws IOException In case of an I/O error
+     */
+    UnixDomainSocket(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        this.readSelector = Selector.open();
+        try {
+            this.writeSelector = Selector.open();
+        } catch (IOException e) {
+            readSelector.close();
+            throw e;
+        }
+
+        try {
+            channel.configureBlocking(false);
+            this.readSelectionKey = channel.register(readSelector, 0);
+            this.writeSelectionKey = channel.register(writeSelector, 0);
+        } catch (IOException e) {
+            readSelector.close();
+            writeSelector.close();
+            throw e;
+        }
+
+        this.inputStream = new ChannelInputStream();
+        this.outputStream = new ChannelOutputStream();
+        this.soTimeout = 0;
+        this.closed = false;
+    }
+
+
+    /**
+     * @see java.net.Socket#getInputStream()
+     */
+    @Override
+    public InputStream getInputStream() throws IOException {
+        ensureOpen();
+        return inputStream;
+    }
+
+
+    /**
+     * @see java.net.Socket#getOutputStream()
+     */
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        ensureOpen();
+        return outputStream;
+    }
+
+
+    /**
+     * @see java.net.Socket#setSoTimeout(int)
+     */
+    @Override
+    public void setSoTimeout(int timeout) throws SocketException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Invalid timeout: " + timeout);
+        }
+
+        this.soTimeout = timeout;
+    }
+
+
+    /**
+     * @see java.net.Socket#getSoTimeout()
+     */
+    @Override
+    public int getSoTimeout() {
+        return soTimeout;
+    }
+
+
+    /**
+     * @see java.net.Socket#isConnected()
+     */
+    @Override
+    public boolean isConnected() {
+        return channel.isConnected();
+    }
+
+
+    /**
+     * @see java.net.Socket#isClosed()
+     */
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+
+    /**
+     * @see java.net.Socket#close()
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        try {
+            readSelector.close();
+        } finally {
+            try {
+                writeSelector.close();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+
+    /**
+     * @see java.net.Socket#toString()
+     */
+    @Override
+    public String toString() {
+        return "UnixDomainSocket [" + channel + "]";
+    }
+
+
+    /**
+     * Ensure the socket is open
+     *
+     * @throws SocketException In case the socket is closed
+     */
+    private void ensureOpen() throws SocketException {
+        if (closed) {
+            throw new SocketException("Socket is closed");
+        }
+    }
+
+
+    /**
+     * Wait until the channel is ready for the given operation
+     *
+     * @param selector the selector of the operation
+     * @param selectionKey the selection key of the channel in the selector
+     * @param operation the operation
+     * @param timeout the timeout in milliseconds, 0 for infinite
+     * @throws IOException In case of an I/O error or timeout
+     */
+    private void await(Selector selector, SelectionKey selectionKey, int operation, int timeout) throws IOException {
+        ensureOpen();
+        try {
+            selectionKey.interestOps(operation);
+            final int selected = selector.select(timeout);
+            selector.selectedKeys().clear();
+            if (selected == 0 && timeout > 0) {
+                throw new SocketTimeoutException("Read timed out");
+            }
+        } catch (ClosedSelectorException | CancelledKeyException e) {
+            throw new SocketException("Socket is closed");
+        } finally {
+            try {
+                selectionKey.interestOps(0);
+            } catch (CancelledKeyException e) {
+                // NOP
+            }
+        }
+    }
+
+
+    /**
+     * Reads from the channel, respecting the socket read timeout.
+     */
+    private class ChannelInputStream extends InputStream {
+
+        /**
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            if (n < 0) {
+                return -1;
+            }
+
+            return b[0] & 0xFF;
+        }
+
+        /**
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            synchronized (readLock) {
+                int n = channel.read(buffer);
+                while (n == 0) {
+                    await(readSelector, readSelectionKey, SelectionKey.OP_READ, soTimeout);
+                    n = channel.read(buffer);
+                }
+
+                return n;
+            }
+        }
+
+        /**
+         * @see java.io.InputStream#close()
+         */
+        @Override
+        public void close() throws IOException {
+            UnixDomainSocket.this.close();
+        }
+    }
+
+
+    /**
+     * Writes to the channel.
+     */
+    private class ChannelOutputStream extends OutputStream {
+
+        /**
+         * @see java.io.OutputStream#write(int)
+         */
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        /**
+         * @see java.io.OutputStream#write(byte[], int, int)
+         */
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+            synchronized (writeLock) {
+                while (buffer.hasRemaining()) {
+                    if (channel.write(buffer) == 0) {
+                        await(writeSelector, writeSelectionKey, SelectionKey.OP_WRITE, 0);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @see java.io.OutputStream#close()
+         */
+        @Override
+        public void close() throws IOException {
+            UnixDomainSocket.this.close();
+        }
+    }
+}
@@ -5,6 +5,7 @@
  */
 package com.github.toolarium.network.server.logger.impl;
 
+import com.github.toolarium.network.server.dto.HttpRequestPhase;
 import com.github.toolarium.network.server.dto.IHttpRequest;
 import com.github.toolarium.network.server.dto.IHttpResponse;
 import com.github.toolarium.network.server.dto.IHttpServerInformation;
@@ -13,6 +14,7 @@ import java.io.PrintStream;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implements the http access logger
@@ -81,8 +83,17 @@ public class ConsoleHttpAccessLogger implements IHttpAccessLogger {
         b.append(length);
         b.append(SPACE);
 
-        long responseTime = System.currentTimeMillis() - request.getRequestTimestamp().getTime();
-        b.append(responseTime * 1000);
+        // response time in microseconds, measured from the accept of the connection if available
+        long duration = -1;
+        if (request.getTiming() != null) {
+            duration = request.getTiming().getDuration(HttpRequestPhase.TOTAL);
+        }
+
+        if (duration >= 0) {
+            b.append(TimeUnit.NANOSECONDS.toMicros(duration));
+        } else {
+            b.append((System.currentTimeMillis() - request.getRequestTimestamp().getTime()) * 1000);
+        }
         out.println(b.toString());
         
         //Map<String, String> getHeaders();
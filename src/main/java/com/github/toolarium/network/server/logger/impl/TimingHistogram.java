@@ -0,0 +1,180 @@
+/*
+ * TimingHistogram.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.logger.impl;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Implements a thread safe log-linear histogram of durations in nanoseconds with a relative error below 1%. Recording
+ * a value is lock and allocation free, so it can be called by all connection handler threads.
+ *
+ * @author patrick
+ */
+public class TimingHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+    private static final int NUMBER_OF_BUCKETS = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+    private final AtomicLongArray counts;
+    private final LongAdder totalCount;
+    private final LongAdder sum;
+    private final LongAccumulator max;
+
+
+    /**
+     * Constructor for TimingHistogram
+     */
+    public TimingHistogram() {
+        counts = new AtomicLongArray(NUMBER_OF_BUCKETS);
+        totalCount = new LongAdder();
+        sum = new LongAdder();
+        max = new LongAccumulator(Math::max, 0);
+    }
+
+
+    /**
+     * Record a value, negative values are ignored
+     *
+     * @param value the value in nanoseconds
+     */
+    public void recordValue(long value) {
+        if (value < 0) {
+            return;
+        }
+
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+
+    /**
+     * Get the number of recorded values
+     *
+     * @return the number of recorded values
+     */
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+
+    /**
+     * Get the max recorded value
+     *
+     * @return the max value in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+
+    /**
+     * Get the mean value
+     *
+     * @return the mean value in nanoseconds
+     */
+    public double getMean() {
+        final long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+
+        return (double) sum.sum() / count;
+    }
+
+
+    /**
+     * Get the value at a percentile. The values which are recorded concurrently may or may not be considered.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the (highest equivalent) value in nanoseconds
+     */
+    public long getValueAtPercentile(double percentile) {
+        final long[] snapshot = new long[NUMBER_OF_BUCKETS];
+        long count = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        final long maxValue = max.get();
+        final long countAtPercentile = Math.max(1, (long) Math.ceil(Math.min(100.0, percentile) / 100.0 * count));
+        long sumOfCounts = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            sumOfCounts += snapshot[i];
+            if (sumOfCounts >= countAtPercentile) {
+                return Math.min(maxValue, highestEquivalentValue(i));
+            }
+        }
+
+        return maxValue;
+    }
+
+
+    /**
+     * Reset the histogram. The values which are recorded concurrently may or may not be kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+
+        totalCount.reset();
+        sum.reset();
+        max.reset();
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "TimingHistogram [count=" + getTotalCount() + ", mean=" + (long) getMean() + "ns, p50=" + getValueAtPercentile(50)
+               + "ns, p99=" + getValueAtPercentile(99) + "ns, p99.9=" + getValueAtPercentile(99.9) + "ns, max=" + getMax() + "ns]";
+    }
+
+
+    /**
+     * Get the bucket index of a value
+     *
+     * @param value the value
+     * @return the index
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF_COUNT + (int) (value >>> shift);
+    }
+
+
+    /**
+     * Get the highest value which has the same bucket index
+     *
+     * @param index the index
+     * @return the value
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        final int shift = (index - SUB_BUCKET_HALF_COUNT) / SUB_BUCKET_HALF_COUNT;
+        final long subBucket = index - shift * SUB_BUCKET_HALF_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
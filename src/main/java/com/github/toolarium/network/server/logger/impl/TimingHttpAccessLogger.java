@@ -0,0 +1,138 @@
+/*
+ * TimingHttpAccessLogger.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.logger.impl;
+
+import com.github.toolarium.network.server.dto.HttpRequestPhase;
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import com.github.toolarium.network.server.dto.IHttpRequestTiming;
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.dto.IHttpServerInformation;
+import com.github.toolarium.network.server.logger.IHttpAccessLogger;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * Implements a http access logger which aggregates the phase durations of the requests into one
+ * {@link TimingHistogram} per {@link HttpRequestPhase}. The notifications are passed to an optional delegate, e.g.
+ * the {@link ConsoleHttpAccessLogger}.
+ *
+ * @author patrick
+ */
+public class TimingHttpAccessLogger implements IHttpAccessLogger {
+    private final IHttpAccessLogger delegate;
+    private final Map<HttpRequestPhase, TimingHistogram> histograms;
+
+
+    /**
+     * Constructor for TimingHttpAccessLogger
+     */
+    public TimingHttpAccessLogger() {
+        this(null);
+    }
+
+
+    /**
+     * Constructor for TimingHttpAccessLogger
+     *
+     * @param delegate the access logger to notify or null
+     */
+    public TimingHttpAccessLogger(IHttpAccessLogger delegate) {
+        this.delegate = delegate;
+        this.histograms = new EnumMap<>(HttpRequestPhase.class);
+        for (HttpRequestPhase phase : HttpRequestPhase.values()) {
+            histograms.put(phase, new TimingHistogram());
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.logger.IHttpAccessLogger#start()
+     */
+    @Override
+    public void start() {
+        if (delegate != null) {
+            delegate.start();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.logger.IHttpAccessLogger#stop()
+     */
+    @Override
+    public void stop() {
+        if (delegate != null) {
+            delegate.stop();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.logger.IHttpAccessLogger#requestReceived(com.github.toolarium.network.server.dto.IHttpServerInformation, com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public void requestReceived(IHttpServerInformation serverInformation, IHttpRequest request) {
+        if (delegate != null) {
+            delegate.requestReceived(serverInformation, request);
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.logger.IHttpAccessLogger#responseSent(com.github.toolarium.network.server.dto.IHttpServerInformation, com.github.toolarium.network.server.dto.IHttpRequest,
+     *      com.github.toolarium.network.server.dto.IHttpResponse)
+     */
+    @Override
+    public void responseSent(IHttpServerInformation serverInformation, IHttpRequest request, IHttpResponse response) {
+        if (request != null && request.getTiming() != null) {
+            final IHttpRequestTiming timing = request.getTiming();
+            for (Map.Entry<HttpRequestPhase, TimingHistogram> e : histograms.entrySet()) {
+                e.getValue().recordValue(timing.getDuration(e.getKey()));
+            }
+        }
+
+        if (delegate != null) {
+            delegate.responseSent(serverInformation, request, response);
+        }
+    }
+
+
+    /**
+     * Get the histogram of a phase
+     *
+     * @param phase the phase
+     * @return the histogram
+     */
+    public TimingHistogram getHistogram(HttpRequestPhase phase) {
+        return histograms.get(phase);
+    }
+
+
+    /**
+     * Reset all histograms
+     */
+    public void reset() {
+        for (TimingHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        for (Map.Entry<HttpRequestPhase, TimingHistogram> e : histograms.entrySet()) {
+            result.append(e.getKey().name().toLowerCase(Locale.ROOT)).append(": ").append(e.getValue()).append(System.lineSeparator());
+        }
+
+        return result.toString();
+    }
+}
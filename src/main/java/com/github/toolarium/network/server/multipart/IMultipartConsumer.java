@@ -0,0 +1,49 @@
+/*
+ * IMultipartConsumer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.multipart;
+
+import com.github.toolarium.network.server.dto.IMultipartPart;
+import com.github.toolarium.network.server.dto.MultipartPart;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+
+/**
+ * Defines the consumer of the parts of a multipart body. The parts are streamed, the consumer has to process the
+ * content of a part before the next part is read.
+ *
+ * @author patrick
+ */
+public interface IMultipartConsumer extends Closeable {
+
+    /**
+     * Consume a part. The content stream ends at the boundary of the part; content which is not read is skipped.
+     *
+     * @param part the part with its headers, the consumer can set the size and the stored content
+     * @param content the content of the part, it must not be closed
+     * @throws IOException In case of an I/O error
+     */
+    void consume(MultipartPart part, InputStream content) throws IOException;
+
+
+    /**
+     * Get the consumed parts
+     *
+     * @return the consumed parts
+     */
+    List<IMultipartPart> getParts();
+
+
+    /**
+     * Release the resources of the consumed parts, e.g. temporary files.
+     *
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,597 @@
+/*
+ * MultipartParser.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.multipart;
+
+import com.github.toolarium.network.server.dto.MultipartPart;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+
+/**
+ * Streaming parser of a <code>multipart/form-data</code> body (RFC 7578 / RFC 2046). The boundaries are searched
+ * with the Boyer-Moore-Horspool algorithm directly in a fixed size byte buffer, the content of every part is handed
+ * over as stream to an {@link IMultipartConsumer}; the body is never assembled in memory.
+ *
+ * @author patrick
+ */
+public class MultipartParser {
+    /** The multipart form data content type */
+    public static final String MULTIPART_FORM_DATA = "multipart/form-data";
+
+    /** The default max size of the headers of a part */
+    public static final int DEFAULT_MAX_HEADER_SIZE = 16 * 1024;
+
+    private static final int MAX_BOUNDARY_LENGTH = 70;
+    private static final int MIN_BUFFER_SIZE = 32 * 1024;
+    private static final String BOUNDARY_PARAMETER = "boundary";
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+    private final byte[] delimiter;
+    private final int[] skipTable;
+    private long maxSize;
+    private int maxHeaderSize;
+
+
+    /**
+     * Constructor for MultipartParser
+     *
+     * @param boundary the boundary of the content type
+     * @throws IllegalArgumentException In case of an invalid boundary
+     */
+    public MultipartParser(String boundary) {
+        if (boundary == null || boundary.isEmpty() || boundary.length() > MAX_BOUNDARY_LENGTH) {
+            throw new IllegalArgumentException("Invalid multipart boundary: [" + boundary + "]");
+        }
+
+        // the delimiter of a part is: CRLF "--" boundary
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.skipTable = createSkipTable(delimiter);
+        this.maxSize = -1;
+        this.maxHeaderSize = DEFAULT_MAX_HEADER_SIZE;
+    }
+
+
+    /**
+     * Get the boundary of a multipart content type
+     *
+     * @param contentType the content type, e.g. <code>multipart/form-data; boundary="abc"</code>
+     * @return the boundary or null if it is no multipart content type
+     */
+    public static String getBoundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        final String lowerCaseContentType = contentType.toLowerCase(Locale.US);
+        if (!lowerCaseContentType.trim().startsWith("multipart/")) {
+            return null;
+        }
+
+        return getParameter(contentType, BOUNDARY_PARAMETER);
+    }
+
+
+    /**
+     * Get a parameter of a header value, e.g. the name of <code>form-data; name="field"</code>
+     *
+     * @param headerValue the header value
+     * @param parameterName the parameter name
+     * @return the parameter value or null
+     */
+    public static String getParameter(String headerValue, String parameterName) {
+        if (headerValue == null || parameterName == null) {
+            return null;
+        }
+
+        int idx = headerValue.indexOf(';');
+        while (idx >= 0 && idx < headerValue.length()) {
+            int start = idx + 1;
+            while (start < headerValue.length() && Character.isWhitespace(headerValue.charAt(start))) {
+                start++;
+            }
+
+            final int separator = headerValue.indexOf('=', start);
+            if (separator < 0) {
+                return null;
+            }
+
+            final String name = headerValue.substring(start, separator).trim();
+            final StringBuilder value = new StringBuilder();
+            int i = separator + 1;
+            if (i < headerValue.length() && headerValue.charAt(i) == '"') {
+                // quoted string with escapes
+                i++;
+                while (i < headerValue.length() && headerValue.charAt(i) != '"') {
+                    if (headerValue.charAt(i) == '\\' && i + 1 < headerValue.length()) {
+                        i++;
+                    }
+                    value.append(headerValue.charAt(i));
+                    i++;
+                }
+
+                idx = headerValue.indexOf(';', i);
+            } else {
+                int end = headerValue.indexOf(';', i);
+                if (end < 0) {
+                    end = headerValue.length();
+                }
+
+                value.append(headerValue, i, end);
+                idx = end;
+            }
+
+            if (name.equalsIgnoreCase(parameterName)) {
+                return value.toString().trim();
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Set the max size of the body
+     *
+     * @param maxSize the max size in bytes, -1 for unlimited
+     * @return the parser
+     */
+    public MultipartParser setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        return this;
+    }
+
+
+    /**
+     * Set the max size of the headers of a part
+     *
+     * @param maxHeaderSize the max header size in bytes
+     * @return the parser
+     */
+    public MultipartParser setMaxHeaderSize(int maxHeaderSize) {
+        this.maxHeaderSize = maxHeaderSize;
+        return this;
+    }
+
+
+    /**
+     * Parse a multipart body
+     *
+     * @param input the input stream, it will not be closed
+     * @param length the length of the body or -1 to read until the closing boundary
+     * @param consumer the consumer of the parts
+     * @return the number of parts
+     * @throws IOException In case of an I/O error or an invalid multipart body
+     */
+    public int parse(InputStream input, long length, IMultipartConsumer consumer) throws IOException {
+        if (maxSize >= 0 && length > maxSize) {
+            throw new IOException("Multipart body too large: " + length + " exceeds limit of " + maxSize + " bytes");
+        }
+
+        final BodyReader reader = new BodyReader(input, length);
+        reader.skipPreamble();
+
+        int numberOfParts = 0;
+        while (!reader.readBoundaryLineEnd()) {
+            final MultipartPart part = reader.readPartHeaders();
+            final PartInputStream content = new PartInputStream(reader);
+            consumer.consume(part, content);
+            content.skipRemaining();
+            numberOfParts++;
+        }
+
+        return numberOfParts;
+    }
+
+
+    /**
+     * Search the delimiter in the data (Boyer-Moore-Horspool)
+     *
+     * @param data the data
+     * @param from the start index (inclusive)
+     * @param to the end index (exclusive)
+     * @return the index of the delimiter or -1
+     */
+    int indexOf(byte[] data, int from, int to) {
+        final int last = delimiter.length - 1;
+        int i = from;
+        while (i <= to - delimiter.length) {
+            int j = last;
+            while (data[i + j] == delimiter[j]) {
+                if (j == 0) {
+                    return i;
+                }
+                j--;
+            }
+
+            i += skipTable[data[i + last] & 0xFF];
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Create the Boyer-Moore-Horspool skip table
+     *
+     * @param pattern the pattern
+     * @return the skip table
+     */
+    private static int[] createSkipTable(byte[] pattern) {
+        final int[] result = new int[256];
+        Arrays.fill(result, pattern.length);
+        for (int i = 0; i < pattern.length - 1; i++) {
+            result[pattern[i] & 0xFF] = pattern.length - 1 - i;
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Buffered reader of the body, the buffer is never larger than the configured size.
+     */
+    private final class BodyReader {
+        private final InputStream input;
+        private final byte[] buffer;
+        private long remaining;
+        private long totalSize;
+        private int start;
+        private int end;
+        private int searchFrom;
+        private int delimiterIndex;
+        private boolean endOfInput;
+
+        /**
+         * Constructor for BodyReader
+         *
+         * @param input the input
+         * @param length the length or -1
+         */
+        BodyReader(InputStream input, long length) {
+            this.input = input;
+            this.buffer = new byte[Math.max(MIN_BUFFER_SIZE, 4 * delimiter.length)];
+            if (length >= 0) {
+                this.remaining = length;
+            } else {
+                this.remaining = Long.MAX_VALUE;
+            }
+
+            // the first boundary has no leading CRLF: simulate it, so every boundary matches the same delimiter
+            this.buffer[0] = CR;
+            this.buffer[1] = LF;
+            this.start = 0;
+            this.end = 2;
+            this.searchFrom = 0;
+            this.delimiterIndex = -1;
+            this.endOfInput = false;
+            this.totalSize = 0;
+        }
+
+        /**
+         * Skip the preamble until the first boundary
+         *
+         * @throws IOException In case of an I/O error or if there is no boundary
+         */
+        void skipPreamble() throws IOException {
+            int idx = findDelimiter();
+            while (idx < 0) {
+                // keep only a possible prefix of the delimiter
+                start = Math.max(start, end - delimiter.length + 1);
+                if (!fill()) {
+                    throw new IOException("Invalid multipart body: no boundary found!");
+                }
+                idx = findDelimiter();
+            }
+
+            consumeDelimiter(idx);
+        }
+
+        /**
+         * Read the end of a boundary line
+         *
+         * @return true if it was the closing boundary
+         * @throws IOException In case of an I/O error or an invalid boundary line
+         */
+        boolean readBoundaryLineEnd() throws IOException {
+            ensureAvailable(2);
+            if (buffer[start] == DASH && buffer[start + 1] == DASH) {
+                start += 2;
+                return true;
+            }
+
+            // transport padding
+            while (ensureAvailable(1) && (buffer[start] == ' ' || buffer[start] == '\t')) {
+                start++;
+            }
+
+            if (!ensureAvailable(2) || buffer[start] != CR || buffer[start + 1] != LF) {
+                throw new IOException("Invalid multipart body: invalid boundary line!");
+            }
+
+            start += 2;
+            return false;
+        }
+
+        /**
+         * Read the headers of a part
+         *
+         * @return the part
+         * @throws IOException In case of an I/O error or invalid headers
+         */
+        MultipartPart readPartHeaders() throws IOException {
+            final MultipartPart part = new MultipartPart();
+            int headerSize = 0;
+            String line = readLine();
+            while (!line.isEmpty()) {
+                headerSize += line.length() + 2;
+                if (headerSize > maxHeaderSize) {
+                    throw new IOException("Invalid multipart body: part headers exceed limit of " + maxHeaderSize + " bytes");
+                }
+
+                final int separator = line.indexOf(':');
+                if (separator > 0) {
+                    part.getHeaders().add(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+                }
+                line = readLine();
+            }
+
+            final String contentDisposition = part.getHeaders().getFirst(HttpHeaderUtil.CONTENT_DISPOSITION);
+            part.setName(getParameter(contentDisposition, "name"));
+            part.setFilename(getParameter(contentDisposition, "filename"));
+            return part;
+        }
+
+        /**
+         * Read a header line of a part (UTF-8)
+         *
+         * @return the line without line end
+         * @throws IOException In case of an I/O error or a too long line
+         */
+        private String readLine() throws IOException {
+            int scanned = start;
+            while (true) {
+                for (int i = scanned; i < end; i++) {
+                    if (buffer[i] == LF) {
+                        int lineEnd = i;
+                        if (lineEnd > start && buffer[lineEnd - 1] == CR) {
+                            lineEnd--;
+                        }
+
+                        final String line = new String(buffer, start, lineEnd - start, StandardCharsets.UTF_8);
+                        start = i + 1;
+                        return line;
+                    }
+                }
+
+                if (end - start > maxHeaderSize) {
+                    throw new IOException("Invalid multipart body: part headers exceed limit of " + maxHeaderSize + " bytes");
+                }
+
+                scanned = end - start;
+                if (!fill()) {
+                    throw new IOException("Invalid multipart body: unexpected end in part headers!");
+                }
+                scanned += start;
+            }
+        }
+
+        /**
+         * Get the number of content bytes which can be read before the delimiter
+         *
+         * @return the number of bytes, 0 at the end of the part content
+         * @throws IOException In case of an I/O error or an unexpected end of the body
+         */
+        int available() throws IOException {
+            while (true) {
+                final int idx = findDelimiter();
+                if (idx >= 0) {
+                    return idx - start;
+                }
+
+                final int available = end - start - (delimiter.length - 1);
+                if (available > 0) {
+                    return available;
+                }
+
+                if (!fill()) {
+                    throw new IOException("Invalid multipart body: unexpected end of the part content!");
+                }
+            }
+        }
+
+        /**
+         * Read content bytes
+         *
+         * @param b the target
+         * @param off the offset
+         * @param len the length
+         * @return the number of bytes or -1 at the end of the part content
+         * @throws IOException In case of an I/O error or an unexpected end of the body
+         */
+        int read(byte[] b, int off, int len) throws IOException {
+            final int available = available();
+            if (available == 0) {
+                consumeDelimiter(start);
+                return -1;
+            }
+
+            final int n = Math.min(len, available);
+            System.arraycopy(buffer, start, b, off, n);
+            start += n;
+            return n;
+        }
+
+        /**
+         * Find the delimiter in the buffered data
+         *
+         * @return the index or -1
+         */
+        private int findDelimiter() {
+            if (delimiterIndex >= start) {
+                return delimiterIndex;
+            }
+
+            final int idx = indexOf(buffer, Math.max(start, searchFrom), end);
+            if (idx >= 0) {
+                delimiterIndex = idx;
+            } else {
+                delimiterIndex = -1;
+                searchFrom = Math.max(start, end - delimiter.length + 1);
+            }
+
+            return idx;
+        }
+
+        /**
+         * Consume the delimiter at the given index
+         *
+         * @param idx the index
+         */
+        private void consumeDelimiter(int idx) {
+            start = idx + delimiter.length;
+            delimiterIndex = -1;
+            searchFrom = start;
+        }
+
+        /**
+         * Ensure the given number of bytes is buffered
+         *
+         * @param count the number of bytes
+         * @return true if the bytes are available
+         * @throws IOException In case of an I/O error
+         */
+        private boolean ensureAvailable(int count) throws IOException {
+            while (end - start < count) {
+                if (!fill()) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /**
+         * Compact the buffer and read more data
+         *
+         * @return false at the end of the input
+         * @throws IOException In case of an I/O error or if the max size is exceeded
+         */
+        private boolean fill() throws IOException {
+            if (endOfInput || remaining <= 0) {
+                endOfInput = true;
+                return false;
+            }
+
+            if (start > 0) {
+                System.arraycopy(buffer, start, buffer, 0, end - start);
+                end -= start;
+                searchFrom = Math.max(0, searchFrom - start);
+                if (delimiterIndex >= 0) {
+                    delimiterIndex -= start;
+                }
+                start = 0;
+            }
+
+            if (end == buffer.length) {
+                throw new IOException("Invalid multipart body: buffer overflow!");
+            }
+
+            final int n = input.read(buffer, end, (int) Math.min(buffer.length - end, remaining));
+            if (n < 0) {
+                endOfInput = true;
+                return false;
+            }
+
+            end += n;
+            remaining -= n;
+            totalSize += n;
+            if (maxSize >= 0 && totalSize > maxSize) {
+                throw new IOException("Multipart body too large: exceeds limit of " + maxSize + " bytes");
+            }
+
+            return true;
+        }
+    }
+
+
+    /**
+     * The content of one part, ends at the delimiter.
+     */
+    private static final class PartInputStream extends InputStream {
+        private final BodyReader reader;
+        private boolean endOfPart;
+
+        /**
+         * Constructor for PartInputStream
+         *
+         * @param reader the reader
+         */
+        PartInputStream(BodyReader reader) {
+            this.reader = reader;
+            this.endOfPart = false;
+        }
+
+        /**
+         * @see java.io.InputStream#read()
+         */
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            final int n = read(b, 0, 1);
+            if (n < 0) {
+                return -1;
+            }
+
+            return b[0] & 0xFF;
+        }
+
+        /**
+         * @see java.io.InputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (endOfPart) {
+                return -1;
+            }
+
+            if (len == 0) {
+                return 0;
+            }
+
+            final int n = reader.read(b, off, len);
+            if (n < 0) {
+                endOfPart = true;
+            }
+
+            return n;
+        }
+
+        /**
+         * @see java.io.InputStream#close()
+         */
+        @Override
+        public void close() {
+            // NOP: the body stream is owned by the parser
+        }
+
+        /**
+         * Skip the not consumed content of the part
+         *
+         * @throws IOException In case of an I/O error
+         */
+        void skipRemaining() throws IOException {
+            final byte[] b = new byte[8192];
+            while (read(b, 0, b.length) >= 0) {
+                // NOP
+            }
+        }
+    }
+}
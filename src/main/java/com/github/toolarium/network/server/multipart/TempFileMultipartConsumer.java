@@ -0,0 +1,173 @@
+/*
+ * TempFileMultipartConsumer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.multipart;
+
+import com.github.toolarium.network.server.dto.IMultipartPart;
+import com.github.toolarium.network.server.dto.MultipartPart;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Streams the content of the parts into temporary files. Small form fields (parts without file name) are kept in
+ * memory. The temporary files are deleted by {@link #close()}.
+ *
+ * @author patrick
+ */
+public class TempFileMultipartConsumer implements IMultipartConsumer {
+    /** The default max size of a form field which is kept in memory: 64 KB */
+    public static final int DEFAULT_MAX_IN_MEMORY_SIZE = 64 * 1024;
+    private static final Logger LOG = LoggerFactory.getLogger(TempFileMultipartConsumer.class);
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private final Path directory;
+    private final int maxInMemorySize;
+    private final List<IMultipartPart> parts;
+    private final List<Path> files;
+
+
+    /**
+     * Constructor for TempFileMultipartConsumer
+     *
+     * @param directory the directory of the temporary files, null for the default temporary directory
+     */
+    public TempFileMultipartConsumer(Path directory) {
+        this(directory, DEFAULT_MAX_IN_MEMORY_SIZE);
+    }
+
+
+    /**
+     * Constructor for TempFileMultipartConsumer
+     *
+     * @param directory the directory of the temporary files, null for the default temporary directory
+     * @param maxInMemorySize the max size of a form field which is kept in memory, 0 to write all parts to files
+     */
+    public TempFileMultipartConsumer(Path directory, int maxInMemorySize) {
+        this.directory = directory;
+        this.maxInMemorySize = maxInMemorySize;
+        this.parts = new ArrayList<>();
+        this.files = new ArrayList<>();
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.multipart.IMultipartConsumer#consume(com.github.toolarium.network.server.dto.MultipartPart, java.io.InputStream)
+     */
+    @Override
+    public void consume(MultipartPart part, InputStream content) throws IOException {
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long size = 0;
+
+        if (part.getFilename() == null && maxInMemorySize > 0) {
+            final ByteArrayOutputStream memory = new ByteArrayOutputStream();
+            int n = content.read(buffer, 0, Math.min(buffer.length, maxInMemorySize + 1));
+            while (n >= 0 && memory.size() <= maxInMemorySize) {
+                memory.write(buffer, 0, n);
+                n = content.read(buffer, 0, Math.min(buffer.length, maxInMemorySize + 1 - memory.size()));
+            }
+
+            if (memory.size() <= maxInMemorySize) {
+                part.setContent(memory.toByteArray()).setSize(memory.size());
+                parts.add(part);
+                return;
+            }
+
+            // too large for the memory: continue with a file
+            final Path file = createFile();
+            try (OutputStream out = Files.newOutputStream(file)) {
+                memory.writeTo(out);
+                size = memory.size() + copy(content, out, buffer);
+            }
+
+            part.setFile(file).setSize(size);
+            parts.add(part);
+            return;
+        }
+
+        final Path file = createFile();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            size = copy(content, out, buffer);
+        }
+
+        part.setFile(file).setSize(size);
+        parts.add(part);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.multipart.IMultipartConsumer#getParts()
+     */
+    @Override
+    public List<IMultipartPart> getParts() {
+        return Collections.unmodifiableList(parts);
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.multipart.IMultipartConsumer#close()
+     */
+    @Override
+    public void close() {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                LOG.debug("Could not delete temporary file " + file + ": " + e.getMessage());
+            }
+        }
+
+        files.clear();
+    }
+
+
+    /**
+     * Create a temporary file
+     *
+     * @return the file
+     * @throws IOException In case of an I/O error
+     */
+    private Path createFile() throws IOException {
+        final Path file;
+        if (directory != null) {
+            file = Files.createTempFile(directory, "multipart-", ".part");
+        } else {
+            file = Files.createTempFile("multipart-", ".part");
+        }
+
+        files.add(file);
+        return file;
+    }
+
+
+    /**
+     * Copy the content
+     *
+     * @param content the content
+     * @param out the output
+     * @param buffer the buffer
+     * @return the number of copied bytes
+     * @throws IOException In case of an I/O error
+     */
+    private long copy(InputStream content, OutputStream out, byte[] buffer) throws IOException {
+        long size = 0;
+        int n = content.read(buffer);
+        while (n >= 0) {
+            out.write(buffer, 0, n);
+            size += n;
+            n = content.read(buffer);
+        }
+
+        return size;
+    }
+}
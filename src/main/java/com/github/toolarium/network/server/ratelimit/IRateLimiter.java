@@ -0,0 +1,28 @@
+/*
+ * IRateLimiter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.ratelimit;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import java.net.Socket;
+
+
+/**
+ * Defines the rate limiter of the http server. It's called by the connection handler after the request headers are
+ * read; a limited request is answered with <code>429 Too Many Requests</code> without calling the http service.
+ *
+ * @author patrick
+ */
+public interface IRateLimiter {
+
+    /**
+     * Try to acquire a permit for the request. The implementation must be thread safe and must not block.
+     *
+     * @param socket the accepted socket of the client
+     * @param request the request without body
+     * @return true if the request is permitted, false if it is limited
+     */
+    boolean tryAcquire(Socket socket, IHttpRequest request);
+}
@@ -0,0 +1,313 @@
+/*
+ * TokenBucketRateLimiter.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.ratelimit;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Implements a per client token bucket rate limiter. The client is identified by the ip address of the accepted socket
+ * or by the value of a configurable header (e.g. an api key or <code>X-Forwarded-For</code> behind a proxy).
+ *
+ * <p>Every bucket is a single {@link AtomicLong} which holds the theoretical arrival time of the next request (GCRA):
+ * it's equivalent to a token bucket with the given rate and burst, but can be updated lock-free with one compare and
+ * set. The buckets are distributed over independent stripes with a bounded size. The idle buckets (a bucket which is
+ * completely refilled carries no state) are evicted lazily by age: a request evicts the idle buckets of its stripe
+ * once per eviction interval. A full stripe evicts the idle buckets and then the buckets which don't limit their
+ * client; a bucket which limits its client is never evicted, so it can't burst again. In case all buckets of a full
+ * stripe limit their client, a new client is limited as well until a bucket is evicted.</p>
+ *
+ * @author patrick
+ */
+public class TokenBucketRateLimiter implements IRateLimiter {
+    /** The default max number of tracked clients */
+    public static final int DEFAULT_MAX_SIZE = 100_000;
+    private static final int NUMBER_OF_STRIPES = 16;
+    private static final String LOCAL_CLIENT = "local";
+    private static final long MIN_EVICTION_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private final long emissionInterval;
+    private final long burstInterval;
+    private final long evictionInterval;
+    private final Stripe[] stripes;
+    private volatile String headerName;
+    private volatile int maxStripeSize;
+
+
+    /**
+     * Constructor for TokenBucketRateLimiter
+     *
+     * @param requestsPerSecond the sustained number of requests per second and client
+     * @param burst the max number of requests a client can send at once (the bucket size)
+     * @throws IllegalArgumentException In case of an invalid rate or burst
+     */
+    public TokenBucketRateLimiter(double requestsPerSecond, int burst) {
+        if (requestsPerSecond <= 0 || Double.isNaN(requestsPerSecond)) {
+            throw new IllegalArgumentException("Invalid rate: " + requestsPerSecond);
+        }
+
+        if (burst < 1) {
+            throw new IllegalArgumentException("Invalid burst: " + burst);
+        }
+
+        this.emissionInterval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond));
+        this.burstInterval = emissionInterval * burst;
+        this.evictionInterval = Math.max(MIN_EVICTION_INTERVAL, burstInterval);
+        this.stripes = new Stripe[NUMBER_OF_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe(System.nanoTime() + evictionInterval);
+        }
+
+        this.headerName = null;
+        setMaxSize(DEFAULT_MAX_SIZE);
+    }
+
+
+    /**
+     * Set the header which identifies the client. A request without this header is identified by its ip address.
+     *
+     * @param headerName the header name or null to use the ip address of the client
+     * @return the rate limiter
+     */
+    public TokenBucketRateLimiter setHeaderName(String headerName) {
+        this.headerName = headerName;
+        return this;
+    }
+
+
+    /**
+     * Get the header which identifies the client
+     *
+     * @return the header name or null
+     */
+    public String getHeaderName() {
+        return headerName;
+    }
+
+
+    /**
+     * Set the max number of tracked clients
+     *
+     * @param maxSize the max number of tracked clients
+     * @return the rate limiter
+     */
+    public TokenBucketRateLimiter setMaxSize(int maxSize) {
+        this.maxStripeSize = Math.max(1, maxSize / NUMBER_OF_STRIPES);
+        return this;
+    }
+
+
+    /**
+     * Get the number of tracked clients
+     *
+     * @return the number of tracked clients
+     */
+    public int size() {
+        int result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.buckets.size();
+        }
+
+        return result;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.ratelimit.IRateLimiter#tryAcquire(java.net.Socket, com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public boolean tryAcquire(Socket socket, IHttpRequest request) {
+        return tryAcquire(getKey(socket, request));
+    }
+
+
+    /**
+     * Try to acquire a permit for a client
+     *
+     * @param key the key of the client
+     * @return true if the request is permitted, false if it is limited
+     */
+    public boolean tryAcquire(String key) {
+        final long now = System.nanoTime();
+        final Stripe stripe = getStripe(key);
+        if (now - stripe.nextEvictionTimestamp >= 0) {
+            stripe.evictIdle(now);
+        }
+
+        AtomicLong bucket = stripe.buckets.get(key);
+        if (bucket == null) {
+            if (stripe.buckets.size() >= maxStripeSize && !stripe.evict(now)) {
+                // all buckets of the stripe limit their client
+                return false;
+            }
+
+            bucket = stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            final long theoreticalArrivalTime = bucket.get();
+            long next = theoreticalArrivalTime;
+            if (next - now < 0) {
+                next = now;
+            }
+            next += emissionInterval;
+
+            if (next - now > burstInterval) {
+                return false;
+            }
+
+            if (bucket.compareAndSet(theoreticalArrivalTime, next)) {
+                return true;
+            }
+        }
+    }
+
+
+    /**
+     * Remove the buckets of all idle clients. The idle buckets are also evicted lazily by the requests, see
+     * {@link #getEvictionInterval(TimeUnit)}.
+     */
+    public void evictIdle() {
+        final long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            stripe.evictIdle(now);
+        }
+    }
+
+
+    /**
+     * Get the interval in which the idle buckets of a stripe are evicted
+     *
+     * @param unit the time unit
+     * @return the eviction interval
+     */
+    public long getEvictionInterval(TimeUnit unit) {
+        return unit.convert(evictionInterval, TimeUnit.NANOSECONDS);
+    }
+
+
+    /**
+     * Get the key of the client
+     *
+     * @param socket the socket
+     * @param request the request
+     * @return the key
+     */
+    protected String getKey(Socket socket, IHttpRequest request) {
+        final String name = headerName;
+        if (name != null && request != null) {
+            final String value = request.getHeader(name);
+            if (value != null && !value.trim().isEmpty()) {
+                return value.trim();
+            }
+        }
+
+        if (socket != null) {
+            final InetAddress address = socket.getInetAddress();
+            if (address != null) {
+                return address.getHostAddress();
+            }
+        }
+
+        // e.g. unix domain socket
+        return LOCAL_CLIENT;
+    }
+
+
+    /**
+     * Get the stripe of a key
+     *
+     * @param key the key
+     * @return the stripe
+     */
+    private Stripe getStripe(String key) {
+        final int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (NUMBER_OF_STRIPES - 1)];
+    }
+
+
+    /**
+     * A part of the buckets with its own eviction.
+     */
+    private class Stripe {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final ReentrantLock evictionLock = new ReentrantLock();
+        private volatile long nextEvictionTimestamp;
+
+        /**
+         * Constructor for Stripe
+         *
+         * @param nextEvictionTimestamp the time stamp of the first eviction of the idle buckets
+         */
+        Stripe(long nextEvictionTimestamp) {
+            this.nextEvictionTimestamp = nextEvictionTimestamp;
+        }
+
+        /**
+         * Evict the idle buckets. Only one thread evicts a stripe, concurrent callers don't wait.
+         *
+         * @param now the current time in nanoseconds
+         */
+        void evictIdle(long now) {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+
+            try {
+                removeIdle(now);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        /**
+         * Evict the idle buckets and, if the stripe is still full, the buckets which don't limit their client.
+         *
+         * @param now the current time in nanoseconds
+         * @return true if the stripe is not full anymore
+         */
+        boolean evict(long now) {
+            evictionLock.lock();
+            try {
+                removeIdle(now);
+
+                final Iterator<Map.Entry<String, AtomicLong>> overflow = buckets.entrySet().iterator();
+                while (buckets.size() >= maxStripeSize && overflow.hasNext()) {
+                    // the next request of a limited client would be rejected
+                    if (overflow.next().getValue().get() - now <= burstInterval - emissionInterval) {
+                        overflow.remove();
+                    }
+                }
+
+                return buckets.size() < maxStripeSize;
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+
+        /**
+         * Remove the idle buckets, the caller holds the eviction lock
+         *
+         * @param now the current time in nanoseconds
+         */
+        private void removeIdle(long now) {
+            nextEvictionTimestamp = now + evictionInterval;
+            final Iterator<Map.Entry<String, AtomicLong>> it = buckets.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue().get() - now <= 0) {
+                    it.remove();
+                }
+            }
+        }
+    }
+}
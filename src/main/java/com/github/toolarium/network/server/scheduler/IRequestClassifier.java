@@ -0,0 +1,25 @@
+/*
+ * IRequestClassifier.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.scheduler;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+
+
+/**
+ * Defines the classifier which assigns the priority class of a request after its headers are read.
+ *
+ * @author patrick
+ */
+public interface IRequestClassifier {
+
+    /**
+     * Classify the request
+     *
+     * @param request the request without body
+     * @return the priority class, not null
+     */
+    RequestPriority classify(IHttpRequest request);
+}
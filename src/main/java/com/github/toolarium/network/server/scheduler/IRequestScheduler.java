@@ -0,0 +1,60 @@
+/*
+ * IRequestScheduler.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.scheduler;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+
+
+/**
+ * Defines the request scheduler of the http server, which replaces the FIFO worker pool. A new connection is queued
+ * for the intake: a worker reads the request headers, the request is classified and the processing is queued again
+ * in the queue of its priority class.
+ *
+ * @author patrick
+ */
+public interface IRequestScheduler {
+
+    /**
+     * Start the worker threads
+     *
+     * @param numberOfWorkers the number of worker threads
+     */
+    void start(int numberOfWorkers);
+
+
+    /**
+     * Stop the scheduler: the queued tasks are processed, then the worker threads terminate.
+     */
+    void stop();
+
+
+    /**
+     * Queue a new connection for the intake
+     *
+     * @param task the task which reads the request headers
+     * @return true if it's queued, false if the intake queue is full or the scheduler is stopped
+     */
+    boolean execute(Runnable task);
+
+
+    /**
+     * Queue the processing of a classified request
+     *
+     * @param task the task
+     * @param priority the priority class
+     * @return true if it's queued, false if the queue of the class is full or the scheduler is stopped
+     */
+    boolean execute(Runnable task, RequestPriority priority);
+
+
+    /**
+     * Classify a request
+     *
+     * @param request the request without body
+     * @return the priority class, not null
+     */
+    RequestPriority classify(IHttpRequest request);
+}
@@ -0,0 +1,490 @@
+/*
+ * PriorityRequestScheduler.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.scheduler;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Implements the {@link IRequestScheduler} with one bounded queue per {@link RequestPriority} and one for the intake
+ * of new connections. The queues are served by a smooth weighted round robin: e.g. with the default weights 8:4:1 a
+ * critical request is dequeued eight times as often as a bulk request while both queues are non-empty, and no class
+ * starves; the intake has the weight of the critical class by default, so a sustained intake load don't starve the
+ * classified requests. Some workers are reserved for the intake and the critical class (by default one of eight
+ * workers, at least one if there is more than one worker): slow normal or bulk requests can't occupy all workers, a
+ * critical request like a health check is still read, classified and processed. An optional concurrency limit per
+ * class keeps workers free for the other classes, e.g. bulk requests can be limited to all workers but one.
+ *
+ * @author patrick
+ */
+public class PriorityRequestScheduler implements IRequestScheduler {
+    /** The default queue limit of a class and the intake */
+    public static final int DEFAULT_QUEUE_LIMIT = 128;
+    private static final Logger LOG = LoggerFactory.getLogger(PriorityRequestScheduler.class);
+    private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+    private static final int INTAKE = PRIORITIES.length;
+    private static final int CRITICAL = RequestPriority.CRITICAL.ordinal();
+    private static final int RESERVED_WORKER_RATIO = 8;
+    private final IRequestClassifier classifier;
+    private final ReentrantLock lock;
+    private final Condition taskAvailable;
+    private final Condition reservedTaskAvailable;
+    private final ArrayDeque<Runnable> intakeQueue;
+    private final List<ArrayDeque<Runnable>> queues;
+    private final int[] weights;
+    private final int[] queueLimits;
+    private final int[] concurrencyLimits;
+    private final int[] active;
+    private final int[] credits;
+    private final List<Thread> workers;
+    private int intakeQueueLimit;
+    private int reservedWorkers;
+    private String threadName;
+    private boolean running;
+
+
+    /**
+     * Constructor for PriorityRequestScheduler
+     *
+     * @param classifier the request classifier
+     */
+    public PriorityRequestScheduler(IRequestClassifier classifier) {
+        if (classifier == null) {
+            throw new IllegalArgumentException("Invalid classifier!");
+        }
+
+        this.classifier = classifier;
+        this.lock = new ReentrantLock();
+        this.taskAvailable = lock.newCondition();
+        this.reservedTaskAvailable = lock.newCondition();
+        this.queues = new ArrayList<>();
+        this.weights = new int[PRIORITIES.length + 1];
+        this.queueLimits = new int[PRIORITIES.length + 1];
+        this.concurrencyLimits = new int[PRIORITIES.length + 1];
+        this.active = new int[PRIORITIES.length + 1];
+        this.credits = new int[PRIORITIES.length + 1];
+        for (int i = 0; i <= PRIORITIES.length; i++) {
+            queues.add(new ArrayDeque<>());
+            queueLimits[i] = DEFAULT_QUEUE_LIMIT;
+            concurrencyLimits[i] = Integer.MAX_VALUE;
+        }
+
+        // the last queue is the intake
+        this.intakeQueue = queues.get(INTAKE);
+        weights[CRITICAL] = 8;
+        weights[RequestPriority.NORMAL.ordinal()] = 4;
+        weights[RequestPriority.BULK.ordinal()] = 1;
+        weights[INTAKE] = weights[CRITICAL];
+        this.workers = new ArrayList<>();
+        this.intakeQueueLimit = DEFAULT_QUEUE_LIMIT;
+        this.reservedWorkers = -1;
+        this.threadName = "http-worker";
+        this.running = false;
+    }
+
+
+    /**
+     * Set the weight of a class
+     *
+     * @param priority the priority class
+     * @param weight the weight, at least 1
+     * @return the scheduler
+     */
+    public PriorityRequestScheduler setWeight(RequestPriority priority, int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Invalid weight: " + weight);
+        }
+
+        lock.lock();
+        try {
+            weights[priority.ordinal()] = weight;
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+
+    /**
+     * Set the max number of queued requests of a class, more requests are rejected
+     *
+     * @param priority the priority class
+     * @param queueLimit the queue limit
+     * @return the scheduler
+     */
+    public PriorityRequestScheduler setQueueLimit(RequestPriority priority, int queueLimit) {
+        lock.lock();
+        try {
+            queueLimits[priority.ordinal()] = Math.max(0, queueLimit);
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+
+    /**
+     * Set the max number of requests of a class which are processed at the same time
+     *
+     * @param priority the priority class
+     * @param concurrencyLimit the concurrency limit, at least 1
+     * @return the scheduler
+     */
+    public PriorityRequestScheduler setConcurrencyLimit(RequestPriority priority, int concurrencyLimit) {
+        if (concurrencyLimit < 1) {
+            throw new IllegalArgumentException("Invalid concurrency limit: " + concurrencyLimit);
+        }
+
+        lock.lock();
+        try {
+            concurrencyLimits[priority.ordinal()] = concurrencyLimit;
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+
+    /**
+     * Set the weight of the intake in the weighted round robin
+     *
+     * @param weight the weight, at least 1
+     * @return the scheduler
+     */
+    public PriorityRequestScheduler setIntakeWeight(int weight) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Invalid weight: " + weight);
+        }
+
+        lock.lock();
+        try {
+            weights[INTAKE] = weight;
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+
+    /**
+     * Set the number of workers which only serve the intake and the critical class. It's applied on the next start,
+     * at least one worker serves all classes.
+     *
+     * @param reservedWorkers the number of reserved workers, 0 to serve all classes by all workers
+     * @return the scheduler
+     */
+    public PriorityRequestScheduler setReservedWorkers(int reservedWorkers) {
+        if (reservedWorkers < 0) {
+            throw new IllegalArgumentException("Invalid number of reserved workers: " + reservedWorkers);
+        }
+
+        lock.lock();
+        try {
+            this.reservedWorkers = reservedWorkers;
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+
+    /**
+     * Get the number of workers which only serve the intake and the critical class
+     *
+     * @param numberOfWorkers the number of worker threads
+     * @return the number of reserved workers
+     */
+    public int getReservedWorkers(int numberOfWorkers) {
+        final int n = Math.max(1, numberOfWorkers);
+        int result;
+        lock.lock();
+        try {
+            result = reservedWorkers;
+        } finally {
+            lock.unlock();
+        }
+
+        if (result < 0) {
+            result = Math.max(1, n / RESERVED_WORKER_RATIO);
+        }
+
+        return Math.min(result, n - 1);
+    }
+
+
+    /**
+     * Set the max number of new connections waiting for the intake, more connections are rejected
+     *
+     * @param intakeQueueLimit the intake queue limit
+     * @return the scheduler
+     */
+    public PriorityRequestScheduler setIntakeQueueLimit(int intakeQueueLimit) {
+        lock.lock();
+        try {
+            this.intakeQueueLimit = Math.max(0, intakeQueueLimit);
+        } finally {
+            lock.unlock();
+        }
+        return this;
+    }
+
+
+    /**
+     * Set the name prefix of the worker threads
+     *
+     * @param threadName the name prefix
+     * @return the scheduler
+     */
+    public PriorityRequestScheduler setThreadName(String threadName) {
+        this.threadName = threadName;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.scheduler.IRequestScheduler#start(int)
+     */
+    @Override
+    public void start(int numberOfWorkers) {
+        lock.lock();
+        try {
+            if (running) {
+                return;
+            }
+
+            running = true;
+            workers.clear();
+            final int reserved = getReservedWorkers(numberOfWorkers);
+            for (int i = 0; i < Math.max(1, numberOfWorkers); i++) {
+                final boolean isReserved = i < reserved;
+                final Thread worker = new Thread(() -> work(isReserved), threadName + "-" + (i + 1));
+                workers.add(worker);
+                worker.start();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.scheduler.IRequestScheduler#stop()
+     */
+    @Override
+    public void stop() {
+        lock.lock();
+        try {
+            running = false;
+            taskAvailable.signalAll();
+            reservedTaskAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.scheduler.IRequestScheduler#execute(java.lang.Runnable)
+     */
+    @Override
+    public boolean execute(Runnable task) {
+        lock.lock();
+        try {
+            if (!running || intakeQueue.size() >= intakeQueueLimit) {
+                return false;
+            }
+
+            intakeQueue.add(task);
+            signal(INTAKE);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.scheduler.IRequestScheduler#execute(java.lang.Runnable, com.github.toolarium.network.server.scheduler.RequestPriority)
+     */
+    @Override
+    public boolean execute(Runnable task, RequestPriority priority) {
+        final int idx = priority.ordinal();
+        lock.lock();
+        try {
+            if (!running || queues.get(idx).size() >= queueLimits[idx]) {
+                return false;
+            }
+
+            queues.get(idx).add(task);
+            signal(idx);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.scheduler.IRequestScheduler#classify(com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public RequestPriority classify(IHttpRequest request) {
+        final RequestPriority priority = classifier.classify(request);
+        if (priority == null) {
+            return RequestPriority.NORMAL;
+        }
+
+        return priority;
+    }
+
+
+    /**
+     * Get the number of queued requests of a class
+     *
+     * @param priority the priority class
+     * @return the number of queued requests
+     */
+    public int getQueueSize(RequestPriority priority) {
+        lock.lock();
+        try {
+            return queues.get(priority.ordinal()).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Get the number of requests of a class which are processed
+     *
+     * @param priority the priority class
+     * @return the number of active requests
+     */
+    public int getActiveCount(RequestPriority priority) {
+        lock.lock();
+        try {
+            return active[priority.ordinal()];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * The loop of a worker thread
+     *
+     * @param reserved true if the worker only serves the intake and the critical class
+     */
+    private void work(boolean reserved) {
+        while (true) {
+            Runnable task = null;
+            int idx = -1;
+            lock.lock();
+            try {
+                while (task == null) {
+                    idx = select(reserved);
+                    if (idx >= 0) {
+                        task = queues.get(idx).poll();
+                        active[idx]++;
+                    } else if (!running && isIdle()) {
+                        // wake up the other waiting workers to terminate as well
+                        taskAvailable.signalAll();
+                        reservedTaskAvailable.signalAll();
+                        return;
+                    } else if (reserved) {
+                        reservedTaskAvailable.await();
+                    } else {
+                        taskAvailable.await();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.warn("Exception occured: " + e.getMessage(), e);
+            } finally {
+                lock.lock();
+                try {
+                    active[idx]--;
+                    signal(idx);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Select the queue to dequeue by the smooth weighted round robin over the intake and the classes which have queued
+     * requests and are below their concurrency limit. The lock must be held.
+     *
+     * @param reserved true to select only the intake or the critical class
+     * @return the index of the queue or -1
+     */
+    private int select(boolean reserved) {
+        int total = 0;
+        int selected = -1;
+        for (int i = 0; i < queues.size(); i++) {
+            if ((!reserved || i == INTAKE || i == CRITICAL) && !queues.get(i).isEmpty() && active[i] < concurrencyLimits[i]) {
+                credits[i] += weights[i];
+                total += weights[i];
+                if (selected < 0 || credits[i] > credits[selected]) {
+                    selected = i;
+                }
+            }
+        }
+
+        if (selected >= 0) {
+            credits[selected] -= total;
+        }
+
+        return selected;
+    }
+
+
+    /**
+     * Signal a waiting worker which can serve the queue: a queued task or a finished task of the queue, which may be
+     * below its concurrency limit again. The lock must be held.
+     *
+     * @param idx the index of the queue
+     */
+    private void signal(int idx) {
+        taskAvailable.signal();
+        if (idx == INTAKE || idx == CRITICAL) {
+            reservedTaskAvailable.signal();
+        }
+    }
+
+
+    /**
+     * Check if all queues are empty. The lock must be held.
+     *
+     * @return true if there are no queued tasks
+     */
+    private boolean isIdle() {
+        for (ArrayDeque<Runnable> queue : queues) {
+            if (!queue.isEmpty()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * RequestClassifier.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.scheduler;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Implements a rule based {@link IRequestClassifier}: the header rules are checked first in the order they were added,
+ * then the longest matching path prefix wins. Requests without matching rule get the default priority.
+ *
+ * @author patrick
+ */
+public class RequestClassifier implements IRequestClassifier {
+    private final List<String> headerNames;
+    private final List<String> headerValues;
+    private final List<RequestPriority> headerPriorities;
+    private final List<String> pathPrefixes;
+    private final List<RequestPriority> pathPriorities;
+    private RequestPriority defaultPriority;
+
+
+    /**
+     * Constructor for RequestClassifier
+     */
+    public RequestClassifier() {
+        headerNames = new ArrayList<>();
+        headerValues = new ArrayList<>();
+        headerPriorities = new ArrayList<>();
+        pathPrefixes = new ArrayList<>();
+        pathPriorities = new ArrayList<>();
+        defaultPriority = RequestPriority.NORMAL;
+    }
+
+
+    /**
+     * Add a path prefix rule, e.g. <code>/health</code>
+     *
+     * @param pathPrefix the path prefix
+     * @param priority the priority class
+     * @return the request classifier
+     */
+    public RequestClassifier addPath(String pathPrefix, RequestPriority priority) {
+        if (pathPrefix == null || priority == null) {
+            throw new IllegalArgumentException("Invalid path rule: " + pathPrefix + " -> " + priority);
+        }
+
+        pathPrefixes.add(pathPrefix);
+        pathPriorities.add(priority);
+        return this;
+    }
+
+
+    /**
+     * Add a header rule
+     *
+     * @param headerName the header name
+     * @param headerValue the header value (case insensitive) or null to match any value
+     * @param priority the priority class
+     * @return the request classifier
+     */
+    public RequestClassifier addHeader(String headerName, String headerValue, RequestPriority priority) {
+        if (headerName == null || priority == null) {
+            throw new IllegalArgumentException("Invalid header rule: " + headerName + " -> " + priority);
+        }
+
+        headerNames.add(headerName);
+        headerValues.add(headerValue);
+        headerPriorities.add(priority);
+        return this;
+    }
+
+
+    /**
+     * Set the priority of the requests without matching rule
+     *
+     * @param defaultPriority the default priority class
+     * @return the request classifier
+     */
+    public RequestClassifier setDefaultPriority(RequestPriority defaultPriority) {
+        if (defaultPriority == null) {
+            throw new IllegalArgumentException("Invalid default priority!");
+        }
+
+        this.defaultPriority = defaultPriority;
+        return this;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.scheduler.IRequestClassifier#classify(com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public RequestPriority classify(IHttpRequest request) {
+        if (request == null) {
+            return defaultPriority;
+        }
+
+        for (int i = 0; i < headerNames.size(); i++) {
+            final String value = request.getHeader(headerNames.get(i));
+            if (value != null && (headerValues.get(i) == null || headerValues.get(i).equalsIgnoreCase(value.trim()))) {
+                return headerPriorities.get(i);
+            }
+        }
+
+        final String path = request.getPath();
+        RequestPriority result = defaultPriority;
+        if (path != null) {
+            int matchLength = -1;
+            for (int i = 0; i < pathPrefixes.size(); i++) {
+                final String prefix = pathPrefixes.get(i);
+                if (prefix.length() > matchLength && path.startsWith(prefix)) {
+                    matchLength = prefix.length();
+                    result = pathPriorities.get(i);
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,23 @@
+/*
+ * RequestPriority.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.scheduler;
+
+
+/**
+ * Defines the priority classes of the requests.
+ *
+ * @author patrick
+ */
+public enum RequestPriority {
+    /** Latency critical requests, e.g. health checks and admin calls. */
+    CRITICAL,
+
+    /** The default class. */
+    NORMAL,
+
+    /** Expensive requests which can wait, e.g. reports or exports. */
+    BULK
+}
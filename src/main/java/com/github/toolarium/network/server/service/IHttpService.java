@@ -37,6 +37,20 @@ public interface IHttpService {
     void stop(IHttpServerLogger httpServerLogger,int port);
 
 
+    /**
+     * Check a request which expects a <code>100 Continue</code> before the client sends the request body
+     * (<code>Expect: 100-continue</code>). It's called after the request headers are read and before the body is read,
+     * so e.g. the authorization or the content type can be checked before a large upload is transferred.
+     *
+     * @param httpServerLogger the server logger
+     * @param request the request without body
+     * @return null to continue, otherwise the final response to reject the request (e.g. 401 or 413)
+     */
+    default IHttpResponse checkExpectation(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+        return null;
+    }
+
+
     /**
      * Process a request
      * 
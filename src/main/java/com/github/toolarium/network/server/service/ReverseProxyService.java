@@ -0,0 +1,593 @@
+/*
+ * ReverseProxyService.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.service;
+
+import com.github.toolarium.network.server.dto.HttpHeaders;
+import com.github.toolarium.network.server.dto.HttpParameters;
+import com.github.toolarium.network.server.dto.HttpReponse;
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.handler.IHttpConnectionHandler;
+import com.github.toolarium.network.server.handler.impl.ReverseProxyConnectionHandler;
+import com.github.toolarium.network.server.logger.IHttpServerLogger;
+import com.github.toolarium.network.server.service.proxy.Upstream;
+import com.github.toolarium.network.server.service.proxy.UpstreamConnection;
+import com.github.toolarium.network.server.service.proxy.UpstreamResponse;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import com.github.toolarium.network.server.util.HttpStatusUtil;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Implements a reverse proxy service which forwards the requests to a set of upstream servers. The connections to the
+ * upstreams are pooled keep-alive connections; the upstream with the least outstanding requests is selected and an
+ * upstream is ejected for a while after consecutive failures (connection errors or 502/503/504).
+ *
+ * <p>With its {@link ReverseProxyConnectionHandler} the request and the response bodies are streamed in both
+ * directions without buffering them; {@link #processRequest(IHttpServerLogger, IHttpRequest)} is only used for an
+ * already read request.</p>
+ *
+ * @author patrick
+ */
+public class ReverseProxyService extends AbstractHttpService {
+    /** The default connect timeout in milliseconds */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5_000;
+
+    /** The default read timeout in milliseconds */
+    public static final int DEFAULT_READ_TIMEOUT = 30_000;
+
+    /** The default max number of idle connections per upstream */
+    public static final int DEFAULT_MAX_IDLE_CONNECTIONS = 32;
+
+    /** The default max idle time of a pooled connection in milliseconds, below the common upstream keep-alive timeouts */
+    public static final long DEFAULT_MAX_IDLE_TIME = 4_000;
+
+    /** The default number of consecutive failures to eject an upstream */
+    public static final int DEFAULT_MAX_FAILURES = 5;
+
+    /** The default ejection time in milliseconds */
+    public static final long DEFAULT_EJECTION_TIME = 30_000;
+
+    /**
+     * The charset which maps the bytes of a buffered body to a string and back without loss, every byte is one char:
+     * the body of {@link #processRequest(IHttpServerLogger, IHttpRequest)} is decoded and encoded with this charset
+     */
+    public static final Charset BODY_CHARSET = StandardCharsets.ISO_8859_1;
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReverseProxyService.class);
+    private static final String CRLF = UpstreamConnection.CRLF;
+    private static final String HTTP_1_1 = "HTTP/1.1";
+    private static final String X_FORWARDED_PROTO = "X-Forwarded-Proto";
+    private static final List<String> HOP_BY_HOP_HEADERS = Arrays.asList(HttpHeaderUtil.CONNECTION, "Keep-Alive", "Proxy-Connection", "Proxy-Authenticate",
+                                                                         "Proxy-Authorization", "TE", "Trailer", "Upgrade", HttpHeaderUtil.EXPECT);
+    private final List<Upstream> upstreams;
+    private final AtomicInteger nextIndex;
+    private int connectTimeout;
+    private int readTimeout;
+    private int maxIdleConnections;
+    private long maxIdleTime;
+    private int maxFailures;
+    private long ejectionTime;
+
+
+    /**
+     * Constructor for ReverseProxyService
+     *
+     * @param upstreams the upstreams, e.g. <code>localhost:8081</code>
+     * @throws IllegalArgumentException In case of an invalid upstream
+     */
+    public ReverseProxyService(String... upstreams) {
+        this(parseUpstreams(upstreams));
+    }
+
+
+    /**
+     * Constructor for ReverseProxyService
+     *
+     * @param upstreams the upstreams
+     * @throws IllegalArgumentException In case there is no upstream
+     */
+    public ReverseProxyService(List<Upstream> upstreams) {
+        if (upstreams == null || upstreams.isEmpty()) {
+            throw new IllegalArgumentException("At least one upstream is required!");
+        }
+
+        this.upstreams = Collections.unmodifiableList(new ArrayList<>(upstreams));
+        this.nextIndex = new AtomicInteger();
+        this.connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+        this.readTimeout = DEFAULT_READ_TIMEOUT;
+        this.maxIdleConnections = DEFAULT_MAX_IDLE_CONNECTIONS;
+        this.maxIdleTime = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MAX_IDLE_TIME);
+        this.maxFailures = DEFAULT_MAX_FAILURES;
+        this.ejectionTime = TimeUnit.MILLISECONDS.toNanos(DEFAULT_EJECTION_TIME);
+    }
+
+
+    /**
+     * Set the connect and read timeout of the upstream connections
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout the read timeout in milliseconds
+     * @return the reverse proxy service
+     */
+    public ReverseProxyService setTimeouts(int connectTimeout, int readTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+
+    /**
+     * Set the connection pool settings
+     *
+     * @param maxIdleConnections the max number of idle connections per upstream, 0 to disable the pooling
+     * @param maxIdleTime the max idle time of a pooled connection in milliseconds
+     * @return the reverse proxy service
+     */
+    public ReverseProxyService setConnectionPool(int maxIdleConnections, long maxIdleTime) {
+        this.maxIdleConnections = maxIdleConnections;
+        this.maxIdleTime = TimeUnit.MILLISECONDS.toNanos(maxIdleTime);
+        return this;
+    }
+
+
+    /**
+     * Set the passive health check settings
+     *
+     * @param maxFailures the number of consecutive failures to eject an upstream
+     * @param ejectionTime the ejection time in milliseconds
+     * @return the reverse proxy service
+     */
+    public ReverseProxyService setEjection(int maxFailures, long ejectionTime) {
+        this.maxFailures = Math.max(1, maxFailures);
+        this.ejectionTime = TimeUnit.MILLISECONDS.toNanos(ejectionTime);
+        return this;
+    }
+
+
+    /**
+     * Get the upstreams
+     *
+     * @return the upstreams
+     */
+    public List<Upstream> getUpstreams() {
+        return upstreams;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.service.AbstractHttpService#stop(com.github.toolarium.network.server.logger.IHttpServerLogger, int)
+     */
+    @Override
+    public void stop(IHttpServerLogger httpServerLogger, int port) {
+        for (Upstream upstream : upstreams) {
+            upstream.close();
+        }
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.service.AbstractHttpService#getHttpConnectionHandler()
+     */
+    @Override
+    public IHttpConnectionHandler getHttpConnectionHandler() {
+        return new ReverseProxyConnectionHandler();
+    }
+
+
+    /**
+     * Forward an already read request, the response body is buffered. The request body and the response body are
+     * mapped with the {@link #BODY_CHARSET}, as the {@link ReverseProxyConnectionHandler} reads and writes them.
+     *
+     * @see com.github.toolarium.network.server.service.IHttpService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger, com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+        byte[] body = new byte[0];
+        if (request.getBody() != null) {
+            body = request.getBody().getBytes(BODY_CHARSET);
+        }
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final HttpReponse[] result = new HttpReponse[1];
+        try {
+            forward(request, new ByteArrayInputStream(body), body.length, false, null, null, (response, connection) -> {
+                final boolean reusable = connection.copyResponseBody(response, content, true);
+                final HttpHeaders headers = getResponseHeaders(response);
+                headers.remove(HttpHeaderUtil.TRANSFER_ENCODING);
+                headers.put(HttpHeaderUtil.CONTENT_LENGTH, "" + content.size());
+                result[0] = toHttpResponse(response, headers).setVersion(request.getVersion()).setBody(new String(content.toByteArray(), BODY_CHARSET));
+                return reusable;
+            });
+        } catch (IOException e) {
+            if (httpServerLogger != null) {
+                httpServerLogger.logWarn("Could not forward request: " + e.getMessage(), e);
+            }
+        }
+
+        if (result[0] == null) {
+            int status = 502;
+            if (isEjected()) {
+                status = 503;
+            }
+
+            return prepareResponse(request).setStatus(status).addHeader(HttpHeaderUtil.CONTENT_LENGTH, "0").setBody("");
+        }
+
+        return result[0];
+    }
+
+
+    /**
+     * Forward a request and stream the request body to the upstream and the response to the client. A failure of a
+     * reused pooled connection before the response is received is retried on a new connection, if the request has no
+     * body. A failure before the response head is written to the client is answered with 502, or with 503 in case all
+     * upstreams are ejected.
+     *
+     * @param request the request without body
+     * @param body the raw request body
+     * @param clientAddress the address of the client or null
+     * @param protocol the protocol of the client connection (http or https)
+     * @param client the output stream to the client
+     * @return the response for the access logger, the body is not set
+     * @throws IOException In case of an I/O error
+     */
+    public IHttpResponse forward(IHttpRequest request, InputStream body, String clientAddress, String protocol, OutputStream client) throws IOException {
+        long contentLength;
+        try {
+            contentLength = new HttpHeaders(request.getHeaders()).getContentLength();
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid Content-Length header: " + request.getHeaderValues(HttpHeaderUtil.CONTENT_LENGTH));
+        }
+
+        final boolean chunked = UpstreamConnection.isChunked(request.getHeader(HttpHeaderUtil.TRANSFER_ENCODING));
+        final boolean decodeChunked = !HTTP_1_1.equalsIgnoreCase(request.getVersion());
+        final HttpReponse[] result = new HttpReponse[1];
+
+        final boolean forwarded = forward(request, body, contentLength, chunked, clientAddress, protocol, (response, connection) -> {
+            final HttpHeaders headers = getResponseHeaders(response);
+            if (decodeChunked && response.isChunked()) {
+                // a HTTP/1.0 client don't understand chunks: the body ends with the connection
+                headers.remove(HttpHeaderUtil.TRANSFER_ENCODING);
+            }
+            headers.put(HttpHeaderUtil.CONNECTION, "close");
+            result[0] = toHttpResponse(response, headers);
+
+            final StringBuilder head = new StringBuilder();
+            head.append(HTTP_1_1).append(' ').append(response.getStatus()).append(' ').append(response.getReasonPhrase()).append(CRLF);
+            appendHeaders(head, headers);
+            head.append(CRLF);
+            client.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+            return connection.copyResponseBody(response, client, decodeChunked);
+        });
+
+        if (!forwarded) {
+            int status = 502;
+            if (isEjected()) {
+                status = 503;
+            }
+
+            final String statusLine = HTTP_1_1 + " " + status + " " + HttpStatusUtil.getInstance().getStatusText(status) + CRLF;
+            client.write((statusLine + HttpHeaderUtil.CONTENT_LENGTH + ": 0" + CRLF + HttpHeaderUtil.CONNECTION + ": close" + CRLF + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+            return new HttpReponse().setVersion(HTTP_1_1).setStatus(status).addHeader(HttpHeaderUtil.CONTENT_LENGTH, "0");
+        }
+
+        return result[0];
+    }
+
+
+    /**
+     * Check if all upstreams are ejected
+     *
+     * @return true if all upstreams are ejected
+     */
+    protected boolean isEjected() {
+        final long now = System.nanoTime();
+        for (Upstream upstream : upstreams) {
+            if (!upstream.isEjected(now)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Select the upstream with the least outstanding requests which is not ejected. Equal upstreams are selected round
+     * robin. In case all upstreams are ejected the least loaded upstream is selected anyway.
+     *
+     * @return the upstream
+     */
+    protected Upstream selectUpstream() {
+        final long now = System.nanoTime();
+        final int size = upstreams.size();
+        final int start = (nextIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+        Upstream result = null;
+        Upstream fallback = null;
+        for (int i = 0; i < size; i++) {
+            final Upstream upstream = upstreams.get((start + i) % size);
+            if (fallback == null || upstream.getOutstandingRequests() < fallback.getOutstandingRequests()) {
+                fallback = upstream;
+            }
+
+            if (!upstream.isEjected(now) && (result == null || upstream.getOutstandingRequests() < result.getOutstandingRequests())) {
+                result = upstream;
+            }
+        }
+
+        if (result == null) {
+            return fallback;
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Forward a request to an upstream
+     *
+     * @param request the request
+     * @param body the request body
+     * @param contentLength the content length or -1
+     * @param chunked true if the request body is chunked
+     * @param clientAddress the address of the client or null
+     * @param protocol the protocol of the client or null
+     * @param responseHandler the handler of the response
+     * @return true if the response was handled, false if no upstream could process the request
+     * @throws IOException In case of an I/O error after the response was started
+     */
+    private boolean forward(IHttpRequest request, InputStream body, long contentLength, boolean chunked, String clientAddress, String protocol, ResponseHandler responseHandler)
+            throws IOException {
+        final boolean hasBody = chunked || contentLength > 0;
+        final boolean headRequest = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        int attempt = 0;
+        while (attempt < 2) {
+            attempt++;
+            final Upstream upstream = selectUpstream();
+            final String requestHead = createRequestHead(request, upstream, clientAddress, protocol);
+
+            upstream.requestStarted();
+            UpstreamConnection connection = null;
+            boolean reusable = false;
+            boolean responseStarted = false;
+            try {
+                connection = upstream.acquireConnection(connectTimeout, readTimeout, maxIdleTime);
+                connection.writeRequest(requestHead, body, contentLength, chunked);
+                final UpstreamResponse response = connection.readResponse(headRequest);
+                responseStarted = true;
+
+                if (response.getStatus() >= 502 && response.getStatus() <= 504) {
+                    onFailure(upstream, "status " + response.getStatus());
+                } else {
+                    upstream.onSuccess();
+                }
+
+                reusable = responseHandler.handle(response, connection);
+                return true;
+            } catch (IOException e) {
+                if (responseStarted) {
+                    throw e;
+                }
+
+                final boolean stale = connection != null && connection.isReused();
+                if (!stale) {
+                    onFailure(upstream, e.getMessage());
+                }
+
+                if (!(stale && !hasBody && attempt < 2)) {
+                    if (LOG.isDebugEnabled()) {
+                        LOG.debug("Could not forward request to " + upstream + ": " + e.getMessage());
+                    }
+                    return false;
+                }
+            } finally {
+                upstream.requestFinished();
+                if (connection != null) {
+                    upstream.releaseConnection(connection, reusable, maxIdleConnections);
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Record a failure of an upstream
+     *
+     * @param upstream the upstream
+     * @param reason the reason
+     */
+    private void onFailure(Upstream upstream, String reason) {
+        if (upstream.onFailure(maxFailures, ejectionTime)) {
+            LOG.warn("Eject upstream " + upstream.getHost() + ":" + upstream.getPort() + " (" + reason + ")");
+        }
+    }
+
+
+    /**
+     * Create the request line and headers for the upstream
+     *
+     * @param request the request
+     * @param upstream the upstream
+     * @param clientAddress the address of the client or null
+     * @param protocol the protocol of the client or null
+     * @return the request head
+     */
+    private String createRequestHead(IHttpRequest request, Upstream upstream, String clientAddress, String protocol) {
+        final StringBuilder head = new StringBuilder(256);
+        head.append(request.getMethod()).append(' ').append(request.getPath());
+        if (request.getParameters() instanceof HttpParameters) {
+            final String query = ((HttpParameters) request.getParameters()).getQuery();
+            if (query != null) {
+                head.append('?').append(query);
+            }
+        }
+        head.append(' ').append(HTTP_1_1).append(CRLF);
+
+        final HttpHeaders headers = new HttpHeaders();
+        final String connection = request.getHeader(HttpHeaderUtil.CONNECTION);
+        for (String name : request.getHeaders().keySet()) {
+            if (!isHopByHopHeader(name, connection)) {
+                for (String value : request.getHeaderValues(name)) {
+                    headers.add(name, value);
+                }
+            }
+        }
+
+        if (!headers.contains(HttpHeaderUtil.HOST)) {
+            headers.add(HttpHeaderUtil.HOST, upstream.getHost() + ":" + upstream.getPort());
+        }
+
+        if (clientAddress != null) {
+            final String forwardedFor = headers.remove(HttpHeaderUtil.X_FORWARDED_FOR);
+            if (forwardedFor != null) {
+                headers.add(HttpHeaderUtil.X_FORWARDED_FOR, forwardedFor + ", " + clientAddress);
+            } else {
+                headers.add(HttpHeaderUtil.X_FORWARDED_FOR, clientAddress);
+            }
+        }
+
+        if (protocol != null && !headers.contains(X_FORWARDED_PROTO)) {
+            headers.add(X_FORWARDED_PROTO, protocol);
+        }
+
+        appendHeaders(head, headers);
+        head.append(CRLF);
+        return head.toString();
+    }
+
+
+    /**
+     * Get the end-to-end headers of the upstream response
+     *
+     * @param response the upstream response
+     * @return the headers
+     */
+    private HttpHeaders getResponseHeaders(UpstreamResponse response) {
+        final HttpHeaders headers = new HttpHeaders();
+        final String connection = response.getHeaders().getFirst(HttpHeaderUtil.CONNECTION);
+        for (String name : response.getHeaders().keySet()) {
+            if (!isHopByHopHeader(name, connection)) {
+                for (String value : response.getHeaders().getAll(name)) {
+                    headers.add(name, value);
+                }
+            }
+        }
+
+        return headers;
+    }
+
+
+    /**
+     * Create the http response of an upstream response. A repeated header is represented by its first value.
+     *
+     * @param response the upstream response
+     * @param headers the headers
+     * @return the http response
+     */
+    private HttpReponse toHttpResponse(UpstreamResponse response, HttpHeaders headers) {
+        final HttpReponse result = new HttpReponse().setVersion(HTTP_1_1).setStatus(response.getStatus());
+        for (Map.Entry<String, String> e : headers.entrySet()) {
+            result.addHeader(e.getKey(), e.getValue());
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Append the headers
+     *
+     * @param head the head
+     * @param headers the headers
+     */
+    private static void appendHeaders(StringBuilder head, HttpHeaders headers) {
+        for (String name : headers.keySet()) {
+            for (String value : headers.getAll(name)) {
+                head.append(name).append(": ").append(value).append(CRLF);
+            }
+        }
+    }
+
+
+    /**
+     * Check if a header is a hop-by-hop header which is not forwarded (RFC 9110, 7.6.1)
+     *
+     * @param name the header name
+     * @param connection the value of the connection header or null
+     * @return true if it is a hop-by-hop header
+     */
+    private static boolean isHopByHopHeader(String name, String connection) {
+        for (String hopByHopHeader : HOP_BY_HOP_HEADERS) {
+            if (HttpHeaderUtil.getInstance().equalsIgnoreCase(hopByHopHeader, name)) {
+                return true;
+            }
+        }
+
+        if (connection != null) {
+            for (String token : connection.split(",")) {
+                if (HttpHeaderUtil.getInstance().equalsIgnoreCase(token.trim(), name)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Parse the upstreams
+     *
+     * @param upstreams the upstreams
+     * @return the parsed upstreams
+     */
+    private static List<Upstream> parseUpstreams(String... upstreams) {
+        final List<Upstream> result = new ArrayList<>();
+        if (upstreams != null) {
+            for (String upstream : upstreams) {
+                result.add(Upstream.parse(upstream));
+            }
+        }
+
+        return result;
+    }
+
+
+    /**
+     * Handles the response of an upstream.
+     */
+    private interface ResponseHandler {
+
+        /**
+         * Handle the response
+         *
+         * @param response the response head
+         * @param connection the connection to read the body
+         * @return true if the connection can be reused
+         * @throws IOException In case of an I/O error
+         */
+        boolean handle(UpstreamResponse response, UpstreamConnection connection) throws IOException;
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * Upstream.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.service.proxy;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Defines an upstream server of the reverse proxy with its pool of idle keep-alive connections and its passive health
+ * state: after a number of consecutive failures the upstream is ejected for a while.
+ *
+ * @author patrick
+ */
+public class Upstream {
+    private final String host;
+    private final int port;
+    private final ConcurrentLinkedDeque<UpstreamConnection> idleConnections;
+    private final AtomicInteger numberOfIdleConnections;
+    private final AtomicInteger outstandingRequests;
+    private final AtomicInteger consecutiveFailures;
+    private volatile long ejectedUntil;
+    private volatile boolean ejected;
+
+
+    /**
+     * Constructor for Upstream
+     *
+     * @param host the host
+     * @param port the port
+     */
+    public Upstream(String host, int port) {
+        if (host == null || host.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid upstream host: " + host);
+        }
+
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("Invalid upstream port: " + port);
+        }
+
+        this.host = host.trim();
+        this.port = port;
+        this.idleConnections = new ConcurrentLinkedDeque<>();
+        this.numberOfIdleConnections = new AtomicInteger();
+        this.outstandingRequests = new AtomicInteger();
+        this.consecutiveFailures = new AtomicInteger();
+        this.ejectedUntil = 0;
+        this.ejected = false;
+    }
+
+
+    /**
+     * Parse an upstream: <code>host:port</code>, <code>[ipv6]:port</code> or <code>host</code> (port 80)
+     *
+     * @param hostAndPort the host and port
+     * @return the upstream
+     * @throws IllegalArgumentException In case of an invalid upstream
+     */
+    public static Upstream parse(String hostAndPort) {
+        if (hostAndPort == null || hostAndPort.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid upstream: " + hostAndPort);
+        }
+
+        final String input = hostAndPort.trim();
+        String host = input;
+        String port = null;
+        if (input.startsWith("[")) {
+            final int end = input.indexOf(']');
+            if (end < 0) {
+                throw new IllegalArgumentException("Invalid upstream: " + hostAndPort);
+            }
+
+            host = input.substring(1, end);
+            if (end + 1 < input.length() && input.charAt(end + 1) == ':') {
+                port = input.substring(end + 2);
+            }
+        } else if (input.indexOf(':') == input.lastIndexOf(':') && input.indexOf(':') > 0) {
+            host = input.substring(0, input.indexOf(':'));
+            port = input.substring(input.indexOf(':') + 1);
+        }
+
+        if (port == null) {
+            return new Upstream(host, 80);
+        }
+
+        try {
+            return new Upstream(host, Integer.parseInt(port.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid upstream port: " + hostAndPort);
+        }
+    }
+
+
+    /**
+     * Get the host
+     *
+     * @return the host
+     */
+    public String getHost() {
+        return host;
+    }
+
+
+    /**
+     * Get the port
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return port;
+    }
+
+
+    /**
+     * Get the number of requests which are currently forwarded to this upstream
+     *
+     * @return the number of outstanding requests
+     */
+    public int getOutstandingRequests() {
+        return outstandingRequests.get();
+    }
+
+
+    /**
+     * Get the number of idle pooled connections
+     *
+     * @return the number of idle connections
+     */
+    public int getNumberOfIdleConnections() {
+        return numberOfIdleConnections.get();
+    }
+
+
+    /**
+     * Get the number of consecutive failures
+     *
+     * @return the number of consecutive failures
+     */
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+
+    /**
+     * Check if the upstream is ejected
+     *
+     * @param now the current time in nanoseconds
+     * @return true if the upstream is ejected
+     */
+    public boolean isEjected(long now) {
+        return ejected && ejectedUntil - now > 0;
+    }
+
+
+    /**
+     * Acquire a connection: the most recently used idle connection or a new connection. The caller must release it by
+     * {@link #releaseConnection(UpstreamConnection, boolean, int)}.
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout the read timeout in milliseconds
+     * @param maxIdleTime the max idle time of a pooled connection in nanoseconds
+     * @return the connection
+     * @throws IOException In case the connection can't be established
+     */
+    public UpstreamConnection acquireConnection(int connectTimeout, int readTimeout, long maxIdleTime) throws IOException {
+        final long now = System.nanoTime();
+        UpstreamConnection connection = idleConnections.pollFirst();
+        while (connection != null) {
+            numberOfIdleConnections.decrementAndGet();
+            if (connection.isUsable(now, maxIdleTime)) {
+                return connection;
+            }
+
+            connection.close();
+            connection = idleConnections.pollFirst();
+        }
+
+        // the socket of a channel allows a non-blocking check of an idle connection
+        final Socket socket = SocketChannel.open().socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(host, port), connectTimeout);
+            socket.setSoTimeout(readTimeout);
+            return new UpstreamConnection(this, socket);
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                // NOP
+            }
+            throw e;
+        }
+    }
+
+
+    /**
+     * Release a connection
+     *
+     * @param connection the connection
+     * @param reusable true if the connection can be reused
+     * @param maxIdleConnections the max number of idle connections
+     */
+    public void releaseConnection(UpstreamConnection connection, boolean reusable, int maxIdleConnections) {
+        if (connection == null) {
+            return;
+        }
+
+        if (reusable && numberOfIdleConnections.incrementAndGet() <= maxIdleConnections) {
+            connection.markIdle(System.nanoTime());
+            idleConnections.offerFirst(connection);
+            return;
+        }
+
+        if (reusable) {
+            numberOfIdleConnections.decrementAndGet();
+        }
+        connection.close();
+    }
+
+
+    /**
+     * Start a request to this upstream
+     */
+    public void requestStarted() {
+        outstandingRequests.incrementAndGet();
+    }
+
+
+    /**
+     * Finish a request to this upstream
+     */
+    public void requestFinished() {
+        outstandingRequests.decrementAndGet();
+    }
+
+
+    /**
+     * Record a successful request: the upstream is healthy again
+     */
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        ejected = false;
+    }
+
+
+    /**
+     * Record a failed request. After the max number of consecutive failures the upstream is ejected; after the
+     * ejection time it gets requests again and is ejected by the next failure.
+     *
+     * @param maxFailures the max number of consecutive failures
+     * @param ejectionTime the ejection time in nanoseconds
+     * @return true if the upstream is ejected
+     */
+    public boolean onFailure(int maxFailures, long ejectionTime) {
+        if (consecutiveFailures.incrementAndGet() >= maxFailures) {
+            ejectedUntil = System.nanoTime() + ejectionTime;
+            ejected = true;
+            return true;
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Close all idle connections
+     */
+    public void close() {
+        UpstreamConnection connection = idleConnections.pollFirst();
+        while (connection != null) {
+            numberOfIdleConnections.decrementAndGet();
+            connection.close();
+            connection = idleConnections.pollFirst();
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "Upstream [" + host + ":" + port + ", outstandingRequests=" + outstandingRequests + ", consecutiveFailures=" + consecutiveFailures + ", ejected=" + ejected + "]";
+    }
+}
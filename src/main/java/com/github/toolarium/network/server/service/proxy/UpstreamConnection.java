@@ -0,0 +1,435 @@
+/*
+ * UpstreamConnection.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.service.proxy;
+
+import com.github.toolarium.network.server.dto.HttpHeaders;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * Implements a keep-alive connection to an upstream server. The request and response bodies are streamed with a small
+ * buffer; chunked bodies are passed through (or decoded) chunk by chunk.
+ *
+ * @author patrick
+ */
+public class UpstreamConnection implements Closeable {
+    /** The line end of the http protocol */
+    public static final String CRLF = "\r\n";
+    private static final int BUFFER_SIZE = 8192;
+    private static final int MAX_LINE_LENGTH = 8192;
+    private static final int MAX_HEADER_SIZE = 65536;
+    private final Upstream upstream;
+    private final Socket socket;
+    private final InputStream input;
+    private final OutputStream output;
+    private final byte[] buffer;
+    private volatile long lastUsed;
+    private int numberOfRequests;
+
+
+    /**
+     * Constructor for UpstreamConnection
+     *
+     * @param upstream the upstream
+     * @param socket the connected socket
+     * @throws IOException In case of an I/O error
+     */
+    UpstreamConnection(Upstream upstream, Socket socket) throws IOException {
+        this.upstream = upstream;
+        this.socket = socket;
+        this.input = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+        this.output = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+        this.buffer = new byte[BUFFER_SIZE];
+        this.lastUsed = System.nanoTime();
+        this.numberOfRequests = 0;
+    }
+
+
+    /**
+     * Get the upstream
+     *
+     * @return the upstream
+     */
+    public Upstream getUpstream() {
+        return upstream;
+    }
+
+
+    /**
+     * Check if the connection was taken from the pool, a reused connection can be closed by the upstream at any time.
+     *
+     * @return true if the connection was already used
+     */
+    public boolean isReused() {
+        return numberOfRequests > 0;
+    }
+
+
+    /**
+     * Write the request head and stream the request body
+     *
+     * @param requestHead the request line and headers including the empty line
+     * @param body the body or null
+     * @param contentLength the content length or -1
+     * @param chunked true if the body is chunked
+     * @throws IOException In case of an I/O error
+     */
+    public void writeRequest(String requestHead, InputStream body, long contentLength, boolean chunked) throws IOException {
+        output.write(requestHead.getBytes(StandardCharsets.ISO_8859_1));
+        if (body != null) {
+            if (chunked) {
+                copyChunked(body, output, false);
+            } else if (contentLength > 0) {
+                copy(body, output, contentLength);
+            }
+        }
+        output.flush();
+    }
+
+
+    /**
+     * Read the status line and the headers of the response. Interim responses (1xx) are skipped.
+     *
+     * @param headRequest true if the request was a HEAD request
+     * @return the response
+     * @throws IOException In case of an I/O error or an invalid response
+     */
+    public UpstreamResponse readResponse(boolean headRequest) throws IOException {
+        while (true) {
+            final String statusLine = readLine(input);
+            if (statusLine == null) {
+                throw new EOFException("Upstream closed the connection");
+            }
+
+            final String[] parts = statusLine.split(" ", 3);
+            if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+                throw new IOException("Invalid upstream status line: " + statusLine);
+            }
+
+            final int status;
+            try {
+                status = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid upstream status line: " + statusLine);
+            }
+
+            final HttpHeaders headers = readHeaders(input);
+            if (status >= 200 || status == 101) {
+                String reasonPhrase = "";
+                if (parts.length > 2) {
+                    reasonPhrase = parts[2];
+                }
+                return new UpstreamResponse(parts[0], status, reasonPhrase, headers, headRequest);
+            }
+        }
+    }
+
+
+    /**
+     * Copy the response body
+     *
+     * @param response the response
+     * @param out the output stream
+     * @param decodeChunked true to decode a chunked body, false to pass through the chunks
+     * @return true if the connection can be reused
+     * @throws IOException In case of an I/O error
+     */
+    public boolean copyResponseBody(UpstreamResponse response, OutputStream out, boolean decodeChunked) throws IOException {
+        if (!response.hasBody()) {
+            return response.isKeepAlive();
+        }
+
+        if (response.isChunked()) {
+            copyChunked(input, out, decodeChunked);
+            return response.isKeepAlive();
+        }
+
+        final long contentLength;
+        try {
+            contentLength = response.getContentLength();
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid upstream content length: " + response.getHeaders().getAll(HttpHeaderUtil.CONTENT_LENGTH));
+        }
+
+        if (contentLength >= 0) {
+            copy(input, out, contentLength);
+            return response.isKeepAlive();
+        }
+
+        // the body ends with the connection
+        int n = input.read(buffer);
+        while (n >= 0) {
+            out.write(buffer, 0, n);
+            n = input.read(buffer);
+        }
+        return false;
+    }
+
+
+    /**
+     * @see java.io.Closeable#close()
+     */
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // NOP
+        }
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "UpstreamConnection [" + socket + ", numberOfRequests=" + numberOfRequests + "]";
+    }
+
+
+    /**
+     * Check if an idle connection is still usable: not closed by the upstream and not idle too long.
+     *
+     * @param now the current time in nanoseconds
+     * @param maxIdleTime the max idle time in nanoseconds
+     * @return true if the connection is usable
+     */
+    boolean isUsable(long now, long maxIdleTime) {
+        if (socket.isClosed() || now - lastUsed > maxIdleTime) {
+            return false;
+        }
+
+        final SocketChannel channel = socket.getChannel();
+        try {
+            if (input.available() > 0) {
+                return false;
+            }
+
+            if (channel == null) {
+                return true;
+            }
+
+            // an idle connection has no pending data: a non-blocking read detects the close of the upstream
+            synchronized (channel.blockingLock()) {
+                channel.configureBlocking(false);
+                try {
+                    return channel.read(ByteBuffer.allocate(1)) == 0;
+                } finally {
+                    channel.configureBlocking(true);
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * Mark the connection as idle
+     *
+     * @param now the current time in nanoseconds
+     */
+    void markIdle(long now) {
+        lastUsed = now;
+        numberOfRequests++;
+    }
+
+
+    /**
+     * Check if a transfer encoding header value ends with chunked
+     *
+     * @param transferEncoding the transfer encoding or null
+     * @return true if it is chunked
+     */
+    public static boolean isChunked(String transferEncoding) {
+        if (transferEncoding == null) {
+            return false;
+        }
+
+        final String value = transferEncoding.trim();
+        final int idx = value.lastIndexOf(',');
+        return value.substring(idx + 1).trim().equalsIgnoreCase("chunked");
+    }
+
+
+    /**
+     * Check if a comma separated header value contains a token
+     *
+     * @param value the header value
+     * @param token the token
+     * @return true if the token is contained
+     */
+    static boolean containsToken(String value, String token) {
+        if (value == null) {
+            return false;
+        }
+
+        for (String t : value.split(",")) {
+            if (t.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Copy a number of bytes
+     *
+     * @param in the input
+     * @param out the output
+     * @param length the number of bytes
+     * @throws IOException In case of an I/O error or a premature end of the input
+     */
+    private void copy(InputStream in, OutputStream out, long length) throws IOException {
+        long remaining = length;
+        while (remaining > 0) {
+            final int n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (n < 0) {
+                throw new EOFException("Unexpected end of body: " + remaining + " of " + length + " bytes missing");
+            }
+
+            out.write(buffer, 0, n);
+            remaining -= n;
+        }
+    }
+
+
+    /**
+     * Copy a chunked body including the trailers
+     *
+     * @param in the input
+     * @param out the output
+     * @param decode true to write only the data, false to write the chunks as they are
+     * @throws IOException In case of an I/O error or an invalid chunk
+     */
+    private void copyChunked(InputStream in, OutputStream out, boolean decode) throws IOException {
+        while (true) {
+            final String chunkSizeLine = readLine(in);
+            if (chunkSizeLine == null) {
+                throw new EOFException("Unexpected end of chunked body");
+            }
+
+            int end = chunkSizeLine.indexOf(';');
+            if (end < 0) {
+                end = chunkSizeLine.length();
+            }
+
+            final long chunkSize;
+            try {
+                chunkSize = Long.parseLong(chunkSizeLine.substring(0, end).trim(), 16);
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk size: " + chunkSizeLine);
+            }
+
+            if (chunkSize < 0) {
+                throw new IOException("Invalid chunk size: " + chunkSizeLine);
+            }
+
+            if (!decode) {
+                out.write((chunkSizeLine + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+            }
+
+            if (chunkSize == 0) {
+                // trailer section
+                String line = readLine(in);
+                while (line != null && !line.isEmpty()) {
+                    if (!decode) {
+                        out.write((line + CRLF).getBytes(StandardCharsets.ISO_8859_1));
+                    }
+                    line = readLine(in);
+                }
+
+                if (!decode) {
+                    out.write(CRLF.getBytes(StandardCharsets.ISO_8859_1));
+                }
+                return;
+            }
+
+            copy(in, out, chunkSize);
+            if (!"".equals(readLine(in))) {
+                throw new IOException("Invalid chunk: missing line end");
+            }
+
+            if (!decode) {
+                out.write(CRLF.getBytes(StandardCharsets.ISO_8859_1));
+            }
+        }
+    }
+
+
+    /**
+     * Read the headers until the empty line
+     *
+     * @param in the input
+     * @return the headers
+     * @throws IOException In case of an I/O error or too large headers
+     */
+    private static HttpHeaders readHeaders(InputStream in) throws IOException {
+        final HttpHeaders headers = new HttpHeaders();
+        int size = 0;
+        String line = readLine(in);
+        while (line != null && !line.isEmpty()) {
+            size += line.length();
+            if (size > MAX_HEADER_SIZE) {
+                throw new IOException("Upstream headers exceed limit of " + MAX_HEADER_SIZE + " bytes");
+            }
+
+            final int idx = line.indexOf(':');
+            if (idx > 0) {
+                headers.add(HttpHeaderUtil.getInstance().toHeaderName(line.substring(0, idx).trim()), line.substring(idx + 1).trim());
+            }
+            line = readLine(in);
+        }
+
+        return headers;
+    }
+
+
+    /**
+     * Read a line which ends with LF or CRLF (ISO-8859-1)
+     *
+     * @param in the input
+     * @return the line without line end or null at the end of the input
+     * @throws IOException In case of an I/O error or a too long line
+     */
+    private static String readLine(InputStream in) throws IOException {
+        final StringBuilder line = new StringBuilder();
+        int b = in.read();
+        if (b < 0) {
+            return null;
+        }
+
+        while (b >= 0 && b != '\n') {
+            if (line.length() >= MAX_LINE_LENGTH) {
+                throw new IOException("Line exceeds limit of " + MAX_LINE_LENGTH + " bytes");
+            }
+
+            line.append((char) b);
+            b = in.read();
+        }
+
+        final int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+
+        return line.toString();
+    }
+}
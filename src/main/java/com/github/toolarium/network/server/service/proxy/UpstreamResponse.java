@@ -0,0 +1,136 @@
+/*
+ * UpstreamResponse.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.service.proxy;
+
+import com.github.toolarium.network.server.dto.HttpHeaders;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+
+
+/**
+ * The status line and the headers of a response of an upstream server. The body is not read.
+ *
+ * @author patrick
+ */
+public class UpstreamResponse {
+    private final String version;
+    private final int status;
+    private final String reasonPhrase;
+    private final HttpHeaders headers;
+    private final boolean headRequest;
+
+
+    /**
+     * Constructor for UpstreamResponse
+     *
+     * @param version the version
+     * @param status the status
+     * @param reasonPhrase the reason phrase
+     * @param headers the headers
+     * @param headRequest true if the response belongs to a HEAD request
+     */
+    public UpstreamResponse(String version, int status, String reasonPhrase, HttpHeaders headers, boolean headRequest) {
+        this.version = version;
+        this.status = status;
+        this.reasonPhrase = reasonPhrase;
+        this.headers = headers;
+        this.headRequest = headRequest;
+    }
+
+
+    /**
+     * Get the version
+     *
+     * @return the version
+     */
+    public String getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Get the status
+     *
+     * @return the status
+     */
+    public int getStatus() {
+        return status;
+    }
+
+
+    /**
+     * Get the reason phrase
+     *
+     * @return the reason phrase
+     */
+    public String getReasonPhrase() {
+        return reasonPhrase;
+    }
+
+
+    /**
+     * Get the headers
+     *
+     * @return the headers
+     */
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+
+    /**
+     * Check if the response has a body (RFC 9112, 6.3)
+     *
+     * @return true if the response has a body
+     */
+    public boolean hasBody() {
+        return !headRequest && status >= 200 && status != 204 && status != 304;
+    }
+
+
+    /**
+     * Check if the body is chunked
+     *
+     * @return true if the body is chunked
+     */
+    public boolean isChunked() {
+        return UpstreamConnection.isChunked(headers.getFirst(HttpHeaderUtil.TRANSFER_ENCODING));
+    }
+
+
+    /**
+     * Get the content length
+     *
+     * @return the content length or -1
+     * @throws NumberFormatException In case of an invalid content length
+     */
+    public long getContentLength() {
+        return headers.getContentLength();
+    }
+
+
+    /**
+     * Check if the upstream keeps the connection open after this response
+     *
+     * @return true if the connection can be reused
+     */
+    public boolean isKeepAlive() {
+        final String connection = headers.getFirst(HttpHeaderUtil.CONNECTION);
+        if ("HTTP/1.0".equalsIgnoreCase(version)) {
+            return connection != null && UpstreamConnection.containsToken(connection, "keep-alive");
+        }
+
+        return connection == null || !UpstreamConnection.containsToken(connection, "close");
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "UpstreamResponse [" + version + " " + status + " " + reasonPhrase + ", headers=" + headers + "]";
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * ITraceContext.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.trace;
+
+
+/**
+ * Defines the W3C trace context (<code>traceparent</code> / <code>tracestate</code>) of a request. The span id
+ * identifies the span of this server, the parent span id the span of the caller.
+ *
+ * @author patrick
+ */
+public interface ITraceContext {
+
+    /**
+     * Get the trace id
+     *
+     * @return the trace id, 32 lower case hex characters
+     */
+    String getTraceId();
+
+
+    /**
+     * Get the span id of the server span
+     *
+     * @return the span id, 16 lower case hex characters
+     */
+    String getSpanId();
+
+
+    /**
+     * Get the span id of the caller
+     *
+     * @return the parent span id, 16 lower case hex characters or null if the trace was started by this server
+     */
+    String getParentSpanId();
+
+
+    /**
+     * Get the trace flags
+     *
+     * @return the trace flags
+     */
+    int getTraceFlags();
+
+
+    /**
+     * Check if the caller sampled the trace
+     *
+     * @return true if the sampled flag is set
+     */
+    boolean isSampled();
+
+
+    /**
+     * Get the vendor specific trace state
+     *
+     * @return the trace state or null
+     */
+    String getTraceState();
+
+
+    /**
+     * Check if the trace context was received from the caller
+     *
+     * @return true if there was a valid <code>traceparent</code> header
+     */
+    boolean isRemote();
+
+
+    /**
+     * Get the <code>traceparent</code> header value to propagate the server span, e.g. to an upstream
+     *
+     * @return the header value with the span id of the server span as parent id
+     */
+    String toTraceparent();
+}
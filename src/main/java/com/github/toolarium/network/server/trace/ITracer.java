@@ -0,0 +1,49 @@
+/*
+ * ITracer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.trace;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.dto.IHttpServerInformation;
+
+
+/**
+ * Defines the tracer SPI of the http server, e.g. to bridge the server spans to a tracing library. The span of a
+ * request is identified by its {@link IHttpRequest#getTraceContext()}, the phase time stamps are available by
+ * {@link IHttpRequest#getTiming()}. The callbacks are called by the connection handler thread.
+ *
+ * @author patrick
+ */
+public interface ITracer {
+
+    /**
+     * Check if the tracer is enabled. A disabled tracer is not called and the trace context of a request is only
+     * created on demand.
+     *
+     * @return true if the tracer is enabled
+     */
+    boolean isEnabled();
+
+
+    /**
+     * The span of the request started: the request line and the headers are read.
+     *
+     * @param serverInformation the server information
+     * @param request the request without body
+     */
+    void spanStart(IHttpServerInformation serverInformation, IHttpRequest request);
+
+
+    /**
+     * The span of the request ended: the response was written or the request failed.
+     *
+     * @param serverInformation the server information
+     * @param request the request
+     * @param response the response or null if no response was written
+     * @param error the error or null
+     */
+    void spanEnd(IHttpServerInformation serverInformation, IHttpRequest request, IHttpResponse response, Throwable error);
+}
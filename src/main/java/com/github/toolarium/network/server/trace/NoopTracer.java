@@ -0,0 +1,75 @@
+/*
+ * NoopTracer.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.trace;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.dto.IHttpServerInformation;
+
+
+/**
+ * Implements the disabled default {@link ITracer}.
+ *
+ * @author patrick
+ */
+public final class NoopTracer implements ITracer {
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final NoopTracer INSTANCE = new NoopTracer();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private NoopTracer() {
+        // NOP
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static NoopTracer getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITracer#isEnabled()
+     */
+    @Override
+    public boolean isEnabled() {
+        return false;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITracer#spanStart(com.github.toolarium.network.server.dto.IHttpServerInformation,
+     *      com.github.toolarium.network.server.dto.IHttpRequest)
+     */
+    @Override
+    public void spanStart(IHttpServerInformation serverInformation, IHttpRequest request) {
+        // NOP
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITracer#spanEnd(com.github.toolarium.network.server.dto.IHttpServerInformation,
+     *      com.github.toolarium.network.server.dto.IHttpRequest, com.github.toolarium.network.server.dto.IHttpResponse, java.lang.Throwable)
+     */
+    @Override
+    public void spanEnd(IHttpServerInformation serverInformation, IHttpRequest request, IHttpResponse response, Throwable error) {
+        // NOP
+    }
+}
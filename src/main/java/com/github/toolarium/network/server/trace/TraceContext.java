@@ -0,0 +1,161 @@
+/*
+ * TraceContext.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.trace;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+
+/**
+ * Implements the {@link ITraceContext}, see {@link TraceContextUtil} to parse or create it.
+ *
+ * @author patrick
+ */
+public class TraceContext implements ITraceContext, Serializable {
+    /** The sampled trace flag */
+    public static final int FLAG_SAMPLED = 0x01;
+    private static final long serialVersionUID = -3940256021538826612L;
+    private static final String VERSION = "00";
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final int traceFlags;
+    private final String traceState;
+
+
+    /**
+     * Constructor for TraceContext
+     *
+     * @param traceId the trace id
+     * @param spanId the span id of the server span
+     * @param parentSpanId the span id of the caller or null
+     * @param traceFlags the trace flags
+     * @param traceState the trace state or null
+     */
+    public TraceContext(String traceId, String spanId, String parentSpanId, int traceFlags, String traceState) {
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.traceFlags = traceFlags & 0xFF;
+        this.traceState = traceState;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#getTraceId()
+     */
+    @Override
+    public String getTraceId() {
+        return traceId;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#getSpanId()
+     */
+    @Override
+    public String getSpanId() {
+        return spanId;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#getParentSpanId()
+     */
+    @Override
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#getTraceFlags()
+     */
+    @Override
+    public int getTraceFlags() {
+        return traceFlags;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#isSampled()
+     */
+    @Override
+    public boolean isSampled() {
+        return (traceFlags & FLAG_SAMPLED) != 0;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#getTraceState()
+     */
+    @Override
+    public String getTraceState() {
+        return traceState;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#isRemote()
+     */
+    @Override
+    public boolean isRemote() {
+        return parentSpanId != null;
+    }
+
+
+    /**
+     * @see com.github.toolarium.network.server.trace.ITraceContext#toTraceparent()
+     */
+    @Override
+    public String toTraceparent() {
+        final StringBuilder result = new StringBuilder(55);
+        result.append(VERSION).append('-').append(traceId).append('-').append(spanId).append('-');
+        if (traceFlags < 0x10) {
+            result.append('0');
+        }
+
+        return result.append(Integer.toHexString(traceFlags)).toString();
+    }
+
+
+    /**
+     * @see java.lang.Object#hashCode()
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(parentSpanId, spanId, traceFlags, traceId, traceState);
+    }
+
+
+    /**
+     * @see java.lang.Object#equals(java.lang.Object)
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        TraceContext other = (TraceContext) obj;
+        return Objects.equals(traceId, other.traceId) && Objects.equals(spanId, other.spanId) && Objects.equals(parentSpanId, other.parentSpanId)
+               && traceFlags == other.traceFlags && Objects.equals(traceState, other.traceState);
+    }
+
+
+    /**
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "TraceContext [traceId=" + traceId + ", spanId=" + spanId + ", parentSpanId=" + parentSpanId + ", traceFlags=" + traceFlags
+               + ", traceState=" + traceState + "]";
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * TraceContextUtil.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.trace;
+
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Parses and creates the W3C trace context (https://www.w3.org/TR/trace-context/). An invalid or missing
+ * <code>traceparent</code> starts a new trace with random ids, in this case the <code>tracestate</code> is ignored.
+ *
+ * @author patrick
+ */
+public final class TraceContextUtil {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int TRACEPARENT_LENGTH = 55;
+    private static final int TRACE_ID_START = 3;
+    private static final int PARENT_ID_START = 36;
+    private static final int FLAGS_START = 53;
+
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final TraceContextUtil INSTANCE = new TraceContextUtil();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private TraceContextUtil() {
+        // NOP
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static TraceContextUtil getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * Get the trace context of a request from its <code>traceparent</code> and <code>tracestate</code> headers
+     *
+     * @param request the request
+     * @return the trace context, a new trace in case the request has no valid <code>traceparent</code>
+     */
+    public ITraceContext parse(IHttpRequest request) {
+        if (request == null) {
+            return newTraceContext();
+        }
+
+        final List<String> traceStates = request.getHeaderValues(HttpHeaderUtil.TRACESTATE);
+        String traceState = null;
+        if (traceStates != null && !traceStates.isEmpty()) {
+            // repeated headers are combined (RFC 9110, 5.3)
+            traceState = String.join(",", traceStates);
+        }
+
+        return parse(request.getHeader(HttpHeaderUtil.TRACEPARENT), traceState);
+    }
+
+
+    /**
+     * Parse the trace context
+     *
+     * @param traceparent the <code>traceparent</code> header value or null
+     * @param traceState the <code>tracestate</code> header value or null
+     * @return the trace context with a new span id, a new trace in case the traceparent is missing or invalid
+     */
+    public ITraceContext parse(String traceparent, String traceState) {
+        if (!isValidTraceparent(traceparent)) {
+            return newTraceContext();
+        }
+
+        final String traceId = traceparent.substring(TRACE_ID_START, TRACE_ID_START + 32);
+        final String parentSpanId = traceparent.substring(PARENT_ID_START, PARENT_ID_START + 16);
+        final int traceFlags = (hexValue(traceparent.charAt(FLAGS_START)) << 4) | hexValue(traceparent.charAt(FLAGS_START + 1));
+
+        String state = null;
+        if (traceState != null && !traceState.isBlank()) {
+            state = traceState.trim();
+        }
+
+        return new TraceContext(traceId, newSpanId(), parentSpanId, traceFlags, state);
+    }
+
+
+    /**
+     * Start a new sampled trace
+     *
+     * @return the new trace context without parent span
+     */
+    public ITraceContext newTraceContext() {
+        return new TraceContext(newTraceId(), newSpanId(), null, TraceContext.FLAG_SAMPLED, null);
+    }
+
+
+    /**
+     * Create a random trace id
+     *
+     * @return the trace id, 32 lower case hex characters, not all zero
+     */
+    public String newTraceId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final long high = random.nextLong();
+        long low = random.nextLong();
+        while (high == 0 && low == 0) {
+            low = random.nextLong();
+        }
+
+        final char[] result = new char[32];
+        toHex(high, result, 0);
+        toHex(low, result, 16);
+        return new String(result);
+    }
+
+
+    /**
+     * Create a random span id
+     *
+     * @return the span id, 16 lower case hex characters, not all zero
+     */
+    public String newSpanId() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = random.nextLong();
+        while (id == 0) {
+            id = random.nextLong();
+        }
+
+        final char[] result = new char[16];
+        toHex(id, result, 0);
+        return new String(result);
+    }
+
+
+    /**
+     * Validate a <code>traceparent</code> header value. A higher version than 00 is accepted as long as the known
+     * fields are valid, the version ff is invalid.
+     *
+     * @param traceparent the header value
+     * @return true if it's valid
+     */
+    public boolean isValidTraceparent(String traceparent) {
+        if (traceparent == null || traceparent.length() < TRACEPARENT_LENGTH) {
+            return false;
+        }
+
+        if (!isHex(traceparent, 0, 2) || (traceparent.charAt(0) == 'f' && traceparent.charAt(1) == 'f')) {
+            return false;
+        }
+
+        if (traceparent.charAt(0) == '0' && traceparent.charAt(1) == '0') {
+            if (traceparent.length() != TRACEPARENT_LENGTH) {
+                return false;
+            }
+        } else if (traceparent.length() > TRACEPARENT_LENGTH && traceparent.charAt(TRACEPARENT_LENGTH) != '-') {
+            return false;
+        }
+
+        return traceparent.charAt(TRACE_ID_START - 1) == '-'
+               && traceparent.charAt(PARENT_ID_START - 1) == '-'
+               && traceparent.charAt(FLAGS_START - 1) == '-'
+               && isHex(traceparent, TRACE_ID_START, TRACE_ID_START + 32) && !isZero(traceparent, TRACE_ID_START, TRACE_ID_START + 32)
+               && isHex(traceparent, PARENT_ID_START, PARENT_ID_START + 16) && !isZero(traceparent, PARENT_ID_START, PARENT_ID_START + 16)
+               && isHex(traceparent, FLAGS_START, FLAGS_START + 2);
+    }
+
+
+    /**
+     * Write a long as 16 lower case hex characters
+     *
+     * @param value the value
+     * @param result the result
+     * @param offset the offset in the result
+     */
+    private static void toHex(long value, char[] result, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            result[offset + 15 - i] = HEX[(int) (value >>> (i * 4)) & 0xF];
+        }
+    }
+
+
+    /**
+     * Check if a region contains only lower case hex characters
+     *
+     * @param input the input
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return true if all characters are lower case hex characters
+     */
+    private static boolean isHex(String input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (hexValue(input.charAt(i)) < 0) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Check if a region contains only zeros
+     *
+     * @param input the input
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @return true if all characters are '0'
+     */
+    private static boolean isZero(String input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) != '0') {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Get the value of a lower case hex digit
+     *
+     * @param c the character
+     * @return the value or -1 if it is not a lower case hex digit
+     */
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+
+        return -1;
+    }
+}
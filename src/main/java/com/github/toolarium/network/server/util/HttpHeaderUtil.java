@@ -5,10 +5,9 @@
  */
 package com.github.toolarium.network.server.util;
 
+import com.github.toolarium.network.server.dto.HttpHeaders;
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.util.LinkedHashMap;
-import java.util.Map;
 
 /**
  * Http headers
@@ -50,7 +49,59 @@ public final class HttpHeaderUtil {
     /** LAST_MODIFIED */
     public static final String LAST_MODIFIED = "Last-Modified";
 
-    
+    /** ACCEPT */
+    public static final String ACCEPT = "Accept";
+
+    /** ACCEPT_ENCODING */
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+    /** CACHE_CONTROL */
+    public static final String CACHE_CONTROL = "Cache-Control";
+
+    /** CONNECTION */
+    public static final String CONNECTION = "Connection";
+
+    /** CONTENT_DISPOSITION */
+    public static final String CONTENT_DISPOSITION = "Content-Disposition";
+
+    /** CONTENT_ENCODING */
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /** CONTENT_TYPE */
+    public static final String CONTENT_TYPE = "Content-Type";
+
+    /** COOKIE */
+    public static final String COOKIE = "Cookie";
+
+    /** EXPECT */
+    public static final String EXPECT = "Expect";
+
+    /** IF_NONE_MATCH */
+    public static final String IF_NONE_MATCH = "If-None-Match";
+
+    /** SET_COOKIE */
+    public static final String SET_COOKIE = "Set-Cookie";
+
+    /** TRACEPARENT: W3C trace context */
+    public static final String TRACEPARENT = "traceparent";
+
+    /** TRACESTATE: W3C trace context */
+    public static final String TRACESTATE = "tracestate";
+
+    /** TRANSFER_ENCODING */
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+
+    /** USER_AGENT */
+    public static final String USER_AGENT = "User-Agent";
+
+    /** X_FORWARDED_FOR */
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+
+    // the well known header names, a parsed header name which matches is replaced by the constant
+    private static final String[] WELL_KNOWN_HEADER_NAMES = {
+        HOST, USER_AGENT, ACCEPT, ACCEPT_ENCODING, CONNECTION, CONTENT_LENGTH, CONTENT_TYPE, CONTENT_ENCODING, TRANSFER_ENCODING,
+        EXPECT, AUTHORIZATION, COOKIE, SET_COOKIE, CACHE_CONTROL, IF_MATCH, IF_NONE_MATCH, RANGE, CONTENT_RANGE, LOCATION, ALLOW,
+        WWW_AUTHENTICATE, DATE, LAST_MODIFIED, X_FORWARDED_FOR, CONTENT_DISPOSITION, TRACEPARENT, TRACESTATE };
 
     
     /**
@@ -82,24 +133,45 @@ public final class HttpHeaderUtil {
     
     
     /**
-     * Read headers
+     * Read headers. Header names are matched against the well known header names, repeated headers are kept.
      *
      * @param br the buffer
      * @return the headers
      * @throws IOException In case of an I/O error
      */
-    public Map<String, String> readHeaders(BufferedReader br) throws IOException {
+    public HttpHeaders readHeaders(BufferedReader br) throws IOException {
         if (br == null) {
             return null;
         }
 
-        final Map<String, String> headers = new LinkedHashMap<>();
+        final HttpHeaders headers = new HttpHeaders();
         String currentLine = br.readLine();
-        while (currentLine != null && !currentLine.trim().isEmpty()) {
-            currentLine = currentLine.trim();
-            int idx = currentLine.indexOf(":");
-            if (idx > 0) {
-                headers.put(currentLine.substring(0, idx).trim(), currentLine.substring(idx + 1).trim());
+        while (currentLine != null) {
+            int start = 0;
+            int end = currentLine.length();
+            while (start < end && currentLine.charAt(start) <= ' ') {
+                start++;
+            }
+            if (start == end) {
+                break;
+            }
+
+            int idx = currentLine.indexOf(':', start);
+            if (idx > start) {
+                int nameEnd = idx;
+                while (nameEnd > start && currentLine.charAt(nameEnd - 1) <= ' ') {
+                    nameEnd--;
+                }
+
+                int valueStart = idx + 1;
+                while (valueStart < end && currentLine.charAt(valueStart) <= ' ') {
+                    valueStart++;
+                }
+                while (end > valueStart && currentLine.charAt(end - 1) <= ' ') {
+                    end--;
+                }
+
+                headers.add(toHeaderName(currentLine, start, nameEnd), currentLine.substring(valueStart, end));
             }
             
             currentLine = br.readLine();
@@ -107,4 +179,113 @@ public final class HttpHeaderUtil {
         
         return headers;
     }
-}
\ No newline at end of file
+
+
+    /**
+     * Get the header name: in case it is a well known header name the constant is returned.
+     *
+     * @param name the header name
+     * @return the header name
+     */
+    public String toHeaderName(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        final String wellKnownHeaderName = getWellKnownHeaderName(name, 0, name.length());
+        if (wellKnownHeaderName != null) {
+            return wellKnownHeaderName;
+        }
+
+        return name;
+    }
+
+
+    /**
+     * Get the header name of a part of the input: in case it is a well known header name the constant is returned
+     * without allocation.
+     *
+     * @param input the input
+     * @param start the start index of the name (inclusive)
+     * @param end the end index of the name (exclusive)
+     * @return the header name
+     */
+    public String toHeaderName(String input, int start, int end) {
+        final String wellKnownHeaderName = getWellKnownHeaderName(input, start, end);
+        if (wellKnownHeaderName != null) {
+            return wellKnownHeaderName;
+        }
+
+        return input.substring(start, end);
+    }
+
+
+    /**
+     * Compare two header names ASCII case insensitive without allocation.
+     *
+     * @param name1 the first name
+     * @param name2 the second name
+     * @return true if they are equal
+     */
+    public boolean equalsIgnoreCase(String name1, String name2) {
+        if (name1 == name2) {
+            return true;
+        }
+
+        if (name1 == null || name2 == null || name1.length() != name2.length()) {
+            return false;
+        }
+
+        return regionMatchesIgnoreCase(name1, 0, name2);
+    }
+
+
+    /**
+     * Get the well known header name
+     *
+     * @param input the input
+     * @param start the start index of the name (inclusive)
+     * @param end the end index of the name (exclusive)
+     * @return the well known header name or null
+     */
+    private String getWellKnownHeaderName(String input, int start, int end) {
+        final int length = end - start;
+        for (int i = 0; i < WELL_KNOWN_HEADER_NAMES.length; i++) {
+            final String name = WELL_KNOWN_HEADER_NAMES[i];
+            if (name.length() == length && regionMatchesIgnoreCase(input, start, name)) {
+                return name;
+            }
+        }
+
+        return null;
+    }
+
+
+    /**
+     * Compare ASCII case insensitive a region of the input with the given name.
+     *
+     * @param input the input
+     * @param offset the offset in the input
+     * @param name the name to compare, the whole length is compared
+     * @return true if the region matches
+     */
+    private boolean regionMatchesIgnoreCase(String input, int offset, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c1 = input.charAt(offset + i);
+            char c2 = name.charAt(i);
+            if (c1 != c2) {
+                if (c1 >= 'A' && c1 <= 'Z') {
+                    c1 += 'a' - 'A';
+                }
+                if (c2 >= 'A' && c2 <= 'Z') {
+                    c2 += 'a' - 'A';
+                }
+                if (c1 != c2) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+}
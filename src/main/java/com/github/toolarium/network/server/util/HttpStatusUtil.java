@@ -49,6 +49,7 @@ public final class HttpStatusUtil {
      */
     public String getStatusText(int statusCode) {
         switch (statusCode) {
+            case 100: return "CONTINUE"; // [PUT/POST/PATCH] Interim response: the client should send the request body.
             case 200: return "OK"; // [GET/PUT/PATCH] The request could successfully processed.
             case 201: return "CREATED"; // [POST] The resource has been successfully created.
             case 204: return "NO CONTENT"; // [DELETE] The server successfully processed the request and is not returning any content.
@@ -61,8 +62,12 @@ public final class HttpStatusUtil {
             case 408: return "TIMEOUT"; // [GET/PUT/PATCH/DELETE] The request timeout. 
             case 409: return "CONFLICT"; // [GET/PUT/PATCH/DELETE] Indicates that the request could not be processed because of conflict. 
             case 413: return "TOO LARGE"; // [GET/PUT/PATCH/DELETE]  Too Large: The payload request entity is too large. 
+            case 417: return "EXPECTATION FAILED"; // [*] The expectation of the Expect request header could not be met.
+            case 429: return "TOO MANY REQUESTS"; // [*] The client has sent too many requests in a given amount of time (rate limiting).
             case 500: return "INTERNAL SERVER ERROR"; // [*] The server encountered an internal error.
+            case 502: return "BAD GATEWAY"; // [*] The upstream server could not be reached or sent an invalid response.
             case 503: return "SERVICE UNAVAILABLE"; // [*] The service is temporarily unavailable.
+            case 504: return "GATEWAY TIMEOUT"; // [*] The request could not be processed within its deadline.
             default: return "OK";
         }
     }
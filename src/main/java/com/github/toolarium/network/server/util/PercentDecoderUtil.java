@@ -0,0 +1,226 @@
+/*
+ * PercentDecoderUtil.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.util;
+
+
+/**
+ * Implements a single pass RFC 3986 percent decoder with UTF-8 support. Invalid escape sequences are kept as they are,
+ * invalid UTF-8 sequences are replaced by the replacement character U+FFFD.
+ *
+ * @author patrick
+ */
+public final class PercentDecoderUtil {
+    private static final char REPLACEMENT_CHARACTER = '\uFFFD'; // unicode replacement character
+
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final PercentDecoderUtil INSTANCE = new PercentDecoderUtil();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private PercentDecoderUtil() {
+        // NOP
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static PercentDecoderUtil getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * Decode a percent encoded string
+     *
+     * @param input the input
+     * @param plusAsSpace true to decode a '+' as space (form encoding, e.g. query parameters)
+     * @return the decoded string
+     */
+    public String decode(String input, boolean plusAsSpace) {
+        if (input == null) {
+            return null;
+        }
+
+        return decode(input, 0, input.length(), plusAsSpace);
+    }
+
+
+    /**
+     * Check if a part of the input has to be decoded
+     *
+     * @param input the input
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @param plusAsSpace true to decode a '+' as space
+     * @return true if the part contains characters to decode
+     */
+    public boolean needsDecoding(CharSequence input, int start, int end, boolean plusAsSpace) {
+        for (int i = start; i < end; i++) {
+            final char c = input.charAt(i);
+            if (c == '%' || (plusAsSpace && c == '+')) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+
+    /**
+     * Decode a part of a percent encoded string. If there is nothing to decode no new character data is allocated
+     * except the substring itself.
+     *
+     * @param input the input
+     * @param start the start index (inclusive)
+     * @param end the end index (exclusive)
+     * @param plusAsSpace true to decode a '+' as space (form encoding, e.g. query parameters)
+     * @return the decoded string
+     */
+    public String decode(String input, int start, int end, boolean plusAsSpace) {
+        if (!needsDecoding(input, start, end, plusAsSpace)) {
+            return input.substring(start, end);
+        }
+
+        final StringBuilder result = new StringBuilder(end - start);
+        int i = start;
+        while (i < end) {
+            final char c = input.charAt(i);
+            if (c == '+' && plusAsSpace) {
+                result.append(' ');
+                i++;
+            } else if (c == '%') {
+                i = decodeEscapeSequence(input, i, end, result);
+            } else {
+                result.append(c);
+                i++;
+            }
+        }
+
+        return result.toString();
+    }
+
+
+    /**
+     * Decode an escape sequence which starts at the given index. Multi byte UTF-8 sequences are decoded as a whole.
+     *
+     * @param input the input
+     * @param index the index of the '%'
+     * @param end the end index (exclusive)
+     * @param result the result
+     * @return the index after the decoded sequence
+     */
+    private int decodeEscapeSequence(String input, int index, int end, StringBuilder result) {
+        final int b = readEscapedByte(input, index, end);
+        if (b < 0) {
+            // invalid escape sequence: keep it
+            result.append('%');
+            return index + 1;
+        }
+
+        if (b < 0x80) {
+            result.append((char) b);
+            return index + 3;
+        }
+
+        final int numberOfContinuationBytes;
+        int codePoint;
+        if (b >= 0xC2 && b <= 0xDF) {
+            numberOfContinuationBytes = 1;
+            codePoint = b & 0x1F;
+        } else if (b >= 0xE0 && b <= 0xEF) {
+            numberOfContinuationBytes = 2;
+            codePoint = b & 0x0F;
+        } else if (b >= 0xF0 && b <= 0xF4) {
+            numberOfContinuationBytes = 3;
+            codePoint = b & 0x07;
+        } else {
+            result.append(REPLACEMENT_CHARACTER);
+            return index + 3;
+        }
+
+        int i = index + 3;
+        for (int n = 0; n < numberOfContinuationBytes; n++) {
+            final int continuationByte = readEscapedByte(input, i, end);
+            if (continuationByte < 0 || (continuationByte & 0xC0) != 0x80) {
+                result.append(REPLACEMENT_CHARACTER);
+                return i;
+            }
+
+            codePoint = (codePoint << 6) | (continuationByte & 0x3F);
+            i += 3;
+        }
+
+        // reject overlong encodings, surrogates and values out of range
+        if ((numberOfContinuationBytes == 2 && codePoint < 0x800)
+                || (numberOfContinuationBytes == 3 && codePoint < 0x10000)
+                || (codePoint >= 0xD800 && codePoint <= 0xDFFF)
+                || codePoint > Character.MAX_CODE_POINT) {
+            result.append(REPLACEMENT_CHARACTER);
+        } else {
+            result.appendCodePoint(codePoint);
+        }
+
+        return i;
+    }
+
+
+    /**
+     * Read an escaped byte: %XX
+     *
+     * @param input the input
+     * @param index the index of the '%'
+     * @param end the end index (exclusive)
+     * @return the byte or -1 in case there is no valid escape sequence
+     */
+    private int readEscapedByte(String input, int index, int end) {
+        if (index + 2 >= end || input.charAt(index) != '%') {
+            return -1;
+        }
+
+        final int high = hexValue(input.charAt(index + 1));
+        final int low = hexValue(input.charAt(index + 2));
+        if (high < 0 || low < 0) {
+            return -1;
+        }
+
+        return (high << 4) | low;
+    }
+
+
+    /**
+     * Get the value of an ASCII hex digit
+     *
+     * @param c the character
+     * @return the value or -1 if it is not a hex digit
+     */
+    private int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+
+        return -1;
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * UnixDomainSocketUtil.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.util;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.BindException;
+import java.net.ProtocolFamily;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Unix domain socket utility. The unix domain sockets are supported since Java 16
+ * (<code>java.net.UnixDomainSocketAddress</code>), the support is detected at runtime by reflection.
+ *
+ * @author patrick
+ */
+public final class UnixDomainSocketUtil {
+    private static final Logger LOG = LoggerFactory.getLogger(UnixDomainSocketUtil.class);
+    private static final String NOT_SUPPORTED = "Unix domain sockets are not supported by this Java runtime (Java 16 or later is required)!";
+    private final Method addressFactoryMethod;
+    private final Method openServerSocketChannelMethod;
+    private final Method openSocketChannelMethod;
+    private final ProtocolFamily unixProtocolFamily;
+
+
+    /**
+     * Private class, the only instance of the singelton which will be created by accessing the holder class.
+     *
+     * @author patrick
+     */
+    private static final class HOLDER {
+        static final UnixDomainSocketUtil INSTANCE = new UnixDomainSocketUtil();
+    }
+
+
+    /**
+     * Constructor
+     */
+    private UnixDomainSocketUtil() {
+        Method addressFactory = null;
+        Method openServerSocketChannel = null;
+        Method openSocketChannel = null;
+        ProtocolFamily protocolFamily = null;
+
+        try {
+            addressFactory = Class.forName("java.net.UnixDomainSocketAddress").getMethod("of", String.class);
+            openServerSocketChannel = ServerSocketChannel.class.getMethod("open", ProtocolFamily.class);
+            openSocketChannel = SocketChannel.class.getMethod("open", ProtocolFamily.class);
+            protocolFamily = StandardProtocolFamily.valueOf("UNIX");
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalArgumentException e) {
+            LOG.debug("Unix domain sockets are not supported: " + e.getMessage());
+            addressFactory = null;
+        }
+
+        this.addressFactoryMethod = addressFactory;
+        this.openServerSocketChannelMethod = openServerSocketChannel;
+        this.openSocketChannelMethod = openSocketChannel;
+        this.unixProtocolFamily = protocolFamily;
+    }
+
+
+    /**
+     * Get the instance
+     *
+     * @return the instance
+     */
+    public static UnixDomainSocketUtil getInstance() {
+        return HOLDER.INSTANCE;
+    }
+
+
+    /**
+     * Check if the unix domain sockets are supported by the Java runtime
+     *
+     * @return true if they are supported
+     */
+    public boolean isSupported() {
+        return addressFactoryMethod != null;
+    }
+
+
+    /**
+     * Create a unix domain socket address
+     *
+     * @param path the path of the socket file
+     * @return the socket address
+     * @throws IOException In case of an I/O error
+     * @throws UnsupportedOperationException In case the unix domain sockets are not supported
+     */
+    public SocketAddress toSocketAddress(String path) throws IOException {
+        if (!isSupported()) {
+            throw new UnsupportedOperationException(NOT_SUPPORTED);
+        }
+
+        return (SocketAddress) invoke(addressFactoryMethod, path);
+    }
+
+
+    /**
+     * Open a blocking server socket channel which is bound to the given path. A stale socket file of a previous run is
+     * deleted before, see {@link #deleteStaleSocketFile(String)}.
+     *
+     * @param path the path of the socket file
+     * @return the bound server socket channel
+     * @throws IOException In case of an I/O error, a {@link BindException} in case the path is in use
+     * @throws UnsupportedOperationException In case the unix domain sockets are not supported
+     */
+    public ServerSocketChannel openServerSocketChannel(String path) throws IOException {
+        final SocketAddress address = toSocketAddress(path);
+        deleteStaleSocketFile(path);
+
+        final ServerSocketChannel serverSocketChannel = (ServerSocketChannel) invoke(openServerSocketChannelMethod, unixProtocolFamily);
+        try {
+            serverSocketChannel.bind(address);
+        } catch (IOException e) {
+            serverSocketChannel.close();
+            throw e;
+        }
+
+        return serverSocketChannel;
+    }
+
+
+    /**
+     * Open a blocking socket channel which is connected to the given path
+     *
+     * @param path the path of the socket file
+     * @return the connected socket channel
+     * @throws IOException In case of an I/O error
+     * @throws UnsupportedOperationException In case the unix domain sockets are not supported
+     */
+    public SocketChannel openSocketChannel(String path) throws IOException {
+        final SocketAddress address = toSocketAddress(path);
+        final SocketChannel socketChannel = (SocketChannel) invoke(openSocketChannelMethod, unixProtocolFamily);
+        try {
+            socketChannel.connect(address);
+        } catch (IOException e) {
+            socketChannel.close();
+            throw e;
+        }
+
+        return socketChannel;
+    }
+
+
+    /**
+     * Delete a stale socket file of a previous run. The file is only deleted if it's a socket (not a regular file or a
+     * directory) and no server accepts connections on it anymore, e.g. a second server instance on the same path.
+     *
+     * @param path the path of the socket file
+     * @throws IOException In case of an I/O error, a {@link BindException} in case the path is in use
+     * @throws UnsupportedOperationException In case the unix domain sockets are not supported
+     */
+    public void deleteStaleSocketFile(String path) throws IOException {
+        final Path socketFile = Paths.get(path);
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(socketFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+
+        if (!attributes.isOther()) {
+            throw new BindException("Address already in use: " + socketFile + " is not a unix domain socket file!");
+        }
+
+        boolean inUse = false;
+        try (SocketChannel socketChannel = openSocketChannel(path)) {
+            inUse = socketChannel.isConnected();
+        } catch (IOException e) {
+            // no server accepts connections: the socket file is stale
+            LOG.debug("Delete stale unix domain socket file " + socketFile + ": " + e.getMessage());
+        }
+
+        if (inUse) {
+            throw new BindException("Address already in use: " + socketFile);
+        }
+
+        Files.deleteIfExists(socketFile);
+    }
+
+
+    /**
+     * Delete the socket file
+     *
+     * @param path the path of the socket file
+     */
+    public void delete(String path) {
+        if (path == null) {
+            return;
+        }
+
+        final Path socketFile = Paths.get(path);
+        try {
+            Files.deleteIfExists(socketFile);
+        } catch (IOException e) {
+            LOG.debug("Could not delete unix domain socket file " + socketFile + ": " + e.getMessage());
+        }
+    }
+
+
+    /**
+     * Invoke a static method
+     *
+     * @param method the method
+     * @param argument the argument
+     * @return the result
+     * @throws IOException In case of an I/O error
+     * @throws UnsupportedOperationException In case the method could not be invoked
+     */
+    private Object invoke(Method method, Object argument) throws IOException {
+        try {
+            return method.invoke(null, argument);
+        } catch (InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+
+            throw new UnsupportedOperationException(NOT_SUPPORTED + " " + cause.getMessage(), cause);
+        } catch (IllegalAccessException e) {
+            throw new UnsupportedOperationException(NOT_SUPPORTED + " " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * NonBlockingPortScannerTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl;
+import com.github.toolarium.network.scanner.impl.PortScannerImpl;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
+import com.github.toolarium.network.server.HttpServerFactory;
+import com.github.toolarium.network.server.IHttpServer;
+import com.github.toolarium.network.server.service.EchoService;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link NonBlockingPortScannerImpl}.
+ *
+ * @author patrick
+ */
+public class NonBlockingPortScannerTest {
+
+    /**
+     * Test the scan with a window which is smaller than the port range
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void scanTest() throws Exception {
+        IHttpServer server1 = HttpServerFactory.getInstance().getServerInstance();
+        server1.start(new EchoService(), 8052);
+        IHttpServer server2 = HttpServerFactory.getInstance().getServerInstance();
+        server2.start(new EchoService(), 8057);
+        Thread.sleep(50L);
+
+        try {
+            final AtomicInteger visited = new AtomicInteger();
+            IPortScanner portScanner = PortScannerFactory.getInstance().getNonBlockingPortScanner(4, 500);
+            List<IPortScanResult> result = portScanner.scan("127.0.0.1", 8050, 8060, null, r -> visited.incrementAndGet());
+            assertEquals(11, result.size());
+            assertEquals(11, visited.get());
+
+            Map<String, List<Integer>> openPorts = PortScannerFactory.getInstance().scanOpenPorts(portScanner, "127.0.0.1", 8050, 8060);
+            List<Integer> ports = openPorts.get("127.0.0.1");
+            Collections.sort(ports);
+            assertEquals(Arrays.asList(8052, 8057), ports);
+
+            List<IPortScanResult> closedPorts = portScanner.scan("127.0.0.1", 8050, 8060, Boolean.FALSE);
+            assertEquals(9, closedPorts.size());
+            for (IPortScanResult r : closedPorts) {
+                assertFalse(r.isAvailable());
+                assertTrue(r.getPort() != 8052 && r.getPort() != 8057);
+            }
+        } finally {
+            server1.stop();
+            server2.stop();
+        }
+    }
+
+
+    /**
+     * Test that the connects to a non-routable address time out in parallel
+     */
+    @Test
+    public void timeoutTest() {
+        IPortScanner portScanner = new NonBlockingPortScannerImpl(8, 100);
+        long start = System.currentTimeMillis();
+        List<IPortScanResult> result = portScanner.scan("192.0.2.1", 1, 24, null);
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(24, result.size());
+        for (IPortScanResult r : result) {
+            assertFalse(r.isAvailable());
+        }
+        assertTrue(elapsed < 2000L, "The connects should time out in parallel, was " + elapsed + "ms");
+    }
+
+
+    /**
+     * Test the retries of timed out connects with the backed off timeout: the connects to a listener with a full
+     * accept backlog time out.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void retryTest() throws Exception {
+        final List<Socket> sockets = new ArrayList<Socket>();
+        try (ServerSocket serverSocket = new ServerSocket()) {
+            serverSocket.bind(new InetSocketAddress("127.0.0.1", 8127), 1);
+            try {
+                // fill the accept backlog
+                for (int i = 0; i < 8; i++) {
+                    final Socket socket = new Socket();
+                    sockets.add(socket);
+                    socket.connect(new InetSocketAddress("127.0.0.1", 8127), 200);
+                }
+            } catch (SocketTimeoutException e) {
+                // NOP
+            }
+
+            IPortScanner portScanner = new NonBlockingPortScannerImpl(8, new AdaptiveTimeout(100, 100, 1000, 2));
+            long start = System.currentTimeMillis();
+            List<IPortScanResult> result = portScanner.scan("127.0.0.1", 8127, 8127, null);
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertEquals(1, result.size());
+            assertFalse(result.get(0).isAvailable());
+            assertTrue(elapsed >= 700L, "The connect should be retried with 200ms and 400ms, was " + elapsed + "ms");
+            assertTrue(elapsed < 3000L, "The connect should not wait longer than the backed off timeouts, was " + elapsed + "ms");
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+        }
+
+        // answered connects are round trip time samples
+        NonBlockingPortScannerImpl localScanner = new NonBlockingPortScannerImpl(8, new AdaptiveTimeout(500, 10, 1000, 1));
+        localScanner.scan("127.0.0.1", 20000, 20100, null);
+        assertTrue(localScanner.getAdaptiveTimeout().getTimeout("127.0.0.1", 0) < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+
+    /**
+     * Test the streamed scan: the results are passed to the listener while the scan runs in the background
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void streamTest() throws Exception {
+        IHttpServer server = HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService(), 8126);
+        Thread.sleep(50L);
+
+        try {
+            final AtomicInteger visited = new AtomicInteger();
+            final AtomicInteger open = new AtomicInteger();
+            IStreamingPortScanner portScanner = PortScannerFactory.getInstance().getStreamingPortScanner(16, 500);
+            IPortScanHandle handle = portScanner.start("127.0.0.1", 8100, 8199, null, r -> {
+                visited.incrementAndGet();
+                if (r.isAvailable()) {
+                    open.incrementAndGet();
+                }
+            });
+
+            assertTrue(handle.await(10, TimeUnit.SECONDS));
+            assertTrue(handle.isDone());
+            assertFalse(handle.isCancelled());
+            assertEquals(100, handle.getTotal());
+            assertEquals(100, handle.getCompleted());
+            assertEquals(0, handle.getInFlight());
+            assertEquals(100, visited.get());
+            assertTrue(open.get() >= 1);
+            assertEquals(open.get(), handle.getAvailable());
+
+            final AtomicInteger filtered = new AtomicInteger();
+            handle = portScanner.start("127.0.0.1", 8120, 8130, Boolean.TRUE, r -> filtered.incrementAndGet());
+            assertTrue(handle.await(10, TimeUnit.SECONDS));
+            assertEquals(11, handle.getCompleted());
+            assertEquals(handle.getAvailable(), filtered.get());
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test the pacing of the connects and the change of the rate by the handle
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void pacingTest() throws Exception {
+        NonBlockingPortScannerImpl portScanner = new NonBlockingPortScannerImpl(64, 500);
+        portScanner.setPacer(new TokenBucketPacer(200, 1));
+        long start = System.currentTimeMillis();
+        assertEquals(100, portScanner.scan("127.0.0.1", 20000, 20099, null).size());
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 450L, "100 connects with 200/s should take 500ms, was " + elapsed + "ms");
+
+        // the threads of the thread pool scanner share the pacer
+        PortScannerImpl threadPoolScanner = new PortScannerImpl(8, 500);
+        threadPoolScanner.setPacer(new TokenBucketPacer(200, 1));
+        start = System.currentTimeMillis();
+        assertEquals(100, threadPoolScanner.scan("127.0.0.1", 20000, 20099, null).size());
+        elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 450L, "100 connects with 200/s should take 500ms, was " + elapsed + "ms");
+
+        // the rate of a running scan is changed by the handle
+        IPortScanHandle handle = new NonBlockingPortScannerImpl(64, 500).start("127.0.0.1", 20000, 20999, null, r -> { });
+        handle.setRate(20);
+        assertEquals(20.0, handle.getRate());
+        Thread.sleep(300L);
+        assertFalse(handle.isDone());
+        assertTrue(handle.getCompleted() < 100, "Not paced: " + handle.getCompleted());
+
+        handle.setRate(TokenBucketPacer.UNLIMITED);
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertEquals(1000, handle.getCompleted());
+    }
+
+
+    /**
+     * Test pause and resume of a streamed scan
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void pauseResumeTest() throws Exception {
+        final AtomicInteger visited = new AtomicInteger();
+        IPortScanHandle handle = new NonBlockingPortScannerImpl(4, 200).start("192.0.2.1", 1, 32, null, r -> visited.incrementAndGet());
+        handle.pause();
+        assertTrue(handle.isPaused());
+
+        // the in-flight connects are completed, no new connect is started
+        Thread.sleep(600L);
+        final long completed = handle.getCompleted();
+        Thread.sleep(400L);
+        assertEquals(completed, handle.getCompleted());
+        assertEquals(0, handle.getInFlight());
+        assertFalse(handle.isDone());
+
+        handle.resume();
+        assertTrue(handle.await(10, TimeUnit.SECONDS));
+        assertEquals(32, handle.getCompleted());
+        assertEquals(32, visited.get());
+    }
+
+
+    /**
+     * Test the cancel of a streamed scan
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void cancelTest() throws Exception {
+        // pace the probes, a refused connect to the unroutable address completes the scan otherwise before the cancel
+        NonBlockingPortScannerImpl portScanner = new NonBlockingPortScannerImpl(8, 2000);
+        portScanner.setPacer(new TokenBucketPacer(100, 1));
+        IPortScanHandle handle = portScanner.start("192.0.2.1", 1, 1024, null, r -> { });
+        Thread.sleep(100L);
+        handle.cancel();
+        assertTrue(handle.await(2, TimeUnit.SECONDS));
+        assertTrue(handle.isCancelled());
+        assertTrue(handle.isDone());
+        assertTrue(handle.getCompleted() < handle.getTotal());
+        assertEquals(0, handle.getInFlight());
+
+        handle = new NonBlockingPortScannerImpl().start("invalid", 1, 10, null, r -> { });
+        assertTrue(handle.isDone());
+        assertEquals(0, handle.getTotal());
+        assertThrows(IllegalArgumentException.class, () -> new NonBlockingPortScannerImpl().start("127.0.0.1", 1, 10, null, null));
+    }
+
+
+    /**
+     * Test the resume of a cancelled scan from its checkpoint
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void checkpointTest() throws Exception {
+        IHttpServer server = HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService(), 8135);
+        Thread.sleep(50L);
+
+        try {
+            final Path directory = Files.createTempDirectory("toolarium-checkpoint");
+            NonBlockingPortScannerImpl portScanner = new NonBlockingPortScannerImpl(4, 500);
+            portScanner.setCheckpointDirectory(directory);
+            portScanner.setPacer(new TokenBucketPacer(40, 1));
+            final AtomicInteger closed = new AtomicInteger();
+            IPortScanHandle handle = portScanner.start("127.0.0.1", 8135, 8174, null, r -> {
+                if (!r.isAvailable()) {
+                    closed.incrementAndGet();
+                }
+            });
+            Thread.sleep(300L);
+            handle.cancel();
+            assertTrue(handle.await(2, TimeUnit.SECONDS));
+            assertTrue(handle.getCompleted() > 0 && handle.getCompleted() < 40, "Invalid completed: " + handle.getCompleted());
+            assertEquals(2, directory.toFile().list().length);
+
+            // the resumed scan skips the completed probes and replays the open port and the closed ports
+            portScanner = new NonBlockingPortScannerImpl(4, 500);
+            portScanner.setCheckpointDirectory(directory);
+            final ConcurrentLinkedQueue<IPortScanResult> result = new ConcurrentLinkedQueue<IPortScanResult>();
+            handle = portScanner.start("127.0.0.1", 8135, 8174, null, result::add);
+            assertTrue(handle.await(10, TimeUnit.SECONDS));
+            assertEquals(40, handle.getTotal());
+            assertEquals(40, handle.getCompleted());
+            assertEquals(1, handle.getAvailable());
+            assertTrue(closed.get() > 0);
+            assertEquals(40, result.size());
+            assertEquals(40, result.stream().mapToInt(r -> r.getPort()).distinct().count());
+            assertEquals(1, result.stream().filter(r -> r.isAvailable() && r.getPort() == 8135).count());
+
+            // the checkpoint of a completed scan is deleted
+            assertEquals(0, directory.toFile().list().length);
+            assertEquals(40, portScanner.scan("127.0.0.1", 8135, 8174, null).size());
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test invalid input
+     */
+    @Test
+    public void invalidInputTest() {
+        assertThrows(IllegalArgumentException.class, () -> new NonBlockingPortScannerImpl(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new NonBlockingPortScannerImpl(10, 0));
+        assertTrue(new NonBlockingPortScannerImpl().scan("invalid", 1, 10, null).isEmpty());
+    }
+}
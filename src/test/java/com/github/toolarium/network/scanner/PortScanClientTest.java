@@ -5,14 +5,24 @@
  */
 package com.github.toolarium.network.scanner;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.toolarium.network.scanner.impl.AbstractPortScanner;
+import com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl;
+import com.github.toolarium.network.scanner.impl.PortScannerImpl;
+import com.github.toolarium.network.scanner.result.PortScanResultStore;
+import com.github.toolarium.network.scanner.target.ScanShard;
 import com.github.toolarium.network.server.HttpServerFactory;
 import com.github.toolarium.network.server.IHttpServer;
 import com.github.toolarium.network.server.service.EchoService;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
@@ -90,6 +100,58 @@ public class PortScanClientTest {
     }
 
 
+    /**
+     * Test the sharded scan: the shards probe every port once and their results are merged
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void shardTest() throws Exception {
+        IHttpServer server = HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService(), 8136);
+        Thread.sleep(50L);
+
+        try {
+            PortScanResultStore merged = new PortScanResultStore();
+            for (int i = 0; i < 3; i++) {
+                AbstractPortScanner portScanner = new PortScannerImpl(4, 200);
+                if (i == 1) {
+                    portScanner = new NonBlockingPortScannerImpl(4, 200);
+                }
+
+                portScanner.setShard(new ScanShard(i, 3));
+                portScanner.setSeed(Long.valueOf(i));
+                PortScanResultStore shard = PortScannerFactory.getInstance().scanResultStore(portScanner, "127.0.0.1", 8130, 8149, null);
+                int numberOfPorts = shard.getOpenPorts("127.0.0.1").length + shard.getClosedPorts("127.0.0.1").length;
+                assertEquals(new ScanShard(i, 3).getSize(20), numberOfPorts);
+                assertEquals(0, merged.intersection(shard).getNumberOfHosts());
+                merged.addAll(shard);
+            }
+
+            assertArrayEquals(new int[] {8136}, merged.getOpenPorts("127.0.0.1"));
+            assertEquals(19, merged.getClosedPorts("127.0.0.1").length);
+
+            // the client writes the results of the shards and merges them
+            final Path directory = Files.createTempDirectory("toolarium-shard");
+            final Path shard0 = directory.resolve("shard0.bin");
+            final Path shard1 = directory.resolve("shard1.bin");
+            PortScannerClient.main(new String[] {"--startPort=8130", "--endPort=8149", "--shard=0/2", "--output=" + shard0});
+            PortScannerClient.main(new String[] {"--startPort=8130", "--endPort=8149", "--shard=1/2", "--output=" + shard1});
+            PortScannerClient.main(new String[] {"--merge=" + shard0 + "," + shard1});
+            merged = new PortScanResultStore();
+            for (Path file : new Path[] {shard0, shard1}) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    merged.addAll(PortScanResultStore.read(in));
+                }
+            }
+
+            assertArrayEquals(new int[] {8136}, merged.getOpenPorts("127.0.0.1"));
+        } finally {
+            server.stop();
+        }
+    }
+
+
     /**
      * Redirect java logging
      */
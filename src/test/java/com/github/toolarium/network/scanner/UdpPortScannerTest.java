@@ -0,0 +1,145 @@
+/*
+ * UdpPortScannerTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.scanner.analyze.impl.UDPPortAnalyzerImpl;
+import com.github.toolarium.network.scanner.analyze.impl.UdpProbeUtil;
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.impl.NonBlockingUdpPortScannerImpl;
+import com.github.toolarium.network.scanner.rtt.AdaptiveTimeout;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link NonBlockingUdpPortScannerImpl} and the {@link UDPPortAnalyzerImpl}.
+ *
+ * @author patrick
+ */
+public class UdpPortScannerTest {
+
+    /**
+     * Test the classification of an answering, a silent and a closed port
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void scanTest() throws Exception {
+        final DatagramSocket echoServer = startServer(8132, true);
+        final DatagramSocket silentServer = startServer(8134, false);
+
+        try {
+            NonBlockingUdpPortScannerImpl portScanner = new NonBlockingUdpPortScannerImpl(16, new AdaptiveTimeout(300, 10, 300, 0));
+            List<IPortScanResult> result = portScanner.scan("127.0.0.1", 8132, 8134, null);
+            Collections.sort(result, (a, b) -> Integer.compare(a.getPort(), b.getPort()));
+            assertEquals(3, result.size());
+            assertEquals(PortState.OPEN, result.get(0).getPortState());
+            assertTrue(result.get(0).isAvailable());
+            assertEquals(PortState.CLOSED, result.get(1).getPortState());
+            assertFalse(result.get(1).isAvailable());
+            assertEquals(PortState.OPEN_FILTERED, result.get(2).getPortState());
+            assertFalse(result.get(2).isAvailable());
+
+            assertEquals(1, portScanner.scan("127.0.0.1", 8132, 8134, Boolean.TRUE).size());
+        } finally {
+            echoServer.close();
+            silentServer.close();
+        }
+    }
+
+
+    /**
+     * Test the analyzer of a single port
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void analyzerTest() throws Exception {
+        final DatagramSocket echoServer = startServer(8132, true);
+        final DatagramSocket silentServer = startServer(8134, false);
+
+        try {
+            UDPPortAnalyzerImpl analyzer = new UDPPortAnalyzerImpl(new AdaptiveTimeout(300, 10, 300, 0));
+            assertEquals(PortState.OPEN, analyzer.analyzePort("127.0.0.1", 8132).getPortState());
+            assertNull(analyzer.analyzePort("127.0.0.1", 8132).getProtocol());
+            assertEquals(PortState.CLOSED, analyzer.analyzePort("127.0.0.1", 8133).getPortState());
+            assertEquals(PortState.OPEN_FILTERED, analyzer.analyzePort("127.0.0.1", 8134).getPortState());
+        } finally {
+            echoServer.close();
+            silentServer.close();
+        }
+    }
+
+
+    /**
+     * Test the payloads
+     */
+    @Test
+    public void payloadTest() {
+        // dns: one question, TXT (16) in the class CHAOS (3)
+        byte[] payload = UdpProbeUtil.getInstance().getPayload(UdpProbeUtil.DNS_PORT);
+        assertEquals(30, payload.length);
+        assertEquals(1, payload[5]);
+        assertEquals(3, payload[payload.length - 1]);
+        assertEquals("dns", UdpProbeUtil.getInstance().getProtocol(UdpProbeUtil.DNS_PORT));
+
+        // ntp: version 4, mode client
+        payload = UdpProbeUtil.getInstance().getPayload(UdpProbeUtil.NTP_PORT);
+        assertEquals(48, payload.length);
+        assertEquals(4, (payload[0] >> 3) & 0x7);
+        assertEquals(3, payload[0] & 0x7);
+
+        // snmp: the length of the sequence matches the payload
+        payload = UdpProbeUtil.getInstance().getPayload(UdpProbeUtil.SNMP_PORT);
+        assertEquals(0x30, payload[0]);
+        assertEquals(payload.length - 2, payload[1]);
+
+        assertTrue(UdpProbeUtil.getInstance().getPayload(UdpProbeUtil.SYSLOG_PORT).length > 0);
+        assertEquals(1, UdpProbeUtil.getInstance().getPayload(8132).length);
+        assertNull(UdpProbeUtil.getInstance().getProtocol(8132));
+    }
+
+
+    /**
+     * Start a udp server
+     *
+     * @param port the port
+     * @param answer true to answer every datagram
+     * @return the socket
+     * @throws Exception In case of an error
+     */
+    private DatagramSocket startServer(int port, boolean answer) throws Exception {
+        final DatagramSocket socket = new DatagramSocket(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), port));
+        final Thread thread = new Thread(() -> {
+            final byte[] buffer = new byte[512];
+            while (!socket.isClosed()) {
+                try {
+                    final DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(packet);
+                    if (answer) {
+                        socket.send(new DatagramPacket(new byte[] {'o', 'k'}, 2, packet.getSocketAddress()));
+                    }
+                } catch (Exception e) {
+                    // NOP
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return socket;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * ServiceDetectorTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.analyze;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.scanner.analyze.impl.HttpServiceAnalyzerImpl;
+import com.github.toolarium.network.scanner.analyze.impl.SshServiceAnalyzerImpl;
+import com.github.toolarium.network.scanner.analyze.impl.TlsServiceAnalyzerImpl;
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.impl.NonBlockingPortScannerImpl;
+import com.github.toolarium.network.scanner.impl.PortScannerImpl;
+import com.github.toolarium.network.scanner.rate.TokenBucketPacer;
+import com.github.toolarium.network.server.HttpServerFactory;
+import com.github.toolarium.network.server.IHttpServer;
+import com.github.toolarium.network.server.service.EchoService;
+import com.github.toolarium.security.keystore.ISecurityManagerProvider;
+import com.github.toolarium.security.keystore.SecurityManagerProviderFactory;
+import com.github.toolarium.security.ssl.SSLContextFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.ssl.SSLContext;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ServiceDetector}.
+ *
+ * @author patrick
+ */
+public class ServiceDetectorTest {
+
+    /**
+     * Test the ssh version exchange and the passive banner on the non-blocking scanner
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void bannerTest() throws Exception {
+        final ServerSocket sshServer = startBannerServer(8128, "SSH-2.0-OpenSSH_9.6 Ubuntu-3ubuntu13\r\n");
+        final ServerSocket smtpServer = startBannerServer(8130, "220 mail.example.com ESMTP Postfix\r\n");
+
+        try {
+            NonBlockingPortScannerImpl portScanner = new NonBlockingPortScannerImpl(16, 500);
+            portScanner.setServiceDetector(new ServiceDetector(4, 1000));
+            List<IPortScanResult> result = portScanner.scan("127.0.0.1", 8128, 8130, Boolean.TRUE);
+            Collections.sort(result, (a, b) -> Integer.compare(a.getPort(), b.getPort()));
+            assertEquals(2, result.size());
+
+            IPortScanResult ssh = result.get(0);
+            assertEquals(8128, ssh.getPort());
+            assertEquals("ssh", ssh.getProtocol());
+            assertEquals("OpenSSH_9.6", ssh.getApplication());
+            assertEquals("2.0", ssh.getServiceAttributes().get(SshServiceAnalyzerImpl.SSH_VERSION));
+            assertEquals("Ubuntu-3ubuntu13", ssh.getServiceAttributes().get(SshServiceAnalyzerImpl.SSH_COMMENTS));
+            assertEquals("SSH-2.0-OpenSSH_9.6 Ubuntu-3ubuntu13", ssh.getServiceAttributes().get(ServiceDetector.BANNER));
+
+            IPortScanResult smtp = result.get(1);
+            assertEquals(8130, smtp.getPort());
+            assertEquals("smtp", smtp.getProtocol());
+            assertEquals("mail.example.com ESMTP Postfix", smtp.getApplication());
+        } finally {
+            sshServer.close();
+            smtpServer.close();
+        }
+    }
+
+
+    /**
+     * Test the http detection on the thread pool scanner
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void httpTest() throws Exception {
+        IHttpServer server = HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService(), 8129);
+        Thread.sleep(50L);
+
+        try {
+            PortScannerImpl portScanner = new PortScannerImpl(4, 500);
+            portScanner.setServiceDetector(new ServiceDetector(4, 1000, 100, ServiceDetector.createDefaultServiceAnalyzerList()));
+            List<IPortScanResult> result = portScanner.scan("127.0.0.1", 8129, 8129, Boolean.TRUE);
+            assertEquals(1, result.size());
+            assertEquals("http", result.get(0).getProtocol());
+            assertNotNull(result.get(0).getServiceAttributes().get(HttpServiceAnalyzerImpl.HTTP_VERSION));
+            assertNotNull(result.get(0).getServiceAttributes().get(HttpServiceAnalyzerImpl.HTTP_STATUS));
+            assertNull(result.get(0).getServiceAttributes().get(ServiceDetector.BANNER));
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test the tls detection: the http analyzer is not preferred, so it is called on a new connection
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void tlsTest() throws Exception {
+        ISecurityManagerProvider securityManagerProvider = SecurityManagerProviderFactory.getInstance().getSecurityManagerProvider("toolarium", "changit");
+        SSLContext sslContext = SSLContextFactory.getInstance().createSslContext(securityManagerProvider);
+        IHttpServer server = HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService(), 8131, sslContext);
+        Thread.sleep(50L);
+
+        try {
+            NonBlockingPortScannerImpl portScanner = new NonBlockingPortScannerImpl(16, 500);
+            portScanner.setServiceDetector(new ServiceDetector(4, 1000, 100, ServiceDetector.createDefaultServiceAnalyzerList()));
+            List<IPortScanResult> result = portScanner.scan("127.0.0.1", 8131, 8131, Boolean.TRUE);
+            assertEquals(1, result.size());
+            assertEquals("tls", result.get(0).getProtocol());
+            assertTrue(result.get(0).getServiceAttributes().get(TlsServiceAnalyzerImpl.TLS_PROTOCOL).startsWith("TLS"));
+            assertNotNull(result.get(0).getServiceAttributes().get(TlsServiceAnalyzerImpl.TLS_SUBJECT));
+            assertNotNull(result.get(0).getServiceAttributes().get(TlsServiceAnalyzerImpl.TLS_NOT_AFTER));
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test that the reconnects of the detection are paced and released
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void reconnectTest() throws Exception {
+        final ServerSocket server = startBannerServer(8139, "?\r\n");
+        final AtomicInteger analyzed = new AtomicInteger();
+        final List<IServiceAnalyzer> serviceAnalyzerList = new ArrayList<IServiceAnalyzer>();
+        for (int i = 0; i < 3; i++) {
+            serviceAnalyzerList.add(new IServiceAnalyzer() {
+                /**
+                 * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#isPreferred(int)
+                 */
+                @Override
+                public boolean isPreferred(int port) {
+                    return false;
+                }
+
+                /**
+                 * @see com.github.toolarium.network.scanner.analyze.IServiceAnalyzer#analyze(com.github.toolarium.network.scanner.analyze.ServiceChannel,
+                 *      com.github.toolarium.network.scanner.dto.PortScanResult)
+                 */
+                @Override
+                public boolean analyze(ServiceChannel channel, PortScanResult result) throws IOException {
+                    analyzed.incrementAndGet();
+                    channel.write("?\r\n");
+                    return false;
+                }
+            });
+        }
+
+        try {
+            final TokenBucketPacer pacer = new TokenBucketPacer(10, 1);
+            final AtomicInteger released = new AtomicInteger();
+            final ReconnectPermit reconnectPermit = new ReconnectPermit(pacer, released::incrementAndGet);
+            pacer.acquire();
+
+            final long start = System.nanoTime();
+            new ServiceDetector(1, 1000, 100, serviceAnalyzerList).detect(SocketChannel.open(new InetSocketAddress("127.0.0.1", 8139)),
+                                                                         new PortScanResult("127.0.0.1", 8139, true), reconnectPermit);
+
+            // the second and third analyzer reconnect, each reconnect waits for a token of the pacer
+            assertEquals(3, analyzed.get());
+            assertEquals(2, released.get());
+            assertEquals(0, reconnectPermit.getReconnecting());
+            assertTrue(System.nanoTime() - start >= 150_000_000L);
+        } finally {
+            server.close();
+        }
+    }
+
+
+    /**
+     * Test invalid input
+     */
+    @Test
+    public void invalidInputTest() {
+        assertThrows(IllegalArgumentException.class, () -> new ServiceDetector(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new ServiceDetector(4, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ServiceDetector(4, 1000, 100, Collections.emptyList()));
+    }
+
+
+    /**
+     * Start a server which sends a banner and reads until the client closes the connection
+     *
+     * @param port the port
+     * @param banner the banner
+     * @return the server socket
+     * @throws Exception In case of an error
+     */
+    private ServerSocket startBannerServer(int port, String banner) throws Exception {
+        final ServerSocket serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress("127.0.0.1", port));
+        final Thread thread = new Thread(() -> {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    final OutputStream out = socket.getOutputStream();
+                    out.write(banner.getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    final InputStream in = socket.getInputStream();
+                    while (in.read() >= 0) {
+                        // NOP
+                    }
+                } catch (Exception e) {
+                    // NOP
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return serverSocket;
+    }
+}
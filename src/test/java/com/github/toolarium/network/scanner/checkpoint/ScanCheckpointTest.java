@@ -0,0 +1,160 @@
+/*
+ * ScanCheckpointTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.checkpoint;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.scanner.dto.IPortScanResult;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.target.ScanTargetUtil;
+import com.github.toolarium.network.scanner.target.ScanTargets;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ScanCheckpoint}.
+ *
+ * @author patrick
+ */
+public class ScanCheckpointTest {
+    private static final String SPECIFICATION = "tcp 10.0.0.1-10.0.0.4 1-250";
+
+
+    /**
+     * Test the progress and the result log of a reopened checkpoint
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void resumeTest() throws Exception {
+        final Path directory = Files.createTempDirectory("toolarium-checkpoint");
+        ScanCheckpoint checkpoint = ScanCheckpoint.open(directory, SPECIFICATION, 1000);
+        assertEquals(0, checkpoint.getCompleted());
+        assertFalse(checkpoint.isCompleted(3));
+
+        final PortScanResult open = new PortScanResult("10.0.0.4", 1, PortState.OPEN);
+        open.setProtocol("ssh");
+        open.setApplication("OpenSSH_9.6");
+        open.setServiceAttribute("ssh.version", "2.0");
+        checkpoint.completed(3, open);
+        checkpoint.completed(5, new PortScanResult("10.0.0.2", 2, PortState.CLOSED));
+        checkpoint.completed(999, new PortScanResult("10.0.0.4", 250, PortState.FILTERED));
+        checkpoint.completed(999, new PortScanResult("10.0.0.4", 250, PortState.FILTERED));
+        assertEquals(3, checkpoint.getCompleted());
+        checkpoint.close();
+        assertThrows(IllegalStateException.class, () -> checkpoint.isCompleted(3));
+
+        // the closed port is completed, but not logged
+        final ScanCheckpoint resumed = ScanCheckpoint.open(directory, SPECIFICATION, 1000);
+        assertEquals(3, resumed.getCompleted());
+        assertTrue(resumed.isCompleted(3));
+        assertTrue(resumed.isCompleted(5));
+        assertTrue(resumed.isCompleted(999));
+        assertFalse(resumed.isCompleted(4));
+
+        final ScanTargets targets = ScanTargetUtil.getInstance().parse("10.0.0.1-10.0.0.4");
+        final List<IPortScanResult> result = new ArrayList<IPortScanResult>();
+        assertEquals(2, resumed.replay(targets, 1, result::add));
+        assertEquals(open, result.get(0));
+        assertEquals("OpenSSH_9.6", result.get(0).getApplication());
+        assertEquals("2.0", result.get(0).getServiceAttributes().get("ssh.version"));
+        assertEquals(new PortScanResult("10.0.0.4", 250, PortState.FILTERED), result.get(1));
+        assertNull(result.get(1).getProtocol());
+
+        // the closed port is replayed from the bitmap
+        result.clear();
+        assertEquals(3, resumed.replay(targets, 1, true, result::add));
+        assertEquals(open, result.get(0));
+        assertEquals(new PortScanResult("10.0.0.4", 250, PortState.FILTERED), result.get(1));
+        assertEquals(new PortScanResult("10.0.0.2", 2, PortState.CLOSED), result.get(2));
+        assertEquals(PortState.CLOSED, result.get(2).getPortState());
+
+        resumed.delete();
+        assertFalse(Files.exists(resumed.getBitmapFile()));
+        assertFalse(Files.exists(resumed.getLogFile()));
+        assertEquals(0, ScanCheckpoint.open(directory, SPECIFICATION, 1000).getCompleted());
+    }
+
+
+    /**
+     * Test the recovery of a checkpoint after a crash: a partially written record is removed and the bit of a logged
+     * result is restored
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void crashTest() throws Exception {
+        final Path directory = Files.createTempDirectory("toolarium-checkpoint");
+        ScanCheckpoint checkpoint = ScanCheckpoint.open(directory, SPECIFICATION, 1000);
+        checkpoint.completed(7, new PortScanResult("10.0.0.4", 2, PortState.OPEN));
+        checkpoint.close();
+        final long logSize = Files.size(checkpoint.getLogFile());
+
+        try (FileChannel channel = FileChannel.open(checkpoint.getLogFile(), StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 100, 0, 0, 0}));
+        }
+        try (FileChannel channel = FileChannel.open(checkpoint.getBitmapFile(), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0}), 64);
+        }
+
+        checkpoint = ScanCheckpoint.open(directory, SPECIFICATION, 1000);
+        assertEquals(logSize, Files.size(checkpoint.getLogFile()));
+        assertEquals(1, checkpoint.getCompleted());
+        assertTrue(checkpoint.isCompleted(7));
+
+        checkpoint.completed(8, new PortScanResult("10.0.0.1", 3, PortState.OPEN_FILTERED));
+        final List<IPortScanResult> result = new ArrayList<IPortScanResult>();
+        assertEquals(2, checkpoint.replay(ScanTargetUtil.getInstance().parse("10.0.0.1-10.0.0.4"), 1, result::add));
+        assertEquals(PortState.OPEN_FILTERED, result.get(1).getPortState());
+        checkpoint.delete();
+    }
+
+
+    /**
+     * Test that a checkpoint can't be applied to a different scan
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void specificationTest() throws Exception {
+        final Path directory = Files.createTempDirectory("toolarium-checkpoint");
+        assertEquals(64, ScanCheckpoint.hash(SPECIFICATION).length());
+        assertEquals(ScanCheckpoint.hash(SPECIFICATION), ScanCheckpoint.hash(SPECIFICATION));
+        assertNotEquals(ScanCheckpoint.hash(SPECIFICATION), ScanCheckpoint.hash("tcp 10.0.0.1-10.0.0.4 1-251"));
+
+        final ScanCheckpoint checkpoint = ScanCheckpoint.open(directory, SPECIFICATION, 1000);
+        checkpoint.completed(1, new PortScanResult("10.0.0.2", 1, PortState.CLOSED));
+        checkpoint.close();
+
+        // an other scan has its own checkpoint
+        final ScanCheckpoint other = ScanCheckpoint.open(directory, "tcp 10.0.0.1-10.0.0.4 1-251", 1004);
+        assertEquals(0, other.getCompleted());
+        other.delete();
+
+        // a checkpoint file of a different scan is rejected
+        Files.copy(checkpoint.getBitmapFile(), directory.resolve(ScanCheckpoint.hash("other") + ScanCheckpoint.BITMAP_FILE_EXTENSION));
+        assertThrows(IllegalArgumentException.class, () -> ScanCheckpoint.open(directory, "other", 1000));
+        assertThrows(IllegalArgumentException.class, () -> ScanCheckpoint.open(directory, SPECIFICATION, 2000));
+        assertEquals(1, ScanCheckpoint.open(directory, SPECIFICATION, 1000).getCompleted());
+
+        assertThrows(IllegalArgumentException.class, () -> ScanCheckpoint.open(null, SPECIFICATION, 1000));
+        assertThrows(IllegalArgumentException.class, () -> ScanCheckpoint.open(directory, "", 1000));
+        assertThrows(IllegalArgumentException.class, () -> ScanCheckpoint.open(directory, SPECIFICATION, 0));
+    }
+}
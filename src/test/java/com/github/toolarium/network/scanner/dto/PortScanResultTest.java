@@ -78,5 +78,13 @@ public class PortScanResultTest {
         assertEquals(r1.isAvailable(), copy.isAvailable());
         assertEquals(r1.getProtocol(), copy.getProtocol());
         assertEquals(r1.getApplication(), copy.getApplication());
+        assertEquals(PortState.OPEN, copy.getPortState());
+
+        // port state
+        assertEquals(PortState.CLOSED, r5.getPortState());
+        final PortScanResult r6 = new PortScanResult(HOST_IP, 8080, PortState.OPEN_FILTERED);
+        assertFalse(r6.isAvailable());
+        assertNotEquals(r5, r6);
+        assertEquals(PortState.OPEN_FILTERED, new PortScanResult(r6).getPortState());
     }
 }
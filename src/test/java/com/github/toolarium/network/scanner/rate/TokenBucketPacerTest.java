@@ -0,0 +1,109 @@
+/*
+ * TokenBucketPacerTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.rate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link TokenBucketPacer}.
+ *
+ * @author patrick
+ */
+public class TokenBucketPacerTest {
+
+    /**
+     * Test the burst and the delay
+     */
+    @Test
+    public void burstTest() {
+        TokenBucketPacer pacer = new TokenBucketPacer(10, 3);
+        assertEquals(0, pacer.tryAcquire());
+        assertEquals(0, pacer.tryAcquire());
+        assertEquals(0, pacer.tryAcquire());
+
+        // the bucket is empty: the next token is available in about 100ms
+        final long delay = pacer.tryAcquire();
+        assertTrue(delay > TimeUnit.MILLISECONDS.toNanos(50) && delay <= TimeUnit.MILLISECONDS.toNanos(100), "Invalid delay: " + delay);
+        assertTrue(pacer.tryAcquire() > 0);
+
+        assertEquals(10, new TokenBucketPacer(1000).getBurst());
+        assertEquals(1, new TokenBucketPacer(10).getBurst());
+    }
+
+
+    /**
+     * Test the unlimited rate and the change of the rate
+     */
+    @Test
+    public void setRateTest() {
+        TokenBucketPacer pacer = new TokenBucketPacer(TokenBucketPacer.UNLIMITED);
+        for (int i = 0; i < 10000; i++) {
+            assertEquals(0, pacer.tryAcquire());
+        }
+
+        pacer.setRate(1);
+        assertEquals(1.0, pacer.getRate());
+        assertEquals(0, pacer.tryAcquire());
+        assertTrue(pacer.tryAcquire() > TimeUnit.MILLISECONDS.toNanos(500));
+
+        pacer.setRate(TokenBucketPacer.UNLIMITED);
+        assertEquals(0, pacer.tryAcquire());
+    }
+
+
+    /**
+     * Test the shared budget of concurrent threads
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void concurrentTest() throws Exception {
+        final TokenBucketPacer pacer = new TokenBucketPacer(1000, 1);
+        final List<Thread> threads = new ArrayList<Thread>();
+        final long start = System.nanoTime();
+        for (int i = 0; i < 4; i++) {
+            final Thread thread = new Thread(() -> {
+                try {
+                    for (int n = 0; n < 50; n++) {
+                        pacer.acquire();
+                    }
+                } catch (InterruptedException e) {
+                    // NOP
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // 200 probes with 1000 probes per second
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsed >= 180, "The threads should share the rate, was " + elapsed + "ms");
+    }
+
+
+    /**
+     * Test invalid input
+     */
+    @Test
+    public void invalidInputTest() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketPacer(-1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketPacer(Double.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketPacer(10, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketPacer(10).setRate(-5));
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * PortScanResultStoreTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.result;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.scanner.PortScannerFactory;
+import com.github.toolarium.network.scanner.dto.PortScanResult;
+import com.github.toolarium.network.scanner.dto.PortState;
+import com.github.toolarium.network.scanner.impl.PortScannerImpl;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link PortScanResultStore}.
+ *
+ * @author patrick
+ */
+public class PortScanResultStoreTest {
+
+    /**
+     * Test the state of the ports and the order of the hosts
+     */
+    @Test
+    public void addTest() {
+        PortScanResultStore store = new PortScanResultStore();
+        store.visitedPort(new PortScanResult("10.0.0.2", 443, PortState.OPEN));
+        store.visitedPort(new PortScanResult("10.0.0.2", 22, PortState.OPEN));
+        store.visitedPort(new PortScanResult("10.0.0.2", 80, PortState.FILTERED));
+        store.add("localhost", 0, true);
+        store.add("2001:db8:0:0:0:0:0:1", 65535, true);
+        store.add("9.255.255.255", 25, false);
+
+        assertEquals(4, store.getNumberOfHosts());
+        assertEquals(4, store.getNumberOfOpenPorts());
+        assertEquals(Arrays.asList("9.255.255.255", "10.0.0.2", "localhost", "2001:db8:0:0:0:0:0:1"), store.getHostAddresses());
+        assertArrayEquals(new int[] {22, 443}, store.getOpenPorts("10.0.0.2"));
+        assertArrayEquals(new int[] {80}, store.getClosedPorts("10.0.0.2"));
+        assertArrayEquals(new int[0], store.getOpenPorts("10.0.0.3"));
+        assertTrue(store.isOpen("2001:db8:0:0:0:0:0:1", 65535));
+        assertTrue(store.isClosed("10.0.0.2", 80));
+        assertFalse(store.isOpen("10.0.0.2", 80));
+        assertFalse(store.isClosed("10.0.0.2", 81));
+
+        // the last state of a port is kept
+        store.add("10.0.0.2", 80, true);
+        assertTrue(store.isOpen("10.0.0.2", 80));
+        assertFalse(store.isClosed("10.0.0.2", 80));
+
+        final Map<String, List<Integer>> openPortMap = store.getPortMap(Boolean.TRUE);
+        assertEquals(Arrays.asList("10.0.0.2", "localhost", "2001:db8:0:0:0:0:0:1"), Arrays.asList(openPortMap.keySet().toArray()));
+        assertEquals(Arrays.asList(22, 80, 443), openPortMap.get("10.0.0.2"));
+        assertEquals(Arrays.asList(25), store.getPortMap(Boolean.FALSE).get("9.255.255.255"));
+        assertEquals(4, store.getPortMap(null).size());
+
+        assertThrows(IllegalArgumentException.class, () -> new PortScanResultStore().add(null, 1, true));
+        assertThrows(IllegalArgumentException.class, () -> new PortScanResultStore().add("10.0.0.1", 65536, true));
+    }
+
+
+    /**
+     * Test many hosts
+     */
+    @Test
+    public void hostsTest() {
+        PortScanResultStore store = new PortScanResultStore();
+        for (int i = 0; i < 1000; i++) {
+            store.add("10.0." + (i / 256) + "." + (i % 256), i, true);
+        }
+
+        assertEquals(1000, store.getNumberOfHosts());
+        assertEquals(1000, store.getNumberOfOpenPorts());
+        assertArrayEquals(new int[] {999}, store.getOpenPorts("10.0.3.231"));
+        assertEquals("10.0.0.0", store.getHostAddresses().get(0));
+        assertEquals("10.0.3.231", store.getHostAddresses().get(999));
+        assertEquals(1000, store.getOpenPortsOfAnyHost().length);
+        assertEquals(0, store.getOpenPortsOfAllHosts().length);
+
+        assertEquals(0x0a000001L, PortScanResultStore.parseIPv4Address("10.0.0.1"));
+        assertEquals(0xffffffffL, PortScanResultStore.parseIPv4Address("255.255.255.255"));
+        assertEquals(-1, PortScanResultStore.parseIPv4Address("256.0.0.1"));
+        assertEquals(-1, PortScanResultStore.parseIPv4Address("10.0.0"));
+        assertEquals(-1, PortScanResultStore.parseIPv4Address("10..0.1"));
+        assertEquals(-1, PortScanResultStore.parseIPv4Address("10.0.0.1.2"));
+        assertEquals(-1, PortScanResultStore.parseIPv4Address("localhost"));
+    }
+
+
+    /**
+     * Test the set operations
+     */
+    @Test
+    public void setOperationTest() {
+        PortScanResultStore previous = new PortScanResultStore();
+        previous.add("10.0.0.1", 22, true);
+        previous.add("10.0.0.1", 80, true);
+        previous.add("10.0.0.1", 443, false);
+        previous.add("10.0.0.2", 22, true);
+
+        PortScanResultStore current = new PortScanResultStore();
+        current.add("10.0.0.1", 22, true);
+        current.add("10.0.0.1", 80, false);
+        current.add("10.0.0.1", 443, true);
+        current.add("10.0.0.3", 8080, true);
+
+        PortScanResultStore union = previous.union(current);
+        assertEquals(3, union.getNumberOfHosts());
+        assertArrayEquals(new int[] {22, 80, 443}, union.getOpenPorts("10.0.0.1"));
+        assertArrayEquals(new int[0], union.getClosedPorts("10.0.0.1"));
+        assertArrayEquals(new int[] {8080}, union.getOpenPorts("10.0.0.3"));
+
+        PortScanResultStore intersection = previous.intersection(current);
+        assertEquals(Arrays.asList("10.0.0.1"), intersection.getHostAddresses());
+        assertArrayEquals(new int[] {22}, intersection.getOpenPorts("10.0.0.1"));
+
+        // newly opened and no longer open ports
+        PortScanResultStore opened = current.difference(previous);
+        assertEquals(Arrays.asList("10.0.0.1", "10.0.0.3"), opened.getHostAddresses());
+        assertArrayEquals(new int[] {443}, opened.getOpenPorts("10.0.0.1"));
+        PortScanResultStore closed = previous.difference(current);
+        assertArrayEquals(new int[] {80}, closed.getOpenPorts("10.0.0.1"));
+        assertArrayEquals(new int[] {22}, closed.getOpenPorts("10.0.0.2"));
+        assertEquals(0, current.difference(current).getNumberOfHosts());
+
+        // the operands are not changed
+        assertEquals(3, previous.getNumberOfOpenPorts());
+        assertArrayEquals(new int[] {22}, previous.getOpenPortsOfAllHosts());
+        assertArrayEquals(new int[] {22, 80}, previous.getOpenPortsOfAnyHost());
+        assertThrows(IllegalArgumentException.class, () -> previous.union(null));
+    }
+
+
+    /**
+     * Test the binary format
+     *
+     * @throws IOException In case of an error
+     */
+    @Test
+    public void writeReadTest() throws IOException {
+        PortScanResultStore store = new PortScanResultStore();
+        store.add("10.0.0.1", 22, true);
+        store.add("10.0.0.1", 65535, true);
+        store.add("10.0.0.1", 23, false);
+        store.add("myhost", 80, true);
+        store.add("10.0.0.2", 0, false);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.write(out);
+        assertTrue(out.size() < 200, "Not compact: " + out.size());
+
+        PortScanResultStore copy = PortScanResultStore.read(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(store.getHostAddresses(), copy.getHostAddresses());
+        assertEquals(store.getPortMap(null), copy.getPortMap(null));
+        assertArrayEquals(new int[] {23}, copy.getClosedPorts("10.0.0.1"));
+        assertThrows(IOException.class, () -> PortScanResultStore.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4, 5, 6, 7, 8})));
+    }
+
+
+    /**
+     * Test the scan into a store
+     */
+    @Test
+    public void scanTest() {
+        PortScanResultStore store = PortScannerFactory.getInstance().scanResultStore(PortScannerFactory.getInstance().getNonBlockingPortScanner(16, 200), "127.0.0.1", 20000, 20009, null);
+        assertEquals(1, store.getNumberOfHosts());
+        assertEquals(10, store.getClosedPorts("127.0.0.1").length);
+
+        store = PortScannerFactory.getInstance().scanResultStore(new PortScannerImpl(4, 200), "127.0.0.1", 20000, 20009, Boolean.TRUE);
+        assertEquals(0, store.getNumberOfHosts());
+
+        // the thread pool scanner passes the results to the store without collecting them
+        store = PortScannerFactory.getInstance().scanResultStore(new PortScannerImpl(4, 200), "127.0.0.1", 20000, 20009, null);
+        assertEquals(10, store.getClosedPorts("127.0.0.1").length);
+        assertEquals(Arrays.asList(20000, 20001), PortScannerFactory.getInstance().scanClosedPorts("127.0.0.1", 20000, 20001, 2, 200).get("127.0.0.1"));
+        assertThrows(IllegalArgumentException.class, () -> new PortScannerImpl(4, 200).scanToListener("127.0.0.1", 20000, 20009, null, null));
+    }
+}
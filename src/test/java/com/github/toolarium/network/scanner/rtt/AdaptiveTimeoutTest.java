@@ -0,0 +1,106 @@
+/*
+ * AdaptiveTimeoutTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.rtt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link AdaptiveTimeout} and {@link RttEstimator}.
+ *
+ * @author patrick
+ */
+public class AdaptiveTimeoutTest {
+
+    /**
+     * Test the round trip time estimation
+     */
+    @Test
+    public void estimatorTest() {
+        RttEstimator estimator = new RttEstimator();
+        assertFalse(estimator.hasSamples());
+
+        estimator.sample(800);
+        assertEquals(800, estimator.getSmoothedRtt());
+        assertEquals(400, estimator.getRttVariance());
+        assertEquals(2400, estimator.getTimeout());
+
+        // RTTVAR = 3/4 * 400 + 1/4 * |800 - 1600| = 500, SRTT = 7/8 * 800 + 1/8 * 1600 = 900
+        estimator.sample(1600);
+        assertEquals(900, estimator.getSmoothedRtt());
+        assertEquals(500, estimator.getRttVariance());
+        assertEquals(2900, estimator.getTimeout());
+
+        // a stable round trip time converges
+        for (int i = 0; i < 100; i++) {
+            estimator.sample(1000);
+        }
+        assertTrue(Math.abs(estimator.getSmoothedRtt() - 1000) < 10);
+        assertTrue(estimator.getRttVariance() < 20);
+        assertEquals(102, estimator.getNumberOfSamples());
+    }
+
+
+    /**
+     * Test the per host timeouts and bounds
+     */
+    @Test
+    public void timeoutTest() {
+        AdaptiveTimeout adaptiveTimeout = new AdaptiveTimeout(100, 10, 1000, 2);
+        assertEquals(ms(100), adaptiveTimeout.getTimeout("10.0.0.1", 0));
+        assertEquals(ms(200), adaptiveTimeout.getTimeout("10.0.0.1", 1));
+        assertEquals(ms(400), adaptiveTimeout.getTimeout("10.0.0.1", 2));
+
+        // fast host: the timeout is bounded by the min timeout
+        adaptiveTimeout.sample("10.0.0.1", TimeUnit.MICROSECONDS.toNanos(300));
+        assertEquals(ms(10), adaptiveTimeout.getTimeout("10.0.0.1", 0));
+        assertEquals(ms(20), adaptiveTimeout.getTimeout("10.0.0.1", 1));
+
+        // slow host: SRTT + 4 * RTTVAR = 200 + 4 * 100
+        adaptiveTimeout.sample("10.0.0.2", ms(200));
+        assertEquals(ms(600), adaptiveTimeout.getTimeout("10.0.0.2", 0));
+        assertEquals(ms(1000), adaptiveTimeout.getTimeout("10.0.0.2", 1));
+
+        // a host without samples gets the timeout of all hosts
+        final long global = adaptiveTimeout.getTimeout("10.0.0.3", 0);
+        assertTrue(global > ms(10) && global < ms(600), "Invalid timeout: " + global);
+
+        AdaptiveTimeout fixed = AdaptiveTimeout.fixed(50);
+        fixed.sample("10.0.0.1", ms(1));
+        assertEquals(ms(50), fixed.getTimeout("10.0.0.1", 0));
+        assertEquals(0, fixed.getMaxRetries());
+    }
+
+
+    /**
+     * Test invalid input
+     */
+    @Test
+    public void invalidInputTest() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveTimeout(0));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveTimeout(100, 200, 1000, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveTimeout(100, 10, 50, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveTimeout(100, 10, 1000, -1));
+        assertEquals(5, new AdaptiveTimeout(5).getInitialTimeout());
+    }
+
+
+    /**
+     * Convert milliseconds to nanoseconds
+     *
+     * @param milliseconds the milliseconds
+     * @return the nanoseconds
+     */
+    private static long ms(long milliseconds) {
+        return TimeUnit.MILLISECONDS.toNanos(milliseconds);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * IndexPermutationTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.target;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link IndexPermutation}.
+ *
+ * @author patrick
+ */
+public class IndexPermutationTest {
+
+    /**
+     * Test that the permutation is a bijection of the index space
+     */
+    @Test
+    public void bijectionTest() {
+        for (long size : new long[] {1, 2, 3, 7, 64, 65, 1000, 65535, 100003}) {
+            final IndexPermutation permutation = new IndexPermutation(size, 42L);
+            final BitSet visited = new BitSet();
+            for (long i = 0; i < size; i++) {
+                final long value = permutation.get(i);
+                assertTrue(value >= 0 && value < size, "Out of range: " + value);
+                assertFalse(visited.get((int) value), "Duplicate: " + value);
+                visited.set((int) value);
+            }
+            assertEquals(size, visited.cardinality());
+        }
+    }
+
+
+    /**
+     * Test the seed
+     */
+    @Test
+    public void seedTest() {
+        final IndexPermutation permutation1 = new IndexPermutation(10000, 1L);
+        final IndexPermutation permutation2 = new IndexPermutation(10000, 1L);
+        final IndexPermutation permutation3 = new IndexPermutation(10000, 2L);
+
+        int equalPositions = 0;
+        int identityPositions = 0;
+        for (long i = 0; i < 10000; i++) {
+            assertEquals(permutation1.get(i), permutation2.get(i));
+            if (permutation1.get(i) == permutation3.get(i)) {
+                equalPositions++;
+            }
+            if (permutation1.get(i) == i) {
+                identityPositions++;
+            }
+        }
+
+        assertTrue(equalPositions < 100, "Too similar: " + equalPositions);
+        assertTrue(identityPositions < 100, "Not shuffled: " + identityPositions);
+        assertNotEquals(permutation1.get(0) + 1, permutation1.get(1));
+    }
+
+
+    /**
+     * Test a large index space, e.g. a /16 network with all ports
+     */
+    @Test
+    public void largeTest() {
+        final long size = 65536L * 65535L;
+        final IndexPermutation permutation = new IndexPermutation(size, 7L);
+        long sum = 0;
+        for (long i = 0; i < 1000; i++) {
+            final long value = permutation.get(i);
+            assertTrue(value >= 0 && value < size);
+            sum += value;
+        }
+
+        // the first elements are spread over the whole index space
+        final long mean = sum / 1000;
+        assertTrue(mean > size / 4 && mean < size / 4 * 3, "Not spread: " + mean);
+    }
+
+
+    /**
+     * Test invalid input
+     */
+    @Test
+    public void invalidInputTest() {
+        assertThrows(IllegalArgumentException.class, () -> new IndexPermutation(-1, 0L));
+        assertThrows(IndexOutOfBoundsException.class, () -> new IndexPermutation(10, 0L).get(10));
+        assertThrows(IndexOutOfBoundsException.class, () -> new IndexPermutation(0, 0L).get(0));
+    }
+}
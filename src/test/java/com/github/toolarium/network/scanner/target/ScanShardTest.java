@@ -0,0 +1,74 @@
+/*
+ * ScanShardTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.target;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.BitSet;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ScanShard}.
+ *
+ * @author patrick
+ */
+public class ScanShardTest {
+
+    /**
+     * Test that the shards are disjoint and cover the index space
+     */
+    @Test
+    public void partitionTest() {
+        for (int count = 1; count <= 7; count++) {
+            for (long size = 0; size <= 50; size++) {
+                final BitSet covered = new BitSet();
+                long total = 0;
+                for (int i = 0; i < count; i++) {
+                    final ScanShard shard = new ScanShard(i, count);
+                    final long shardSize = shard.getSize(size);
+                    total += shardSize;
+                    for (long j = 0; j < shardSize; j++) {
+                        final long index = shard.getIndex(j);
+                        assertTrue(index < size);
+                        assertTrue(shard.contains(index));
+                        assertFalse(covered.get((int) index));
+                        covered.set((int) index);
+                    }
+                }
+
+                assertEquals(size, total);
+                assertEquals(size, covered.cardinality());
+            }
+        }
+
+        assertEquals(10, ScanShard.ALL.getSize(10));
+        assertEquals(7, ScanShard.ALL.getIndex(7));
+    }
+
+
+    /**
+     * Test the notation of a shard and invalid input
+     */
+    @Test
+    public void parseTest() {
+        assertEquals(new ScanShard(2, 4), ScanShard.parse("2/4"));
+        assertEquals(new ScanShard(0, 1), ScanShard.parse(" 0 / 1 "));
+        assertEquals("2/4", new ScanShard(2, 4).toString());
+        assertEquals(2, ScanShard.parse("2/4").getShardIndex());
+        assertEquals(4, ScanShard.parse("2/4").getShardCount());
+
+        assertThrows(IllegalArgumentException.class, () -> ScanShard.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> ScanShard.parse("2"));
+        assertThrows(IllegalArgumentException.class, () -> ScanShard.parse("a/4"));
+        assertThrows(IllegalArgumentException.class, () -> ScanShard.parse("4/4"));
+        assertThrows(IllegalArgumentException.class, () -> new ScanShard(-1, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ScanShard(0, 0));
+    }
+}
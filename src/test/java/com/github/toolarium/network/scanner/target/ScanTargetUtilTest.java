@@ -0,0 +1,90 @@
+/*
+ * ScanTargetUtilTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.scanner.target;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ScanTargetUtil} and {@link ScanTargets}.
+ *
+ * @author patrick
+ */
+public class ScanTargetUtilTest {
+
+    /**
+     * Test addresses, ranges and networks
+     */
+    @Test
+    public void parseTest() {
+        assertEquals("192.168.0.1", ScanTargetUtil.getInstance().parse("192.168.0.1").getDescription());
+        assertEquals("192.168.0.0-192.168.0.255", ScanTargetUtil.getInstance().parse("192.168.0.17/24").getDescription());
+        assertEquals("10.0.0.1-10.0.0.20", ScanTargetUtil.getInstance().parse("10.0.0.1-20").getDescription());
+        assertEquals("10.0.0.250-10.0.1.5", ScanTargetUtil.getInstance().parse("10.0.0.250-10.0.1.5").getDescription());
+        assertEquals("10.0.0.1,10.0.0.3", ScanTargetUtil.getInstance().parse("10.0.0.3, 10.0.0.1").getDescription());
+        assertEquals("2001:db8::-2001:db8::3", ScanTargetUtil.getInstance().parse("2001:db8::/126").getDescription());
+
+        // overlapping and adjacent entries are merged
+        ScanTargets targets = ScanTargetUtil.getInstance().parse("10.0.0.0/30 10.0.0.2-10.0.0.5,10.0.0.6");
+        assertEquals("10.0.0.0-10.0.0.6", targets.getDescription());
+        assertEquals(7, targets.size());
+
+        assertTrue(ScanTargetUtil.getInstance().parse(null).isEmpty());
+        assertTrue(ScanTargetUtil.getInstance().parse(" ").isEmpty());
+    }
+
+
+    /**
+     * Test exclusions
+     */
+    @Test
+    public void excludeTest() {
+        ScanTargets targets = ScanTargetUtil.getInstance().parse("10.0.0.0/24,!10.0.0.0,!10.0.0.255,!10.0.0.16/28");
+        assertEquals("10.0.0.1-10.0.0.15,10.0.0.32-10.0.0.254", targets.getDescription());
+        assertEquals(254 - 16, targets.size());
+
+        targets = ScanTargetUtil.getInstance().parse("10.0.0.1-10, 10.0.1.1-10, !10.0.0.5-10.0.1.5");
+        assertEquals("10.0.0.1-10.0.0.4,10.0.1.6-10.0.1.10", targets.getDescription());
+
+        assertTrue(ScanTargetUtil.getInstance().parse("10.0.0.1,!10.0.0.0/8").isEmpty());
+        assertTrue(ScanTargetUtil.getInstance().parse("localhost,!127.0.0.1,!::1").isEmpty());
+    }
+
+
+    /**
+     * Test the host access by index
+     */
+    @Test
+    public void indexTest() {
+        ScanTargets targets = ScanTargetUtil.getInstance().parse("10.0.0.0/8,2001:db8::1,localhost,192.168.1.1");
+        assertEquals((1L << 24) + 3, targets.size());
+        assertEquals("10.0.0.0", targets.getHostAddress(0));
+        assertEquals("10.1.2.3", targets.getHostAddress(0x010203));
+        assertEquals("10.255.255.255", targets.getHostAddress((1L << 24) - 1));
+        assertEquals("192.168.1.1", targets.getHostAddress(1L << 24));
+        assertEquals("2001:db8::1", targets.getHostAddress((1L << 24) + 1));
+        assertEquals("localhost", targets.getHostAddress((1L << 24) + 2));
+        assertEquals("10.1.2.3", targets.getAddress(0x010203).getHostAddress());
+        assertTrue(targets.getAddress((1L << 24) + 2).isLoopbackAddress());
+        assertThrows(IndexOutOfBoundsException.class, () -> targets.getHostAddress(targets.size()));
+    }
+
+
+    /**
+     * Test invalid input
+     */
+    @Test
+    public void invalidInputTest() {
+        assertThrows(IllegalArgumentException.class, () -> ScanTargetUtil.getInstance().parse("10.0.0.5-10.0.0.1"));
+        assertThrows(IllegalArgumentException.class, () -> ScanTargetUtil.getInstance().parse("10.0.0.1-2001:db8::1"));
+        assertThrows(IllegalArgumentException.class, () -> ScanTargetUtil.getInstance().parse("10.0.0.1,!"));
+        assertThrows(IllegalArgumentException.class, () -> ScanTargetUtil.getInstance().parse("2001:db8::/32"));
+    }
+}
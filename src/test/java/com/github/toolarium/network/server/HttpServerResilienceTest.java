@@ -6,22 +6,61 @@
 package com.github.toolarium.network.server;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.toolarium.network.server.bulkhead.Bulkhead;
+import com.github.toolarium.network.server.bulkhead.BulkheadRouter;
+import com.github.toolarium.network.server.bulkhead.RejectionPolicy;
+import com.github.toolarium.network.server.deadline.RequestTimeoutPolicy;
+import com.github.toolarium.network.server.dto.HttpRequestPhase;
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import com.github.toolarium.network.server.dto.IHttpRequestTiming;
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.dto.IHttpServerInformation;
+import com.github.toolarium.network.server.dto.IMultipartPart;
 import com.github.toolarium.network.server.impl.HttpServerImpl;
+import com.github.toolarium.network.server.logger.IHttpServerLogger;
+import com.github.toolarium.network.server.logger.impl.TimingHistogram;
+import com.github.toolarium.network.server.logger.impl.TimingHttpAccessLogger;
+import com.github.toolarium.network.server.ratelimit.TokenBucketRateLimiter;
+import com.github.toolarium.network.server.scheduler.PriorityRequestScheduler;
+import com.github.toolarium.network.server.scheduler.RequestClassifier;
+import com.github.toolarium.network.server.scheduler.RequestPriority;
 import com.github.toolarium.network.server.service.EchoService;
+import com.github.toolarium.network.server.trace.ITraceContext;
+import com.github.toolarium.network.server.trace.ITracer;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import com.github.toolarium.network.server.util.UnixDomainSocketUtil;
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.net.BindException;
 import java.net.Socket;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +72,10 @@ import org.slf4j.LoggerFactory;
  * - Malformed Content-Length handling
  * - Stop/start cycle
  * - Custom configuration (pool size, socket timeout)
+ * - Unix domain socket listener
+ * - Expect: 100-continue handling
+ * - Streaming multipart/form-data upload
+ * - Rate limiting
  *
  * @author patrick
  */
@@ -79,6 +122,18 @@ public class HttpServerResilienceTest {
                 assertTrue(line == null || !line.contains("200 OK"),
                         "Server should not return 200 OK for oversized body");
             }
+
+            // a Content-Length above 2 GiB is rejected, not truncated
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.setSoTimeout(5000);
+                OutputStream out = socket.getOutputStream();
+                out.write(("POST / HTTP/1.1\r\nHost: localhost\r\nContent-Length: 4294967306\r\n\r\nsmall body").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                String line = reader.readLine();
+                assertTrue(line != null && line.startsWith("HTTP/1.1 413"), "Unexpected response: " + line);
+            }
         } finally {
             server.stop();
         }
@@ -114,8 +169,8 @@ public class HttpServerResilienceTest {
                 String line = reader.readLine();
                 LOG.info("Malformed Content-Length response: " + line);
                 // Server should not crash — connection closed or error returned
-                assertTrue(line == null || !line.contains("200 OK"),
-                        "Server should not return 200 OK for malformed Content-Length");
+                assertTrue(line == null || line.startsWith("HTTP/1.1 400"),
+                        "Server should return 400 for malformed Content-Length");
             }
         } finally {
             server.stop();
@@ -269,6 +324,722 @@ public class HttpServerResilienceTest {
     }
 
 
+    /**
+     * Test the unix domain socket listener next to the tcp port.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void unixDomainSocketTest() throws Exception {
+        if (!UnixDomainSocketUtil.getInstance().isSupported()) {
+            LOG.info("Unix domain sockets are not supported, skip test.");
+            return;
+        }
+
+        int port = 8106;
+        Path socketPath = Files.createTempDirectory("toolarium-network").resolve("http.sock");
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.setUnixDomainSocketPath(socketPath.toString());
+        server.start(new EchoService(), port);
+        Thread.sleep(100L);
+
+        try {
+            assertEquals(socketPath.toString(), server.getHttpServerInformation().getUnixDomainSocketPath());
+            assertTrue(Files.exists(socketPath));
+
+            try (SocketChannel channel = UnixDomainSocketUtil.getInstance().openSocketChannel(socketPath.toString())) {
+                OutputStream out = Channels.newOutputStream(channel);
+                String rawRequest = "GET /uds HTTP/1.1\r\n"
+                        + "Host: localhost\r\n"
+                        + "\r\n";
+                out.write(rawRequest.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(Channels.newInputStream(channel), StandardCharsets.UTF_8));
+                StringBuilder fullResponse = new StringBuilder();
+                String line = reader.readLine();
+                while (line != null) {
+                    fullResponse.append(line).append("\n");
+                    line = reader.readLine();
+                }
+
+                String responseStr = fullResponse.toString();
+                assertTrue(responseStr.startsWith("HTTP/1.1 200"), "Unexpected response: " + responseStr);
+                assertTrue(responseStr.endsWith("uds\n"), "Unexpected response: " + responseStr);
+            }
+
+            // the tcp port is still available
+            HttpResponse<String> response = sendGetRequest(port, "/tcp");
+            assertEquals(200, response.statusCode());
+            assertEquals("tcp", response.body());
+
+            // the socket of a running server is not deleted
+            assertThrows(BindException.class, () -> UnixDomainSocketUtil.getInstance().openServerSocketChannel(socketPath.toString()));
+            assertTrue(Files.exists(socketPath));
+        } finally {
+            server.stop();
+        }
+
+        assertFalse(Files.exists(socketPath));
+
+        // a stale socket file is deleted, a regular file not
+        UnixDomainSocketUtil.getInstance().openServerSocketChannel(socketPath.toString()).close();
+        assertTrue(Files.exists(socketPath));
+        UnixDomainSocketUtil.getInstance().openServerSocketChannel(socketPath.toString()).close();
+        Files.delete(socketPath);
+        Files.write(socketPath, "data".getBytes(StandardCharsets.UTF_8));
+        assertThrows(BindException.class, () -> UnixDomainSocketUtil.getInstance().openServerSocketChannel(socketPath.toString()));
+        assertTrue(Files.exists(socketPath));
+        Files.delete(socketPath);
+        Files.deleteIfExists(socketPath.getParent());
+    }
+
+
+    /**
+     * Test the interim response 100 Continue: the body is sent after the interim response.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void expectContinueTest() throws Exception {
+        int port = 8107;
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService(), port);
+        Thread.sleep(100L);
+
+        try {
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.setSoTimeout(5000);
+                OutputStream out = socket.getOutputStream();
+                String rawRequest = "PUT /upload HTTP/1.1\r\n"
+                        + "Host: localhost\r\n"
+                        + "Content-Length: 5\r\n"
+                        + "Expect: 100-continue\r\n"
+                        + "\r\n";
+                out.write(rawRequest.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                assertTrue(reader.readLine().startsWith("HTTP/1.1 100"));
+                assertEquals("", reader.readLine());
+
+                out.write("hello".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                String responseStr = readResponse(reader);
+                assertTrue(responseStr.startsWith("HTTP/1.1 200"), "Unexpected response: " + responseStr);
+                assertTrue(responseStr.endsWith("hello\n"), "Unexpected response: " + responseStr);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test the early rejection of an expectation: oversized body (413), unknown expectation (417) and a rejection by
+     * the service (401). The body is never sent.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void expectRejectTest() throws Exception {
+        int port = 8108;
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.AbstractHttpService#checkExpectation(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse checkExpectation(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                if (request.getHeader("Authorization") == null) {
+                    return prepareResponse(request).setStatus(401).addHeader("Content-Length", "0");
+                }
+
+                return null;
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            assertTrue(sendExpectation(port, "100-continue", 20971520, true).startsWith("HTTP/1.1 413"));
+            assertTrue(sendExpectation(port, "something-else", 5, true).startsWith("HTTP/1.1 417"));
+            assertTrue(sendExpectation(port, "100-continue", 5, false).startsWith("HTTP/1.1 401"));
+            assertTrue(sendExpectation(port, "100-continue", 5, true).startsWith("HTTP/1.1 100"));
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test a multipart/form-data upload: the file part is streamed to a temporary file which is deleted after the
+     * request.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void multipartUploadTest() throws Exception {
+        int port = 8109;
+        final Path[] uploadedFile = new Path[1];
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                StringBuilder body = new StringBuilder();
+                try {
+                    for (IMultipartPart part : request.getParts()) {
+                        body.append(part.getName()).append('=');
+                        if (part.getFile() != null) {
+                            uploadedFile[0] = part.getFile();
+                            body.append(part.getFilename()).append(':').append(Files.size(part.getFile()));
+                        } else {
+                            body.append(part.getValue());
+                        }
+                        body.append(';');
+                    }
+                } catch (IOException e) {
+                    body.append(e.getMessage());
+                }
+
+                return prepareResponse(request).setBody(body.toString()).addHeader("Content-Length", "" + body.length());
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            final String boundary = "uploadBoundary42";
+            final byte[] file = new byte[300_000];
+            Arrays.fill(file, (byte) '\r');
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"title\"\r\n\r\nfirmware\r\n").getBytes(StandardCharsets.UTF_8));
+            body.write(("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"image.bin\"\r\n"
+                    + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            body.write(file);
+            body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+            HttpRequest request = HttpRequest
+                    .newBuilder(URI.create("http://localhost:" + port + "/upload"))
+                    .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                    .build();
+            HttpResponse<String> response = HttpClient.newBuilder()
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build()
+                    .send(request, BodyHandlers.ofString());
+
+            assertEquals(200, response.statusCode());
+            assertEquals("title=firmware;file=image.bin:" + file.length + ";", response.body());
+            assertNotNull(uploadedFile[0]);
+
+            // the temporary file is deleted after the response is sent
+            for (int i = 0; i < 50 && Files.exists(uploadedFile[0]); i++) {
+                Thread.sleep(20L);
+            }
+            assertFalse(Files.exists(uploadedFile[0]));
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test the rate limiting: a client which exceeds its burst gets a 429 without calling the service.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void rateLimitTest() throws Exception {
+        int port = 8110;
+        final AtomicInteger processed = new AtomicInteger();
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.setRateLimiter(new TokenBucketRateLimiter(0.1, 3).setHeaderName("X-Api-Key"));
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                processed.incrementAndGet();
+                return super.processRequest(httpServerLogger, request);
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertEquals(200, sendGetRequest(port, "/test" + i).statusCode());
+            }
+
+            HttpResponse<String> response = sendGetRequest(port, "/test");
+            assertEquals(429, response.statusCode());
+            assertEquals("1", response.headers().firstValue("Retry-After").orElse(null));
+            assertEquals(3, processed.get());
+
+            // another client
+            HttpRequest request = HttpRequest
+                    .newBuilder(URI.create("http://localhost:" + port + "/other"))
+                    .header("X-Api-Key", "other")
+                    .GET()
+                    .build();
+            response = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build().send(request, BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals(4, processed.get());
+        } finally {
+            server.stop();
+            server.setRateLimiter(null);
+        }
+    }
+
+
+    /**
+     * Test the phase time stamps of the requests and the aggregation of the timing access logger
+     *
+     * @throws Exception In case of an exception
+     */
+    @Test
+    public void requestTimingTest() throws Exception {
+        int port = 8119;
+        final List<IHttpRequestTiming> timings = new CopyOnWriteArrayList<>();
+        final TimingHttpAccessLogger accessLogger = new TimingHttpAccessLogger();
+
+        IHttpServer server = HttpServerFactory.getInstance().getServerInstance();
+        server.init(null, accessLogger);
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                final IHttpRequestTiming timing = request.getTiming();
+                assertTrue(timing.getAcceptTimestamp() > 0);
+                assertTrue(timing.getDequeueTimestamp() >= timing.getAcceptTimestamp());
+                assertTrue(timing.getHeadersCompleteTimestamp() >= timing.getDequeueTimestamp());
+                assertTrue(timing.getBodyCompleteTimestamp() >= timing.getHeadersCompleteTimestamp());
+                assertEquals(0, timing.getServiceReturnTimestamp());
+                timings.add(timing);
+                return super.processRequest(httpServerLogger, request);
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            final int numberOfRequests = 5;
+            for (int i = 0; i < numberOfRequests; i++) {
+                assertEquals(200, sendGetRequest(port, "/timing" + i).statusCode());
+            }
+
+            // the access logger is notified after the response is written
+            final TimingHistogram total = accessLogger.getHistogram(HttpRequestPhase.TOTAL);
+            for (int i = 0; i < 50 && total.getTotalCount() < numberOfRequests; i++) {
+                Thread.sleep(20L);
+            }
+
+            LOG.debug("Request timing:" + System.lineSeparator() + accessLogger);
+            assertEquals(numberOfRequests, timings.size());
+            for (HttpRequestPhase phase : HttpRequestPhase.values()) {
+                if (HttpRequestPhase.DISPATCH_WAIT.equals(phase)) {
+                    // without a request scheduler or bulkhead the requests are not dispatched
+                    assertEquals(0, accessLogger.getHistogram(phase).getTotalCount(), phase.name());
+                } else {
+                    assertEquals(numberOfRequests, accessLogger.getHistogram(phase).getTotalCount(), phase.name());
+                }
+            }
+
+            for (IHttpRequestTiming timing : timings) {
+                assertTrue(timing.getServiceReturnTimestamp() >= timing.getBodyCompleteTimestamp());
+                assertTrue(timing.getLastByteWrittenTimestamp() >= timing.getServiceReturnTimestamp());
+                assertTrue(timing.getDuration(HttpRequestPhase.TOTAL) >= timing.getDuration(HttpRequestPhase.SERVICE));
+            }
+
+            assertTrue(total.getValueAtPercentile(50) <= total.getMax());
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test the span callbacks of the tracer and the trace context of the requests
+     *
+     * @throws Exception In case of an exception
+     */
+    @Test
+    public void tracerTest() throws Exception {
+        int port = 8120;
+        final String traceId = "4bf92f3577b34da6a3ce929d0e0e4736";
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final List<ITraceContext> contexts = new CopyOnWriteArrayList<>();
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.setTracer(new ITracer() {
+            /**
+             * @see com.github.toolarium.network.server.trace.ITracer#isEnabled()
+             */
+            @Override
+            public boolean isEnabled() {
+                return true;
+            }
+
+            /**
+             * @see com.github.toolarium.network.server.trace.ITracer#spanStart(com.github.toolarium.network.server.dto.IHttpServerInformation,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public void spanStart(IHttpServerInformation serverInformation, IHttpRequest request) {
+                events.add("start " + request.getTraceContext().getSpanId());
+            }
+
+            /**
+             * @see com.github.toolarium.network.server.trace.ITracer#spanEnd(com.github.toolarium.network.server.dto.IHttpServerInformation,
+             *      com.github.toolarium.network.server.dto.IHttpRequest, com.github.toolarium.network.server.dto.IHttpResponse, java.lang.Throwable)
+             */
+            @Override
+            public void spanEnd(IHttpServerInformation serverInformation, IHttpRequest request, IHttpResponse response, Throwable error) {
+                events.add("end " + request.getTraceContext().getSpanId() + " " + response.getStatus());
+            }
+        });
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                contexts.add(request.getTraceContext());
+                return super.processRequest(httpServerLogger, request);
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            HttpRequest request = HttpRequest
+                    .newBuilder(URI.create("http://localhost:" + port + "/traced"))
+                    .header(HttpHeaderUtil.TRACEPARENT, "00-" + traceId + "-00f067aa0ba902b7-01")
+                    .header(HttpHeaderUtil.TRACESTATE, "congo=t61rcWkgMzE")
+                    .GET()
+                    .build();
+            assertEquals(200, HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build().send(request, BodyHandlers.ofString()).statusCode());
+            assertEquals(200, sendGetRequest(port, "/untraced").statusCode());
+
+            for (int i = 0; i < 50 && events.size() < 4; i++) {
+                Thread.sleep(20L);
+            }
+
+            assertEquals(2, contexts.size());
+            assertEquals(traceId, contexts.get(0).getTraceId());
+            assertEquals("00f067aa0ba902b7", contexts.get(0).getParentSpanId());
+            assertEquals("congo=t61rcWkgMzE", contexts.get(0).getTraceState());
+            assertFalse(contexts.get(1).isRemote());
+            assertNotEquals(traceId, contexts.get(1).getTraceId());
+
+            assertEquals(4, events.size());
+            assertEquals("start " + contexts.get(0).getSpanId(), events.get(0));
+            assertEquals("end " + contexts.get(0).getSpanId() + " 200", events.get(1));
+            assertEquals("end " + contexts.get(1).getSpanId() + " 200", events.get(3));
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test that blocked bulk requests don't delay a critical request when the priority scheduler is used.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void priorityScheduleTest() throws Exception {
+        int port = 8123;
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final List<Long> dispatchWaits = new CopyOnWriteArrayList<>();
+        final PriorityRequestScheduler scheduler = new PriorityRequestScheduler(new RequestClassifier().addPath("/health", RequestPriority.CRITICAL)
+                                                                                                       .addPath("/report", RequestPriority.BULK))
+                .setConcurrencyLimit(RequestPriority.BULK, 1);
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.setWorkerPoolSize(2);
+        server.setRequestScheduler(scheduler);
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                if (request.getPath().startsWith("/report")) {
+                    dispatchWaits.add(request.getTiming().getDuration(HttpRequestPhase.DISPATCH_WAIT));
+                    try {
+                        blocked.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.processRequest(httpServerLogger, request);
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            List<CompletableFuture<HttpResponse<String>>> reports = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/report" + i)).GET().build();
+                reports.add(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build().sendAsync(request, BodyHandlers.ofString()));
+            }
+
+            for (int i = 0; i < 100 && scheduler.getQueueSize(RequestPriority.BULK) < 2; i++) {
+                Thread.sleep(20L);
+            }
+            assertEquals(1, scheduler.getActiveCount(RequestPriority.BULK));
+            assertEquals(2, scheduler.getQueueSize(RequestPriority.BULK));
+
+            // the bulk requests occupy one worker at most, the critical and normal requests are served meanwhile
+            HttpResponse<String> response = sendGetRequest(port, "/health");
+            assertEquals(200, response.statusCode());
+            assertEquals("health", response.body());
+            assertEquals(200, sendGetRequest(port, "/other").statusCode());
+            assertFalse(reports.get(0).isDone() && reports.get(1).isDone() && reports.get(2).isDone());
+
+            blocked.countDown();
+            for (int i = 0; i < reports.size(); i++) {
+                assertEquals(200, reports.get(i).get(10, TimeUnit.SECONDS).statusCode());
+            }
+
+            // the wait for a worker of the priority class is measured as dispatch wait
+            assertEquals(3, dispatchWaits.size());
+            for (Long dispatchWait : dispatchWaits) {
+                assertTrue(dispatchWait >= 0, "" + dispatchWait);
+            }
+        } finally {
+            blocked.countDown();
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test that a slow route in a bulkhead degrades only its own requests.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void bulkheadTest() throws Exception {
+        int port = 8124;
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final Bulkhead slowBulkhead = new Bulkhead("slow", 1, 1, RejectionPolicy.REJECT);
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.setWorkerPoolSize(2);
+        server.setBulkheadRouter(new BulkheadRouter().addRoute("/slow", slowBulkhead));
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                if (request.getPath().startsWith("/slow")) {
+                    try {
+                        blocked.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.processRequest(httpServerLogger, request);
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            List<CompletableFuture<HttpResponse<String>>> slowRequests = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/slow/" + i)).GET().build();
+                slowRequests.add(HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build().sendAsync(request, BodyHandlers.ofString()));
+            }
+
+            for (int i = 0; i < 100 && slowBulkhead.getQueueSize() < 1; i++) {
+                Thread.sleep(20L);
+            }
+            assertEquals(1, slowBulkhead.getActiveCount());
+            assertEquals(1, slowBulkhead.getQueueSize());
+
+            // the bulkhead is exhausted: further slow requests are rejected, the other routes are not affected
+            HttpResponse<String> response = sendGetRequest(port, "/slow/2");
+            assertEquals(503, response.statusCode());
+            assertEquals(1, slowBulkhead.getRejectedCount());
+            for (int i = 0; i < 5; i++) {
+                response = sendGetRequest(port, "/fast" + i);
+                assertEquals(200, response.statusCode());
+                assertEquals("fast" + i, response.body());
+            }
+
+            blocked.countDown();
+            for (int i = 0; i < slowRequests.size(); i++) {
+                assertEquals(200, slowRequests.get(i).get(10, TimeUnit.SECONDS).statusCode());
+            }
+        } finally {
+            blocked.countDown();
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test that a hung http service is answered with 504 after the deadline and its worker is released.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void requestDeadlineTest() throws Exception {
+        int port = 8125;
+        final CountDownLatch interrupted = new CountDownLatch(1);
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.setWorkerPoolSize(1);
+        server.setRequestTimeoutPolicy(new RequestTimeoutPolicy(5000).addRoute("/hang", 200));
+        server.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                if (request.getPath().startsWith("/hang")) {
+                    try {
+                        Thread.sleep(10_000L);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+                return super.processRequest(httpServerLogger, request);
+            }
+        }, port);
+        Thread.sleep(100L);
+
+        try {
+            long start = System.currentTimeMillis();
+            HttpResponse<String> response = sendGetRequest(port, "/hang");
+            assertEquals(504, response.statusCode());
+            assertTrue(System.currentTimeMillis() - start < 5000L);
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+            // the only worker is released
+            for (int i = 0; i < 3; i++) {
+                response = sendGetRequest(port, "/fast" + i);
+                assertEquals(200, response.statusCode());
+                assertEquals("fast" + i, response.body());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Test that the deadline starts after the request body is read: a slow upload is not answered with 504.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void requestDeadlineAfterBodyTest() throws Exception {
+        int port = 8138;
+
+        HttpServerImpl server = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        server.setRequestTimeoutPolicy(new RequestTimeoutPolicy(200));
+        server.start(new EchoService(), port);
+        Thread.sleep(100L);
+
+        try {
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.setSoTimeout(5000);
+                OutputStream out = socket.getOutputStream();
+                String rawRequest = "PUT /upload HTTP/1.1\r\n"
+                        + "Host: localhost\r\n"
+                        + "Content-Length: 5\r\n"
+                        + "\r\n";
+                out.write(rawRequest.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                // the body is sent after the timeout of the deadline
+                Thread.sleep(500L);
+                out.write("hello".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                String responseStr = readResponse(new BufferedReader(new InputStreamReader(socket.getInputStream())));
+                assertTrue(responseStr.startsWith("HTTP/1.1 200"), "Unexpected response: " + responseStr);
+                assertTrue(responseStr.endsWith("hello\n"), "Unexpected response: " + responseStr);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+
+    /**
+     * Send a request with an Expect header and return the first response line
+     *
+     * @param port the port
+     * @param expect the expectation
+     * @param contentLength the content length
+     * @param authorization true to send an authorization header
+     * @return the status line
+     * @throws Exception In case of an error
+     */
+    private String sendExpectation(int port, String expect, int contentLength, boolean authorization) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            String rawRequest = "PUT /upload HTTP/1.1\r\n"
+                    + "Host: localhost\r\n"
+                    + "Content-Length: " + contentLength + "\r\n"
+                    + "Expect: " + expect + "\r\n";
+            if (authorization) {
+                rawRequest += "Authorization: Basic dGVzdDp0ZXN0\r\n";
+            }
+            rawRequest += "\r\n";
+            out.write(rawRequest.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            String statusLine = reader.readLine();
+            LOG.info("Expectation [" + expect + "], content length " + contentLength + ": " + statusLine);
+            return statusLine;
+        }
+    }
+
+
+    /**
+     * Read the response until the connection is closed
+     *
+     * @param reader the reader
+     * @return the response
+     * @throws Exception In case of an error
+     */
+    private String readResponse(BufferedReader reader) throws Exception {
+        StringBuilder fullResponse = new StringBuilder();
+        String line = reader.readLine();
+        while (line != null) {
+            fullResponse.append(line).append("\n");
+            line = reader.readLine();
+        }
+
+        return fullResponse.toString();
+    }
+
+
     /**
      * Send a simple GET request using HttpClient.
      *
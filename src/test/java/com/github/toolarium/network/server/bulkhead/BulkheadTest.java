@@ -0,0 +1,163 @@
+/*
+ * BulkheadTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.bulkhead;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.HttpRequest;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link Bulkhead} and the {@link BulkheadRouter}.
+ *
+ * @author patrick
+ */
+public class BulkheadTest {
+
+    /**
+     * Test the pool and queue limit of a bulkhead
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void bulkheadTest() throws InterruptedException {
+        final Bulkhead bulkhead = new Bulkhead("reports", 1, 1, RejectionPolicy.REJECT);
+        assertFalse(bulkhead.execute(() -> { }));
+        assertEquals(1, bulkhead.getRejectedCount());
+
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(2);
+        bulkhead.start();
+        try {
+            assertTrue(bulkhead.execute(() -> {
+                started.countDown();
+                await(blocked);
+                done.countDown();
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertTrue(bulkhead.execute(done::countDown));
+            assertFalse(bulkhead.execute(done::countDown));
+
+            assertEquals(1, bulkhead.getActiveCount());
+            assertEquals(1, bulkhead.getQueueSize());
+            assertEquals(2, bulkhead.getRejectedCount());
+
+            blocked.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+        } finally {
+            blocked.countDown();
+            bulkhead.stop();
+        }
+
+        assertFalse(bulkhead.execute(() -> { }));
+
+        // restart
+        final CountDownLatch restarted = new CountDownLatch(1);
+        bulkhead.start();
+        try {
+            assertTrue(bulkhead.execute(restarted::countDown));
+            assertTrue(restarted.await(5, TimeUnit.SECONDS));
+        } finally {
+            bulkhead.stop();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead("invalid", 0, 1, RejectionPolicy.REJECT));
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead("invalid", 1, -1, RejectionPolicy.REJECT));
+        assertThrows(IllegalArgumentException.class, () -> new Bulkhead(" ", 1, 1, RejectionPolicy.REJECT));
+    }
+
+
+    /**
+     * Test the bulkhead without queue
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void noQueueTest() throws InterruptedException {
+        final Bulkhead bulkhead = new Bulkhead("direct", 1, 0, RejectionPolicy.CLOSE);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        bulkhead.start();
+        try {
+            assertTrue(bulkhead.execute(() -> {
+                started.countDown();
+                await(blocked);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            assertFalse(bulkhead.execute(() -> { }));
+            assertEquals(0, bulkhead.getQueueSize());
+        } finally {
+            blocked.countDown();
+            bulkhead.stop();
+        }
+    }
+
+
+    /**
+     * Test the bulkhead router
+     */
+    @Test
+    public void routerTest() {
+        final Bulkhead reports = new Bulkhead("reports", 2, 4, RejectionPolicy.REJECT);
+        final Bulkhead search = new Bulkhead("search", 2, 4, RejectionPolicy.CALLER_RUNS);
+        final BulkheadRouter router = new BulkheadRouter().addRoute("/reports", reports)
+                                                          .addRoute("/export", reports)
+                                                          .addRoute("/reports/search", search);
+
+        assertSame(reports, router.select(new HttpRequest().setPath("/reports/2024")));
+        assertSame(reports, router.select(new HttpRequest().setPath("/export")));
+        assertSame(search, router.select(new HttpRequest().setPath("/reports/search?q=1")));
+        assertNull(router.select(new HttpRequest().setPath("/health")));
+        assertNull(router.select(new HttpRequest()));
+        assertNull(router.select(new HttpRequest().setPath("/exports")));
+        assertSame(reports, router.select(new HttpRequest().setPath("/reports/searches")));
+        assertSame(reports, router.select(new HttpRequest().setPath("/reports?q=1")));
+        assertEquals(2, router.getBulkheads().size());
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute("", reports));
+        assertThrows(IllegalArgumentException.class, () -> router.addRoute("/other", null));
+    }
+
+
+    /**
+     * Test that a route doesn't capture a sibling route which shares its prefix
+     */
+    @Test
+    public void routerSegmentBoundaryTest() {
+        final Bulkhead api = new Bulkhead("api", 2, 4, RejectionPolicy.REJECT);
+        final Bulkhead assets = new Bulkhead("assets", 2, 4, RejectionPolicy.REJECT);
+        final BulkheadRouter router = new BulkheadRouter().addRoute("/api", api).addRoute("/assets/", assets);
+
+        assertSame(api, router.select(new HttpRequest().setPath("/api")));
+        assertSame(api, router.select(new HttpRequest().setPath("/api/users")));
+        assertNull(router.select(new HttpRequest().setPath("/apiv2")));
+        assertNull(router.select(new HttpRequest().setPath("/api-admin/users")));
+        assertSame(assets, router.select(new HttpRequest().setPath("/assets/logo.png")));
+        assertNull(router.select(new HttpRequest().setPath("/assets")));
+    }
+
+
+    /**
+     * Wait for the latch
+     *
+     * @param latch the latch
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
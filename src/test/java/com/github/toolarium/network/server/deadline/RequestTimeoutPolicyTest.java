@@ -0,0 +1,100 @@
+/*
+ * RequestTimeoutPolicyTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.deadline;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.HttpRequest;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link RequestTimeoutPolicy} and the {@link RequestDeadlineTimer}.
+ *
+ * @author patrick
+ */
+public class RequestTimeoutPolicyTest {
+
+    /**
+     * Test the timeouts per route
+     */
+    @Test
+    public void timeoutPolicyTest() {
+        RequestTimeoutPolicy policy = new RequestTimeoutPolicy(5000).addRoute("/reports", 30_000)
+                                                                    .addRoute("/reports/live", 1000)
+                                                                    .addRoute("/stream", 0);
+
+        assertEquals(5000, policy.getDefaultTimeout());
+        assertEquals(5000, policy.getTimeout(new HttpRequest().setPath("/health")));
+        assertEquals(5000, policy.getTimeout(new HttpRequest()));
+        assertEquals(30_000, policy.getTimeout(new HttpRequest().setPath("/reports/2024")));
+        assertEquals(1000, policy.getTimeout(new HttpRequest().setPath("/reports/live/cpu")));
+        assertEquals(0, policy.getTimeout(new HttpRequest().setPath("/stream")));
+        assertEquals(0, policy.getTimeout(new HttpRequest().setPath("/stream?format=sse")));
+        assertEquals(5000, policy.getTimeout(new HttpRequest().setPath("/streams")));
+        assertEquals(5000, policy.getTimeout(new HttpRequest().setPath("/reports-archive/2024")));
+        assertEquals(30_000, policy.getTimeout(new HttpRequest().setPath("/reports/lively")));
+
+        assertThrows(IllegalArgumentException.class, () -> new RequestTimeoutPolicy(-1));
+        assertThrows(IllegalArgumentException.class, () -> policy.addRoute("/other", -1));
+        assertThrows(IllegalArgumentException.class, () -> policy.addRoute(null, 1000));
+    }
+
+
+    /**
+     * Test the deadline timer
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void deadlineTimerTest() throws InterruptedException {
+        final CountDownLatch expired = new CountDownLatch(1);
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        final int queueSize = RequestDeadlineTimer.getInstance().getQueueSize();
+
+        ScheduledFuture<?> deadline = RequestDeadlineTimer.getInstance().schedule(cancelled::countDown, 60_000);
+        assertEquals(queueSize + 1, RequestDeadlineTimer.getInstance().getQueueSize());
+        deadline.cancel(false);
+        assertEquals(queueSize, RequestDeadlineTimer.getInstance().getQueueSize());
+
+        RequestDeadlineTimer.getInstance().schedule(expired::countDown, 10);
+        assertTrue(expired.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelled.await(50, TimeUnit.MILLISECONDS));
+    }
+
+
+    /**
+     * Test that a blocking expiration doesn't delay the other deadlines
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void blockingExpirationTest() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch expired = new CountDownLatch(1);
+
+        RequestDeadlineTimer.getInstance().schedule(() -> RequestDeadlineTimer.getInstance().execute(() -> {
+            try {
+                blocked.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }), 10);
+        RequestDeadlineTimer.getInstance().schedule(expired::countDown, 50);
+
+        try {
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+        } finally {
+            blocked.countDown();
+        }
+    }
+}
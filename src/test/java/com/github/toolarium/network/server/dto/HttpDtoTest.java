@@ -143,6 +143,41 @@ public class HttpDtoTest {
     }
 
 
+    /**
+     * Test HttpRequestTiming time stamps and phase durations.
+     */
+    @Test
+    public void httpRequestTimingTest() {
+        HttpRequestTiming timing = new HttpRequestTiming(1000, 1500);
+        assertNotNull(new HttpRequest().getTiming());
+        assertEquals(500, timing.getDuration(HttpRequestPhase.QUEUE_WAIT));
+        assertEquals(-1, timing.getDuration(HttpRequestPhase.READ_HEADERS));
+        assertEquals(-1, timing.getDuration(HttpRequestPhase.TOTAL));
+        assertEquals(-1, timing.getDuration(null));
+
+        timing.setHeadersCompleteTimestamp(1700).setBodyCompleteTimestamp(2000).setServiceReturnTimestamp(5000).setLastByteWrittenTimestamp(5600);
+        assertEquals(200, timing.getDuration(HttpRequestPhase.READ_HEADERS));
+        assertEquals(300, timing.getDuration(HttpRequestPhase.READ_BODY));
+        assertEquals(3000, timing.getDuration(HttpRequestPhase.SERVICE));
+        assertEquals(600, timing.getDuration(HttpRequestPhase.WRITE));
+        assertEquals(4600, timing.getDuration(HttpRequestPhase.TOTAL));
+        assertTrue(timing.toString().contains("service=3000"));
+
+        // the wait of a request which is dispatched by a scheduler or a bulkhead
+        assertEquals(-1, timing.getDuration(HttpRequestPhase.DISPATCH_WAIT));
+        timing.setDispatchTimestamp(1900);
+        assertEquals(200, timing.getDuration(HttpRequestPhase.DISPATCH_WAIT));
+        assertEquals(100, timing.getDuration(HttpRequestPhase.READ_BODY));
+        timing.setDispatchTimestamp(0);
+
+        // not measured phase, e.g. a streamed body
+        timing.setBodyCompleteTimestamp(0);
+        assertEquals(-1, timing.getDuration(HttpRequestPhase.READ_BODY));
+        assertEquals(-1, timing.getDuration(HttpRequestPhase.SERVICE));
+        assertEquals(4600, timing.getDuration(HttpRequestPhase.TOTAL));
+    }
+
+
     /**
      * Test HttpServerInformation getters, setters, equals, hashCode, toString, getURI, getProtocol.
      */
@@ -0,0 +1,135 @@
+/*
+ * HttpHeadersTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.dto;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Tests for the {@link HttpHeaders}.
+ *
+ * @author patrick
+ */
+public class HttpHeadersTest {
+
+    /**
+     * Test case insensitive lookup.
+     */
+    @Test
+    public void caseInsensitiveTest() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("content-length", "42");
+        headers.add("X-Custom", "value");
+
+        assertTrue(headers.contains(HttpHeaderUtil.CONTENT_LENGTH));
+        assertTrue(headers.containsKey("CONTENT-LENGTH"));
+        assertEquals("42", headers.get("Content-Length"));
+        assertEquals("value", headers.getFirst("x-custom"));
+        assertFalse(headers.contains("X-Other"));
+        assertNull(headers.get("X-Other"));
+        assertNull(headers.get(null));
+
+        // well known names are replaced by the constant
+        assertSame(HttpHeaderUtil.CONTENT_LENGTH, headers.keySet().iterator().next());
+    }
+
+
+    /**
+     * Test repeated headers.
+     */
+    @Test
+    public void multiValueTest() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("Accept", "text/html");
+        headers.add("Host", "localhost");
+        headers.add("accept", "application/json");
+
+        assertEquals(2, headers.size());
+        assertEquals(3, headers.getNumberOfValues());
+        assertEquals("text/html", headers.get("Accept"));
+        assertEquals(Arrays.asList("text/html", "application/json"), headers.getAll("ACCEPT"));
+        assertTrue(headers.getAll("X-Other").isEmpty());
+
+        Iterator<Map.Entry<String, String>> it = headers.entrySet().iterator();
+        assertEquals("Accept", it.next().getKey());
+        assertEquals("Host", it.next().getKey());
+        assertFalse(it.hasNext());
+
+        assertEquals("text/html", headers.put("accept", "*/*"));
+        assertEquals(Arrays.asList("*/*"), headers.getAll("Accept"));
+        assertEquals("localhost", headers.remove("HOST"));
+        assertEquals(1, headers.size());
+    }
+
+
+    /**
+     * Test the map compatibility.
+     */
+    @Test
+    public void mapTest() {
+        Map<String, String> map = new LinkedHashMap<>();
+        map.put("Host", "localhost");
+        map.put("Content-Type", "text/plain");
+
+        HttpHeaders headers = new HttpHeaders(map);
+        assertEquals(map, headers);
+        assertEquals(map.hashCode(), headers.hashCode());
+        assertEquals(headers, new HttpHeaders(headers));
+        assertEquals("text/plain", headers.get("content-type"));
+
+        for (int i = 0; i < 40; i++) {
+            headers.add("X-Header-" + i, "" + i);
+        }
+        assertEquals(42, headers.size());
+        assertEquals("39", headers.get("x-header-39"));
+
+        headers.clear();
+        assertTrue(headers.isEmpty());
+    }
+
+
+    /**
+     * Test the content length parsing.
+     */
+    @Test
+    public void contentLengthTest() {
+        HttpHeaders headers = new HttpHeaders();
+        assertEquals(-1, headers.getContentLength());
+
+        headers.add("content-length", " 1234 ");
+        assertEquals(1234, headers.getContentLength());
+
+        headers.add("Content-Length", "1234");
+        assertEquals(1234, headers.getContentLength());
+
+        headers.add("Content-Length", "12");
+        assertThrows(NumberFormatException.class, () -> headers.getContentLength());
+
+        headers.put("Content-Length", "-1");
+        assertThrows(NumberFormatException.class, () -> headers.getContentLength());
+
+        headers.put("Content-Length", "abc");
+        assertThrows(NumberFormatException.class, () -> headers.getContentLength());
+
+        headers.put("Content-Length", "99999999999999999999");
+        assertThrows(NumberFormatException.class, () -> headers.getContentLength());
+
+        headers.put("Content-Length", "" + Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, headers.getContentLength());
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * HttpResponseWriterTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.handler.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.HttpReponse;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link HttpResponseWriter}.
+ *
+ * @author patrick
+ */
+public class HttpResponseWriterTest {
+    private static final String LINE_END = System.lineSeparator();
+
+
+    /**
+     * Test the encoding of the head
+     */
+    @Test
+    public void encodeHeadTest() {
+        HttpReponse response = new HttpReponse().setStatus(404).addHeader("Content-Length", "0").addHeader("X-Test", "a");
+        ByteBuffer head = HttpResponseWriter.getInstance().encodeHead(response);
+        assertEquals("HTTP/1.1 404 NOT FOUND" + LINE_END + "Content-Length: 0" + LINE_END + "X-Test: a" + LINE_END + LINE_END, toString(head));
+
+        // the pooled buffer grows
+        char[] value = new char[20_000];
+        Arrays.fill(value, 'x');
+        response.addHeader("X-Large", new String(value));
+        head = HttpResponseWriter.getInstance().encodeHead(response);
+        assertTrue(toString(head).contains("X-Large: " + new String(value) + LINE_END));
+    }
+
+
+    /**
+     * Test the gathering write to a socket channel
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void gatheringWriteTest() throws Exception {
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open()) {
+            serverChannel.bind(new InetSocketAddress("localhost", 0));
+            try (SocketChannel client = SocketChannel.open(serverChannel.getLocalAddress()); SocketChannel accepted = serverChannel.accept()) {
+                assertWrite(accepted.socket(), client.socket(), 100);
+                assertWrite(accepted.socket(), client.socket(), 1_000_000);
+            }
+        }
+    }
+
+
+    /**
+     * Test the write to a socket without channel
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void streamWriteTest() throws Exception {
+        try (ServerSocket serverSocket = new ServerSocket(0)) {
+            try (Socket client = new Socket("localhost", serverSocket.getLocalPort()); Socket accepted = serverSocket.accept()) {
+                assertWrite(accepted, client, 0);
+                assertWrite(accepted, client, 100);
+                assertWrite(accepted, client, 1_000_000);
+            }
+        }
+    }
+
+
+    /**
+     * Write a response and compare the received bytes
+     *
+     * @param socket the socket to write
+     * @param client the socket to read
+     * @param bodyLength the length of the body
+     * @throws Exception In case of an error
+     */
+    private void assertWrite(Socket socket, Socket client, int bodyLength) throws Exception {
+        final byte[] body = new byte[bodyLength];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) ('a' + (i % 26));
+        }
+
+        final HttpReponse response = new HttpReponse().addHeader("Content-Length", "" + bodyLength);
+        final byte[] head = ("HTTP/1.1 200 OK" + LINE_END + "Content-Length: " + bodyLength + LINE_END + LINE_END).getBytes(StandardCharsets.ISO_8859_1);
+        final byte[] expected = new byte[head.length + body.length];
+        System.arraycopy(head, 0, expected, 0, head.length);
+        System.arraycopy(body, 0, expected, head.length, body.length);
+
+        final Thread writer = new Thread(() -> {
+            try {
+                HttpResponseWriter.getInstance().write(socket, HttpResponseWriter.getInstance().encodeHead(response), body);
+            } catch (Exception e) {
+                // NOP
+            }
+        });
+        writer.start();
+
+        final InputStream in = client.getInputStream();
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        while (received.size() < expected.length) {
+            int n = in.read(buffer);
+            if (n < 0) {
+                break;
+            }
+            received.write(buffer, 0, n);
+        }
+        writer.join(5000L);
+
+        assertArrayEquals(expected, received.toByteArray());
+    }
+
+
+    /**
+     * Get the remaining bytes of a buffer as string
+     *
+     * @param buffer the buffer
+     * @return the string
+     */
+    private String toString(ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), StandardCharsets.ISO_8859_1);
+    }
+}
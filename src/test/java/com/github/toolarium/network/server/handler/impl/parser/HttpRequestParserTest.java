@@ -6,8 +6,13 @@
 package com.github.toolarium.network.server.handler.impl.parser;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.toolarium.network.server.dto.HttpParameters;
+import com.github.toolarium.network.server.dto.HttpRequest;
+import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -164,4 +169,57 @@ public class HttpRequestParserTest {
         assertEquals("http://host", params.get("url"));
         assertEquals("\"hello\"", params.get("q"));
     }
+
+
+    /**
+     * Test full percent decoding: reserved characters, plus sign and UTF-8 sequences.
+     */
+    @Test
+    public void percentDecodingTest() {
+        HttpRequestParser parser = new HttpRequestParser("GET /test?path=%2Fa%2Fb&name=hello+world&plus=1%2B1&utf=gr%C3%BC%C3%9Fe%20%E2%82%AC&raw=50%25 HTTP/1.1");
+        Map<String, String> params = parser.getParameters();
+
+        assertEquals("/a/b", params.get("path"));
+        assertEquals("hello world", params.get("name"));
+        assertEquals("1+1", params.get("plus"));
+        assertEquals("gr\u00FC\u00DFe \u20AC", params.get("utf")); // umlaut, sharp s and euro sign
+        assertEquals("50%", params.get("raw"));
+    }
+
+
+    /**
+     * Test repeated parameters, values containing a separator and encoded names.
+     */
+    @Test
+    public void multiValuedParameterTest() {
+        HttpRequestParser parser = new HttpRequestParser("GET /test?id=1&id=2&&expr=a=b&my%20key=v&id=3 HTTP/1.1");
+        HttpParameters params = parser.getParameters();
+
+        assertEquals("/test", parser.getPath());
+        assertEquals("id=1&id=2&&expr=a=b&my%20key=v&id=3", parser.getQuery());
+        assertEquals(3, params.size());
+        assertEquals("1", params.get("id"));
+        assertEquals(Arrays.asList("1", "2", "3"), params.getAll("id"));
+        assertEquals("a=b", params.get("expr"));
+        assertEquals("v", params.get("my key"));
+        assertTrue(params.getAll("unknown").isEmpty());
+    }
+
+
+    /**
+     * Test the character sequence view.
+     */
+    @Test
+    public void charSequenceViewTest() {
+        HttpRequest request = new HttpRequest();
+        request.setParameters(new HttpRequestParser("GET /test?mode=fast&text=a%20b HTTP/1.1").getParameters());
+
+        assertTrue("fast".contentEquals(request.getParameterAsCharSequence("mode")));
+        assertTrue("a b".contentEquals(request.getParameterAsCharSequence("text")));
+        assertNull(request.getParameterAsCharSequence("unknown"));
+        assertEquals(Arrays.asList("fast"), request.getParameterValues("mode"));
+        assertTrue(request.containsParameter("text"));
+        assertFalse(new HttpRequestParser("GET /test HTTP/1.1").getParameters().containsKey("mode"));
+        assertNull(new HttpRequestParser("GET /test HTTP/1.1").getQuery());
+    }
 }
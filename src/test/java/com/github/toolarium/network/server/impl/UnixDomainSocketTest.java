@@ -0,0 +1,77 @@
+/*
+ * UnixDomainSocketTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import com.github.toolarium.network.server.util.UnixDomainSocketUtil;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link UnixDomainSocket}.
+ *
+ * @author patrick
+ */
+public class UnixDomainSocketTest {
+
+    /**
+     * Test that a write is not blocked by a read which waits on the socket
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void readWriteTest() throws Exception {
+        if (!UnixDomainSocketUtil.getInstance().isSupported()) {
+            return;
+        }
+
+        final Path socketPath = Files.createTempDirectory("toolarium-network").resolve("socket.sock");
+        try (ServerSocketChannel serverSocketChannel = UnixDomainSocketUtil.getInstance().openServerSocketChannel(socketPath.toString());
+             SocketChannel client = UnixDomainSocketUtil.getInstance().openSocketChannel(socketPath.toString());
+             UnixDomainSocket socket = new UnixDomainSocket(serverSocketChannel.accept())) {
+
+            final CompletableFuture<Integer> read = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return socket.getInputStream().read();
+                } catch (Exception e) {
+                    return -2;
+                }
+            });
+            Thread.sleep(100L);
+
+            // the read blocks on the socket, the write is not blocked
+            final CompletableFuture<Void> write = CompletableFuture.runAsync(() -> {
+                try {
+                    socket.getOutputStream().write("504".getBytes());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            write.get(2, TimeUnit.SECONDS);
+
+            final InputStream clientInput = Channels.newInputStream(client);
+            assertEquals('5', clientInput.read());
+            assertFalse(read.isDone());
+
+            client.write(ByteBuffer.wrap(new byte[] {42}));
+            assertEquals(Integer.valueOf(42), read.get(2, TimeUnit.SECONDS));
+        } finally {
+            Files.deleteIfExists(socketPath);
+            Files.deleteIfExists(socketPath.getParent());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * TimingHistogramTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.logger.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.HttpReponse;
+import com.github.toolarium.network.server.dto.HttpRequest;
+import com.github.toolarium.network.server.dto.HttpRequestPhase;
+import com.github.toolarium.network.server.dto.HttpRequestTiming;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link TimingHistogram} and the {@link TimingHttpAccessLogger}.
+ *
+ * @author patrick
+ */
+public class TimingHistogramTest {
+
+    /**
+     * Test the percentiles
+     */
+    @Test
+    public void percentileTest() {
+        TimingHistogram histogram = new TimingHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMean(), 0.0);
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.recordValue(i * 1000L);
+        }
+        histogram.recordValue(-1);
+
+        assertEquals(1000, histogram.getTotalCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500.0, histogram.getMean(), 0.001);
+        assertWithinOnePercent(500000, histogram.getValueAtPercentile(50));
+        assertWithinOnePercent(990000, histogram.getValueAtPercentile(99));
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+
+    /**
+     * Test concurrent recording
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void concurrentRecordTest() throws InterruptedException {
+        final TimingHistogram histogram = new TimingHistogram();
+        final int numberOfThreads = 4;
+        final int numberOfValues = 10000;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < numberOfThreads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < numberOfValues; i++) {
+                    histogram.recordValue(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(numberOfThreads * numberOfValues, histogram.getTotalCount());
+        assertEquals(numberOfValues - 1, histogram.getMax());
+    }
+
+
+    /**
+     * Test the aggregation of the access logger
+     */
+    @Test
+    public void accessLoggerTest() {
+        TimingHttpAccessLogger accessLogger = new TimingHttpAccessLogger();
+        HttpRequest request = new HttpRequest().setTiming(new HttpRequestTiming(1000, 2000).setHeadersCompleteTimestamp(3000)
+                                                                                           .setServiceReturnTimestamp(7000)
+                                                                                           .setLastByteWrittenTimestamp(8000));
+        accessLogger.requestReceived(null, request);
+        accessLogger.responseSent(null, request, new HttpReponse().setStatus(200));
+
+        assertEquals(1, accessLogger.getHistogram(HttpRequestPhase.QUEUE_WAIT).getTotalCount());
+        assertEquals(1000, accessLogger.getHistogram(HttpRequestPhase.QUEUE_WAIT).getMax());
+        assertEquals(7000, accessLogger.getHistogram(HttpRequestPhase.TOTAL).getMax());
+
+        // the phases without body time stamp are not recorded
+        assertEquals(0, accessLogger.getHistogram(HttpRequestPhase.READ_BODY).getTotalCount());
+        assertEquals(0, accessLogger.getHistogram(HttpRequestPhase.SERVICE).getTotalCount());
+        assertTrue(accessLogger.toString().contains("total"));
+
+        accessLogger.reset();
+        assertEquals(0, accessLogger.getHistogram(HttpRequestPhase.TOTAL).getTotalCount());
+    }
+
+
+    /**
+     * Assert the value is within 1% of the expected value
+     *
+     * @param expected the expected value
+     * @param value the value
+     */
+    private void assertWithinOnePercent(long expected, long value) {
+        assertTrue(Math.abs(expected - value) <= expected / 100, "Expected " + expected + " but was " + value);
+    }
+}
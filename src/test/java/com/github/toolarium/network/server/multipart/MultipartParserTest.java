@@ -0,0 +1,221 @@
+/*
+ * MultipartParserTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.multipart;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.IMultipartPart;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link MultipartParser}.
+ *
+ * @author patrick
+ */
+public class MultipartParserTest {
+    private static final String BOUNDARY = "----toolariumBoundary7MA4YWxkTrZu0gW";
+
+
+    /**
+     * Test the boundary of the content type
+     */
+    @Test
+    public void boundaryTest() {
+        assertEquals("abc", MultipartParser.getBoundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b;c", MultipartParser.getBoundary("Multipart/Form-Data; charset=utf-8; Boundary=\"a b;c\""));
+        assertNull(MultipartParser.getBoundary("application/json"));
+        assertNull(MultipartParser.getBoundary("multipart/form-data"));
+        assertNull(MultipartParser.getBoundary(null));
+        assertEquals("file.txt", MultipartParser.getParameter("form-data; name=\"upload\"; filename=\"file.txt\"", "filename"));
+        assertEquals("upload", MultipartParser.getParameter("form-data; name=\"upload\"; filename=\"file.txt\"", "name"));
+        assertThrows(IllegalArgumentException.class, () -> new MultipartParser(""));
+    }
+
+
+    /**
+     * Test the Boyer-Moore-Horspool search
+     */
+    @Test
+    public void indexOfTest() {
+        final MultipartParser parser = new MultipartParser("xyz");
+        final byte[] data = "abc\r\n--xy\r\n--xyz\r\n--xyz".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(9, parser.indexOf(data, 0, data.length));
+        assertEquals(16, parser.indexOf(data, 10, data.length));
+        assertEquals(-1, parser.indexOf(data, 17, data.length));
+        assertEquals(-1, parser.indexOf(data, 0, 15));
+    }
+
+
+    /**
+     * Test form fields and files, the input is read in small random chunks to cross the buffer boundaries
+     *
+     * @throws IOException In case of an I/O error
+     */
+    @Test
+    public void parseTest() throws IOException {
+        final byte[] file = new byte[200_000];
+        new Random(42).nextBytes(file);
+
+        // content which contains parts of the delimiter
+        final byte[] tricky = ("line1\r\n--" + BOUNDARY.substring(0, 10) + "\r\n-\r\n--").getBytes(StandardCharsets.US_ASCII);
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write("preamble\r\n".getBytes(StandardCharsets.US_ASCII));
+        writePart(body, "form-data; name=\"field\"", null, "value äöü".getBytes(StandardCharsets.UTF_8));
+        writePart(body, "form-data; name=\"firmware\"; filename=\"image.bin\"", "application/octet-stream", file);
+        writePart(body, "form-data; name=\"tricky\"", null, tricky);
+        writePart(body, "form-data; name=\"empty\"", null, new byte[0]);
+        body.write(("--" + BOUNDARY + "--\r\nepilogue").getBytes(StandardCharsets.US_ASCII));
+
+        try (TempFileMultipartConsumer consumer = new TempFileMultipartConsumer(null)) {
+            final int numberOfParts = new MultipartParser(BOUNDARY).parse(new ChunkedInputStream(body.toByteArray()), body.size(), consumer);
+            assertEquals(4, numberOfParts);
+
+            final List<IMultipartPart> parts = consumer.getParts();
+            assertEquals("field", parts.get(0).getName());
+            assertNull(parts.get(0).getFilename());
+            assertNull(parts.get(0).getFile());
+            assertEquals("value äöü", parts.get(0).getValue());
+
+            assertEquals("firmware", parts.get(1).getName());
+            assertEquals("image.bin", parts.get(1).getFilename());
+            assertEquals("application/octet-stream", parts.get(1).getContentType());
+            assertEquals(file.length, parts.get(1).getSize());
+            assertNotNull(parts.get(1).getFile());
+            assertArrayEquals(file, Files.readAllBytes(parts.get(1).getFile()));
+
+            assertArrayEquals(tricky, parts.get(2).getValue().getBytes(StandardCharsets.US_ASCII));
+            assertEquals("", parts.get(3).getValue());
+
+            final Path tempFile = parts.get(1).getFile();
+            consumer.close();
+            assertFalse(Files.exists(tempFile));
+        }
+    }
+
+
+    /**
+     * Test a large form field which doesn't fit into the memory
+     *
+     * @throws IOException In case of an I/O error
+     */
+    @Test
+    public void spillToFileTest() throws IOException {
+        final byte[] value = new byte[1000];
+        Arrays.fill(value, (byte) 'a');
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writePart(body, "form-data; name=\"large\"", null, value);
+        body.write(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+
+        try (TempFileMultipartConsumer consumer = new TempFileMultipartConsumer(null, 100)) {
+            new MultipartParser(BOUNDARY).parse(new ByteArrayInputStream(body.toByteArray()), -1, consumer);
+            final IMultipartPart part = consumer.getParts().get(0);
+            assertNotNull(part.getFile());
+            assertEquals(value.length, part.getSize());
+            assertArrayEquals(value, Files.readAllBytes(part.getFile()));
+        }
+    }
+
+
+    /**
+     * Test invalid bodies
+     */
+    @Test
+    public void invalidBodyTest() {
+        final byte[] noBoundary = "just some data".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> parse(noBoundary, -1));
+
+        final byte[] notClosed = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"a\"\r\n\r\nvalue").getBytes(StandardCharsets.US_ASCII);
+        assertThrows(IOException.class, () -> parse(notClosed, -1));
+
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        writePart(body, "form-data; name=\"a\"", null, new byte[10_000]);
+        assertThrows(IOException.class, () -> parse(body.toByteArray(), 1000));
+    }
+
+
+    /**
+     * Parse a body
+     *
+     * @param body the body
+     * @param maxSize the max size
+     * @throws IOException In case of an I/O error
+     */
+    private void parse(byte[] body, long maxSize) throws IOException {
+        try (TempFileMultipartConsumer consumer = new TempFileMultipartConsumer(null)) {
+            new MultipartParser(BOUNDARY).setMaxSize(maxSize).parse(new ByteArrayInputStream(body), -1, consumer);
+        }
+    }
+
+
+    /**
+     * Write a part
+     *
+     * @param body the body
+     * @param contentDisposition the content disposition
+     * @param contentType the content type or null
+     * @param content the content
+     */
+    private void writePart(ByteArrayOutputStream body, String contentDisposition, String contentType, byte[] content) {
+        final StringBuilder header = new StringBuilder();
+        header.append("--").append(BOUNDARY).append("\r\n");
+        header.append("Content-Disposition: ").append(contentDisposition).append("\r\n");
+        if (contentType != null) {
+            header.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        header.append("\r\n");
+
+        final byte[] headerBytes = header.toString().getBytes(StandardCharsets.UTF_8);
+        body.write(headerBytes, 0, headerBytes.length);
+        body.write(content, 0, content.length);
+        body.write('\r');
+        body.write('\n');
+    }
+
+
+    /**
+     * Returns the data in small random chunks
+     */
+    private static class ChunkedInputStream extends FilterInputStream {
+        private final Random random = new Random(7);
+
+        /**
+         * Constructor for ChunkedInputStream
+         *
+         * @param data the data
+         */
+        ChunkedInputStream(byte[] data) {
+            super(new ByteArrayInputStream(data));
+        }
+
+        /**
+         * @see java.io.FilterInputStream#read(byte[], int, int)
+         */
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return super.read(b, off, Math.min(len, 1 + random.nextInt(4000)));
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * TokenBucketRateLimiterTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.HttpHeaders;
+import com.github.toolarium.network.server.dto.HttpRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link TokenBucketRateLimiter}.
+ *
+ * @author patrick
+ */
+public class TokenBucketRateLimiterTest {
+
+    /**
+     * Test the burst and the refill of a bucket
+     *
+     * @throws InterruptedException In case of an interrupt
+     */
+    @Test
+    public void burstAndRefillTest() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(20, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(rateLimiter.tryAcquire("client"), "Request " + i);
+        }
+        assertFalse(rateLimiter.tryAcquire("client"));
+
+        // other clients are independent
+        assertTrue(rateLimiter.tryAcquire("other"));
+
+        // one token per 50ms
+        Thread.sleep(120L);
+        assertTrue(rateLimiter.tryAcquire("client"));
+        assertTrue(rateLimiter.tryAcquire("client"));
+        assertFalse(rateLimiter.tryAcquire("client"));
+
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0));
+    }
+
+
+    /**
+     * Test the key of the client
+     */
+    @Test
+    public void keyTest() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 1).setHeaderName("X-Api-Key");
+        HttpRequest request = new HttpRequest();
+        request.setHeaders(new HttpHeaders().add("x-api-key", " abc "));
+        assertEquals("abc", rateLimiter.getKey(null, request));
+        assertTrue(rateLimiter.tryAcquire(null, request));
+        assertFalse(rateLimiter.tryAcquire(null, request));
+
+        // fallback without header
+        assertEquals("local", rateLimiter.getKey(null, new HttpRequest()));
+    }
+
+
+    /**
+     * Test the bounded size and the idle eviction
+     *
+     * @throws InterruptedException In case of an interrupt
+     */
+    @Test
+    public void evictionTest() throws InterruptedException {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1000, 1).setMaxSize(160);
+        for (int i = 0; i < 10_000; i++) {
+            rateLimiter.tryAcquire("client" + i);
+        }
+        assertTrue(rateLimiter.size() <= 160, "Size: " + rateLimiter.size());
+
+        Thread.sleep(10L);
+        rateLimiter.evictIdle();
+        assertEquals(0, rateLimiter.size());
+
+        // the idle buckets of a stripe are evicted lazily by a request
+        for (int i = 0; i < 100; i++) {
+            rateLimiter.tryAcquire("client" + i);
+        }
+        assertEquals(100, rateLimiter.size());
+        Thread.sleep(rateLimiter.getEvictionInterval(TimeUnit.MILLISECONDS) + 50L);
+        assertTrue(rateLimiter.tryAcquire("client0"));
+        assertTrue(rateLimiter.size() < 100, "Size: " + rateLimiter.size());
+    }
+
+
+    /**
+     * Test that a full stripe never evicts a bucket which limits its client
+     */
+    @Test
+    public void limitedEvictionTest() {
+        TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(1, 1).setMaxSize(16);
+        int permitted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (rateLimiter.tryAcquire("client" + i)) {
+                permitted++;
+            }
+        }
+        assertTrue(permitted <= 16, "Permitted: " + permitted);
+        assertTrue(rateLimiter.size() <= 16, "Size: " + rateLimiter.size());
+
+        // the limited clients are not reset and new clients of a full stripe are limited
+        for (int i = 0; i < 100; i++) {
+            assertFalse(rateLimiter.tryAcquire("client" + i), "Client " + i);
+        }
+    }
+
+
+    /**
+     * Test concurrent clients: the burst is never exceeded
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void concurrentTest() throws Exception {
+        final TokenBucketRateLimiter rateLimiter = new TokenBucketRateLimiter(0.001, 100);
+        final AtomicInteger permitted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (rateLimiter.tryAcquire("client")) {
+                            permitted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100, permitted.get());
+    }
+}
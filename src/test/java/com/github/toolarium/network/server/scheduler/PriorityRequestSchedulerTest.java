@@ -0,0 +1,286 @@
+/*
+ * PriorityRequestSchedulerTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.scheduler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.HttpRequest;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link PriorityRequestScheduler} and the {@link RequestClassifier}.
+ *
+ * @author patrick
+ */
+public class PriorityRequestSchedulerTest {
+
+    /**
+     * Test the weighted fair dequeueing
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void weightedFairTest() throws InterruptedException {
+        final PriorityRequestScheduler scheduler = new PriorityRequestScheduler(new RequestClassifier());
+        final List<RequestPriority> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(39);
+        scheduler.start(1);
+
+        try {
+            // block the only worker until all tasks are queued
+            assertTrue(scheduler.execute(() -> await(blocked)));
+            for (int i = 0; i < 13; i++) {
+                for (RequestPriority priority : RequestPriority.values()) {
+                    assertTrue(scheduler.execute(() -> {
+                        order.add(priority);
+                        done.countDown();
+                    }, priority));
+                }
+            }
+
+            blocked.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            // the first round of 13 is dequeued by the weights 8:4:1
+            List<RequestPriority> firstRound = order.subList(0, 13);
+            assertEquals(8, count(firstRound, RequestPriority.CRITICAL));
+            assertEquals(4, count(firstRound, RequestPriority.NORMAL));
+            assertEquals(1, count(firstRound, RequestPriority.BULK));
+            assertEquals(RequestPriority.CRITICAL, order.get(0));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+
+    /**
+     * Test the queue limits
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void queueLimitTest() throws InterruptedException {
+        final PriorityRequestScheduler scheduler = new PriorityRequestScheduler(new RequestClassifier()).setQueueLimit(RequestPriority.BULK, 2)
+                                                                                                       .setIntakeQueueLimit(1);
+        assertFalse(scheduler.execute(() -> { }));
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        scheduler.start(1);
+
+        try {
+            assertTrue(scheduler.execute(() -> {
+                started.countDown();
+                await(blocked);
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertTrue(scheduler.execute(() -> { }));
+            assertFalse(scheduler.execute(() -> { }));
+            assertTrue(scheduler.execute(() -> { }, RequestPriority.BULK));
+            assertTrue(scheduler.execute(() -> { }, RequestPriority.BULK));
+            assertFalse(scheduler.execute(() -> { }, RequestPriority.BULK));
+            assertTrue(scheduler.execute(() -> { }, RequestPriority.CRITICAL));
+            assertEquals(2, scheduler.getQueueSize(RequestPriority.BULK));
+        } finally {
+            blocked.countDown();
+            scheduler.stop();
+        }
+
+        assertFalse(scheduler.execute(() -> { }, RequestPriority.CRITICAL));
+    }
+
+
+    /**
+     * Test the concurrency limit of a class: a critical task runs while the bulk tasks are blocked
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void concurrencyLimitTest() throws InterruptedException {
+        final PriorityRequestScheduler scheduler = new PriorityRequestScheduler(new RequestClassifier()).setConcurrencyLimit(RequestPriority.BULK, 1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch bulkDone = new CountDownLatch(3);
+        final CountDownLatch criticalDone = new CountDownLatch(1);
+        scheduler.start(2);
+
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(scheduler.execute(() -> {
+                    await(blocked);
+                    bulkDone.countDown();
+                }, RequestPriority.BULK));
+            }
+
+            assertTrue(scheduler.execute(criticalDone::countDown, RequestPriority.CRITICAL));
+            assertTrue(criticalDone.await(5, TimeUnit.SECONDS));
+            assertEquals(1, scheduler.getActiveCount(RequestPriority.BULK));
+            assertEquals(2, scheduler.getQueueSize(RequestPriority.BULK));
+
+            blocked.countDown();
+            assertTrue(bulkDone.await(5, TimeUnit.SECONDS));
+        } finally {
+            blocked.countDown();
+            scheduler.stop();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> scheduler.setConcurrencyLimit(RequestPriority.BULK, 0));
+        assertThrows(IllegalArgumentException.class, () -> scheduler.setWeight(RequestPriority.BULK, 0));
+    }
+
+
+    /**
+     * Test the reserved worker: a critical request is read and processed while slow normal and bulk requests occupy
+     * all other workers
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void reservedWorkerTest() throws InterruptedException {
+        final PriorityRequestScheduler scheduler = new PriorityRequestScheduler(new RequestClassifier());
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(3);
+        final CountDownLatch criticalDone = new CountDownLatch(1);
+        assertEquals(0, scheduler.getReservedWorkers(1));
+        assertEquals(1, scheduler.getReservedWorkers(4));
+        assertEquals(2, scheduler.getReservedWorkers(16));
+        scheduler.start(4);
+
+        try {
+            for (int i = 0; i < 6; i++) {
+                RequestPriority priority = RequestPriority.BULK;
+                if (i % 2 == 0) {
+                    priority = RequestPriority.NORMAL;
+                }
+
+                assertTrue(scheduler.execute(() -> {
+                    started.countDown();
+                    await(blocked);
+                }, priority));
+            }
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // the intake and the critical request are served by the reserved worker
+            assertTrue(scheduler.execute(() -> scheduler.execute(criticalDone::countDown, RequestPriority.CRITICAL)));
+            assertTrue(criticalDone.await(5, TimeUnit.SECONDS));
+            assertEquals(3, scheduler.getActiveCount(RequestPriority.NORMAL) + scheduler.getActiveCount(RequestPriority.BULK));
+        } finally {
+            blocked.countDown();
+            scheduler.stop();
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> scheduler.setReservedWorkers(-1));
+        assertEquals(0, scheduler.setReservedWorkers(0).getReservedWorkers(4));
+        assertEquals(3, scheduler.setReservedWorkers(8).getReservedWorkers(4));
+    }
+
+
+    /**
+     * Test that a sustained intake don't starve the classified requests
+     *
+     * @throws InterruptedException In case of an interruption
+     */
+    @Test
+    public void intakeFairnessTest() throws InterruptedException {
+        final PriorityRequestScheduler scheduler = new PriorityRequestScheduler(new RequestClassifier());
+        final List<String> order = new CopyOnWriteArrayList<>();
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(40);
+        scheduler.start(1);
+
+        try {
+            assertTrue(scheduler.execute(() -> await(blocked)));
+            for (int i = 0; i < 20; i++) {
+                assertTrue(scheduler.execute(() -> {
+                    order.add("intake");
+                    done.countDown();
+                }));
+                assertTrue(scheduler.execute(() -> {
+                    order.add("normal");
+                    done.countDown();
+                }, RequestPriority.NORMAL));
+            }
+
+            blocked.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            // the intake and the normal class are dequeued by the weights 8:4
+            assertEquals(4, order.subList(0, 12).stream().filter("normal"::equals).count());
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+
+    /**
+     * Test the request classifier
+     */
+    @Test
+    public void classifierTest() {
+        RequestClassifier classifier = new RequestClassifier().addPath("/health", RequestPriority.CRITICAL)
+                                                              .addPath("/report", RequestPriority.BULK)
+                                                              .addPath("/report/summary", RequestPriority.NORMAL)
+                                                              .addHeader("X-Priority", "bulk", RequestPriority.BULK)
+                                                              .addHeader("X-Admin-Token", null, RequestPriority.CRITICAL);
+
+        assertEquals(RequestPriority.CRITICAL, classifier.classify(new HttpRequest().setPath("/health/live")));
+        assertEquals(RequestPriority.BULK, classifier.classify(new HttpRequest().setPath("/report/2024")));
+        assertEquals(RequestPriority.NORMAL, classifier.classify(new HttpRequest().setPath("/report/summary")));
+        assertEquals(RequestPriority.NORMAL, classifier.classify(new HttpRequest().setPath("/other")));
+        assertEquals(RequestPriority.NORMAL, classifier.classify(new HttpRequest()));
+
+        HttpRequest request = new HttpRequest().setPath("/health");
+        request.getHeaders().add("x-priority", " BULK ");
+        assertEquals(RequestPriority.BULK, classifier.classify(request));
+
+        request = new HttpRequest().setPath("/report");
+        request.getHeaders().add("X-Admin-Token", "secret");
+        assertEquals(RequestPriority.CRITICAL, classifier.classify(request));
+
+        assertEquals(RequestPriority.BULK, new RequestClassifier().setDefaultPriority(RequestPriority.BULK).classify(new HttpRequest().setPath("/")));
+        assertThrows(IllegalArgumentException.class, () -> classifier.addPath(null, RequestPriority.BULK));
+    }
+
+
+    /**
+     * Count the occurrences of a priority
+     *
+     * @param list the list
+     * @param priority the priority
+     * @return the number of occurrences
+     */
+    private int count(List<RequestPriority> list, RequestPriority priority) {
+        int result = 0;
+        for (RequestPriority p : list) {
+            if (p == priority) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Wait for the latch
+     *
+     * @param latch the latch
+     */
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,491 @@
+/*
+ * ReverseProxyServiceTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.HttpServerFactory;
+import com.github.toolarium.network.server.IHttpServer;
+import com.github.toolarium.network.server.deadline.RequestTimeoutPolicy;
+import com.github.toolarium.network.server.dto.HttpHeaders;
+import com.github.toolarium.network.server.dto.IHttpRequest;
+import com.github.toolarium.network.server.dto.IHttpResponse;
+import com.github.toolarium.network.server.dto.IHttpServerInformation;
+import com.github.toolarium.network.server.impl.HttpServerImpl;
+import com.github.toolarium.network.server.logger.IHttpServerLogger;
+import com.github.toolarium.network.server.service.proxy.Upstream;
+import com.github.toolarium.network.server.trace.ITracer;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link ReverseProxyService}.
+ *
+ * @author patrick
+ */
+public class ReverseProxyServiceTest {
+
+    /**
+     * Test the parsing of the upstreams
+     */
+    @Test
+    public void upstreamTest() {
+        Upstream upstream = Upstream.parse("localhost:8081");
+        assertEquals("localhost", upstream.getHost());
+        assertEquals(8081, upstream.getPort());
+        assertEquals("::1", Upstream.parse("[::1]:9090").getHost());
+        assertEquals(9090, Upstream.parse("[::1]:9090").getPort());
+        assertEquals(80, Upstream.parse("example.com").getPort());
+        assertThrows(IllegalArgumentException.class, () -> Upstream.parse("localhost:abc"));
+        assertThrows(IllegalArgumentException.class, () -> new ReverseProxyService());
+    }
+
+
+    /**
+     * Test the forwarding to two upstreams, the body is streamed in both directions
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void proxyTest() throws Exception {
+        final AtomicInteger requests1 = new AtomicInteger();
+        final AtomicInteger requests2 = new AtomicInteger();
+        final String[] forwardedFor = new String[1];
+
+        IHttpServer upstream1 = HttpServerFactory.getInstance().getServerInstance();
+        upstream1.start(new CountingEchoService(requests1, forwardedFor), 8111);
+        IHttpServer upstream2 = HttpServerFactory.getInstance().getServerInstance();
+        upstream2.start(new CountingEchoService(requests2, forwardedFor), 8112);
+        IHttpServer proxy = HttpServerFactory.getInstance().getServerInstance();
+        proxy.start(new ReverseProxyService("localhost:8111", "localhost:8112"), 8113);
+        Thread.sleep(100L);
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                HttpResponse<String> response = send(8113, "/hello" + i + "?a=b", null);
+                assertEquals(200, response.statusCode());
+                assertEquals("hello" + i, response.body());
+            }
+
+            HttpResponse<String> response = send(8113, "/upload", "some data which is streamed");
+            assertEquals(200, response.statusCode());
+            assertEquals("some data which is streamed", response.body());
+
+            assertEquals(11, requests1.get() + requests2.get());
+            assertTrue(requests1.get() > 0 && requests2.get() > 0, requests1 + " / " + requests2);
+            assertTrue(forwardedFor[0].endsWith("127.0.0.1") || forwardedFor[0].contains(":"), "X-Forwarded-For: " + forwardedFor[0]);
+
+            // raw HTTP/1.0 client
+            try (Socket socket = new Socket("localhost", 8113)) {
+                socket.setSoTimeout(5000);
+                OutputStream out = socket.getOutputStream();
+                out.write("GET /raw HTTP/1.0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+
+                BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                assertTrue(reader.readLine().startsWith("HTTP/1.1 200"));
+                String line = reader.readLine();
+                String body = null;
+                while (line != null) {
+                    body = line;
+                    line = reader.readLine();
+                }
+                assertEquals("raw", body);
+            }
+        } finally {
+            proxy.stop();
+            upstream1.stop();
+            upstream2.stop();
+        }
+    }
+
+
+    /**
+     * Test the passive ejection of an upstream which is not reachable
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void ejectionTest() throws Exception {
+        final AtomicInteger requests = new AtomicInteger();
+        IHttpServer upstream = HttpServerFactory.getInstance().getServerInstance();
+        upstream.start(new CountingEchoService(requests, new String[1]), 8114);
+
+        // port 8115 is not bound
+        ReverseProxyService service = new ReverseProxyService("localhost:8114", "localhost:8115").setEjection(1, 60_000);
+        IHttpServer proxy = HttpServerFactory.getInstance().getServerInstance();
+        proxy.start(service, 8116);
+        Thread.sleep(100L);
+
+        try {
+            int failures = 0;
+            for (int i = 0; i < 10; i++) {
+                HttpResponse<String> response = send(8116, "/test", null);
+                if (response.statusCode() != 200) {
+                    assertEquals(502, response.statusCode());
+                    failures++;
+                }
+            }
+
+            assertTrue(failures <= 1, "Failures: " + failures);
+            assertTrue(service.getUpstreams().get(1).isEjected(System.nanoTime()));
+            assertFalse(service.getUpstreams().get(0).isEjected(System.nanoTime()));
+            assertEquals(10 - failures, requests.get());
+            assertFalse(service.isEjected());
+
+            // all upstreams are ejected
+            upstream.stop();
+            send(8116, "/test", null);
+            assertTrue(service.isEjected());
+            assertEquals(503, send(8116, "/test", null).statusCode());
+            assertEquals("HTTP/1.1 503 SERVICE UNAVAILABLE", sendRaw(8116, "/test"));
+        } finally {
+            proxy.stop();
+            upstream.stop();
+        }
+    }
+
+
+    /**
+     * Test that a request which expires while its body is streamed from the client is answered with 504
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void deadlineTest() throws Exception {
+        IHttpServer upstream = HttpServerFactory.getInstance().getServerInstance();
+        upstream.start(new EchoService(), 8143);
+        HttpServerImpl proxy = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        proxy.setRequestTimeoutPolicy(new RequestTimeoutPolicy(200));
+        proxy.start(new ReverseProxyService("localhost:8143"), 8142);
+        Thread.sleep(100L);
+
+        try (Socket socket = new Socket("localhost", 8142)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+
+            // the body is incomplete, the proxy blocks on the client channel until the deadline expires
+            out.write("POST /upload HTTP/1.1\r\nHost: localhost\r\nContent-Length: 10\r\n\r\nab".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            assertEquals("HTTP/1.1 504 GATEWAY TIMEOUT", reader.readLine());
+        } finally {
+            proxy.stop();
+            upstream.stop();
+        }
+    }
+
+
+    /**
+     * Test the status line of an upstream failure
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void badGatewayTest() throws Exception {
+        // port 8141 is not bound
+        ReverseProxyService service = new ReverseProxyService("localhost:8141").setEjection(100, 60_000);
+        IHttpServer proxy = HttpServerFactory.getInstance().getServerInstance();
+        proxy.start(service, 8140);
+        Thread.sleep(100L);
+
+        try {
+            assertEquals("HTTP/1.1 502 BAD GATEWAY", sendRaw(8140, "/test"));
+        } finally {
+            proxy.stop();
+        }
+    }
+
+
+    /**
+     * Test that a binary body of an already read request is forwarded without loss in both directions
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void binaryBodyTest() throws Exception {
+        final byte[] body = new byte[256];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+
+        final byte[][] received = new byte[1][];
+        try (ServerSocket upstream = new ServerSocket(8137)) {
+            final Thread upstreamThread = new Thread(() -> {
+                try (Socket socket = upstream.accept()) {
+                    final DataInputStream input = new DataInputStream(socket.getInputStream());
+                    int matched = 0;
+                    while (matched < 4) {
+                        final int b = input.read();
+                        if (b == "\r\n\r\n".charAt(matched)) {
+                            matched++;
+                        } else {
+                            matched = 0;
+                        }
+                    }
+
+                    received[0] = new byte[body.length];
+                    input.readFully(received[0]);
+                    final OutputStream out = socket.getOutputStream();
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    out.write(body);
+                    out.flush();
+                } catch (Exception e) {
+                    received[0] = null;
+                }
+            });
+            upstreamThread.start();
+
+            final com.github.toolarium.network.server.dto.HttpRequest request = new com.github.toolarium.network.server.dto.HttpRequest()
+                    .setMethod("POST").setPath("/binary").setVersion("HTTP/1.1")
+                    .setBody(new String(body, ReverseProxyService.BODY_CHARSET));
+            request.setHeaders(new HttpHeaders().add(HttpHeaderUtil.CONTENT_LENGTH, "" + body.length));
+
+            final ReverseProxyService service = new ReverseProxyService("localhost:8137");
+            final IHttpResponse response = service.processRequest(null, request);
+            upstreamThread.join(5000L);
+            service.stop(null, 0);
+
+            assertEquals(200, response.getStatus());
+            assertArrayEquals(body, received[0]);
+            assertArrayEquals(body, response.getBody().getBytes(ReverseProxyService.BODY_CHARSET));
+            assertEquals("" + body.length, response.getHeaders().get(HttpHeaderUtil.CONTENT_LENGTH));
+        }
+    }
+
+
+    /**
+     * Test the reuse of a pooled keep-alive connection with a chunked response
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void keepAliveTest() throws Exception {
+        final AtomicInteger connections = new AtomicInteger();
+        final ServerSocket serverSocket = new ServerSocket(8117);
+        final Thread upstream = new Thread(() -> {
+            try {
+                while (!serverSocket.isClosed()) {
+                    try (Socket socket = serverSocket.accept()) {
+                        connections.incrementAndGet();
+                        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                        OutputStream out = socket.getOutputStream();
+                        String line = reader.readLine();
+                        while (line != null) {
+                            if (line.isEmpty()) {
+                                out.write("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nSet-Cookie: a=1\r\nSet-Cookie: b=2\r\n\r\n2\r\nok\r\n0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+                                out.flush();
+                            }
+                            line = reader.readLine();
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                // NOP
+            }
+        });
+        upstream.setDaemon(true);
+        upstream.start();
+
+        IHttpServer proxy = HttpServerFactory.getInstance().getServerInstance();
+        proxy.start(new ReverseProxyService("localhost:8117"), 8118);
+        Thread.sleep(100L);
+
+        try {
+            for (int i = 0; i < 5; i++) {
+                HttpResponse<String> response = send(8118, "/keepalive", null);
+                assertEquals(200, response.statusCode());
+                assertEquals("ok", response.body());
+                assertEquals(2, response.headers().allValues("Set-Cookie").size());
+            }
+
+            assertEquals(1, connections.get());
+        } finally {
+            proxy.stop();
+            serverSocket.close();
+        }
+    }
+
+
+    /**
+     * Test the propagation of the trace context: with a tracer the upstream becomes a child of the proxy span,
+     * otherwise the traceparent is forwarded unchanged.
+     *
+     * @throws Exception In case of an error
+     */
+    @Test
+    public void tracePropagationTest() throws Exception {
+        final String traceparent = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+        final String[] upstreamTraceparent = new String[1];
+        final String[] proxySpanId = new String[1];
+
+        IHttpServer upstream = HttpServerFactory.getInstance().getServerInstance();
+        upstream.start(new EchoService() {
+            /**
+             * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+             *      com.github.toolarium.network.server.dto.IHttpRequest)
+             */
+            @Override
+            public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+                upstreamTraceparent[0] = request.getHeader(HttpHeaderUtil.TRACEPARENT);
+                return super.processRequest(httpServerLogger, request);
+            }
+        }, 8121);
+        HttpServerImpl proxy = (HttpServerImpl) HttpServerFactory.getInstance().getServerInstance();
+        proxy.setTracer(new SpanRecorder(proxySpanId));
+        proxy.start(new ReverseProxyService("localhost:8121"), 8122);
+        Thread.sleep(100L);
+
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8122/traced")).header(HttpHeaderUtil.TRACEPARENT, traceparent).GET().build();
+            HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+            assertEquals(200, client.send(request, BodyHandlers.ofString()).statusCode());
+            assertEquals("00-4bf92f3577b34da6a3ce929d0e0e4736-" + proxySpanId[0] + "-01", upstreamTraceparent[0]);
+
+            proxy.setTracer(null);
+            assertEquals(200, client.send(request, BodyHandlers.ofString()).statusCode());
+            assertEquals(traceparent, upstreamTraceparent[0]);
+        } finally {
+            proxy.stop();
+            upstream.stop();
+        }
+    }
+
+
+    /**
+     * Send a request
+     *
+     * @param port the port
+     * @param path the path
+     * @param body the body to post or null
+     * @return the response
+     * @throws Exception In case of an error
+     */
+    private HttpResponse<String> send(int port, String path, String body) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (body != null) {
+            builder.POST(HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            builder.GET();
+        }
+
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build()
+                .send(builder.build(), BodyHandlers.ofString());
+    }
+
+
+    /**
+     * Send a raw GET request and return the status line
+     *
+     * @param port the port
+     * @param path the path
+     * @return the status line
+     * @throws Exception In case of an error
+     */
+    private String sendRaw(int port, String path) throws Exception {
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine();
+        }
+    }
+
+
+    /**
+     * Tracer which records the last span id
+     */
+    private static class SpanRecorder implements ITracer {
+        private final String[] spanId;
+
+        /**
+         * Constructor for SpanRecorder
+         *
+         * @param spanId the last span id
+         */
+        SpanRecorder(String[] spanId) {
+            this.spanId = spanId;
+        }
+
+        /**
+         * @see com.github.toolarium.network.server.trace.ITracer#isEnabled()
+         */
+        @Override
+        public boolean isEnabled() {
+            return true;
+        }
+
+        /**
+         * @see com.github.toolarium.network.server.trace.ITracer#spanStart(com.github.toolarium.network.server.dto.IHttpServerInformation,
+         *      com.github.toolarium.network.server.dto.IHttpRequest)
+         */
+        @Override
+        public void spanStart(IHttpServerInformation serverInformation, IHttpRequest request) {
+            spanId[0] = request.getTraceContext().getSpanId();
+        }
+
+        /**
+         * @see com.github.toolarium.network.server.trace.ITracer#spanEnd(com.github.toolarium.network.server.dto.IHttpServerInformation,
+         *      com.github.toolarium.network.server.dto.IHttpRequest, com.github.toolarium.network.server.dto.IHttpResponse, java.lang.Throwable)
+         */
+        @Override
+        public void spanEnd(IHttpServerInformation serverInformation, IHttpRequest request, IHttpResponse response, Throwable error) {
+            // NOP
+        }
+    }
+
+    /**
+     * Echo service which counts the requests
+     */
+    private static class CountingEchoService extends EchoService {
+        private final AtomicInteger counter;
+        private final String[] forwardedFor;
+
+        /**
+         * Constructor for CountingEchoService
+         *
+         * @param counter the counter
+         * @param forwardedFor the last X-Forwarded-For header
+         */
+        CountingEchoService(AtomicInteger counter, String[] forwardedFor) {
+            this.counter = counter;
+            this.forwardedFor = forwardedFor;
+        }
+
+        /**
+         * @see com.github.toolarium.network.server.service.EchoService#processRequest(com.github.toolarium.network.server.logger.IHttpServerLogger,
+         *      com.github.toolarium.network.server.dto.IHttpRequest)
+         */
+        @Override
+        public IHttpResponse processRequest(IHttpServerLogger httpServerLogger, IHttpRequest request) {
+            counter.incrementAndGet();
+            forwardedFor[0] = request.getHeader("X-Forwarded-For");
+            return super.processRequest(httpServerLogger, request);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * TraceContextUtilTest.java
+ *
+ * Copyright by toolarium, all rights reserved.
+ */
+package com.github.toolarium.network.server.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.github.toolarium.network.server.dto.HttpRequest;
+import com.github.toolarium.network.server.dto.HttpRequestTiming;
+import com.github.toolarium.network.server.util.HttpHeaderUtil;
+import org.junit.jupiter.api.Test;
+
+
+/**
+ * Test the {@link TraceContextUtil}.
+ *
+ * @author patrick
+ */
+public class TraceContextUtilTest {
+    private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+    private static final String PARENT_ID = "00f067aa0ba902b7";
+    private static final String TRACEPARENT = "00-" + TRACE_ID + "-" + PARENT_ID + "-01";
+
+
+    /**
+     * Test a valid traceparent
+     */
+    @Test
+    public void parseTest() {
+        ITraceContext context = TraceContextUtil.getInstance().parse(TRACEPARENT, " congo=t61rcWkgMzE ");
+        assertEquals(TRACE_ID, context.getTraceId());
+        assertEquals(PARENT_ID, context.getParentSpanId());
+        assertEquals(16, context.getSpanId().length());
+        assertNotEquals(PARENT_ID, context.getSpanId());
+        assertEquals(1, context.getTraceFlags());
+        assertTrue(context.isSampled());
+        assertTrue(context.isRemote());
+        assertEquals("congo=t61rcWkgMzE", context.getTraceState());
+        assertEquals("00-" + TRACE_ID + "-" + context.getSpanId() + "-01", context.toTraceparent());
+
+        context = TraceContextUtil.getInstance().parse("00-" + TRACE_ID + "-" + PARENT_ID + "-00", "");
+        assertFalse(context.isSampled());
+        assertNull(context.getTraceState());
+
+        // a higher version can have additional fields
+        context = TraceContextUtil.getInstance().parse("cc-" + TRACE_ID + "-" + PARENT_ID + "-01-what-the-future-will-be-like", null);
+        assertEquals(TRACE_ID, context.getTraceId());
+        assertTrue(context.toTraceparent().startsWith("00-"));
+    }
+
+
+    /**
+     * Test invalid traceparent values: a new trace is started and the trace state is ignored
+     */
+    @Test
+    public void invalidTest() {
+        final String[] invalidValues = {
+            null, "", "00-" + TRACE_ID + "-" + PARENT_ID,
+            "00-" + TRACE_ID.toUpperCase() + "-" + PARENT_ID + "-01",
+            "00-00000000000000000000000000000000-" + PARENT_ID + "-01",
+            "00-" + TRACE_ID + "-0000000000000000-01",
+            "ff-" + TRACE_ID + "-" + PARENT_ID + "-01",
+            "00-" + TRACE_ID + "-" + PARENT_ID + "-01-00",
+            "cc-" + TRACE_ID + "-" + PARENT_ID + "-01x",
+            "00_" + TRACE_ID + "-" + PARENT_ID + "-01",
+            "00-" + TRACE_ID + "-" + PARENT_ID + "-0g" };
+
+        for (String value : invalidValues) {
+            assertFalse(TraceContextUtil.getInstance().isValidTraceparent(value), "" + value);
+            ITraceContext context = TraceContextUtil.getInstance().parse(value, "congo=t61rcWkgMzE");
+            assertFalse(context.isRemote());
+            assertNull(context.getParentSpanId());
+            assertNull(context.getTraceState());
+            assertNotEquals(TRACE_ID, context.getTraceId());
+            assertTrue(TraceContextUtil.getInstance().isValidTraceparent(context.toTraceparent()));
+        }
+    }
+
+
+    /**
+     * Test the generated ids
+     */
+    @Test
+    public void newTraceContextTest() {
+        ITraceContext context1 = TraceContextUtil.getInstance().newTraceContext();
+        ITraceContext context2 = TraceContextUtil.getInstance().newTraceContext();
+        assertEquals(32, context1.getTraceId().length());
+        assertEquals(16, context1.getSpanId().length());
+        assertTrue(context1.getTraceId().matches("[0-9a-f]{32}"));
+        assertTrue(context1.getSpanId().matches("[0-9a-f]{16}"));
+        assertNotEquals(context1.getTraceId(), context2.getTraceId());
+        assertTrue(context1.isSampled());
+        assertTrue(TraceContextUtil.getInstance().isValidTraceparent(context1.toTraceparent()));
+    }
+
+
+    /**
+     * Test the trace context of a request
+     */
+    @Test
+    public void requestTest() {
+        HttpRequest request = new HttpRequest().setTiming(new HttpRequestTiming());
+        request.getHeaders().add("TraceParent", TRACEPARENT).add(HttpHeaderUtil.TRACESTATE, "rojo=00f067aa0ba902b7").add(HttpHeaderUtil.TRACESTATE, "congo=t61rcWkgMzE");
+        ITraceContext context = request.getTraceContext();
+        assertEquals(TRACE_ID, context.getTraceId());
+        assertEquals("rojo=00f067aa0ba902b7,congo=t61rcWkgMzE", context.getTraceState());
+
+        // parsed once
+        assertTrue(context == request.getTraceContext());
+        assertFalse(new HttpRequest().getTraceContext().isRemote());
+    }
+}
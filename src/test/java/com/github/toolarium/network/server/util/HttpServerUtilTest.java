@@ -10,9 +10,11 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import com.github.toolarium.network.server.dto.HttpHeaders;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.Arrays;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
 
@@ -44,7 +46,9 @@ public class HttpServerUtilTest {
         assertEquals("CONFLICT", HttpStatusUtil.getInstance().getStatusText(409));
         assertEquals("TOO LARGE", HttpStatusUtil.getInstance().getStatusText(413));
         assertEquals("INTERNAL SERVER ERROR", HttpStatusUtil.getInstance().getStatusText(500));
+        assertEquals("BAD GATEWAY", HttpStatusUtil.getInstance().getStatusText(502));
         assertEquals("SERVICE UNAVAILABLE", HttpStatusUtil.getInstance().getStatusText(503));
+        assertEquals("GATEWAY TIMEOUT", HttpStatusUtil.getInstance().getStatusText(504));
     }
 
 
@@ -133,6 +137,52 @@ public class HttpServerUtilTest {
     }
 
 
+    /**
+     * Test reading lower case and repeated headers.
+     *
+     * @throws IOException In case of an error
+     */
+    @Test
+    public void readHeadersCaseInsensitiveTest() throws IOException {
+        String raw = "host: localhost\r\n"
+                + "content-length: 42\r\n"
+                + "Accept:  text/html \r\n"
+                + "ACCEPT: application/json\r\n"
+                + "\r\n"
+                + "body";
+
+        BufferedReader reader = new BufferedReader(new StringReader(raw));
+        HttpHeaders headers = HttpHeaderUtil.getInstance().readHeaders(reader);
+
+        assertEquals(3, headers.size());
+        assertEquals("localhost", headers.get(HttpHeaderUtil.HOST));
+        assertEquals(42, headers.getContentLength());
+        assertEquals("text/html", headers.get(HttpHeaderUtil.ACCEPT));
+        assertEquals(Arrays.asList("text/html", "application/json"), headers.getAll(HttpHeaderUtil.ACCEPT));
+        assertEquals("body", reader.readLine());
+    }
+
+
+    /**
+     * Test the percent decoder including invalid sequences.
+     */
+    @Test
+    public void percentDecoderTest() {
+        PercentDecoderUtil decoder = PercentDecoderUtil.getInstance();
+        assertNull(decoder.decode(null, true));
+        assertEquals("plain", decoder.decode("plain", true));
+        assertEquals("a b", decoder.decode("a+b", true));
+        assertEquals("a+b", decoder.decode("a+b", false));
+        assertEquals("/?#[]@!$&'()*+,;=", decoder.decode("%2F%3F%23%5B%5D%40%21%24%26%27%28%29%2A%2B%2C%3B%3D", true));
+        assertEquals("\u00E4\uD83D\uDE00", decoder.decode("%c3%a4%F0%9F%98%80", true)); // a-umlaut and emoji
+        assertEquals("100%", decoder.decode("100%", true));
+        assertEquals("%zz%4", decoder.decode("%zz%4", true));
+        assertEquals("\uFFFDx", decoder.decode("%C3x", true)); // truncated sequence
+        assertEquals("\uFFFD\uFFFD", decoder.decode("%C0%80", true)); // overlong encoding
+        assertEquals("bc", decoder.decode("abcd", 1, 3, true));
+    }
+
+
     /**
      * Test header constant values exist.
      */